@@ -15,12 +15,16 @@
 package com.amazon.opendistroforelasticsearch.alerting
 
 import com.amazon.opendistroforelasticsearch.alerting.action.AcknowledgeAlertAction
+import com.amazon.opendistroforelasticsearch.alerting.action.AcknowledgeAlertsByQueryAction
+import com.amazon.opendistroforelasticsearch.alerting.action.AcknowledgeAlertsByQueryTask
 import com.amazon.opendistroforelasticsearch.alerting.action.DeleteDestinationAction
 import com.amazon.opendistroforelasticsearch.alerting.action.DeleteEmailAccountAction
 import com.amazon.opendistroforelasticsearch.alerting.action.DeleteEmailGroupAction
 import com.amazon.opendistroforelasticsearch.alerting.action.DeleteMonitorAction
+import com.amazon.opendistroforelasticsearch.alerting.action.DestinationStatsAction
 import com.amazon.opendistroforelasticsearch.alerting.action.ExecuteMonitorAction
 import com.amazon.opendistroforelasticsearch.alerting.action.GetAlertsAction
+import com.amazon.opendistroforelasticsearch.alerting.action.GetAlertsSummaryAction
 import com.amazon.opendistroforelasticsearch.alerting.action.GetDestinationsAction
 import com.amazon.opendistroforelasticsearch.alerting.action.GetEmailAccountAction
 import com.amazon.opendistroforelasticsearch.alerting.action.GetEmailGroupAction
@@ -33,10 +37,13 @@ import com.amazon.opendistroforelasticsearch.alerting.action.SearchEmailAccountA
 import com.amazon.opendistroforelasticsearch.alerting.action.SearchEmailGroupAction
 import com.amazon.opendistroforelasticsearch.alerting.action.SearchMonitorAction
 import com.amazon.opendistroforelasticsearch.alerting.alerts.AlertIndices
+import com.amazon.opendistroforelasticsearch.alerting.alerts.DocLevelMonitorQueries
+import com.amazon.opendistroforelasticsearch.alerting.core.IndexMaintenanceMetricsRecorder
 import com.amazon.opendistroforelasticsearch.alerting.core.JobSweeper
 import com.amazon.opendistroforelasticsearch.alerting.core.ScheduledJobIndices
 import com.amazon.opendistroforelasticsearch.alerting.core.action.node.ScheduledJobsStatsAction
 import com.amazon.opendistroforelasticsearch.alerting.core.action.node.ScheduledJobsStatsTransportAction
+import com.amazon.opendistroforelasticsearch.alerting.core.model.DocLevelMonitorInput
 import com.amazon.opendistroforelasticsearch.alerting.core.model.ScheduledJob
 import com.amazon.opendistroforelasticsearch.alerting.core.model.SearchInput
 import com.amazon.opendistroforelasticsearch.alerting.core.resthandler.RestScheduledJobStatsHandler
@@ -44,12 +51,15 @@ import com.amazon.opendistroforelasticsearch.alerting.core.schedule.JobScheduler
 import com.amazon.opendistroforelasticsearch.alerting.core.settings.ScheduledJobSettings
 import com.amazon.opendistroforelasticsearch.alerting.model.Monitor
 import com.amazon.opendistroforelasticsearch.alerting.resthandler.RestAcknowledgeAlertAction
+import com.amazon.opendistroforelasticsearch.alerting.resthandler.RestAcknowledgeAlertsByQueryAction
 import com.amazon.opendistroforelasticsearch.alerting.resthandler.RestDeleteDestinationAction
 import com.amazon.opendistroforelasticsearch.alerting.resthandler.RestDeleteEmailAccountAction
 import com.amazon.opendistroforelasticsearch.alerting.resthandler.RestDeleteEmailGroupAction
 import com.amazon.opendistroforelasticsearch.alerting.resthandler.RestDeleteMonitorAction
+import com.amazon.opendistroforelasticsearch.alerting.resthandler.RestDestinationStatsAction
 import com.amazon.opendistroforelasticsearch.alerting.resthandler.RestExecuteMonitorAction
 import com.amazon.opendistroforelasticsearch.alerting.resthandler.RestGetAlertsAction
+import com.amazon.opendistroforelasticsearch.alerting.resthandler.RestGetAlertsSummaryAction
 import com.amazon.opendistroforelasticsearch.alerting.resthandler.RestGetDestinationsAction
 import com.amazon.opendistroforelasticsearch.alerting.resthandler.RestGetEmailAccountAction
 import com.amazon.opendistroforelasticsearch.alerting.resthandler.RestGetEmailGroupAction
@@ -65,12 +75,15 @@ import com.amazon.opendistroforelasticsearch.alerting.script.TriggerScript
 import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings
 import com.amazon.opendistroforelasticsearch.alerting.settings.DestinationSettings
 import com.amazon.opendistroforelasticsearch.alerting.transport.TransportAcknowledgeAlertAction
+import com.amazon.opendistroforelasticsearch.alerting.transport.TransportAcknowledgeAlertsByQueryAction
 import com.amazon.opendistroforelasticsearch.alerting.transport.TransportDeleteDestinationAction
 import com.amazon.opendistroforelasticsearch.alerting.transport.TransportDeleteEmailAccountAction
 import com.amazon.opendistroforelasticsearch.alerting.transport.TransportDeleteEmailGroupAction
 import com.amazon.opendistroforelasticsearch.alerting.transport.TransportDeleteMonitorAction
+import com.amazon.opendistroforelasticsearch.alerting.transport.TransportDestinationStatsAction
 import com.amazon.opendistroforelasticsearch.alerting.transport.TransportExecuteMonitorAction
 import com.amazon.opendistroforelasticsearch.alerting.transport.TransportGetAlertsAction
+import com.amazon.opendistroforelasticsearch.alerting.transport.TransportGetAlertsSummaryAction
 import com.amazon.opendistroforelasticsearch.alerting.transport.TransportGetDestinationsAction
 import com.amazon.opendistroforelasticsearch.alerting.transport.TransportGetEmailAccountAction
 import com.amazon.opendistroforelasticsearch.alerting.transport.TransportGetEmailGroupAction
@@ -94,6 +107,7 @@ import org.elasticsearch.common.settings.IndexScopedSettings
 import org.elasticsearch.common.settings.Setting
 import org.elasticsearch.common.settings.Settings
 import org.elasticsearch.common.settings.SettingsFilter
+import org.elasticsearch.common.util.concurrent.EsExecutors
 import org.elasticsearch.common.xcontent.NamedXContentRegistry
 import org.elasticsearch.env.Environment
 import org.elasticsearch.env.NodeEnvironment
@@ -110,14 +124,18 @@ import org.elasticsearch.rest.RestController
 import org.elasticsearch.rest.RestHandler
 import org.elasticsearch.script.ScriptContext
 import org.elasticsearch.script.ScriptService
+import org.elasticsearch.tasks.Task
+import org.elasticsearch.threadpool.ExecutorBuilder
+import org.elasticsearch.threadpool.FixedExecutorBuilder
 import org.elasticsearch.threadpool.ThreadPool
 import org.elasticsearch.watcher.ResourceWatcherService
 import java.util.function.Supplier
+import kotlin.math.min
 
 /**
  * Entry point of the OpenDistro for Elasticsearch alerting plugin
  * This class initializes the [RestGetMonitorAction], [RestDeleteMonitorAction], [RestIndexMonitorAction] rest handlers.
- * It also adds [Monitor.XCONTENT_REGISTRY], [SearchInput.XCONTENT_REGISTRY] to the
+ * It also adds [Monitor.XCONTENT_REGISTRY], [SearchInput.XCONTENT_REGISTRY], [DocLevelMonitorInput.XCONTENT_REGISTRY] to the
  * [NamedXContentRegistry] so that we are able to deserialize the custom named objects.
  */
 internal class AlertingPlugin : PainlessExtension, ActionPlugin, ScriptPlugin, ReloadablePlugin, Plugin() {
@@ -134,6 +152,9 @@ internal class AlertingPlugin : PainlessExtension, ActionPlugin, ScriptPlugin, R
         @JvmField val EMAIL_ACCOUNT_BASE_URI = "$DESTINATION_BASE_URI/email_accounts"
         @JvmField val EMAIL_GROUP_BASE_URI = "$DESTINATION_BASE_URI/email_groups"
         @JvmField val ALERTING_JOB_TYPES = listOf("monitor")
+        @JvmField val NOTIFICATION_THREAD_POOL_NAME = "opendistro_alerting_notification"
+        private const val MAX_NOTIFICATION_THREADS = 64
+        private const val NOTIFICATION_QUEUE_SIZE = 1000
     }
 
     lateinit var runner: MonitorRunner
@@ -171,7 +192,10 @@ internal class AlertingPlugin : PainlessExtension, ActionPlugin, ScriptPlugin, R
                 RestSearchEmailGroupAction(),
                 RestGetEmailGroupAction(),
                 RestGetDestinationsAction(),
-                RestGetAlertsAction()
+                RestGetAlertsAction(),
+                RestGetAlertsSummaryAction(),
+                RestAcknowledgeAlertsByQueryAction(),
+                RestDestinationStatsAction()
         )
     }
 
@@ -195,12 +219,21 @@ internal class AlertingPlugin : PainlessExtension, ActionPlugin, ScriptPlugin, R
             ActionPlugin.ActionHandler(SearchEmailGroupAction.INSTANCE, TransportSearchEmailGroupAction::class.java),
             ActionPlugin.ActionHandler(DeleteEmailGroupAction.INSTANCE, TransportDeleteEmailGroupAction::class.java),
             ActionPlugin.ActionHandler(GetDestinationsAction.INSTANCE, TransportGetDestinationsAction::class.java),
-            ActionPlugin.ActionHandler(GetAlertsAction.INSTANCE, TransportGetAlertsAction::class.java)
+            ActionPlugin.ActionHandler(GetAlertsAction.INSTANCE, TransportGetAlertsAction::class.java),
+            ActionPlugin.ActionHandler(GetAlertsSummaryAction.INSTANCE, TransportGetAlertsSummaryAction::class.java),
+            ActionPlugin.ActionHandler(AcknowledgeAlertsByQueryAction.INSTANCE, TransportAcknowledgeAlertsByQueryAction::class.java),
+            ActionPlugin.ActionHandler(DestinationStatsAction.INSTANCE, TransportDestinationStatsAction::class.java)
         )
     }
 
+    override fun getNamedWriteables(): List<NamedWriteableRegistry.Entry> {
+        return listOf(NamedWriteableRegistry.Entry(Task.Status::class.java, AcknowledgeAlertsByQueryTask.Status.NAME) {
+            AcknowledgeAlertsByQueryTask.Status(it)
+        })
+    }
+
     override fun getNamedXContent(): List<NamedXContentRegistry.Entry> {
-        return listOf(Monitor.XCONTENT_REGISTRY, SearchInput.XCONTENT_REGISTRY)
+        return listOf(Monitor.XCONTENT_REGISTRY, SearchInput.XCONTENT_REGISTRY, DocLevelMonitorInput.XCONTENT_REGISTRY)
     }
 
     override fun createComponents(
@@ -218,14 +251,27 @@ internal class AlertingPlugin : PainlessExtension, ActionPlugin, ScriptPlugin, R
     ): Collection<Any> {
         // Need to figure out how to use the Elasticsearch DI classes rather than handwiring things here.
         val settings = environment.settings()
-        alertIndices = AlertIndices(settings, client, threadPool, clusterService)
-        runner = MonitorRunner(settings, client, threadPool, scriptService, xContentRegistry, alertIndices, clusterService)
+        val indexMaintenanceMetrics = IndexMaintenanceMetricsRecorder()
+        alertIndices = AlertIndices(settings, client, threadPool, clusterService, indexMaintenanceMetrics)
+        val docLevelMonitorQueries = DocLevelMonitorQueries(settings, client, clusterService)
+        runner = MonitorRunner(settings, client, threadPool, scriptService, xContentRegistry, alertIndices, docLevelMonitorQueries,
+                clusterService)
         scheduledJobIndices = ScheduledJobIndices(client.admin(), clusterService)
         scheduler = JobScheduler(threadPool, runner)
         sweeper = JobSweeper(environment.settings(), client, clusterService, threadPool, xContentRegistry, scheduler, ALERTING_JOB_TYPES)
         this.threadPool = threadPool
         this.clusterService = clusterService
-        return listOf(sweeper, scheduler, runner, scheduledJobIndices)
+        return listOf(sweeper, scheduler, runner, scheduledJobIndices, indexMaintenanceMetrics)
+    }
+
+    /**
+     * Notifications are sent from their own pool so that slow destinations can't starve anything else, and so that
+     * the pool can be sized through thread_pool.opendistro_alerting_notification.size and .queue_size and monitored
+     * through the node stats.
+     */
+    override fun getExecutorBuilders(settings: Settings): List<ExecutorBuilder<*>> {
+        val size = min(MAX_NOTIFICATION_THREADS, EsExecutors.allocatedProcessors(settings) * 4)
+        return listOf(FixedExecutorBuilder(settings, NOTIFICATION_THREAD_POOL_NAME, size, NOTIFICATION_QUEUE_SIZE))
     }
 
     override fun getSettings(): List<Setting<*>> {
@@ -237,8 +283,13 @@ internal class AlertingPlugin : PainlessExtension, ActionPlugin, ScriptPlugin, R
                 ScheduledJobSettings.SWEEP_PAGE_SIZE,
                 ScheduledJobSettings.SWEEPER_ENABLED,
                 AlertingSettings.INPUT_TIMEOUT,
+                AlertingSettings.TRIGGER_TIMEOUT,
+                AlertingSettings.ACTION_TIMEOUT,
+                AlertingSettings.BUCKET_LEVEL_MAX_BUCKETS,
+                AlertingSettings.DOC_LEVEL_MONITOR_SHARD_FETCH_SIZE,
                 AlertingSettings.INDEX_TIMEOUT,
                 AlertingSettings.BULK_TIMEOUT,
+                AlertingSettings.ALERT_FRESHNESS_INTERVAL,
                 AlertingSettings.ALERT_BACKOFF_MILLIS,
                 AlertingSettings.ALERT_BACKOFF_COUNT,
                 AlertingSettings.MOVE_ALERTS_BACKOFF_MILLIS,
@@ -247,7 +298,19 @@ internal class AlertingPlugin : PainlessExtension, ActionPlugin, ScriptPlugin, R
                 AlertingSettings.ALERT_HISTORY_ROLLOVER_PERIOD,
                 AlertingSettings.ALERT_HISTORY_INDEX_MAX_AGE,
                 AlertingSettings.ALERT_HISTORY_MAX_DOCS,
+                AlertingSettings.ALERT_HISTORY_MAX_SIZE,
+                AlertingSettings.ALERT_HISTORY_MAX_PRIMARY_SHARD_SIZE,
+                AlertingSettings.ALERT_HISTORY_NUMBER_OF_SHARDS,
+                AlertingSettings.ALERT_HISTORY_NUMBER_OF_REPLICAS,
+                AlertingSettings.ALERT_HISTORY_INDEX_SORT_FIELD,
+                AlertingSettings.ALERT_HISTORY_INDEX_SORT_ORDER,
+                AlertingSettings.ALERT_HISTORY_REFRESH_INTERVAL,
+                AlertingSettings.ALERT_INDEX_NUMBER_OF_SHARDS,
+                AlertingSettings.ALERT_INDEX_NUMBER_OF_REPLICAS,
+                AlertingSettings.ALERT_INDEX_REFRESH_INTERVAL,
                 AlertingSettings.ALERT_HISTORY_RETENTION_PERIOD,
+                AlertingSettings.ALERT_HISTORY_SUMMARY_ENABLED,
+                AlertingSettings.ALERT_HISTORY_SUMMARY_AFTER,
                 AlertingSettings.ALERTING_MAX_MONITORS,
                 AlertingSettings.REQUEST_TIMEOUT,
                 AlertingSettings.MAX_ACTION_THROTTLE_VALUE,
@@ -255,7 +318,22 @@ internal class AlertingPlugin : PainlessExtension, ActionPlugin, ScriptPlugin, R
                 DestinationSettings.EMAIL_USERNAME,
                 DestinationSettings.EMAIL_PASSWORD,
                 DestinationSettings.ALLOW_LIST,
-                DestinationSettings.HOST_DENY_LIST
+                DestinationSettings.HOST_DENY_LIST,
+                DestinationSettings.HOST_DNS_CACHE_TTL,
+                DestinationSettings.HTTP_MAX_CONNECTIONS,
+                DestinationSettings.HTTP_MAX_CONNECTIONS_PER_ROUTE,
+                DestinationSettings.HTTP_CONNECTION_TIMEOUT,
+                DestinationSettings.HTTP_CONNECTION_REQUEST_TIMEOUT,
+                DestinationSettings.HTTP_SOCKET_TIMEOUT,
+                DestinationSettings.HTTP_KEEP_ALIVE,
+                DestinationSettings.HTTP_IDLE_CONNECTION_TIMEOUT,
+                DestinationSettings.DIGEST_MAX_MESSAGES,
+                DestinationSettings.RATE_LIMIT_PERMITS_PER_SECOND,
+                DestinationSettings.RATE_LIMIT_BURST,
+                DestinationSettings.CIRCUIT_BREAKER_WINDOW_SIZE,
+                DestinationSettings.CIRCUIT_BREAKER_MINIMUM_CALLS,
+                DestinationSettings.CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD,
+                DestinationSettings.CIRCUIT_BREAKER_OPEN_DURATION
             )
     }
 
@@ -17,15 +17,24 @@ package com.amazon.opendistroforelasticsearch.alerting
 
 import com.amazon.opendistroforelasticsearch.alerting.alerts.AlertError
 import com.amazon.opendistroforelasticsearch.alerting.alerts.AlertIndices
+import com.amazon.opendistroforelasticsearch.alerting.alerts.DocLevelMonitorQueries
 import com.amazon.opendistroforelasticsearch.alerting.alerts.moveAlerts
+import com.amazon.opendistroforelasticsearch.alerting.alerts.moveAlertsOfDeletedMonitors
 import com.amazon.opendistroforelasticsearch.alerting.core.JobRunner
+import com.amazon.opendistroforelasticsearch.alerting.core.model.DocLevelMonitorInput
 import com.amazon.opendistroforelasticsearch.alerting.core.model.ScheduledJob
+import com.amazon.opendistroforelasticsearch.alerting.core.model.Input
 import com.amazon.opendistroforelasticsearch.alerting.core.model.SearchInput
+import com.amazon.opendistroforelasticsearch.alerting.destination.client.DestinationEmailClientPool
+import com.amazon.opendistroforelasticsearch.alerting.destination.client.DestinationHttpClientPool
+import com.amazon.opendistroforelasticsearch.alerting.destination.guard.DestinationGuard
+import com.amazon.opendistroforelasticsearch.alerting.destination.metrics.DeliveryMetrics
 import com.amazon.opendistroforelasticsearch.alerting.elasticapi.InjectorContextElement
 import com.amazon.opendistroforelasticsearch.alerting.elasticapi.convertToMap
 import com.amazon.opendistroforelasticsearch.alerting.elasticapi.firstFailureOrNull
 import com.amazon.opendistroforelasticsearch.alerting.elasticapi.retry
 import com.amazon.opendistroforelasticsearch.alerting.elasticapi.suspendUntil
+import com.amazon.opendistroforelasticsearch.alerting.elasticapi.suspendUntilCancellable
 import com.amazon.opendistroforelasticsearch.alerting.model.ActionExecutionResult
 import com.amazon.opendistroforelasticsearch.alerting.model.ActionRunResult
 import com.amazon.opendistroforelasticsearch.alerting.model.Alert
@@ -38,6 +47,11 @@ import com.amazon.opendistroforelasticsearch.alerting.model.AlertingConfigAccess
 import com.amazon.opendistroforelasticsearch.alerting.model.InputRunResults
 import com.amazon.opendistroforelasticsearch.alerting.model.Monitor
 import com.amazon.opendistroforelasticsearch.alerting.model.MonitorRunResult
+import com.amazon.opendistroforelasticsearch.alerting.model.MonitorStageTimeoutException
+import com.amazon.opendistroforelasticsearch.alerting.model.MonitorStageTimeoutException.Companion.ACTION_STAGE
+import com.amazon.opendistroforelasticsearch.alerting.model.MonitorStageTimeoutException.Companion.ALERT_PERSISTENCE_STAGE
+import com.amazon.opendistroforelasticsearch.alerting.model.MonitorStageTimeoutException.Companion.INPUT_STAGE
+import com.amazon.opendistroforelasticsearch.alerting.model.MonitorStageTimeoutException.Companion.TRIGGER_STAGE
 import com.amazon.opendistroforelasticsearch.alerting.model.Trigger
 import com.amazon.opendistroforelasticsearch.alerting.model.TriggerRunResult
 import com.amazon.opendistroforelasticsearch.alerting.model.action.Action
@@ -45,26 +59,49 @@ import com.amazon.opendistroforelasticsearch.alerting.model.action.Action.Compan
 import com.amazon.opendistroforelasticsearch.alerting.model.action.Action.Companion.MESSAGE_ID
 import com.amazon.opendistroforelasticsearch.alerting.model.action.Action.Companion.SUBJECT
 import com.amazon.opendistroforelasticsearch.alerting.model.destination.DestinationContextFactory
+import com.amazon.opendistroforelasticsearch.alerting.model.destination.DestinationDigester
 import com.amazon.opendistroforelasticsearch.alerting.script.TriggerExecutionContext
 import com.amazon.opendistroforelasticsearch.alerting.script.TriggerScript
+import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings.Companion.ACTION_TIMEOUT
 import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings.Companion.ALERT_BACKOFF_COUNT
 import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings.Companion.ALERT_BACKOFF_MILLIS
+import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings.Companion.BUCKET_LEVEL_MAX_BUCKETS
+import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings.Companion.ALERT_FRESHNESS_INTERVAL
+import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings.Companion.BULK_TIMEOUT
+import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings.Companion.INPUT_TIMEOUT
 import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings.Companion.MOVE_ALERTS_BACKOFF_COUNT
 import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings.Companion.MOVE_ALERTS_BACKOFF_MILLIS
+import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings.Companion.TRIGGER_TIMEOUT
 import com.amazon.opendistroforelasticsearch.alerting.settings.DestinationSettings.Companion.ALLOW_LIST
+import com.amazon.opendistroforelasticsearch.alerting.settings.DestinationSettings.Companion.DESTINATION_GUARD_SETTINGS
 import com.amazon.opendistroforelasticsearch.alerting.settings.DestinationSettings.Companion.HOST_DENY_LIST
+import com.amazon.opendistroforelasticsearch.alerting.settings.DestinationSettings.Companion.HOST_DNS_CACHE_TTL
+import com.amazon.opendistroforelasticsearch.alerting.settings.DestinationSettings.Companion.HTTP_CONNECTION_SETTINGS
+import com.amazon.opendistroforelasticsearch.alerting.settings.DestinationSettings.Companion.HTTP_IDLE_CONNECTION_TIMEOUT
+import com.amazon.opendistroforelasticsearch.alerting.settings.DestinationSettings.Companion.loadDestinationGuardConfig
+import com.amazon.opendistroforelasticsearch.alerting.settings.DestinationSettings.Companion.loadHttpConnectionConfig
 import com.amazon.opendistroforelasticsearch.alerting.settings.DestinationSettings.Companion.loadDestinationSettings
+import com.amazon.opendistroforelasticsearch.alerting.util.CachingHostResolver
+import com.amazon.opendistroforelasticsearch.alerting.util.HostDenyList
 import com.amazon.opendistroforelasticsearch.alerting.util.IndexUtils
 import com.amazon.opendistroforelasticsearch.alerting.util.addUserBackendRolesFilter
+import com.amazon.opendistroforelasticsearch.alerting.util.await
 import com.amazon.opendistroforelasticsearch.alerting.util.isADMonitor
 import com.amazon.opendistroforelasticsearch.alerting.util.isAllowed
+import com.amazon.opendistroforelasticsearch.alerting.util.submitAndAwait
+import kotlinx.coroutines.CancellationException
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.Job
 import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.TimeoutCancellationException
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.isActive
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.runBlocking
-import kotlinx.coroutines.withContext
+import kotlinx.coroutines.withTimeout
 import org.apache.logging.log4j.LogManager
 import org.elasticsearch.ExceptionsHelper
 import org.elasticsearch.action.DocWriteRequest
@@ -73,14 +110,19 @@ import org.elasticsearch.action.bulk.BulkRequest
 import org.elasticsearch.action.bulk.BulkResponse
 import org.elasticsearch.action.delete.DeleteRequest
 import org.elasticsearch.action.index.IndexRequest
+import org.elasticsearch.action.search.SearchAction
 import org.elasticsearch.action.search.SearchRequest
 import org.elasticsearch.action.search.SearchResponse
+import org.elasticsearch.action.update.UpdateRequest
 import org.elasticsearch.client.Client
+import org.elasticsearch.client.node.NodeClient
 import org.elasticsearch.cluster.service.ClusterService
 import org.elasticsearch.common.Strings
 import org.elasticsearch.common.bytes.BytesReference
 import org.elasticsearch.common.component.AbstractLifecycleComponent
 import org.elasticsearch.common.settings.Settings
+import org.elasticsearch.common.unit.TimeValue
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException
 import org.elasticsearch.common.xcontent.LoggingDeprecationHandler
 import org.elasticsearch.common.xcontent.NamedXContentRegistry
 import org.elasticsearch.common.xcontent.ToXContent
@@ -95,10 +137,16 @@ import org.elasticsearch.script.Script
 import org.elasticsearch.script.ScriptService
 import org.elasticsearch.script.ScriptType
 import org.elasticsearch.script.TemplateScript
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregation
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder
 import org.elasticsearch.search.builder.SearchSourceBuilder
+import org.elasticsearch.threadpool.Scheduler.Cancellable
 import org.elasticsearch.threadpool.ThreadPool
 import java.time.Instant
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicBoolean
 import kotlin.coroutines.CoroutineContext
+import kotlin.coroutines.EmptyCoroutineContext
 
 class MonitorRunner(
     private val settings: Settings,
@@ -107,6 +155,7 @@ class MonitorRunner(
     private val scriptService: ScriptService,
     private val xContentRegistry: NamedXContentRegistry,
     private val alertIndices: AlertIndices,
+    private val docLevelMonitorQueries: DocLevelMonitorQueries,
     clusterService: ClusterService
 ) : JobRunner, CoroutineScope, AbstractLifecycleComponent() {
 
@@ -116,17 +165,43 @@ class MonitorRunner(
     override val coroutineContext: CoroutineContext
         get() = Dispatchers.Default + runnerSupervisor
 
+    /**
+     * Runs of each monitor are children of one job per monitor id, so that an in-flight run can be cancelled when the
+     * monitor is descheduled.
+     */
+    private val monitorRunJobs = ConcurrentHashMap<String, Job>()
+
+    /**
+     * Ids of deleted monitors whose alerts are yet to be moved. Deletes are coalesced over [DELETED_MONITORS_BATCH_WINDOW]
+     * so that deleting many monitors at once shares the searches and bulk requests that move their alerts.
+     */
+    private val deletedMonitorIds = ConcurrentHashMap.newKeySet<String>()
+    private val deletedMonitorsBatchScheduled = AtomicBoolean(false)
+
     @Volatile private var retryPolicy =
         BackoffPolicy.constantBackoff(ALERT_BACKOFF_MILLIS.get(settings), ALERT_BACKOFF_COUNT.get(settings))
     @Volatile private var moveAlertsRetryPolicy =
         BackoffPolicy.exponentialBackoff(MOVE_ALERTS_BACKOFF_MILLIS.get(settings), MOVE_ALERTS_BACKOFF_COUNT.get(settings))
     @Volatile private var allowList = ALLOW_LIST.get(settings)
+    @Volatile private var bucketLevelMaxBuckets = BUCKET_LEVEL_MAX_BUCKETS.get(settings)
+    @Volatile private var inputTimeout = INPUT_TIMEOUT.get(settings)
+    @Volatile private var triggerTimeout = TRIGGER_TIMEOUT.get(settings)
+    @Volatile private var actionTimeout = ACTION_TIMEOUT.get(settings)
+    @Volatile private var bulkTimeout = BULK_TIMEOUT.get(settings)
+    @Volatile private var alertFreshnessInterval = ALERT_FRESHNESS_INTERVAL.get(settings)
 
-    @Volatile private var hostDenyList = HOST_DENY_LIST.get(settings)
+    private val hostResolver = CachingHostResolver(HOST_DNS_CACHE_TTL.get(settings))
+    // The deny list is a final setting, so it's compiled once for the lifetime of the runner
+    private val hostDenyList = HostDenyList(HOST_DENY_LIST.get(settings), hostResolver)
 
     @Volatile private var destinationSettings = loadDestinationSettings(settings)
     @Volatile private var destinationContextFactory = DestinationContextFactory(client, xContentRegistry, destinationSettings)
 
+    private val destinationDigester = DestinationDigester(threadPool, settings, clusterService)
+
+    @Volatile private var idleConnectionTimeout = HTTP_IDLE_CONNECTION_TIMEOUT.get(settings)
+    private var scheduledConnectionEviction: Cancellable? = null
+
     init {
         clusterService.clusterSettings.addSettingsUpdateConsumer(ALERT_BACKOFF_MILLIS, ALERT_BACKOFF_COUNT) {
             millis, count -> retryPolicy = BackoffPolicy.constantBackoff(millis, count)
@@ -137,6 +212,59 @@ class MonitorRunner(
         clusterService.clusterSettings.addSettingsUpdateConsumer(ALLOW_LIST) {
             allowList = it
         }
+        clusterService.clusterSettings.addSettingsUpdateConsumer(BUCKET_LEVEL_MAX_BUCKETS) {
+            bucketLevelMaxBuckets = it
+        }
+        clusterService.clusterSettings.addSettingsUpdateConsumer(INPUT_TIMEOUT) { inputTimeout = it }
+        clusterService.clusterSettings.addSettingsUpdateConsumer(TRIGGER_TIMEOUT) { triggerTimeout = it }
+        clusterService.clusterSettings.addSettingsUpdateConsumer(ACTION_TIMEOUT) { actionTimeout = it }
+        clusterService.clusterSettings.addSettingsUpdateConsumer(BULK_TIMEOUT) { bulkTimeout = it }
+        clusterService.clusterSettings.addSettingsUpdateConsumer(ALERT_FRESHNESS_INTERVAL) { alertFreshnessInterval = it }
+        clusterService.clusterSettings.addSettingsUpdateConsumer(HOST_DNS_CACHE_TTL) { hostResolver.ttl = it }
+
+        DestinationHttpClientPool.getHttpClient().updateConnectionConfig(loadHttpConnectionConfig(settings))
+        clusterService.clusterSettings.addSettingsUpdateConsumer(
+            { DestinationHttpClientPool.getHttpClient().updateConnectionConfig(loadHttpConnectionConfig(it)) },
+            HTTP_CONNECTION_SETTINGS,
+            { loadHttpConnectionConfig(it) }
+        )
+        DestinationGuard.getInstance().updateConfig(loadDestinationGuardConfig(settings))
+        clusterService.clusterSettings.addSettingsUpdateConsumer(
+            { DestinationGuard.getInstance().updateConfig(loadDestinationGuardConfig(it)) },
+            DESTINATION_GUARD_SETTINGS,
+            { loadDestinationGuardConfig(it) }
+        )
+        clusterService.clusterSettings.addSettingsUpdateConsumer(HTTP_IDLE_CONNECTION_TIMEOUT) {
+            idleConnectionTimeout = it
+            rescheduleConnectionEviction()
+        }
+    }
+
+    /**
+     * Pooled destination connections are swept at the idle timeout, which also logs per-route pool stats at debug.
+     * Pooled SMTP transports are swept along with them against the email pool's own idle timeout, and so is the guard
+     * state of destinations that haven't been delivered to for a while.
+     */
+    @Synchronized
+    private fun scheduleConnectionEviction() {
+        scheduledConnectionEviction?.cancel()
+        scheduledConnectionEviction = threadPool.scheduleWithFixedDelay({
+            DestinationHttpClientPool.getHttpClient().evictIdleConnections()
+            DestinationEmailClientPool.getEmailClient().evictIdleTransports()
+            DestinationGuard.getInstance().evictIdleStates()
+        }, idleConnectionTimeout, ThreadPool.Names.GENERIC)
+    }
+
+    @Synchronized
+    private fun rescheduleConnectionEviction() {
+        // Only reschedule while running, the sweep is started with the runner
+        if (scheduledConnectionEviction != null) scheduleConnectionEviction()
+    }
+
+    @Synchronized
+    private fun cancelConnectionEviction() {
+        scheduledConnectionEviction?.cancel()
+        scheduledConnectionEviction = null
     }
 
     /** Update destination settings when the reload API is called so that new keystore values are visible */
@@ -149,10 +277,13 @@ class MonitorRunner(
 
     override fun doStart() {
         runnerSupervisor = SupervisorJob()
+        scheduleConnectionEviction()
     }
 
     override fun doStop() {
         runnerSupervisor.cancel()
+        cancelConnectionEviction()
+        destinationDigester.deliverAll()
     }
 
     override fun doClose() { }
@@ -166,7 +297,8 @@ class MonitorRunner(
             try {
                 moveAlertsRetryPolicy.retry(logger) {
                     if (alertIndices.isInitialized()) {
-                        moveAlerts(client, job.id, job)
+                        val moved = moveAlerts(client, job.id, job)
+                        if (moved > 0) logger.info("Moved $moved alerts of deleted triggers of monitor [${job.id}] to history.")
                     }
                 }
             } catch (e: Exception) {
@@ -176,15 +308,19 @@ class MonitorRunner(
     }
 
     override fun postDelete(jobId: String) {
+        deletedMonitorIds.add(jobId)
+        if (deletedMonitorsBatchScheduled.compareAndSet(false, true)) {
+            launch {
+                delay(DELETED_MONITORS_BATCH_WINDOW.millis)
+                deletedMonitorsBatchScheduled.set(false)
+                moveAlertsOfPendingDeletedMonitors()
+            }
+        }
         launch {
             try {
-                moveAlertsRetryPolicy.retry(logger) {
-                    if (alertIndices.isInitialized()) {
-                        moveAlerts(client, jobId, null)
-                    }
-                }
+                docLevelMonitorQueries.deleteMonitorQueries(jobId)
             } catch (e: Exception) {
-                logger.error("Failed to move active alerts for monitor [$jobId].", e)
+                logger.error("Failed to delete document-level queries for monitor [$jobId].", e)
             }
         }
     }
@@ -194,7 +330,17 @@ class MonitorRunner(
             throw IllegalArgumentException("Invalid job type")
         }
 
-        launch { runMonitor(job, periodStart, periodEnd) }
+        val monitorRunJob = monitorRunJobs.compute(job.id) { _, existing ->
+            if (existing?.isActive == true) existing else SupervisorJob(runnerSupervisor)
+        }!!
+        launch(monitorRunJob) { runMonitor(job, periodStart, periodEnd) }
+    }
+
+    override fun cancelRunningJob(jobId: String): Boolean {
+        val monitorRunJob = monitorRunJobs.remove(jobId) ?: return false
+        val running = monitorRunJob.children.any()
+        monitorRunJob.cancel()
+        return running
     }
 
     suspend fun runMonitor(monitor: Monitor, periodStart: Instant, periodEnd: Instant, dryrun: Boolean = false): MonitorRunResult {
@@ -230,8 +376,10 @@ class MonitorRunner(
             return monitorResult.copy(error = e)
         }
         if (!isADMonitor(monitor)) {
-            runBlocking(InjectorContextElement(monitor.id, settings, threadPool.threadContext, roles)) {
-                monitorResult = monitorResult.copy(inputResults = collectInputResults(monitor, periodStart, periodEnd))
+            // The run's job is the parent of the blocking coroutine so that cancelling the run also cancels the input searches
+            val runJob = kotlin.coroutines.coroutineContext[Job]
+            runBlocking(InjectorContextElement(monitor.id, settings, threadPool.threadContext, roles) + (runJob ?: EmptyCoroutineContext)) {
+                monitorResult = monitorResult.copy(inputResults = collectInputResults(monitor, periodStart, periodEnd, dryrun))
             }
         } else {
             monitorResult = monitorResult.copy(inputResults = collectInputResultsForADMonitor(monitor, periodStart, periodEnd))
@@ -240,7 +388,15 @@ class MonitorRunner(
         val updatedAlerts = mutableListOf<Alert>()
         val triggerResults = mutableMapOf<String, TriggerRunResult>()
         for (trigger in monitor.triggers) {
-            val currentAlert = currentAlerts[trigger]
+            if (trigger.isBucketLevel()) {
+                val (triggerResult, bucketAlerts) =
+                        runBucketLevelTrigger(monitor, trigger, monitorResult, currentAlerts[trigger].orEmpty(), dryrun)
+                triggerResults[trigger.id] = triggerResult
+                updatedAlerts += bucketAlerts
+                continue
+            }
+
+            val currentAlert = currentAlerts[trigger]?.firstOrNull()
             val triggerCtx = TriggerExecutionContext(monitor, trigger, monitorResult, currentAlert)
             val triggerResult = runTrigger(monitor, trigger, triggerCtx)
             triggerResults[trigger.id] = triggerResult
@@ -256,42 +412,138 @@ class MonitorRunner(
             if (updatedAlert != null) updatedAlerts += updatedAlert
         }
 
+        monitorResult = monitorResult.copy(triggerResults = triggerResults)
         // Don't save alerts if this is a test monitor
         if (!dryrun && monitor.id != Monitor.NO_ID) {
-            saveAlerts(updatedAlerts)
+            try {
+                withStageTimeout(ALERT_PERSISTENCE_STAGE, bulkTimeout) { saveAlerts(updatedAlerts, currentAlerts) }
+            } catch (e: MonitorStageTimeoutException) {
+                logger.error("Error saving alerts for monitor: ${monitor.id}", e)
+                monitorResult = monitorResult.copy(error = e)
+            }
+        }
+        return monitorResult.copy(timedOutStages = timedOutStages(monitorResult))
+    }
+
+    /**
+     * Runs [block] and fails with a [MonitorStageTimeoutException] if it does not complete within [timeout]. Waiting on
+     * the cluster through [search] or [suspendUntilCancellable] is interrupted once the deadline is exceeded.
+     */
+    private suspend fun <T> withStageTimeout(stage: String, timeout: TimeValue, block: suspend CoroutineScope.() -> T): T {
+        return try {
+            withTimeout(timeout.millis, block)
+        } catch (e: TimeoutCancellationException) {
+            throw MonitorStageTimeoutException(stage, timeout)
+        }
+    }
+
+    private fun timedOutStages(monitorResult: MonitorRunResult): List<String> {
+        val errors = listOf(monitorResult.error, monitorResult.inputResults.error) +
+                monitorResult.triggerResults.values.flatMap { result -> listOf(result.error) + result.actionResults.values.map { it.error } }
+        return errors.filterIsInstance<MonitorStageTimeoutException>().map { it.stage }.distinct()
+    }
+
+    /**
+     * Searches through the local task manager when possible, so that cancelling the calling coroutine (e.g. because the
+     * input deadline was exceeded) also cancels the search task on the cluster.
+     */
+    private suspend fun search(searchRequest: SearchRequest): SearchResponse {
+        return if (client is NodeClient) {
+            client.suspendUntilCancellable(SearchAction.INSTANCE, searchRequest)
+        } else {
+            client.suspendUntilCancellable { client.search(searchRequest, it) }
         }
-        return monitorResult.copy(triggerResults = triggerResults)
     }
 
     private fun currentTime() = Instant.ofEpochMilli(threadPool.absoluteTimeInMillis())
 
-    private fun composeAlert(ctx: TriggerExecutionContext, result: TriggerRunResult, alertError: AlertError?): Alert? {
-        val currentTime = currentTime()
-        val currentAlert = ctx.alert
+    /**
+     * Evaluates a bucket-level [trigger] once for every bucket of its aggregation and composes one alert per bucket key.
+     * Alerts whose bucket is no longer present in the results are treated as untriggered and get completed.
+     */
+    private suspend fun runBucketLevelTrigger(
+        monitor: Monitor,
+        trigger: Trigger,
+        monitorResult: MonitorRunResult,
+        currentAlerts: List<Alert>,
+        dryrun: Boolean
+    ): Pair<TriggerRunResult, List<Alert>> {
+        val alertsByKey = currentAlerts.associateBy { it.bucketKey }
+        val updatedAlerts = mutableListOf<Alert>()
+        val seenKeys = mutableSetOf<String?>()
+        val triggeredBuckets = mutableListOf<String>()
+        // Action results of every bucket are reported together, so they are keyed by action id and bucket key
+        val actionResults = mutableMapOf<String, ActionRunResult>()
+        var error: Exception? = null
+        // Trigger scripts can't be interrupted, so the deadline of a bucket-level trigger is checked between buckets
+        val deadline = System.nanoTime() + triggerTimeout.nanos()
+        var timedOut = false
+
+        for (bucket in buckets(trigger, monitorResult.inputResults).take(bucketLevelMaxBuckets)) {
+            if (System.nanoTime() > deadline) {
+                error = MonitorStageTimeoutException(TRIGGER_STAGE, triggerTimeout)
+                timedOut = true
+                break
+            }
+            val bucketKey = bucketKey(bucket) ?: continue
+            if (!seenKeys.add(bucketKey)) continue
+
+            val triggerCtx = TriggerExecutionContext(monitor, trigger, monitorResult, alertsByKey[bucketKey], bucket)
+            val bucketResult = runTrigger(monitor, trigger, triggerCtx)
+            if (bucketResult.triggered) triggeredBuckets += bucketKey
+            if (error == null) error = bucketResult.error
 
-        val updatedActionExecutionResults = mutableListOf<ActionExecutionResult>()
-        val currentActionIds = mutableSetOf<String>()
-        if (currentAlert != null) {
-            // update current alert's action execution results
-            for (actionExecutionResult in currentAlert.actionExecutionResults) {
-                val actionId = actionExecutionResult.actionId
-                currentActionIds.add(actionId)
-                val actionRunResult = result.actionResults[actionId]
-                when {
-                    actionRunResult == null -> updatedActionExecutionResults.add(actionExecutionResult)
-                    actionRunResult.throttled ->
-                        updatedActionExecutionResults.add(actionExecutionResult.copy(
-                                throttledCount = actionExecutionResult.throttledCount + 1))
-                    else -> updatedActionExecutionResults.add(actionExecutionResult.copy(lastExecutionTime = actionRunResult.executionTime))
+            if (isTriggerActionable(triggerCtx, bucketResult)) {
+                val actionCtx = triggerCtx.copy(error = monitorResult.error ?: bucketResult.error)
+                for (action in trigger.actions) {
+                    val actionResult = runAction(action, actionCtx, dryrun)
+                    bucketResult.actionResults[action.id] = actionResult
+                    actionResults["${action.id}[$bucketKey]"] = actionResult
                 }
             }
-            // add action execution results which not exist in current alert
-            updatedActionExecutionResults.addAll(result.actionResults.filter { it -> !currentActionIds.contains(it.key) }
-                    .map { it -> ActionExecutionResult(it.key, it.value.executionTime, if (it.value.throttled) 1 else 0) })
-        } else {
-            updatedActionExecutionResults.addAll(result.actionResults.map { it -> ActionExecutionResult(it.key, it.value.executionTime,
-                    if (it.value.throttled) 1 else 0) })
+
+            val updatedAlert = composeAlert(triggerCtx, bucketResult, monitorResult.alertError() ?: bucketResult.alertError())
+            if (updatedAlert != null) updatedAlerts += updatedAlert
+        }
+
+        // Buckets that were not evaluated before the deadline may still be present, so their alerts are left as they are
+        for (alert in currentAlerts.filter { !timedOut && it.bucketKey !in seenKeys }) {
+            val triggerCtx = TriggerExecutionContext(monitor, trigger, monitorResult, alert)
+            val updatedAlert = composeAlert(triggerCtx, TriggerRunResult(trigger.name, false), monitorResult.alertError())
+            if (updatedAlert != null) updatedAlerts += updatedAlert
+        }
+
+        val triggerResult = TriggerRunResult(trigger.name, triggeredBuckets.isNotEmpty(), error, actionResults, triggeredBuckets)
+        return triggerResult to updatedAlerts
+    }
+
+    /** Returns the buckets of the trigger's aggregation in the first input's results, supporting both array and keyed buckets. */
+    @Suppress("UNCHECKED_CAST")
+    private fun buckets(trigger: Trigger, inputResults: InputRunResults): List<Map<String, Any>> {
+        val aggregations = inputResults.results.firstOrNull()?.get("aggregations") as? Map<String, Any> ?: return emptyList()
+        val aggregationName = trigger.bucketAggregation ?: return emptyList()
+        val aggregation = aggregations[aggregationName] as? Map<String, Any> ?: return emptyList()
+        return when (val buckets = aggregation["buckets"]) {
+            is List<*> -> buckets.filterIsInstance<Map<*, *>>().map { it as Map<String, Any> }
+            is Map<*, *> -> buckets.map { (key, bucket) -> (bucket as Map<String, Any>) + ("key" to key as Any) }
+            else -> emptyList()
+        }
+    }
+
+    /** Returns a stable string form of a bucket's key. Composite keys are rendered as sorted `source=value` pairs. */
+    private fun bucketKey(bucket: Map<String, Any>): String? {
+        return when (val key = bucket["key_as_string"] ?: bucket["key"]) {
+            null -> null
+            is Map<*, *> -> key.entries.sortedBy { it.key.toString() }.joinToString(",") { "${it.key}=${it.value}" }
+            else -> key.toString()
         }
+    }
+
+    private fun composeAlert(ctx: TriggerExecutionContext, result: TriggerRunResult, alertError: AlertError?): Alert? {
+        val currentTime = currentTime()
+        val currentAlert = ctx.alert
+
+        val updatedActionExecutionResults = updateActionExecutionResults(currentAlert, result.actionResults)
 
         // Merge the alert's error message to the current alert's history
         val updatedHistory = currentAlert?.errorHistory.update(alertError)
@@ -311,43 +563,103 @@ class MonitorRunner(
             Alert(monitor = ctx.monitor, trigger = ctx.trigger, startTime = currentTime,
                     lastNotificationTime = currentTime, state = alertState, errorMessage = alertError?.message,
                     errorHistory = updatedHistory, actionExecutionResults = updatedActionExecutionResults,
-                    schemaVersion = IndexUtils.alertIndexSchemaVersion)
+                    schemaVersion = IndexUtils.alertIndexSchemaVersion, bucketKey = ctx.bucket?.let { bucketKey(it) })
         }
     }
 
-    private suspend fun collectInputResults(monitor: Monitor, periodStart: Instant, periodEnd: Instant): InputRunResults {
+    private suspend fun collectInputResults(
+        monitor: Monitor,
+        periodStart: Instant,
+        periodEnd: Instant,
+        dryrun: Boolean
+    ): InputRunResults {
         return try {
-            val results = mutableListOf<Map<String, Any>>()
-            monitor.inputs.forEach { input ->
-                when (input) {
-                    is SearchInput -> {
-                        // TODO: Figure out a way to use SearchTemplateRequest without bringing in the entire TransportClient
-                        val searchParams = mapOf("period_start" to periodStart.toEpochMilli(),
-                                "period_end" to periodEnd.toEpochMilli())
-                        val searchSource = scriptService.compile(Script(ScriptType.INLINE, Script.DEFAULT_TEMPLATE_LANG,
-                                input.query.toString(), searchParams), TemplateScript.CONTEXT)
-                                .newInstance(searchParams)
-                                .execute()
-
-                        val searchRequest = SearchRequest().indices(*input.indices.toTypedArray())
-                        XContentType.JSON.xContent().createParser(xContentRegistry, LoggingDeprecationHandler.INSTANCE, searchSource).use {
-                            searchRequest.source(SearchSourceBuilder.fromXContent(it))
-                        }
-                        val searchResponse: SearchResponse = client.suspendUntil { client.search(searchRequest, it) }
-                        results += searchResponse.convertToMap()
-                    }
-                    else -> {
-                        throw IllegalArgumentException("Unsupported input type: ${input.name()}.")
-                    }
-                }
+            // Inputs run concurrently within one scope so that a failing or timed out input cancels its siblings, and the
+            // results keep the order of the inputs so that each one can be addressed as ctx.results[i].
+            val results = withStageTimeout(INPUT_STAGE, inputTimeout) {
+                monitor.inputs.map { input -> async { collectInputResult(monitor, input, periodStart, periodEnd, dryrun) } }.awaitAll()
             }
-            InputRunResults(results.toList())
+            InputRunResults(results)
         } catch (e: Exception) {
             logger.info("Error collecting inputs for monitor: ${monitor.id}", e)
             InputRunResults(emptyList(), e)
         }
     }
 
+    private suspend fun collectInputResult(
+        monitor: Monitor,
+        input: Input,
+        periodStart: Instant,
+        periodEnd: Instant,
+        dryrun: Boolean
+    ): Map<String, Any> {
+        return when (input) {
+            is SearchInput -> {
+                // TODO: Figure out a way to use SearchTemplateRequest without bringing in the entire TransportClient
+                val searchParams = mapOf("period_start" to periodStart.toEpochMilli(),
+                        "period_end" to periodEnd.toEpochMilli())
+                val searchSource = scriptService.compile(Script(ScriptType.INLINE, Script.DEFAULT_TEMPLATE_LANG,
+                        input.query.toString(), searchParams), TemplateScript.CONTEXT)
+                        .newInstance(searchParams)
+                        .execute()
+
+                val searchRequest = SearchRequest().indices(*input.indices.toTypedArray())
+                XContentType.JSON.xContent().createParser(xContentRegistry, LoggingDeprecationHandler.INSTANCE, searchSource).use {
+                    searchRequest.source(SearchSourceBuilder.fromXContent(it))
+                }
+                collectCompositeBuckets(monitor, searchRequest, search(searchRequest))
+            }
+            is DocLevelMonitorInput -> {
+                docLevelMonitorQueries.collectInputResults(monitor, input, dryrun)
+            }
+            else -> {
+                throw IllegalArgumentException("Unsupported input type: ${input.name()}.")
+            }
+        }
+    }
+
+    /**
+     * Pages through every composite aggregation evaluated by a bucket-level trigger of [monitor] by following its
+     * `after_key`, and returns the search results with the buckets of all pages merged into the first one. Paging stops
+     * once the aggregation is exhausted or [bucketLevelMaxBuckets] buckets have been collected, in which case the last
+     * `after_key` is kept in the results.
+     */
+    @Suppress("UNCHECKED_CAST")
+    private suspend fun collectCompositeBuckets(
+        monitor: Monitor,
+        searchRequest: SearchRequest,
+        searchResponse: SearchResponse
+    ): Map<String, Any> {
+        val results = searchResponse.convertToMap()
+        val aggregationNames = monitor.triggers.mapNotNull { it.bucketAggregation }.toSet()
+        val compositeBuilders = searchRequest.source()?.aggregations()?.aggregatorFactories
+                ?.filterIsInstance<CompositeAggregationBuilder>()
+                ?.filter { it.name in aggregationNames }
+        if (compositeBuilders.isNullOrEmpty()) return results
+
+        val aggregations = results["aggregations"] as? MutableMap<String, Any> ?: return results
+        for (builder in compositeBuilders) {
+            val aggregation = aggregations[builder.name] as? MutableMap<String, Any> ?: continue
+            val buckets = (aggregation["buckets"] as? List<Any> ?: continue).toMutableList()
+            var afterKey = searchResponse.aggregations?.get<CompositeAggregation>(builder.name)?.afterKey()
+            while (afterKey != null && buckets.size < bucketLevelMaxBuckets) {
+                builder.aggregateAfter(afterKey)
+                val page = search(searchRequest)
+                val composite = page.aggregations?.get<CompositeAggregation>(builder.name)
+                if (composite == null || composite.buckets.isEmpty()) {
+                    afterKey = null
+                    break
+                }
+                val pageAggregations = page.convertToMap()["aggregations"] as Map<String, Any>
+                buckets += (pageAggregations[builder.name] as Map<String, Any>)["buckets"] as List<Any>
+                afterKey = composite.afterKey()
+            }
+            aggregation["buckets"] = buckets.take(bucketLevelMaxBuckets)
+            if (afterKey == null) aggregation.remove("after_key") else aggregation["after_key"] = afterKey
+        }
+        return results
+    }
+
     /**
      * We moved anomaly result index to system index list. So common user could not directly query
      * this index any more. This method will stash current thread context to pass security check.
@@ -361,48 +673,52 @@ class MonitorRunner(
      */
     private suspend fun collectInputResultsForADMonitor(monitor: Monitor, periodStart: Instant, periodEnd: Instant): InputRunResults {
         return try {
-            val results = mutableListOf<Map<String, Any>>()
-            val input = monitor.inputs[0] as SearchInput
-
-            val searchParams = mapOf("period_start" to periodStart.toEpochMilli(), "period_end" to periodEnd.toEpochMilli())
-            val searchSource = scriptService.compile(Script(ScriptType.INLINE, Script.DEFAULT_TEMPLATE_LANG,
-                    input.query.toString(), searchParams), TemplateScript.CONTEXT)
-                    .newInstance(searchParams)
-                    .execute()
-
-            val searchRequest = SearchRequest().indices(*input.indices.toTypedArray())
-            XContentType.JSON.xContent().createParser(xContentRegistry, LoggingDeprecationHandler.INSTANCE, searchSource).use {
-                searchRequest.source(SearchSourceBuilder.fromXContent(it))
-            }
-
-            // Add user role filter for AD result
-            client.threadPool().threadContext.stashContext().use {
-                // Currently we have no way to verify if user has AD read permission or not. So we always add user
-                // role filter here no matter AD backend role filter enabled or not. If we don't add user role filter
-                // when AD backend filter disabled, user can run monitor on any detector and get anomaly data even
-                // they have no AD read permission. So if domain disabled AD backend role filter, monitor runner
-                // still can't get AD result with different user backend role, even the monitor user has permission
-                // to read AD result. This is a short term solution to trade off between user experience and security.
-                //
-                // Possible long term solution:
-                // 1.Use secure rest client to send request to AD search result API. If no permission exception,
-                // that mean user has read access on AD result. Then don't need to add user role filter when query
-                // AD result if AD backend role filter is disabled.
-                // 2.Security provide some transport action to verify if user has permission to search AD result.
-                // Monitor runner will send transport request to check permission first. If security plugin response
-                // is yes, user has permission to query AD result. If AD role filter enabled, we will add user role
-                // filter to protect data at user role level; otherwise, user can query any AD result.
-                addUserBackendRolesFilter(monitor.user, searchRequest.source())
-                val searchResponse: SearchResponse = client.suspendUntil { client.search(searchRequest, it) }
-                results += searchResponse.convertToMap()
-            }
-            InputRunResults(results.toList())
+            withStageTimeout(INPUT_STAGE, inputTimeout) { collectADInputResults(monitor, periodStart, periodEnd) }
         } catch (e: Exception) {
             logger.info("Error collecting anomaly result inputs for monitor: ${monitor.id}", e)
             InputRunResults(emptyList(), e)
         }
     }
 
+    private suspend fun collectADInputResults(monitor: Monitor, periodStart: Instant, periodEnd: Instant): InputRunResults {
+        val results = mutableListOf<Map<String, Any>>()
+        val input = monitor.inputs[0] as SearchInput
+
+        val searchParams = mapOf("period_start" to periodStart.toEpochMilli(), "period_end" to periodEnd.toEpochMilli())
+        val searchSource = scriptService.compile(Script(ScriptType.INLINE, Script.DEFAULT_TEMPLATE_LANG,
+                input.query.toString(), searchParams), TemplateScript.CONTEXT)
+                .newInstance(searchParams)
+                .execute()
+
+        val searchRequest = SearchRequest().indices(*input.indices.toTypedArray())
+        XContentType.JSON.xContent().createParser(xContentRegistry, LoggingDeprecationHandler.INSTANCE, searchSource).use {
+            searchRequest.source(SearchSourceBuilder.fromXContent(it))
+        }
+
+        // Add user role filter for AD result
+        client.threadPool().threadContext.stashContext().use {
+            // Currently we have no way to verify if user has AD read permission or not. So we always add user
+            // role filter here no matter AD backend role filter enabled or not. If we don't add user role filter
+            // when AD backend filter disabled, user can run monitor on any detector and get anomaly data even
+            // they have no AD read permission. So if domain disabled AD backend role filter, monitor runner
+            // still can't get AD result with different user backend role, even the monitor user has permission
+            // to read AD result. This is a short term solution to trade off between user experience and security.
+            //
+            // Possible long term solution:
+            // 1.Use secure rest client to send request to AD search result API. If no permission exception,
+            // that mean user has read access on AD result. Then don't need to add user role filter when query
+            // AD result if AD backend role filter is disabled.
+            // 2.Security provide some transport action to verify if user has permission to search AD result.
+            // Monitor runner will send transport request to check permission first. If security plugin response
+            // is yes, user has permission to query AD result. If AD role filter enabled, we will add user role
+            // filter to protect data at user role level; otherwise, user can query any AD result.
+            addUserBackendRolesFilter(monitor.user, searchRequest.source())
+            val searchResponse = search(searchRequest)
+            results += searchResponse.convertToMap()
+        }
+        return InputRunResults(results.toList())
+    }
+
     private fun runTrigger(monitor: Monitor, trigger: Trigger, ctx: TriggerExecutionContext): TriggerRunResult {
         return try {
             val triggered = scriptService.compile(trigger.condition, TriggerScript.CONTEXT)
@@ -416,7 +732,7 @@ class MonitorRunner(
         }
     }
 
-    private suspend fun loadCurrentAlerts(monitor: Monitor): Map<Trigger, Alert?> {
+    private suspend fun loadCurrentAlerts(monitor: Monitor): Map<Trigger, List<Alert>> {
         val request = SearchRequest(AlertIndices.ALERT_INDEX)
                 .routing(monitor.id)
                 .source(alertQuery(monitor))
@@ -427,15 +743,37 @@ class MonitorRunner(
 
         val foundAlerts = response.hits.map { Alert.parse(contentParser(it.sourceRef), it.id, it.version) }
                 .groupBy { it.triggerId }
-        foundAlerts.values.forEach { alerts ->
+        monitor.triggers.filterNot { it.isBucketLevel() }.forEach { trigger ->
+            val alerts = foundAlerts[trigger.id].orEmpty()
             if (alerts.size > 1) {
                 logger.warn("Found multiple alerts for same trigger: $alerts")
             }
         }
 
         return monitor.triggers.associate { trigger ->
-            trigger to (foundAlerts[trigger.id]?.firstOrNull())
+            trigger to foundAlerts[trigger.id].orEmpty()
+        }
+    }
+
+    /**
+     * Applies this run's action results to the alert's throttle state. The alert's own list is returned when no action ran
+     * so that unchanged results aren't copied, and aren't rewritten by [saveAlerts].
+     */
+    private fun updateActionExecutionResults(alert: Alert?, actionResults: Map<String, ActionRunResult>): List<ActionExecutionResult> {
+        val currentResults = alert?.actionExecutionResults.orEmpty()
+        if (actionResults.isEmpty()) return currentResults
+
+        val updatedResults = LinkedHashMap(alert?.actionExecutionResultsById.orEmpty())
+        for ((actionId, actionRunResult) in actionResults) {
+            val actionExecutionResult = updatedResults[actionId]
+            updatedResults[actionId] = when {
+                actionExecutionResult == null ->
+                    ActionExecutionResult(actionId, actionRunResult.executionTime, if (actionRunResult.throttled) 1 else 0)
+                actionRunResult.throttled -> actionExecutionResult.copy(throttledCount = actionExecutionResult.throttledCount + 1)
+                else -> actionExecutionResult.copy(lastExecutionTime = actionRunResult.executionTime)
+            }
         }
+        return updatedResults.values.toList()
     }
 
     private fun contentParser(bytesReference: BytesReference): XContentParser {
@@ -446,12 +784,17 @@ class MonitorRunner(
     }
 
     private fun alertQuery(monitor: Monitor): SearchSourceBuilder {
+        // We expect there to be only a single in-progress alert per trigger so fetch 2 to check, and at most one per bucket
+        // for bucket-level triggers
+        val bucketLevelTriggers = monitor.triggers.count { it.isBucketLevel() }
+        val size = (monitor.triggers.size - bucketLevelTriggers) * 2 + bucketLevelTriggers * bucketLevelMaxBuckets
         return SearchSourceBuilder.searchSource()
-                .size(monitor.triggers.size * 2) // We expect there to be only a single in-progress alert so fetch 2 to check
+                .size(minOf(size, MAX_ALERTS_PER_SEARCH))
                 .query(QueryBuilders.termQuery(Alert.MONITOR_ID_FIELD, monitor.id))
     }
 
-    private suspend fun saveAlerts(alerts: List<Alert>) {
+    private suspend fun saveAlerts(alerts: List<Alert>, currentAlerts: Map<Trigger, List<Alert>>) {
+        val previousAlerts = currentAlerts.values.flatten().associateBy { it.id }
         var requestsToRetry = alerts.flatMap { alert ->
             // we don't want to set the version when saving alerts because the Runner has first priority when writing alerts.
             // In the rare event that a user acknowledges an alert between when it's read and when it's written
@@ -459,7 +802,15 @@ class MonitorRunner(
             // spend time reloading the alert and writing it back.
             when (alert.state) {
                 ACTIVE, ERROR -> {
-                    listOf<DocWriteRequest<*>>(IndexRequest(AlertIndices.ALERT_INDEX)
+                    val previousAlert = previousAlerts[alert.id]
+                    // Existing alerts are updated with just the changed fields, and recreated in full if deleted meanwhile
+                    if (alert.id != Alert.NO_ID && previousAlert != null) {
+                        val changes = changesToSave(alert, previousAlert) ?: return@flatMap emptyList<DocWriteRequest<*>>()
+                        listOf<DocWriteRequest<*>>(UpdateRequest(AlertIndices.ALERT_INDEX, alert.id)
+                                .routing(alert.monitorId)
+                                .doc(changes.toPartialXContent(XContentFactory.jsonBuilder(), previousAlert))
+                                .upsert(alert.toXContent(XContentFactory.jsonBuilder(), ToXContent.EMPTY_PARAMS)))
+                    } else listOf<DocWriteRequest<*>>(IndexRequest(AlertIndices.ALERT_INDEX)
                             .routing(alert.monitorId)
                             .source(alert.toXContent(XContentFactory.jsonBuilder(), ToXContent.EMPTY_PARAMS))
                             .id(if (alert.id != Alert.NO_ID) alert.id else null))
@@ -486,11 +837,11 @@ class MonitorRunner(
         if (requestsToRetry.isEmpty()) return
         // Retry Bulk requests if there was any 429 response
         retryPolicy.retry(logger, listOf(RestStatus.TOO_MANY_REQUESTS)) {
-            val bulkRequest = BulkRequest().add(requestsToRetry)
-            val bulkResponse: BulkResponse = client.suspendUntil { client.bulk(bulkRequest, it) }
+            val bulkRequest = BulkRequest().add(requestsToRetry).timeout(bulkTimeout)
+            val bulkResponse: BulkResponse = client.suspendUntilCancellable { client.bulk(bulkRequest, it) }
             val failedResponses = (bulkResponse.items ?: arrayOf()).filter { it.isFailed }
             requestsToRetry = failedResponses.filter { it.status() == RestStatus.TOO_MANY_REQUESTS }
-                .map { bulkRequest.requests()[it.itemId] as IndexRequest }
+                .map { bulkRequest.requests()[it.itemId] }
 
             if (requestsToRetry.isNotEmpty()) {
                 val retryCause = failedResponses.first { it.status() == RestStatus.TOO_MANY_REQUESTS }.failure.cause
@@ -499,6 +850,24 @@ class MonitorRunner(
         }
     }
 
+    /**
+     * Returns the alert to write the changes of an updated active alert from, or null if nothing has to be written.
+     * Changes to its state, error or action results, including throttled counts, are written right away. Its last
+     * notification time, which changes on every run, is only written along with them or once the stored one is older
+     * than [alertFreshnessInterval], so that long-lived alerts with throttled actions don't rewrite it on every run.
+     */
+    private fun changesToSave(alert: Alert, previousAlert: Alert): Alert? {
+        if (alert == previousAlert) return null
+        val lastSaved = previousAlert.lastNotificationTime ?: return alert
+        if (!lastSaved.plusMillis(alertFreshnessInterval.millis).isAfter(currentTime())) return alert
+        if (!alert.hasChangesOtherThanNotificationTime(previousAlert)) return null
+        val withStoredNotificationTime = alert.copy(lastNotificationTime = lastSaved)
+        // A run that only changed action results, such as throttled counts, writes just those
+        val onlyActionResultsChanged =
+                withStoredNotificationTime.copy(actionExecutionResults = previousAlert.actionExecutionResults) == previousAlert
+        return if (onlyActionResultsChanged) withStoredNotificationTime else alert
+    }
+
     private fun isTriggerActionable(ctx: TriggerExecutionContext, result: TriggerRunResult): Boolean {
         // Suppress actions if the current alert is acknowledged and there are no errors.
         val suppress = ctx.alert?.state == ACKNOWLEDGED && result.error == null && ctx.error == null
@@ -510,7 +879,7 @@ class MonitorRunner(
             return true
         }
         if (action.throttleEnabled) {
-            val result = alert.actionExecutionResults.firstOrNull { r -> r.actionId == action.id }
+            val result = alert.actionExecutionResultsById[action.id]
             val lastExecutionTime: Instant? = result?.lastExecutionTime
             val throttledTimeBound = currentTime().minus(action.throttle.value.toLong(), action.throttle.unit)
             return (lastExecutionTime == null || lastExecutionTime.isBefore(throttledTimeBound))
@@ -521,6 +890,7 @@ class MonitorRunner(
     private suspend fun runAction(action: Action, ctx: TriggerExecutionContext, dryrun: Boolean): ActionRunResult {
         return try {
             if (!isActionActionable(action, ctx.alert)) {
+                if (!dryrun) DeliveryMetrics.getInstance().recordThrottled(null, action.destinationId)
                 return ActionRunResult(action.id, action.name, mapOf(), true, null, null)
             }
             val actionOutput = mutableMapOf<String, String>()
@@ -530,22 +900,36 @@ class MonitorRunner(
                 throw IllegalStateException("Message content missing in the Destination with id: ${action.destinationId}")
             }
             if (!dryrun) {
-                withContext(Dispatchers.IO) {
+                actionOutput[MESSAGE_ID] = withStageTimeout(ACTION_STAGE, actionTimeout) {
+                    // Don't notify on behalf of a run that was cancelled, e.g. because the monitor has been updated
+                    if (!isActive) throw CancellationException("Monitor run was cancelled")
                     val destination = AlertingConfigAccessor.getDestinationInfo(client, xContentRegistry, action.destinationId)
                     if (!destination.isAllowed(allowList)) {
                         throw IllegalStateException("Monitor contains a Destination type that is not allowed: ${destination.type}")
                     }
 
                     val destinationCtx = destinationContextFactory.getDestinationContext(destination)
-                    actionOutput[MESSAGE_ID] = destination.publish(
-                        actionOutput[SUBJECT],
-                        actionOutput[MESSAGE]!!,
-                        destinationCtx,
-                        hostDenyList
-                    )
+                    // Building the message resolves the destination host and email is still sent synchronously, so that
+                    // part runs on the notification pool and the deadline releases the run even when it blocks past it.
+                    // A full pool fails only this action. HTTP destinations only return a future that is awaited without
+                    // holding a thread.
+                    threadPool.executor(AlertingPlugin.NOTIFICATION_THREAD_POOL_NAME).submitAndAwait {
+                        destinationDigester.publish(
+                            destination,
+                            actionOutput[SUBJECT],
+                            actionOutput[MESSAGE]!!,
+                            destinationCtx,
+                            hostDenyList
+                        )
+                    }.await()
                 }
             }
             ActionRunResult(action.id, action.name, actionOutput, false, currentTime(), null)
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: EsRejectedExecutionException) {
+            logger.warn("Notification pool rejected action ${action.id} to destination ${action.destinationId}")
+            ActionRunResult(action.id, action.name, mapOf(), false, currentTime(), e)
         } catch (e: Exception) {
             ActionRunResult(action.id, action.name, mapOf(), false, currentTime(), e)
         }
@@ -557,6 +941,29 @@ class MonitorRunner(
                 .execute()
     }
 
+    companion object {
+        // Default index.max_result_window of the alert index
+        private const val MAX_ALERTS_PER_SEARCH = 10000
+
+        private val DELETED_MONITORS_BATCH_WINDOW = TimeValue.timeValueSeconds(1)
+    }
+
+    private suspend fun moveAlertsOfPendingDeletedMonitors() {
+        val monitorIds = deletedMonitorIds.toList()
+        if (monitorIds.isEmpty()) return
+        deletedMonitorIds.removeAll(monitorIds)
+        try {
+            moveAlertsRetryPolicy.retry(logger) {
+                if (alertIndices.isInitialized()) {
+                    val moved = moveAlertsOfDeletedMonitors(client, monitorIds)
+                    if (moved > 0) logger.info("Moved $moved alerts of ${monitorIds.size} deleted monitors to history.")
+                }
+            }
+        } catch (e: Exception) {
+            logger.error("Failed to move active alerts for deleted monitors $monitorIds.", e)
+        }
+    }
+
     private fun List<AlertError>?.update(alertError: AlertError?): List<AlertError> {
         return when {
             this == null && alertError == null -> emptyList()
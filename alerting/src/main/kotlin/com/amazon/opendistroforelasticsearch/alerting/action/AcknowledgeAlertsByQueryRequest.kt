@@ -0,0 +1,101 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.action
+
+import org.elasticsearch.action.ActionRequest
+import org.elasticsearch.action.ActionRequestValidationException
+import org.elasticsearch.action.ValidateActions
+import org.elasticsearch.action.support.WriteRequest
+import org.elasticsearch.common.io.stream.StreamInput
+import org.elasticsearch.common.io.stream.StreamOutput
+import org.elasticsearch.tasks.Task
+import org.elasticsearch.tasks.TaskId
+import java.io.IOException
+import java.time.Instant
+import java.util.Collections
+
+/**
+ * Acknowledges all ACTIVE alerts matching the filters. An empty list of monitor ids or trigger names matches any
+ * monitor or trigger. When [waitForCompletion] is false the response is stored in the tasks index so that it can be
+ * fetched through the task id once the task is done.
+ */
+class AcknowledgeAlertsByQueryRequest : ActionRequest {
+    val severityLevel: String
+    val monitorIds: List<String>
+    val triggerNames: List<String>
+    val startTimeFrom: Instant?
+    val startTimeTo: Instant?
+    val refreshPolicy: WriteRequest.RefreshPolicy
+    val waitForCompletion: Boolean
+
+    constructor(
+        severityLevel: String,
+        monitorIds: List<String>,
+        triggerNames: List<String>,
+        startTimeFrom: Instant?,
+        startTimeTo: Instant?,
+        refreshPolicy: WriteRequest.RefreshPolicy,
+        waitForCompletion: Boolean
+    ) : super() {
+        this.severityLevel = severityLevel
+        this.monitorIds = monitorIds
+        this.triggerNames = triggerNames
+        this.startTimeFrom = startTimeFrom
+        this.startTimeTo = startTimeTo
+        this.refreshPolicy = refreshPolicy
+        this.waitForCompletion = waitForCompletion
+    }
+
+    @Throws(IOException::class)
+    constructor(sin: StreamInput) : this(
+        severityLevel = sin.readString(),
+        monitorIds = Collections.unmodifiableList(sin.readStringList()),
+        triggerNames = Collections.unmodifiableList(sin.readStringList()),
+        startTimeFrom = sin.readOptionalInstant(),
+        startTimeTo = sin.readOptionalInstant(),
+        refreshPolicy = WriteRequest.RefreshPolicy.readFrom(sin),
+        waitForCompletion = sin.readBoolean()
+    )
+
+    override fun validate(): ActionRequestValidationException? {
+        if (startTimeFrom != null && startTimeTo != null && startTimeFrom.isAfter(startTimeTo)) {
+            return ValidateActions.addValidationError("start_time_from must not be after start_time_to", null)
+        }
+        return null
+    }
+
+    @Throws(IOException::class)
+    override fun writeTo(out: StreamOutput) {
+        out.writeString(severityLevel)
+        out.writeStringCollection(monitorIds)
+        out.writeStringCollection(triggerNames)
+        out.writeOptionalInstant(startTimeFrom)
+        out.writeOptionalInstant(startTimeTo)
+        refreshPolicy.writeTo(out)
+        out.writeBoolean(waitForCompletion)
+    }
+
+    override fun createTask(id: Long, type: String, action: String, parentTaskId: TaskId, headers: Map<String, String>): Task {
+        return AcknowledgeAlertsByQueryTask(id, type, action, description, parentTaskId, headers)
+    }
+
+    override fun getShouldStoreResult(): Boolean = !waitForCompletion
+
+    override fun getDescription(): String {
+        return "acknowledge alerts by query, severity[$severityLevel], monitors$monitorIds, triggers$triggerNames, " +
+                "start_time[${startTimeFrom ?: "*"}, ${startTimeTo ?: "*"}]"
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.action
+
+import org.elasticsearch.action.ActionResponse
+import org.elasticsearch.common.io.stream.StreamInput
+import org.elasticsearch.common.io.stream.StreamOutput
+import org.elasticsearch.common.xcontent.ToXContent
+import org.elasticsearch.common.xcontent.ToXContentObject
+import org.elasticsearch.common.xcontent.XContentBuilder
+import java.io.IOException
+
+class AcknowledgeAlertsByQueryResponse : ActionResponse, ToXContentObject {
+    // The number of ACTIVE alerts that matched the filters when the request started
+    val total: Long
+    val acknowledged: Long
+    // Alerts that couldn't be updated, e.g. because they completed or were acknowledged in the meantime
+    val failed: Long
+    val cancelled: Boolean
+
+    constructor(
+        total: Long,
+        acknowledged: Long,
+        failed: Long,
+        cancelled: Boolean
+    ) : super() {
+        this.total = total
+        this.acknowledged = acknowledged
+        this.failed = failed
+        this.cancelled = cancelled
+    }
+
+    @Throws(IOException::class)
+    constructor(sin: StreamInput) : this(
+        sin.readVLong(), // total
+        sin.readVLong(), // acknowledged
+        sin.readVLong(), // failed
+        sin.readBoolean() // cancelled
+    )
+
+    @Throws(IOException::class)
+    override fun writeTo(out: StreamOutput) {
+        out.writeVLong(total)
+        out.writeVLong(acknowledged)
+        out.writeVLong(failed)
+        out.writeBoolean(cancelled)
+    }
+
+    @Throws(IOException::class)
+    override fun toXContent(builder: XContentBuilder, params: ToXContent.Params): XContentBuilder {
+        return builder.startObject()
+                .field("total", total)
+                .field("acknowledged", acknowledged)
+                .field("failed", failed)
+                .field("cancelled", cancelled)
+                .endObject()
+    }
+}
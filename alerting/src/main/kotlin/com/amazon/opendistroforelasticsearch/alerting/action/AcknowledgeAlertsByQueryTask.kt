@@ -0,0 +1,93 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.action
+
+import org.elasticsearch.common.io.stream.StreamInput
+import org.elasticsearch.common.io.stream.StreamOutput
+import org.elasticsearch.common.xcontent.ToXContent
+import org.elasticsearch.common.xcontent.XContentBuilder
+import org.elasticsearch.tasks.CancellableTask
+import org.elasticsearch.tasks.Task
+import org.elasticsearch.tasks.TaskId
+import java.io.IOException
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * The task of an acknowledge by query request. It reports its progress through the tasks API after every batch and
+ * stops before the next batch once cancelled.
+ */
+class AcknowledgeAlertsByQueryTask(
+    id: Long,
+    type: String,
+    action: String,
+    description: String,
+    parentTaskId: TaskId,
+    headers: Map<String, String>
+) : CancellableTask(id, type, action, description, parentTaskId, headers) {
+
+    private val total = AtomicLong()
+    private val acknowledged = AtomicLong()
+    private val failed = AtomicLong()
+    private val batches = AtomicInteger()
+
+    fun setTotal(total: Long) = this.total.set(total)
+
+    fun onBatch(acknowledged: Int, failed: Int) {
+        this.acknowledged.addAndGet(acknowledged.toLong())
+        this.failed.addAndGet(failed.toLong())
+        batches.incrementAndGet()
+    }
+
+    override fun shouldCancelChildrenOnCancellation(): Boolean = true
+
+    override fun getStatus(): Status = Status(total.get(), acknowledged.get(), failed.get(), batches.get())
+
+    class Status(val total: Long, val acknowledged: Long, val failed: Long, val batches: Int) : Task.Status {
+
+        @Throws(IOException::class)
+        constructor(sin: StreamInput) : this(
+            sin.readVLong(), // total
+            sin.readVLong(), // acknowledged
+            sin.readVLong(), // failed
+            sin.readVInt() // batches
+        )
+
+        @Throws(IOException::class)
+        override fun writeTo(out: StreamOutput) {
+            out.writeVLong(total)
+            out.writeVLong(acknowledged)
+            out.writeVLong(failed)
+            out.writeVInt(batches)
+        }
+
+        override fun getWriteableName(): String = NAME
+
+        @Throws(IOException::class)
+        override fun toXContent(builder: XContentBuilder, params: ToXContent.Params): XContentBuilder {
+            return builder.startObject()
+                    .field("total", total)
+                    .field("acknowledged", acknowledged)
+                    .field("failed", failed)
+                    .field("batches", batches)
+                    .endObject()
+        }
+
+        companion object {
+            const val NAME = "opendistro_alerting_ack_by_query"
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.action
+
+import com.amazon.opendistroforelasticsearch.alerting.destination.client.RouteStats
+import com.amazon.opendistroforelasticsearch.alerting.destination.guard.DestinationGuard
+import com.amazon.opendistroforelasticsearch.alerting.destination.guard.DestinationGuardStats
+import com.amazon.opendistroforelasticsearch.alerting.destination.metrics.DeliveryMetrics
+import com.amazon.opendistroforelasticsearch.alerting.destination.metrics.DeliveryStats
+import org.elasticsearch.action.support.nodes.BaseNodeResponse
+import org.elasticsearch.cluster.node.DiscoveryNode
+import org.elasticsearch.common.io.stream.StreamInput
+import org.elasticsearch.common.io.stream.StreamOutput
+import org.elasticsearch.common.xcontent.ToXContent
+import org.elasticsearch.common.xcontent.ToXContentFragment
+import org.elasticsearch.common.xcontent.XContentBuilder
+import org.elasticsearch.threadpool.ThreadPoolStats
+import java.util.Locale
+
+/**
+ * Destination stats generated by each node.
+ */
+class DestinationNodeStats : BaseNodeResponse, ToXContentFragment {
+
+    val destinations: List<DestinationGuardStats>
+    val deliveries: List<DeliveryStats>
+    val notificationThreadPool: ThreadPoolStats.Stats?
+    val routes: List<RouteStats>
+
+    constructor(si: StreamInput) : super(si) {
+        this.destinations = si.readList {
+            DestinationGuardStats(
+                it.readString(),
+                it.readEnum(DestinationGuard.CircuitState::class.java),
+                it.readVLong(),
+                it.readVLong(),
+                it.readVLong(),
+                it.readVLong()
+            )
+        }
+        this.deliveries = si.readList {
+            DeliveryStats(
+                it.readString(),
+                it.readOptionalString(),
+                it.readVLong(),
+                it.readVLong(),
+                it.readVLong(),
+                it.readVLong(),
+                it.readVLong(),
+                it.readVLongArray(),
+                it.readVLong(),
+                it.readVLong()
+            )
+        }
+        this.notificationThreadPool = si.readOptionalWriteable { ThreadPoolStats.Stats(it) }
+        this.routes = si.readList {
+            RouteStats(
+                it.readString(),
+                it.readVInt(),
+                it.readVInt(),
+                it.readVInt(),
+                it.readVInt(),
+                it.readVLong(),
+                it.readVLong(),
+                it.readVLong(),
+                it.readVLong()
+            )
+        }
+    }
+
+    constructor(
+        node: DiscoveryNode,
+        destinations: List<DestinationGuardStats>,
+        deliveries: List<DeliveryStats>,
+        notificationThreadPool: ThreadPoolStats.Stats?,
+        routes: List<RouteStats>
+    ) : super(node) {
+        this.destinations = destinations
+        this.deliveries = deliveries
+        this.notificationThreadPool = notificationThreadPool
+        this.routes = routes
+    }
+
+    override fun writeTo(out: StreamOutput) {
+        super.writeTo(out)
+        out.writeCollection(destinations) { o, stats ->
+            o.writeString(stats.destinationId)
+            o.writeEnum(stats.circuitState)
+            o.writeVLong(stats.successes)
+            o.writeVLong(stats.failures)
+            o.writeVLong(stats.rejectedCircuitOpen)
+            o.writeVLong(stats.rejectedRateLimited)
+        }
+        out.writeCollection(deliveries) { o, stats ->
+            o.writeString(stats.destinationId)
+            o.writeOptionalString(stats.destinationType)
+            o.writeVLong(stats.attempts)
+            o.writeVLong(stats.successes)
+            o.writeVLong(stats.failures)
+            o.writeVLong(stats.rejected)
+            o.writeVLong(stats.throttled)
+            o.writeVLongArray(stats.latencyBuckets)
+            o.writeVLong(stats.latencySumMillis)
+            o.writeVLong(stats.latencyMaxMillis)
+        }
+        out.writeOptionalWriteable(notificationThreadPool)
+        out.writeCollection(routes) { o, stats ->
+            o.writeString(stats.host)
+            o.writeVInt(stats.leased)
+            o.writeVInt(stats.pending)
+            o.writeVInt(stats.available)
+            o.writeVInt(stats.max)
+            o.writeVLong(stats.leases)
+            o.writeVLong(stats.leaseFailures)
+            o.writeVLong(stats.leaseWaitSumMillis)
+            o.writeVLong(stats.leaseWaitMaxMillis)
+        }
+    }
+
+    override fun toXContent(builder: XContentBuilder, params: ToXContent.Params): XContentBuilder {
+        builder.field("name", node.name)
+        // Reports the pool's threads, queue depth, active threads and rejections under its name
+        if (notificationThreadPool != null) {
+            builder.startObject("thread_pool")
+            notificationThreadPool.toXContent(builder, params)
+            builder.endObject()
+        }
+        val guardStats = destinations.associateBy { it.destinationId }
+        val deliveryStats = deliveries.associateBy { it.destinationId }
+        builder.startObject("destinations")
+        for (destinationId in guardStats.keys + deliveryStats.keys) {
+            builder.startObject(destinationId)
+            guardStats[destinationId]?.let {
+                builder.field("circuit_state", it.circuitState.name.toLowerCase(Locale.ROOT))
+                        .field("successes", it.successes)
+                        .field("failures", it.failures)
+                        .field("rejected_circuit_open", it.rejectedCircuitOpen)
+                        .field("rejected_rate_limited", it.rejectedRateLimited)
+            }
+            deliveryStats[destinationId]?.let { deliveryToXContent(builder, it) }
+            builder.endObject()
+        }
+        builder.endObject()
+        builder.startObject("routes")
+        for (stats in routes) {
+            routeToXContent(builder, stats)
+        }
+        builder.endObject()
+        return builder
+    }
+
+    private fun routeToXContent(builder: XContentBuilder, stats: RouteStats) {
+        val leaseCount = stats.leases + stats.leaseFailures
+        builder.startObject(stats.host)
+                .field("leased", stats.leased)
+                .field("pending", stats.pending)
+                .field("available", stats.available)
+                .field("max", stats.max)
+        builder.startObject("lease")
+                .field("count", stats.leases)
+                .field("failures", stats.leaseFailures)
+        builder.startObject("wait_millis")
+                .field("sum", stats.leaseWaitSumMillis)
+                .field("max", stats.leaseWaitMaxMillis)
+                .field("avg", if (leaseCount == 0L) 0 else stats.leaseWaitSumMillis / leaseCount)
+        builder.endObject().endObject().endObject()
+    }
+
+    private fun deliveryToXContent(builder: XContentBuilder, stats: DeliveryStats) {
+        builder.field("type", stats.destinationType?.toLowerCase(Locale.ROOT))
+        builder.startObject("delivery")
+                .field("attempts", stats.attempts)
+                .field("successes", stats.successes)
+                .field("failures", stats.failures)
+                .field("rejected", stats.rejected)
+                .field("throttled", stats.throttled)
+        builder.startObject("latency_millis")
+                .field("count", stats.latencyCount)
+                .field("sum", stats.latencySumMillis)
+                .field("max", stats.latencyMaxMillis)
+                .field("p50", stats.getLatencyPercentileMillis(50.0))
+                .field("p90", stats.getLatencyPercentileMillis(90.0))
+                .field("p99", stats.getLatencyPercentileMillis(99.0))
+        builder.startObject("histogram")
+        stats.latencyBuckets.forEachIndexed { i, count ->
+            val bounds = DeliveryMetrics.LATENCY_BUCKET_BOUNDS_MILLIS
+            builder.field(if (i < bounds.size) "le_${bounds[i]}" else "gt_${bounds.last()}", count)
+        }
+        builder.endObject().endObject().endObject()
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.action
+
+import org.elasticsearch.action.support.nodes.BaseNodesRequest
+import org.elasticsearch.common.io.stream.StreamInput
+
+/**
+ * A request to get the rate limit and circuit breaker stats of the destinations delivered to from each node.
+ */
+class DestinationStatsRequest : BaseNodesRequest<DestinationStatsRequest> {
+
+    constructor(si: StreamInput) : super(si)
+
+    constructor(nodeIds: Array<String>) : super(*nodeIds)
+}
@@ -0,0 +1,58 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.action
+
+import org.elasticsearch.action.FailedNodeException
+import org.elasticsearch.action.support.nodes.BaseNodesResponse
+import org.elasticsearch.cluster.ClusterName
+import org.elasticsearch.common.io.stream.StreamInput
+import org.elasticsearch.common.io.stream.StreamOutput
+import org.elasticsearch.common.xcontent.ToXContent
+import org.elasticsearch.common.xcontent.ToXContentFragment
+import org.elasticsearch.common.xcontent.XContentBuilder
+
+/**
+ * DestinationStatsResponse contains the destination stats reported by each node.
+ */
+class DestinationStatsResponse : BaseNodesResponse<DestinationNodeStats>, ToXContentFragment {
+
+    constructor(si: StreamInput) : super(si)
+
+    constructor(
+        clusterName: ClusterName,
+        nodeResponses: List<DestinationNodeStats>,
+        failures: List<FailedNodeException>
+    ) : super(clusterName, nodeResponses, failures)
+
+    override fun writeNodesTo(out: StreamOutput, nodes: MutableList<DestinationNodeStats>) {
+        out.writeList(nodes)
+    }
+
+    override fun readNodesFrom(si: StreamInput): MutableList<DestinationNodeStats> {
+        return si.readList { DestinationNodeStats(it) }
+    }
+
+    override fun toXContent(builder: XContentBuilder, params: ToXContent.Params): XContentBuilder {
+        builder.startObject("nodes")
+        for (nodeStats in nodes) {
+            builder.startObject(nodeStats.node.id)
+            nodeStats.toXContent(builder, params)
+            builder.endObject()
+        }
+        builder.endObject()
+        return builder
+    }
+}
@@ -18,6 +18,7 @@ package com.amazon.opendistroforelasticsearch.alerting.action
 import com.amazon.opendistroforelasticsearch.alerting.model.Table
 import org.elasticsearch.action.ActionRequest
 import org.elasticsearch.action.ActionRequestValidationException
+import org.elasticsearch.action.ValidateActions
 import org.elasticsearch.common.io.stream.StreamInput
 import org.elasticsearch.common.io.stream.StreamOutput
 import java.io.IOException
@@ -27,17 +28,25 @@ class GetAlertsRequest : ActionRequest {
     val severityLevel: String
     val alertState: String
     val monitorId: String?
+    // The next cursor of a previous response, to page with search_after instead of the table's start index
+    val cursor: String?
+    // The alert fields to fetch, or null for all fields. The fields an alert can't be parsed without are always fetched.
+    val fields: List<String>?
 
     constructor(
         table: Table,
         severityLevel: String,
         alertState: String,
-        monitorId: String?
+        monitorId: String?,
+        cursor: String? = null,
+        fields: List<String>? = null
     ) : super() {
         this.table = table
         this.severityLevel = severityLevel
         this.alertState = alertState
         this.monitorId = monitorId
+        this.cursor = cursor
+        this.fields = fields
     }
 
     @Throws(IOException::class)
@@ -45,10 +54,15 @@ class GetAlertsRequest : ActionRequest {
         table = Table.readFrom(sin),
         severityLevel = sin.readString(),
         alertState = sin.readString(),
-        monitorId = sin.readOptionalString()
+        monitorId = sin.readOptionalString(),
+        cursor = sin.readOptionalString(),
+        fields = sin.readOptionalStringArray()?.toList()
     )
 
     override fun validate(): ActionRequestValidationException? {
+        if (cursor != null && table.startIndex != 0) {
+            return ValidateActions.addValidationError("A cursor can't be combined with a start index", null)
+        }
         return null
     }
 
@@ -58,5 +72,7 @@ class GetAlertsRequest : ActionRequest {
         out.writeString(severityLevel)
         out.writeString(alertState)
         out.writeOptionalString(monitorId)
+        out.writeOptionalString(cursor)
+        out.writeOptionalStringArray(fields?.toTypedArray())
     }
 }
@@ -17,11 +17,16 @@ package com.amazon.opendistroforelasticsearch.alerting.action
 
 import com.amazon.opendistroforelasticsearch.alerting.model.Alert
 import org.elasticsearch.action.ActionResponse
+import org.elasticsearch.common.bytes.BytesReference
 import org.elasticsearch.common.io.stream.StreamInput
 import org.elasticsearch.common.io.stream.StreamOutput
 import org.elasticsearch.common.xcontent.ToXContent
 import org.elasticsearch.common.xcontent.ToXContentObject
 import org.elasticsearch.common.xcontent.XContentBuilder
+import org.elasticsearch.common.xcontent.XContentFactory
+import org.elasticsearch.common.xcontent.XContentHelper
+import org.elasticsearch.common.xcontent.XContentType
+import org.elasticsearch.common.xcontent.support.XContentMapValues
 import java.io.IOException
 import java.util.Collections
 
@@ -30,33 +35,59 @@ class GetAlertsResponse : ActionResponse, ToXContentObject {
     // totalAlerts is not the same as the size of alerts because there can be 30 alerts from the request, but
     // the request only asked for 5 alerts, so totalAlerts will be 30, but alerts will only contain 5 alerts
     val totalAlerts: Int?
+    // The cursor to request the page after this one with, null if this is the last page
+    val nextCursor: String?
+    // The alert fields to render, or null for all fields. An alert's id and version are always rendered.
+    val fields: List<String>?
 
     constructor(
         alerts: List<Alert>,
-        totalAlerts: Int?
+        totalAlerts: Int?,
+        nextCursor: String? = null,
+        fields: List<String>? = null
     ) : super() {
         this.alerts = alerts
         this.totalAlerts = totalAlerts
+        this.nextCursor = nextCursor
+        this.fields = fields
     }
 
     @Throws(IOException::class)
     constructor(sin: StreamInput) : this(
         alerts = Collections.unmodifiableList(sin.readList(::Alert)),
-        totalAlerts = sin.readOptionalInt()
+        totalAlerts = sin.readOptionalInt(),
+        nextCursor = sin.readOptionalString(),
+        fields = sin.readOptionalStringArray()?.toList()
     )
 
     @Throws(IOException::class)
     override fun writeTo(out: StreamOutput) {
         out.writeCollection(alerts)
         out.writeOptionalInt(totalAlerts)
+        out.writeOptionalString(nextCursor)
+        out.writeOptionalStringArray(fields?.toTypedArray())
     }
 
     @Throws(IOException::class)
     override fun toXContent(builder: XContentBuilder, params: ToXContent.Params): XContentBuilder {
         builder.startObject()
-                .field("alerts", alerts)
-                .field("totalAlerts", totalAlerts)
+        if (fields == null) {
+            builder.field("alerts", alerts)
+        } else {
+            // Alerts are parsed from partial sources, so the fields that weren't requested only hold defaults
+            val includes = (fields + listOf(Alert.ALERT_ID_FIELD, Alert.ALERT_VERSION_FIELD)).toTypedArray()
+            builder.startArray("alerts")
+            alerts.forEach { builder.map(XContentMapValues.filter(it.toMap(), includes, emptyArray())) }
+            builder.endArray()
+        }
+        builder.field("totalAlerts", totalAlerts)
+        if (nextCursor != null) builder.field("nextCursor", nextCursor)
 
         return builder.endObject()
     }
+
+    private fun Alert.toMap(): Map<String, Any> {
+        val bytes = BytesReference.bytes(toXContent(XContentFactory.jsonBuilder(), ToXContent.EMPTY_PARAMS))
+        return XContentHelper.convertToMap(bytes, false, XContentType.JSON).v2()
+    }
 }
@@ -0,0 +1,90 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.action
+
+import org.elasticsearch.ElasticsearchParseException
+import org.elasticsearch.action.ActionRequest
+import org.elasticsearch.action.ActionRequestValidationException
+import org.elasticsearch.action.ValidateActions
+import org.elasticsearch.common.io.stream.StreamInput
+import org.elasticsearch.common.io.stream.StreamOutput
+import org.elasticsearch.common.unit.TimeValue
+import java.io.IOException
+
+class GetAlertsSummaryRequest : ActionRequest {
+    val severityLevel: String
+    val alertState: String
+    val monitorId: String?
+    // The number of severities and monitors to break the alert counts down by
+    val size: Int
+    // The fixed interval of the start time histogram, e.g. "1d", or null to leave the histogram out
+    val interval: String?
+
+    constructor(
+        severityLevel: String,
+        alertState: String,
+        monitorId: String?,
+        size: Int,
+        interval: String?
+    ) : super() {
+        this.severityLevel = severityLevel
+        this.alertState = alertState
+        this.monitorId = monitorId
+        this.size = size
+        this.interval = interval
+    }
+
+    @Throws(IOException::class)
+    constructor(sin: StreamInput) : this(
+        severityLevel = sin.readString(),
+        alertState = sin.readString(),
+        monitorId = sin.readOptionalString(),
+        size = sin.readVInt(),
+        interval = sin.readOptionalString()
+    )
+
+    override fun validate(): ActionRequestValidationException? {
+        if (size < 1 || size > MAX_SIZE) {
+            return ValidateActions.addValidationError("size must be between 1 and $MAX_SIZE", null)
+        }
+        if (interval != null) {
+            // A short interval over a long alert history could create more buckets than search.max_buckets allows
+            val intervalValue = try {
+                TimeValue.parseTimeValue(interval, "interval")
+            } catch (e: ElasticsearchParseException) {
+                return ValidateActions.addValidationError("interval [$interval] isn't a valid fixed interval, e.g. 1h or 1d", null)
+            }
+            if (intervalValue < MIN_INTERVAL) {
+                return ValidateActions.addValidationError("interval must be at least $MIN_INTERVAL", null)
+            }
+        }
+        return null
+    }
+
+    @Throws(IOException::class)
+    override fun writeTo(out: StreamOutput) {
+        out.writeString(severityLevel)
+        out.writeString(alertState)
+        out.writeOptionalString(monitorId)
+        out.writeVInt(size)
+        out.writeOptionalString(interval)
+    }
+
+    companion object {
+        const val MAX_SIZE = 1000
+        val MIN_INTERVAL: TimeValue = TimeValue.timeValueHours(1)
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.action
+
+import org.elasticsearch.action.ActionResponse
+import org.elasticsearch.common.io.stream.StreamInput
+import org.elasticsearch.common.io.stream.StreamOutput
+import org.elasticsearch.common.xcontent.ToXContent
+import org.elasticsearch.common.xcontent.ToXContentObject
+import org.elasticsearch.common.xcontent.XContentBuilder
+import java.io.IOException
+
+/**
+ * Alert counts broken down by state, severity, monitor and start time. Breakdowns keep the order of the aggregation
+ * buckets, most alerts first for the terms breakdowns and by time for the start time histogram.
+ */
+class GetAlertsSummaryResponse : ActionResponse, ToXContentObject {
+    val totalAlerts: Long
+    val byState: Map<String, Long>
+    val bySeverity: Map<String, Long>
+    val byMonitorId: Map<String, Long>
+    val byStartTime: Map<String, Long>?
+
+    constructor(
+        totalAlerts: Long,
+        byState: Map<String, Long>,
+        bySeverity: Map<String, Long>,
+        byMonitorId: Map<String, Long>,
+        byStartTime: Map<String, Long>?
+    ) : super() {
+        this.totalAlerts = totalAlerts
+        this.byState = byState
+        this.bySeverity = bySeverity
+        this.byMonitorId = byMonitorId
+        this.byStartTime = byStartTime
+    }
+
+    @Throws(IOException::class)
+    constructor(sin: StreamInput) : this(
+        totalAlerts = sin.readVLong(),
+        byState = readCounts(sin),
+        bySeverity = readCounts(sin),
+        byMonitorId = readCounts(sin),
+        byStartTime = if (sin.readBoolean()) readCounts(sin) else null
+    )
+
+    @Throws(IOException::class)
+    override fun writeTo(out: StreamOutput) {
+        out.writeVLong(totalAlerts)
+        writeCounts(out, byState)
+        writeCounts(out, bySeverity)
+        writeCounts(out, byMonitorId)
+        out.writeBoolean(byStartTime != null)
+        byStartTime?.let { writeCounts(out, it) }
+    }
+
+    @Throws(IOException::class)
+    override fun toXContent(builder: XContentBuilder, params: ToXContent.Params): XContentBuilder {
+        builder.startObject()
+                .field("totalAlerts", totalAlerts)
+                .field("byState", byState)
+                .field("bySeverity", bySeverity)
+                .field("byMonitorId", byMonitorId)
+        if (byStartTime != null) builder.field("byStartTime", byStartTime)
+        return builder.endObject()
+    }
+
+    companion object {
+        private fun readCounts(sin: StreamInput): Map<String, Long> {
+            val size = sin.readVInt()
+            val counts = LinkedHashMap<String, Long>(size)
+            repeat(size) { counts[sin.readString()] = sin.readVLong() }
+            return counts
+        }
+
+        private fun writeCounts(out: StreamOutput, counts: Map<String, Long>) {
+            out.writeVInt(counts.size)
+            counts.forEach { (key, count) ->
+                out.writeString(key)
+                out.writeVLong(count)
+            }
+        }
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.alerts
+
+import com.amazon.opendistroforelasticsearch.alerting.core.IndexMaintenanceMetricsRecorder
+import com.amazon.opendistroforelasticsearch.alerting.model.Alert
+import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings
+import org.apache.logging.log4j.LogManager
+import org.elasticsearch.ExceptionsHelper
+import org.elasticsearch.ResourceAlreadyExistsException
+import org.elasticsearch.action.ActionListener
+import org.elasticsearch.action.admin.indices.create.CreateIndexRequest
+import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest
+import org.elasticsearch.action.admin.indices.forcemerge.ForceMergeRequest
+import org.elasticsearch.action.bulk.BulkRequest
+import org.elasticsearch.action.search.SearchRequest
+import org.elasticsearch.action.support.IndicesOptions
+import org.elasticsearch.action.update.UpdateRequest
+import org.elasticsearch.client.Client
+import org.elasticsearch.cluster.metadata.IndexMetadata
+import org.elasticsearch.cluster.service.ClusterService
+import org.elasticsearch.common.regex.Regex
+import org.elasticsearch.common.settings.Settings
+import org.elasticsearch.common.xcontent.XContentFactory
+import org.elasticsearch.common.xcontent.XContentType
+import org.elasticsearch.index.query.QueryBuilder
+import org.elasticsearch.index.query.QueryBuilders
+import org.elasticsearch.index.reindex.DeleteByQueryAction
+import org.elasticsearch.index.reindex.DeleteByQueryRequest
+import org.elasticsearch.script.Script
+import org.elasticsearch.script.ScriptType
+import org.elasticsearch.search.aggregations.AggregationBuilders
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregation
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeValuesSourceBuilder
+import org.elasticsearch.search.aggregations.bucket.composite.DateHistogramValuesSourceBuilder
+import org.elasticsearch.search.aggregations.bucket.composite.TermsValuesSourceBuilder
+import org.elasticsearch.search.aggregations.bucket.filter.Filter
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval
+import org.elasticsearch.search.aggregations.metrics.Max
+import org.elasticsearch.search.aggregations.metrics.Stats
+import org.elasticsearch.search.aggregations.metrics.TopHits
+import org.elasticsearch.search.builder.SearchSourceBuilder
+import org.elasticsearch.search.sort.SortOrder
+import org.elasticsearch.threadpool.ThreadPool
+import java.time.Instant
+import java.time.temporal.ChronoUnit
+
+/**
+ * Rolls alert history up into one summary document per monitor and day in [SUMMARY_INDEX], so that old history can be
+ * kept as daily counts and durations long after the alerts themselves are gone. Only history indices that were rolled
+ * over are summarized, as nothing is written to them anymore, and only once every alert in them ended on a day more
+ * than `opendistro.alerting.alert_history_summary_after` ago. The summarized index is then deleted. Alerts without an
+ * end time, such as those of deleted monitors, aren't summarized. An index holding any of them is kept for the history
+ * retention period, with its summarized alerts deleted and expunged.
+ *
+ * A summary lists the history indices whose alerts it counts, and the counts of an index are only added to a summary
+ * that doesn't list it yet. A run that fails part way is therefore completed by the next one without counting any alert
+ * twice, and alerts of the same monitor and day that were written to a later history index are added once that index
+ * is summarized. Runs on the master as part of the history rollover, see [AlertIndices].
+ */
+class AlertHistorySummarizer(
+    settings: Settings,
+    private val client: Client,
+    private val threadPool: ThreadPool,
+    private val clusterService: ClusterService,
+    private val maintenanceMetrics: IndexMaintenanceMetricsRecorder
+) {
+
+    init {
+        clusterService.clusterSettings.addSettingsUpdateConsumer(AlertingSettings.ALERT_HISTORY_SUMMARY_ENABLED) { summaryEnabled = it }
+        clusterService.clusterSettings.addSettingsUpdateConsumer(AlertingSettings.ALERT_HISTORY_SUMMARY_AFTER) { summaryAfter = it }
+        clusterService.clusterSettings.addSettingsUpdateConsumer(AlertingSettings.REQUEST_TIMEOUT) { requestTimeout = it }
+    }
+
+    companion object {
+
+        /** The index of the daily alert history summaries. It must not match [AlertIndices.ALL_INDEX_PATTERN]. */
+        const val SUMMARY_INDEX = ".opendistro-alerting-history-summary"
+
+        /** The number of monitor and day summaries updated with one request. */
+        const val SUMMARY_PAGE_SIZE = 500
+
+        const val MONITOR_ID_FIELD = "monitor_id"
+        const val MONITOR_NAME_FIELD = "monitor_name"
+        const val MONITOR_USER_FIELD = "monitor_user"
+        const val DAY_FIELD = "day"
+        const val ALERT_COUNT_FIELD = "alert_count"
+        const val ACKNOWLEDGED_COUNT_FIELD = "acknowledged_count"
+        const val MIN_DURATION_FIELD = "min_duration_millis"
+        const val MAX_DURATION_FIELD = "max_duration_millis"
+        const val TOTAL_DURATION_FIELD = "total_duration_millis"
+        const val SOURCE_INDICES_FIELD = "source_indices"
+
+        private const val SUMMARIES = "summaries"
+        private const val ACKNOWLEDGED = "acknowledged"
+        private const val DURATION = "duration"
+        private const val LATEST = "latest"
+        private const val LATEST_END_TIME = "latest_end_time"
+        private const val WITHOUT_END_TIME = "without_end_time"
+        private const val INDEX_PARAM = "index"
+
+        private val DURATION_SCRIPT = Script("doc['${Alert.END_TIME_FIELD}'].value.toInstant().toEpochMilli() - " +
+                "doc['${Alert.START_TIME_FIELD}'].value.toInstant().toEpochMilli()")
+
+        // Adds the counts of one history index to an existing summary, unless they were added before
+        private const val ADD_TO_SUMMARY_SCRIPT =
+                "if (ctx._source.$SOURCE_INDICES_FIELD == null) { ctx._source.$SOURCE_INDICES_FIELD = new ArrayList(); } " +
+                "if (ctx._source.$SOURCE_INDICES_FIELD.contains(params.$INDEX_PARAM)) { ctx.op = 'noop'; } else { " +
+                "ctx._source.$SOURCE_INDICES_FIELD.add(params.$INDEX_PARAM); " +
+                "ctx._source.$ALERT_COUNT_FIELD += params.$ALERT_COUNT_FIELD; " +
+                "ctx._source.$ACKNOWLEDGED_COUNT_FIELD += params.$ACKNOWLEDGED_COUNT_FIELD; " +
+                "if (params.$MIN_DURATION_FIELD < ctx._source.$MIN_DURATION_FIELD) " +
+                "{ ctx._source.$MIN_DURATION_FIELD = params.$MIN_DURATION_FIELD; } " +
+                "if (params.$MAX_DURATION_FIELD > ctx._source.$MAX_DURATION_FIELD) " +
+                "{ ctx._source.$MAX_DURATION_FIELD = params.$MAX_DURATION_FIELD; } " +
+                "ctx._source.$TOTAL_DURATION_FIELD += params.$TOTAL_DURATION_FIELD; }"
+
+        @JvmStatic
+        fun summaryMapping() =
+                AlertHistorySummarizer::class.java.getResource("alert_history_summary_mapping.json").readText()
+
+        private val logger = LogManager.getLogger(AlertHistorySummarizer::class.java)
+    }
+
+    @Volatile private var summaryEnabled = AlertingSettings.ALERT_HISTORY_SUMMARY_ENABLED.get(settings)
+
+    @Volatile private var summaryAfter = AlertingSettings.ALERT_HISTORY_SUMMARY_AFTER.get(settings)
+
+    @Volatile private var requestTimeout = AlertingSettings.REQUEST_TIMEOUT.get(settings)
+
+    /**
+     * Summarizes the rolled over history indices whose alerts all ended before the cutoff day, oldest first. Completes
+     * with the number of summarized alerts, or 0 when summarizing is disabled.
+     */
+    fun summarizeOldHistory(listener: ActionListener<Long>) {
+        if (!summaryEnabled) {
+            listener.onResponse(0L)
+            return
+        }
+        val cutoff = Instant.ofEpochMilli(threadPool.absoluteTimeInMillis())
+                .minusMillis(summaryAfter.millis)
+                .truncatedTo(ChronoUnit.DAYS)
+        val indices = rolledOverHistoryIndices()
+        if (indices.isEmpty()) {
+            listener.onResponse(0L)
+            return
+        }
+        createSummaryIndex(ActionListener.wrap({
+            summarizeIndices(indices.iterator(), cutoff, 0L, listener)
+        }, listener::onFailure))
+    }
+
+    /** The history indices that no longer have the write alias, oldest first, read from the master's cluster state. */
+    private fun rolledOverHistoryIndices(): List<String> {
+        return clusterService.state().metadata().indices().map { it.value }
+                .filter { Regex.simpleMatch(AlertIndices.HISTORY_ALL, it.index.name) }
+                .filterNot { it.aliases.containsKey(AlertIndices.HISTORY_WRITE_INDEX) }
+                .sortedBy { it.creationDate }
+                .map { it.index.name }
+    }
+
+    private fun createSummaryIndex(listener: ActionListener<Unit>) {
+        if (clusterService.state().metadata().hasIndex(SUMMARY_INDEX)) {
+            listener.onResponse(Unit)
+            return
+        }
+        val request = CreateIndexRequest(SUMMARY_INDEX)
+                .mapping(AlertIndices.MAPPING_TYPE, summaryMapping(), XContentType.JSON)
+                .settings(Settings.builder()
+                        .put("index.hidden", true)
+                        .put(IndexMetadata.SETTING_NUMBER_OF_SHARDS, 1)
+                        .build())
+        client.admin().indices().create(request, ActionListener.wrap({ listener.onResponse(Unit) }, { e ->
+            if (ExceptionsHelper.unwrapCause(e) is ResourceAlreadyExistsException) listener.onResponse(Unit) else listener.onFailure(e)
+        }))
+    }
+
+    private fun summarizeIndices(indices: Iterator<String>, cutoff: Instant, summarized: Long, listener: ActionListener<Long>) {
+        if (!indices.hasNext()) {
+            listener.onResponse(summarized)
+            return
+        }
+        val index = indices.next()
+        summarizeIndex(index, cutoff, ActionListener.wrap({ alerts ->
+            summarizeIndices(indices, cutoff, summarized + alerts, listener)
+        }, { e ->
+            // Carry on with the remaining indices, the failed one is summarized again on the next run
+            logger.error("Error summarizing alert history index $index", e)
+            summarizeIndices(indices, cutoff, summarized, listener)
+        }))
+    }
+
+    /**
+     * Summarizes [index] if every alert in it ended before [cutoff], and then deletes it or the summarized alerts in it.
+     * Completes with the number of summarized alerts, or 0 if the index isn't ready to be summarized.
+     */
+    private fun summarizeIndex(index: String, cutoff: Instant, listener: ActionListener<Long>) {
+        val source = SearchSourceBuilder().size(0).trackTotalHits(true)
+                .aggregation(AggregationBuilders.max(LATEST_END_TIME).field(Alert.END_TIME_FIELD))
+                .aggregation(AggregationBuilders.filter(WITHOUT_END_TIME,
+                        QueryBuilders.boolQuery().mustNot(QueryBuilders.existsQuery(Alert.END_TIME_FIELD))))
+        client.search(SearchRequest(index).source(source), ActionListener.wrap({ response ->
+            val total = response.hits.totalHits?.value ?: 0L
+            val withoutEndTime = response.aggregations.get<Filter>(WITHOUT_END_TIME).docCount
+            val latestEndTime = response.aggregations.get<Max>(LATEST_END_TIME).value
+            when {
+                total == 0L -> deleteIndex(index, 0L, listener)
+                withoutEndTime == total || latestEndTime >= cutoff.toEpochMilli() -> listener.onResponse(0L)
+                else -> {
+                    val query = QueryBuilders.existsQuery(Alert.END_TIME_FIELD)
+                    summarizePage(index, query, null, 0, ActionListener.wrap({ summaries ->
+                        logger.debug("Summarized ${total - withoutEndTime} alerts of $index into $summaries monitor and day summaries")
+                        if (withoutEndTime == 0L) {
+                            deleteIndex(index, total, listener)
+                        } else {
+                            deleteSummarized(index, query, listener)
+                        }
+                    }, listener::onFailure))
+                }
+            }
+        }, listener::onFailure))
+    }
+
+    private fun summarizePage(
+        index: String,
+        query: QueryBuilder,
+        afterKey: Map<String, Any>?,
+        summarized: Int,
+        listener: ActionListener<Int>
+    ) {
+        val sources = listOf<CompositeValuesSourceBuilder<*>>(
+                TermsValuesSourceBuilder(MONITOR_ID_FIELD).field(Alert.MONITOR_ID_FIELD),
+                DateHistogramValuesSourceBuilder(DAY_FIELD).field(Alert.END_TIME_FIELD).calendarInterval(DateHistogramInterval.DAY)
+        )
+        val aggregation = AggregationBuilders.composite(SUMMARIES, sources)
+                .size(SUMMARY_PAGE_SIZE)
+                .subAggregation(AggregationBuilders.filter(ACKNOWLEDGED, QueryBuilders.existsQuery(Alert.ACKNOWLEDGED_TIME_FIELD)))
+                .subAggregation(AggregationBuilders.stats(DURATION).script(DURATION_SCRIPT))
+                .subAggregation(AggregationBuilders.topHits(LATEST)
+                        .size(1)
+                        .sort(Alert.END_TIME_FIELD, SortOrder.DESC)
+                        .fetchSource(arrayOf(Alert.MONITOR_NAME_FIELD, Alert.MONITOR_USER_FIELD), null))
+        if (afterKey != null) aggregation.aggregateAfter(afterKey)
+        val searchRequest = SearchRequest(index)
+                .source(SearchSourceBuilder().query(query).size(0).aggregation(aggregation))
+
+        client.search(searchRequest, ActionListener.wrap({ response ->
+            val composite = response.aggregations?.get<CompositeAggregation>(SUMMARIES)
+            if (composite == null || composite.buckets.isEmpty()) {
+                listener.onResponse(summarized)
+                return@wrap
+            }
+            val bulkRequest = BulkRequest().timeout(requestTimeout).add(composite.buckets.map { summaryRequest(index, it) })
+            client.bulk(bulkRequest, ActionListener.wrap({ bulkResponse ->
+                val failures = bulkResponse.items.filter { it.isFailed }
+                if (failures.isNotEmpty()) {
+                    logger.warn("Failed to update ${failures.size} alert history summaries of $index")
+                    listener.onFailure(failures.first().failure.cause)
+                    return@wrap
+                }
+                val nextSummarized = summarized + composite.buckets.size
+                if (composite.afterKey() == null) {
+                    listener.onResponse(nextSummarized)
+                } else {
+                    summarizePage(index, query, composite.afterKey(), nextSummarized, listener)
+                }
+            }, listener::onFailure))
+        }, listener::onFailure))
+    }
+
+    /** Creates the summary of a monitor and day from the alerts of [index], or adds them to the existing summary. */
+    private fun summaryRequest(index: String, bucket: CompositeAggregation.Bucket): UpdateRequest {
+        val monitorId = bucket.key[MONITOR_ID_FIELD] as String
+        val day = bucket.key[DAY_FIELD] as Long
+        val duration = bucket.aggregations.get<Stats>(DURATION)
+        val latest = bucket.aggregations.get<TopHits>(LATEST).hits.hits.firstOrNull()?.sourceAsMap
+        val counts = mapOf(
+                ALERT_COUNT_FIELD to bucket.docCount,
+                ACKNOWLEDGED_COUNT_FIELD to bucket.aggregations.get<Filter>(ACKNOWLEDGED).docCount,
+                MIN_DURATION_FIELD to duration.min.toLong(),
+                MAX_DURATION_FIELD to duration.max.toLong(),
+                TOTAL_DURATION_FIELD to duration.sum.toLong()
+        )
+        val summary = XContentFactory.jsonBuilder().startObject()
+                .field(MONITOR_ID_FIELD, monitorId)
+                .field(MONITOR_NAME_FIELD, latest?.get(Alert.MONITOR_NAME_FIELD))
+                .field(MONITOR_USER_FIELD, latest?.get(Alert.MONITOR_USER_FIELD))
+                .field(DAY_FIELD, day)
+                .field(SOURCE_INDICES_FIELD, listOf(index))
+        counts.forEach { (field, value) -> summary.field(field, value) }
+        summary.endObject()
+        val params: Map<String, Any> = counts + (INDEX_PARAM to index)
+        return UpdateRequest(SUMMARY_INDEX, "$monitorId-$day")
+                .script(Script(ScriptType.INLINE, Script.DEFAULT_SCRIPT_LANG, ADD_TO_SUMMARY_SCRIPT, params))
+                .upsert(summary)
+                .retryOnConflict(3)
+    }
+
+    private fun deleteIndex(index: String, summarized: Long, listener: ActionListener<Long>) {
+        val request = DeleteIndexRequest(index)
+                .indicesOptions(IndicesOptions.lenientExpandOpen())
+                .masterNodeTimeout(requestTimeout)
+                .timeout(requestTimeout)
+        client.admin().indices().delete(request, ActionListener.wrap({ response ->
+            if (response.isAcknowledged) {
+                maintenanceMetrics.recordDeletedIndices(1)
+            } else {
+                // The index is summarized again on the next run, which doesn't change its summaries
+                logger.warn("Deleting summarized alert history index $index wasn't acknowledged")
+            }
+            listener.onResponse(summarized)
+        }, listener::onFailure))
+    }
+
+    /**
+     * Deletes the summarized alerts from an index that also holds alerts without an end time, and expunges them, as
+     * rolled over history indices are rarely merged and the deleted alerts would otherwise keep taking up disk space.
+     */
+    private fun deleteSummarized(index: String, query: QueryBuilder, listener: ActionListener<Long>) {
+        val request = DeleteByQueryRequest(index)
+                .setQuery(query)
+                .setAbortOnVersionConflict(false)
+        client.execute(DeleteByQueryAction.INSTANCE, request, ActionListener.wrap({ response ->
+            if (response.bulkFailures.isNotEmpty() || response.searchFailures.isNotEmpty()) {
+                // The remaining alerts are deleted by the next run, their index is already counted in the summaries
+                logger.warn("Failed to delete some summarized alerts of $index, " +
+                        "bulk failures: ${response.bulkFailures.size}, search failures: ${response.searchFailures.size}")
+            }
+            val forceMergeRequest = ForceMergeRequest(index).onlyExpungeDeletes(true)
+            client.admin().indices().forceMerge(forceMergeRequest, ActionListener.wrap({
+                listener.onResponse(response.deleted)
+            }, { e ->
+                logger.warn("Failed to expunge the deleted alerts of $index", e)
+                listener.onResponse(response.deleted)
+            }))
+        }, listener::onFailure))
+    }
+}
@@ -19,16 +19,27 @@ import com.amazon.opendistroforelasticsearch.alerting.alerts.AlertIndices.Compan
 import com.amazon.opendistroforelasticsearch.alerting.alerts.AlertIndices.Companion.HISTORY_WRITE_INDEX
 import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings
 import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings.Companion.ALERT_HISTORY_INDEX_MAX_AGE
+import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings.Companion.ALERT_HISTORY_INDEX_SORT_FIELD
+import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings.Companion.ALERT_HISTORY_INDEX_SORT_ORDER
 import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings.Companion.ALERT_HISTORY_MAX_DOCS
+import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings.Companion.ALERT_HISTORY_MAX_PRIMARY_SHARD_SIZE
+import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings.Companion.ALERT_HISTORY_MAX_SIZE
+import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings.Companion.ALERT_HISTORY_NUMBER_OF_REPLICAS
+import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings.Companion.ALERT_HISTORY_NUMBER_OF_SHARDS
+import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings.Companion.ALERT_HISTORY_REFRESH_INTERVAL
 import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings.Companion.ALERT_HISTORY_ROLLOVER_PERIOD
+import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings.Companion.ALERT_INDEX_NUMBER_OF_REPLICAS
+import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings.Companion.ALERT_INDEX_NUMBER_OF_SHARDS
+import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings.Companion.ALERT_INDEX_REFRESH_INTERVAL
 import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings.Companion.REQUEST_TIMEOUT
 import org.apache.logging.log4j.LogManager
+import com.amazon.opendistroforelasticsearch.alerting.core.IndexMaintenanceMetricsRecorder
 import com.amazon.opendistroforelasticsearch.alerting.elasticapi.suspendUntil
+import com.amazon.opendistroforelasticsearch.alerting.model.Alert
 import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings.Companion.ALERT_HISTORY_ENABLED
 import com.amazon.opendistroforelasticsearch.alerting.util.IndexUtils
-import org.apache.lucene.index.IndexNotFoundException
 import org.elasticsearch.ResourceAlreadyExistsException
-import org.elasticsearch.action.admin.cluster.state.ClusterStateRequest
+import org.elasticsearch.action.ActionListener
 import org.elasticsearch.action.admin.indices.alias.Alias
 import org.elasticsearch.action.admin.indices.create.CreateIndexRequest
 import org.elasticsearch.action.admin.indices.create.CreateIndexResponse
@@ -37,18 +48,26 @@ import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsReques
 import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsResponse
 import org.elasticsearch.action.admin.indices.mapping.put.PutMappingRequest
 import org.elasticsearch.action.admin.indices.rollover.RolloverRequest
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest
 import org.elasticsearch.action.support.IndicesOptions
 import org.elasticsearch.action.support.master.AcknowledgedResponse
 import org.elasticsearch.client.Client
 import org.elasticsearch.cluster.ClusterChangedEvent
+import org.elasticsearch.cluster.ClusterState
 import org.elasticsearch.cluster.ClusterStateListener
+import org.elasticsearch.cluster.metadata.IndexMetadata
 import org.elasticsearch.cluster.service.ClusterService
+import org.elasticsearch.common.regex.Regex
 import org.elasticsearch.common.settings.Settings
+import org.elasticsearch.common.unit.ByteSizeValue
 import org.elasticsearch.common.unit.TimeValue
 import org.elasticsearch.common.xcontent.XContentType
+import org.elasticsearch.index.IndexSettings
+import org.elasticsearch.index.IndexSortConfig
 import org.elasticsearch.threadpool.Scheduler.Cancellable
 import org.elasticsearch.threadpool.ThreadPool
 import java.time.Instant
+import java.util.concurrent.atomic.AtomicBoolean
 
 /**
  * Class to manage the creation and rollover of alert indices and alert history indices.  In progress alerts are stored
@@ -64,7 +83,8 @@ class AlertIndices(
     settings: Settings,
     private val client: Client,
     private val threadPool: ThreadPool,
-    private val clusterService: ClusterService
+    private val clusterService: ClusterService,
+    private val maintenanceMetrics: IndexMaintenanceMetricsRecorder
 ) : ClusterStateListener {
 
     init {
@@ -72,6 +92,24 @@ class AlertIndices(
         clusterService.clusterSettings.addSettingsUpdateConsumer(ALERT_HISTORY_ENABLED) { historyEnabled = it }
         clusterService.clusterSettings.addSettingsUpdateConsumer(ALERT_HISTORY_MAX_DOCS) { historyMaxDocs = it }
         clusterService.clusterSettings.addSettingsUpdateConsumer(ALERT_HISTORY_INDEX_MAX_AGE) { historyMaxAge = it }
+        clusterService.clusterSettings.addSettingsUpdateConsumer(ALERT_HISTORY_MAX_SIZE) { historyMaxSize = it }
+        clusterService.clusterSettings.addSettingsUpdateConsumer(ALERT_HISTORY_MAX_PRIMARY_SHARD_SIZE) {
+            historyMaxPrimaryShardSize = it
+        }
+        clusterService.clusterSettings.addSettingsUpdateConsumer(ALERT_HISTORY_NUMBER_OF_SHARDS) { historyNumberOfShards = it }
+        clusterService.clusterSettings.addSettingsUpdateConsumer(ALERT_HISTORY_NUMBER_OF_REPLICAS) { historyNumberOfReplicas = it }
+        clusterService.clusterSettings.addSettingsUpdateConsumer(ALERT_HISTORY_INDEX_SORT_FIELD) { historySortField = it }
+        clusterService.clusterSettings.addSettingsUpdateConsumer(ALERT_HISTORY_INDEX_SORT_ORDER) { historySortOrder = it }
+        clusterService.clusterSettings.addSettingsUpdateConsumer(ALERT_HISTORY_REFRESH_INTERVAL) {
+            historyRefreshInterval = it
+            updateRefreshInterval(HISTORY_WRITE_INDEX, it)
+        }
+        clusterService.clusterSettings.addSettingsUpdateConsumer(ALERT_INDEX_NUMBER_OF_SHARDS) { alertNumberOfShards = it }
+        clusterService.clusterSettings.addSettingsUpdateConsumer(ALERT_INDEX_NUMBER_OF_REPLICAS) { alertNumberOfReplicas = it }
+        clusterService.clusterSettings.addSettingsUpdateConsumer(ALERT_INDEX_REFRESH_INTERVAL) {
+            alertRefreshInterval = it
+            updateRefreshInterval(ALERT_INDEX, it)
+        }
         clusterService.clusterSettings.addSettingsUpdateConsumer(ALERT_HISTORY_ROLLOVER_PERIOD) {
             historyRolloverPeriod = it
             rescheduleRollover()
@@ -106,6 +144,9 @@ class AlertIndices(
         fun alertMapping() =
                 AlertIndices::class.java.getResource("alert_mapping.json").readText()
 
+        /** The number of expired history indices deleted with one request. */
+        const val DELETE_HISTORY_INDICES_BATCH_SIZE = 20
+
         private val logger = LogManager.getLogger(AlertIndices::class.java)
     }
 
@@ -115,6 +156,26 @@ class AlertIndices(
 
     @Volatile private var historyMaxAge = AlertingSettings.ALERT_HISTORY_INDEX_MAX_AGE.get(settings)
 
+    @Volatile private var historyMaxSize = AlertingSettings.ALERT_HISTORY_MAX_SIZE.get(settings)
+
+    @Volatile private var historyMaxPrimaryShardSize = AlertingSettings.ALERT_HISTORY_MAX_PRIMARY_SHARD_SIZE.get(settings)
+
+    @Volatile private var historyNumberOfShards = AlertingSettings.ALERT_HISTORY_NUMBER_OF_SHARDS.get(settings)
+
+    @Volatile private var historyNumberOfReplicas = AlertingSettings.ALERT_HISTORY_NUMBER_OF_REPLICAS.get(settings)
+
+    @Volatile private var historySortField = AlertingSettings.ALERT_HISTORY_INDEX_SORT_FIELD.get(settings)
+
+    @Volatile private var historySortOrder = AlertingSettings.ALERT_HISTORY_INDEX_SORT_ORDER.get(settings)
+
+    @Volatile private var historyRefreshInterval = AlertingSettings.ALERT_HISTORY_REFRESH_INTERVAL.get(settings)
+
+    @Volatile private var alertNumberOfShards = AlertingSettings.ALERT_INDEX_NUMBER_OF_SHARDS.get(settings)
+
+    @Volatile private var alertNumberOfReplicas = AlertingSettings.ALERT_INDEX_NUMBER_OF_REPLICAS.get(settings)
+
+    @Volatile private var alertRefreshInterval = AlertingSettings.ALERT_INDEX_REFRESH_INTERVAL.get(settings)
+
     @Volatile private var historyRolloverPeriod = AlertingSettings.ALERT_HISTORY_ROLLOVER_PERIOD.get(settings)
 
     @Volatile private var historyRetentionPeriod = AlertingSettings.ALERT_HISTORY_RETENTION_PERIOD.get(settings)
@@ -126,6 +187,10 @@ class AlertIndices(
     // for JobsMonitor to report
     var lastRolloverTime: TimeValue? = null
 
+    private val historyMaintenanceInProgress = AtomicBoolean(false)
+
+    val historySummarizer = AlertHistorySummarizer(settings, client, threadPool, clusterService, maintenanceMetrics)
+
     private var historyIndexInitialized: Boolean = false
 
     private var alertIndexInitialized: Boolean = false
@@ -134,9 +199,8 @@ class AlertIndices(
 
     fun onMaster() {
         try {
-            // TODO: Change current actionGet requests within rolloverHistoryIndex() rolloverAndDeleteHistoryIndices() to use suspendUntil
             // try to rollover immediately as we might be restarting the cluster
-            rolloverHistoryIndex()
+            rolloverHistoryIndex(ActionListener.wrap({}, { e -> logger.error("Error rolling over $HISTORY_WRITE_INDEX", e) }))
             // schedule the next rollover for approx MAX_AGE later
             scheduledRollover = threadPool
                     .scheduleWithFixedDelay({ rolloverAndDeleteHistoryIndices() }, historyRolloverPeriod, executorName())
@@ -189,7 +253,7 @@ class AlertIndices(
 
     suspend fun createOrUpdateAlertIndex() {
         if (!alertIndexInitialized) {
-            alertIndexInitialized = createIndex(ALERT_INDEX)
+            alertIndexInitialized = createIndex(ALERT_INDEX, indexSettings = alertIndexSettings())
             if (alertIndexInitialized) IndexUtils.alertIndexUpdated()
         } else {
             if (!IndexUtils.alertIndexUpdated) updateIndexMapping(ALERT_INDEX)
@@ -199,7 +263,7 @@ class AlertIndices(
 
     suspend fun createOrUpdateInitialHistoryIndex() {
         if (!historyIndexInitialized) {
-            historyIndexInitialized = createIndex(HISTORY_INDEX_PATTERN, HISTORY_WRITE_INDEX)
+            historyIndexInitialized = createIndex(HISTORY_INDEX_PATTERN, HISTORY_WRITE_INDEX, historyIndexSettings())
             if (historyIndexInitialized)
                 IndexUtils.lastUpdatedHistoryIndex = IndexUtils.getIndexNameWithAlias(clusterService.state(), HISTORY_WRITE_INDEX)
         } else {
@@ -208,7 +272,7 @@ class AlertIndices(
         historyIndexInitialized
     }
 
-    private suspend fun createIndex(index: String, alias: String? = null): Boolean {
+    private suspend fun createIndex(index: String, alias: String? = null, indexSettings: Settings): Boolean {
         // This should be a fast check of local cluster state. Should be exceedingly rare that the local cluster
         // state does not contain the index and multiple nodes concurrently try to create the index.
         // If it does happen that error is handled we catch the ResourceAlreadyExistsException
@@ -219,7 +283,7 @@ class AlertIndices(
 
         val request = CreateIndexRequest(index)
                 .mapping(MAPPING_TYPE, alertMapping(), XContentType.JSON)
-                .settings(Settings.builder().put("index.hidden", true).build())
+                .settings(indexSettings)
 
         if (alias != null) request.alias(Alias(alias))
         return try {
@@ -242,6 +306,15 @@ class AlertIndices(
             return
         }
 
+        if (hasNestedAlertHistory(clusterState, targetIndex)) {
+            // Indices created before schema version 4 index alert history and action results as nested documents,
+            // which can't be changed in place. A history index gets the current mapping when it's rolled over, but
+            // the alert index keeps its previous mapping until it's deleted and recreated.
+            logger.warn("Index mapping of $targetIndex predates schema version 4 and can't be updated in place, keeping it")
+            setIndexUpdateFlag(index, targetIndex)
+            return
+        }
+
         var putMappingRequest: PutMappingRequest = PutMappingRequest(targetIndex).type(MAPPING_TYPE)
                 .source(mapping, XContentType.JSON)
         val updateResponse: AcknowledgedResponse = client.admin().indices().suspendUntil { putMapping(putMappingRequest, it) }
@@ -253,6 +326,12 @@ class AlertIndices(
         }
     }
 
+    private fun hasNestedAlertHistory(clusterState: ClusterState, index: String): Boolean {
+        val properties = clusterState.metadata.index(index)?.mapping()?.sourceAsMap()?.get("properties") as? Map<*, *>
+        val alertHistory = properties?.get(Alert.ALERT_HISTORY_FIELD) as? Map<*, *>
+        return alertHistory?.get("type") == "nested"
+    }
+
     private fun setIndexUpdateFlag(index: String, targetIndex: String) {
         when (index) {
             ALERT_INDEX -> IndexUtils.alertIndexUpdated()
@@ -261,48 +340,149 @@ class AlertIndices(
     }
 
     private fun rolloverAndDeleteHistoryIndices() {
-        if (historyEnabled) rolloverHistoryIndex()
-        deleteOldHistoryIndices()
+        // A slow rollover or delete shouldn't have the next scheduled run pile up behind it
+        if (!historyMaintenanceInProgress.compareAndSet(false, true)) {
+            logger.info("Previous alert history rollover is still in progress, skipping this one")
+            return
+        }
+        val startTime = threadPool.relativeTimeInMillis()
+        val finish = {
+            val duration = threadPool.relativeTimeInMillis() - startTime
+            maintenanceMetrics.recordRun(duration)
+            logger.debug("Alert history maintenance took ${TimeValue.timeValueMillis(duration)}")
+            historyMaintenanceInProgress.set(false)
+        }
+        val summarizeOldHistory = {
+            runMaintenanceStep<Long>("summarizing old alert history", finish) { historySummarizer.summarizeOldHistory(it) }
+        }
+        val deleteOldIndices = {
+            runMaintenanceStep<Int>("deleting old alert history indices", summarizeOldHistory) { deleteOldHistoryIndices(it) }
+        }
+        if (historyEnabled) {
+            runMaintenanceStep<Boolean>("rolling over $HISTORY_WRITE_INDEX", deleteOldIndices) { rolloverHistoryIndex(it) }
+        } else {
+            deleteOldIndices()
+        }
     }
 
-    private fun rolloverHistoryIndex(): Boolean {
+    /**
+     * Runs one step of the history maintenance and then [next], exactly once, whether the step responds, fails or throws
+     * before it hands over to its listener. Otherwise a step that throws would leave the maintenance marked in progress
+     * and no later run would start on this node.
+     */
+    private fun <T> runMaintenanceStep(description: String, next: () -> Unit, step: (ActionListener<T>) -> Unit) {
+        val done = AtomicBoolean(false)
+        val proceed = { response: T?, e: Exception? ->
+            if (done.compareAndSet(false, true)) {
+                if (e == null) logger.debug("Finished $description: $response") else logger.error("Error $description", e)
+                next()
+            }
+        }
+        try {
+            step(object : ActionListener<T> {
+                override fun onResponse(response: T) = proceed(response, null)
+
+                override fun onFailure(e: Exception) = proceed(null, e)
+            })
+        } catch (e: Exception) {
+            proceed(null, e)
+        }
+    }
+
+    private fun rolloverHistoryIndex(listener: ActionListener<Boolean>) {
         if (!historyIndexInitialized) {
-            return false
+            listener.onResponse(false)
+            return
         }
 
         // We have to pass null for newIndexName in order to get Elastic to increment the index count.
         val request = RolloverRequest(HISTORY_WRITE_INDEX, null)
         request.createIndexRequest.index(HISTORY_INDEX_PATTERN)
                 .mapping(MAPPING_TYPE, alertMapping(), XContentType.JSON)
-                .settings(Settings.builder().put("index.hidden", true).build())
-        request.addMaxIndexDocsCondition(historyMaxDocs)
+                .settings(historyIndexSettings())
+        if (historyMaxDocs > 0) request.addMaxIndexDocsCondition(historyMaxDocs)
         request.addMaxIndexAgeCondition(historyMaxAge)
-        val response = client.admin().indices().rolloverIndex(request).actionGet(requestTimeout)
-        if (!response.isRolledOver) {
-            logger.info("$HISTORY_WRITE_INDEX not rolled over. Conditions were: ${response.conditionStatus}")
-        } else {
-            lastRolloverTime = TimeValue.timeValueMillis(threadPool.absoluteTimeInMillis())
+        historyMaxSizeCondition()?.let { request.addMaxIndexSizeCondition(it) }
+        request.masterNodeTimeout(requestTimeout).timeout(requestTimeout)
+        client.admin().indices().rolloverIndex(request, ActionListener.wrap({ response ->
+            if (!response.isRolledOver) {
+                logger.info("$HISTORY_WRITE_INDEX not rolled over. Conditions were: ${response.conditionStatus}")
+            } else {
+                val rolloverTime = threadPool.absoluteTimeInMillis()
+                lastRolloverTime = TimeValue.timeValueMillis(rolloverTime)
+                maintenanceMetrics.recordRollover(rolloverTime)
+            }
+            listener.onResponse(response.isRolledOver)
+        }, listener::onFailure))
+    }
+
+    private fun alertIndexSettings(): Settings {
+        return Settings.builder()
+                .put("index.hidden", true)
+                .put(IndexMetadata.SETTING_NUMBER_OF_SHARDS, alertNumberOfShards)
+                .put(IndexMetadata.SETTING_NUMBER_OF_REPLICAS, alertNumberOfReplicas)
+                .put(IndexSettings.INDEX_REFRESH_INTERVAL_SETTING.key, alertRefreshInterval)
+                .build()
+    }
+
+    private fun historyIndexSettings(): Settings {
+        val settings = Settings.builder()
+                .put("index.hidden", true)
+                .put(IndexMetadata.SETTING_NUMBER_OF_SHARDS, historyNumberOfShards)
+                .put(IndexMetadata.SETTING_NUMBER_OF_REPLICAS, historyNumberOfReplicas)
+                .put(IndexSettings.INDEX_REFRESH_INTERVAL_SETTING.key, historyRefreshInterval)
+        if (historySortField.isNotEmpty()) {
+            settings.putList(IndexSortConfig.INDEX_SORT_FIELD_SETTING.key, historySortField)
+            if (historySortOrder.isNotEmpty()) settings.putList(IndexSortConfig.INDEX_SORT_ORDER_SETTING.key, historySortOrder)
         }
-        return response.isRolledOver
+        return settings.build()
     }
 
-    private fun deleteOldHistoryIndices() {
-        val indicesToDelete = mutableListOf<String>()
+    /**
+     * Applies a changed refresh interval setting to the existing alert index or history write index. Only the master
+     * does this so that a settings change results in a single update.
+     */
+    private fun updateRefreshInterval(index: String, refreshInterval: TimeValue) {
+        if (!isMaster) return
+        val request = UpdateSettingsRequest(Settings.builder()
+                .put(IndexSettings.INDEX_REFRESH_INTERVAL_SETTING.key, refreshInterval)
+                .build(), index)
+                .indicesOptions(IndicesOptions.lenientExpandOpen())
+                .masterNodeTimeout(requestTimeout)
+        client.admin().indices().updateSettings(request, ActionListener.wrap({
+            logger.info("Updated refresh interval of $index to $refreshInterval")
+        }, { e ->
+            logger.error("Error updating refresh interval of $index", e)
+        }))
+    }
 
-        val clusterStateRequest = ClusterStateRequest()
-                .clear()
-                .indices(HISTORY_ALL)
-                .metadata(true)
-                .local(true)
-                .indicesOptions(IndicesOptions.strictExpand())
+    /**
+     * The max_size condition for the history write index, the smaller of [historyMaxSize] and [historyMaxPrimaryShardSize]
+     * times the number of primary shards of the write index, as max_size is compared to the size of all primary shards.
+     */
+    private fun historyMaxSizeCondition(): ByteSizeValue? {
+        val writeIndex = clusterService.state().metadata().indices().firstOrNull { it.value.aliases.containsKey(HISTORY_WRITE_INDEX) }
+        val shardsSize = if (writeIndex != null && historyMaxPrimaryShardSize.bytes > 0) {
+            historyMaxPrimaryShardSize.bytes * writeIndex.value.numberOfShards
+        } else 0L
+        val maxSize = listOf(historyMaxSize.bytes, shardsSize).filter { it > 0 }.min() ?: return null
+        return ByteSizeValue(maxSize)
+    }
 
-        val clusterStateResponse = client.admin().cluster().state(clusterStateRequest).actionGet()
+    /**
+     * Deletes history indices older than the retention period, [DELETE_HISTORY_INDICES_BATCH_SIZE] at a time. The indices
+     * are read from the local cluster state, which is current as this only runs on the master. Responds with the number
+     * of deleted indices.
+     */
+    private fun deleteOldHistoryIndices(listener: ActionListener<Int>) {
+        val indicesToDelete = mutableListOf<String>()
+        val now = Instant.now().toEpochMilli()
 
-        for (entry in clusterStateResponse.state.metadata.indices) {
+        for (entry in clusterService.state().metadata().indices()) {
             val indexMetaData = entry.value
-            val creationTime = indexMetaData.creationDate
+            if (!Regex.simpleMatch(HISTORY_ALL, indexMetaData.index.name)) continue
 
-            if ((Instant.now().toEpochMilli() - creationTime) > historyRetentionPeriod.millis) {
+            if ((now - indexMetaData.creationDate) > historyRetentionPeriod.millis) {
                 val alias = indexMetaData.aliases.firstOrNull { HISTORY_WRITE_INDEX == it.value.alias }
                 if (alias != null) {
                     if (historyEnabled) {
@@ -318,25 +498,47 @@ class AlertIndices(
             }
         }
 
-        if (indicesToDelete.isNotEmpty()) {
-            val deleteIndexRequest = DeleteIndexRequest(*indicesToDelete.toTypedArray())
-            val deleteIndexResponse = client.admin().indices().delete(deleteIndexRequest).actionGet()
-
-            if (!deleteIndexResponse.isAcknowledged) {
-                logger.error("Could not delete one or more Alerting history indices: $indicesToDelete. Retrying one by one.")
-                for (index in indicesToDelete) {
-                    try {
-                        val singleDeleteRequest = DeleteIndexRequest(*indicesToDelete.toTypedArray())
-                        val singleDeleteResponse = client.admin().indices().delete(singleDeleteRequest).actionGet()
-
-                        if (!singleDeleteResponse.isAcknowledged) {
-                            logger.error("Could not delete one or more Alerting history indices: $index")
-                        }
-                    } catch (e: IndexNotFoundException) {
-                        logger.debug("$index was already deleted. ${e.message}")
-                    }
-                }
-            }
+        deleteIndexBatches(indicesToDelete.chunked(DELETE_HISTORY_INDICES_BATCH_SIZE).iterator(), 0, listener)
+    }
+
+    private fun deleteIndexBatches(
+        batches: Iterator<List<String>>,
+        deleted: Int,
+        listener: ActionListener<Int>,
+        retryOneByOne: Boolean = true
+    ) {
+        if (!batches.hasNext()) {
+            listener.onResponse(deleted)
+            return
         }
+        val batch = batches.next()
+        deleteIndices(batch, ActionListener.wrap({ acknowledged ->
+            if (acknowledged) {
+                maintenanceMetrics.recordDeletedIndices(batch.size)
+                deleteIndexBatches(batches, deleted + batch.size, listener, retryOneByOne)
+            } else if (retryOneByOne && batch.size > 1) {
+                logger.error("Could not delete one or more Alerting history indices: $batch. Retrying one by one.")
+                deleteIndexBatches(batch.map { listOf(it) }.iterator(), 0, ActionListener.wrap({ deletedOneByOne ->
+                    deleteIndexBatches(batches, deleted + deletedOneByOne, listener, retryOneByOne)
+                }, listener::onFailure), false)
+            } else {
+                logger.error("Could not delete one or more Alerting history indices: $batch")
+                deleteIndexBatches(batches, deleted, listener, retryOneByOne)
+            }
+        }, { e ->
+            // Carry on with the remaining batches, the failed indices are retried on the next run
+            logger.error("Error deleting Alerting history indices: $batch", e)
+            deleteIndexBatches(batches, deleted, listener, retryOneByOne)
+        }))
+    }
+
+    private fun deleteIndices(indices: List<String>, listener: ActionListener<Boolean>) {
+        val deleteIndexRequest = DeleteIndexRequest(*indices.toTypedArray())
+                .indicesOptions(IndicesOptions.lenientExpandOpen())
+                .masterNodeTimeout(requestTimeout)
+                .timeout(requestTimeout)
+        client.admin().indices().delete(deleteIndexRequest, ActionListener.wrap({ response ->
+            listener.onResponse(response.isAcknowledged)
+        }, listener::onFailure))
     }
 }
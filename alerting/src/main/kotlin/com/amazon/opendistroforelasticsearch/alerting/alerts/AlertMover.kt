@@ -20,6 +20,11 @@ import com.amazon.opendistroforelasticsearch.alerting.alerts.AlertIndices.Compan
 import com.amazon.opendistroforelasticsearch.alerting.model.Alert
 import com.amazon.opendistroforelasticsearch.alerting.model.Monitor
 import com.amazon.opendistroforelasticsearch.alerting.elasticapi.suspendUntil
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+import org.elasticsearch.action.bulk.BulkItemResponse
 import org.elasticsearch.action.bulk.BulkRequest
 import org.elasticsearch.action.bulk.BulkResponse
 import org.elasticsearch.action.delete.DeleteRequest
@@ -37,77 +42,150 @@ import org.elasticsearch.common.xcontent.XContentParser
 import org.elasticsearch.common.xcontent.XContentParserUtils
 import org.elasticsearch.common.xcontent.XContentType
 import org.elasticsearch.index.VersionType
+import org.elasticsearch.index.query.QueryBuilder
 import org.elasticsearch.index.query.QueryBuilders
 import org.elasticsearch.rest.RestStatus
+import org.elasticsearch.search.SearchHit
 import org.elasticsearch.search.builder.SearchSourceBuilder
+import org.elasticsearch.search.sort.SortOrder
+
+/** The number of alerts searched for, copied and deleted at a time when moving alerts. */
+const val MOVE_ALERTS_PAGE_SIZE = 500
+
+/** The number of deleted monitors whose alerts are searched for together when moving alerts in bulk. */
+const val MOVE_ALERTS_MONITOR_BATCH_SIZE = 500
+
+/** The number of batches of deleted monitors whose alerts are moved concurrently. */
+const val MAX_CONCURRENT_ALERT_MOVES = 4
 
 /**
  * Moves defunct active alerts to the alert history index when the corresponding monitor or trigger is deleted.
  *
  * The logic for moving alerts consists of:
- * 1. Find active alerts:
+ * 1. Find active alerts a page at a time, paging with search_after on _id:
  *      a. matching monitorId if no monitor is provided (postDelete)
  *      b. matching monitorId and no triggerIds if monitor is provided (postIndex)
  * 2. Move alerts over to [HISTORY_WRITE_INDEX] as DELETED
  * 3. Delete alerts from [ALERT_INDEX]
  * 4. Schedule a retry if there were any failures
+ *
+ * Steps 2 and 3 for a page run while the next page is searched for, with at most one page being moved at a time.
+ *
+ * @return the number of alerts that were moved
  */
-suspend fun moveAlerts(client: Client, monitorId: String, monitor: Monitor? = null) {
+suspend fun moveAlerts(client: Client, monitorId: String, monitor: Monitor? = null): Int {
     val boolQuery = QueryBuilders.boolQuery()
         .filter(QueryBuilders.termQuery(Alert.MONITOR_ID_FIELD, monitorId))
 
     if (monitor != null) {
         boolQuery.mustNot(QueryBuilders.termsQuery(Alert.TRIGGER_ID_FIELD, monitor.triggers.map { it.id }))
     }
+    return moveAlerts(client, boolQuery, listOf(monitorId), "[$monitorId, ${monitor?.triggers?.map { it.id }}]")
+}
+
+/**
+ * Moves the active alerts of several deleted monitors to the alert history index, like [moveAlerts], sharing the searches
+ * and bulk requests between monitors. Monitors are handled [MOVE_ALERTS_MONITOR_BATCH_SIZE] at a time with one terms
+ * query routed to their ids, and at most [MAX_CONCURRENT_ALERT_MOVES] batches are moved at once.
+ *
+ * @return the number of alerts that were moved
+ */
+suspend fun moveAlertsOfDeletedMonitors(client: Client, monitorIds: Collection<String>): Int = coroutineScope {
+    var moved = 0
+    for (batches in monitorIds.distinct().chunked(MOVE_ALERTS_MONITOR_BATCH_SIZE).chunked(MAX_CONCURRENT_ALERT_MOVES)) {
+        moved += batches.map { batch ->
+            async {
+                val termsQuery = QueryBuilders.boolQuery().filter(QueryBuilders.termsQuery(Alert.MONITOR_ID_FIELD, batch))
+                moveAlerts(client, termsQuery, batch, "${batch.size} deleted monitors")
+            }
+        }.awaitAll().sum()
+    }
+    moved
+}
+
+private suspend fun moveAlerts(client: Client, query: QueryBuilder, routing: List<String>, description: String): Int = coroutineScope {
+    val results = mutableListOf<MovedAlerts>()
+    var inFlight: Deferred<MovedAlerts>? = null
+    var searchAfter: Array<Any>? = null
+    do {
+        val activeAlertsQuery = SearchSourceBuilder.searchSource()
+            .query(query)
+            .size(MOVE_ALERTS_PAGE_SIZE)
+            .sort("_id", SortOrder.ASC)
+            .version(true)
+        if (searchAfter != null) activeAlertsQuery.searchAfter(searchAfter)
 
-    val activeAlertsQuery = SearchSourceBuilder.searchSource()
-        .query(boolQuery)
-        .version(true)
+        val activeAlertsRequest = SearchRequest(AlertIndices.ALERT_INDEX)
+            .routing(*routing.toTypedArray())
+            .source(activeAlertsQuery)
+        val response: SearchResponse = client.suspendUntil { search(activeAlertsRequest, it) }
+        val hits = response.hits.hits
 
-    val activeAlertsRequest = SearchRequest(AlertIndices.ALERT_INDEX)
-        .routing(monitorId)
-        .source(activeAlertsQuery)
-    val response: SearchResponse = client.suspendUntil { search(activeAlertsRequest, it) }
+        inFlight?.let { results.add(it.await()) }
+        inFlight = null
+        if (hits.isNotEmpty()) {
+            searchAfter = hits.last().sortValues
+            inFlight = async { movePage(client, hits) }
+        }
+    } while (hits.size == MOVE_ALERTS_PAGE_SIZE)
+    inFlight?.let { results.add(it.await()) }
 
-    // If no alerts are found, simply return
-    if (response.hits.totalHits?.value == 0L) return
-    val indexRequests = response.hits.map { hit ->
+    val copyFailures = results.flatMap { it.copyFailures }
+    if (copyFailures.isNotEmpty()) {
+        throw RuntimeException("Failed to copy ${copyFailures.size} alerts for $description: " +
+            failureMessage(copyFailures), retryCause(copyFailures))
+    }
+    val deleteFailures = results.flatMap { it.deleteFailures }
+    if (deleteFailures.isNotEmpty()) {
+        throw RuntimeException("Failed to delete ${deleteFailures.size} alerts for $description: " +
+            failureMessage(deleteFailures), retryCause(deleteFailures))
+    }
+    results.sumBy { it.moved }
+}
+
+private suspend fun movePage(client: Client, hits: Array<SearchHit>): MovedAlerts {
+    val alerts = hits.map { hit -> Alert.parse(alertContentParser(hit.sourceRef), hit.id, hit.version) }
+    val indexRequests = alerts.map { alert ->
         IndexRequest(AlertIndices.HISTORY_WRITE_INDEX)
-            .routing(monitorId)
-            .source(Alert.parse(alertContentParser(hit.sourceRef), hit.id, hit.version)
-                .copy(state = Alert.State.DELETED)
+            .routing(alert.monitorId)
+            .source(alert.copy(state = Alert.State.DELETED)
                 .toXContent(XContentFactory.jsonBuilder(), ToXContent.EMPTY_PARAMS))
-            .version(hit.version)
+            .version(alert.version)
             .versionType(VersionType.EXTERNAL_GTE)
-            .id(hit.id)
+            .id(alert.id)
     }
     val copyRequest = BulkRequest().add(indexRequests)
     val copyResponse: BulkResponse = client.suspendUntil { bulk(copyRequest, it) }
 
     val deleteRequests = copyResponse.items.filterNot { it.isFailed }.map {
         DeleteRequest(AlertIndices.ALERT_INDEX, it.id)
-            .routing(monitorId)
+            .routing(alerts[it.itemId].monitorId)
             .version(it.version)
             .versionType(VersionType.EXTERNAL_GTE)
     }
+    if (deleteRequests.isEmpty()) return MovedAlerts(0, copyResponse.items.filter { it.isFailed }, emptyList())
     val deleteResponse: BulkResponse = client.suspendUntil { bulk(BulkRequest().add(deleteRequests), it) }
 
-    if (copyResponse.hasFailures()) {
-        val retryCause = copyResponse.items.filter { it.isFailed }
-            .firstOrNull { it.status() == RestStatus.TOO_MANY_REQUESTS }
-            ?.failure?.cause
-        throw RuntimeException("Failed to copy alerts for [$monitorId, ${monitor?.triggers?.map { it.id }}]: " +
-            copyResponse.buildFailureMessage(), retryCause)
-    }
-    if (deleteResponse.hasFailures()) {
-        val retryCause = deleteResponse.items.filter { it.isFailed }
-            .firstOrNull { it.status() == RestStatus.TOO_MANY_REQUESTS }
-            ?.failure?.cause
-        throw RuntimeException("Failed to delete alerts for [$monitorId, ${monitor?.triggers?.map { it.id }}]: " +
-            deleteResponse.buildFailureMessage(), retryCause)
-    }
+    val deleteFailures = deleteResponse.items.filter { it.isFailed }
+    return MovedAlerts(deleteRequests.size - deleteFailures.size, copyResponse.items.filter { it.isFailed }, deleteFailures)
 }
 
+private data class MovedAlerts(
+    val moved: Int,
+    val copyFailures: List<BulkItemResponse>,
+    val deleteFailures: List<BulkItemResponse>
+)
+
+private fun failureMessage(failures: List<BulkItemResponse>): String {
+    return failures.take(MAX_REPORTED_FAILURES).joinToString { "[${it.id}]: ${it.failureMessage}" }
+}
+
+private fun retryCause(failures: List<BulkItemResponse>): Throwable? {
+    return failures.firstOrNull { it.status() == RestStatus.TOO_MANY_REQUESTS }?.failure?.cause
+}
+
+private const val MAX_REPORTED_FAILURES = 10
+
 private fun alertContentParser(bytesReference: BytesReference): XContentParser {
     val xcp = XContentHelper.createParser(NamedXContentRegistry.EMPTY, LoggingDeprecationHandler.INSTANCE,
                 bytesReference, XContentType.JSON)
@@ -0,0 +1,355 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.alerts
+
+import com.amazon.opendistroforelasticsearch.alerting.core.model.DocLevelMonitorInput
+import com.amazon.opendistroforelasticsearch.alerting.elasticapi.suspendUntil
+import com.amazon.opendistroforelasticsearch.alerting.model.Monitor
+import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings.Companion.DOC_LEVEL_MONITOR_SHARD_FETCH_SIZE
+import org.apache.logging.log4j.LogManager
+import org.elasticsearch.ResourceAlreadyExistsException
+import org.elasticsearch.action.DocWriteRequest
+import org.elasticsearch.action.admin.indices.create.CreateIndexRequest
+import org.elasticsearch.action.admin.indices.create.CreateIndexResponse
+import org.elasticsearch.action.admin.indices.mapping.put.PutMappingRequest
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest
+import org.elasticsearch.action.admin.indices.refresh.RefreshResponse
+import org.elasticsearch.action.admin.indices.stats.IndicesStatsRequest
+import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse
+import org.elasticsearch.action.bulk.BulkRequest
+import org.elasticsearch.action.bulk.BulkResponse
+import org.elasticsearch.action.delete.DeleteRequest
+import org.elasticsearch.action.get.GetRequest
+import org.elasticsearch.action.get.GetResponse
+import org.elasticsearch.action.index.IndexRequest
+import org.elasticsearch.action.index.IndexResponse
+import org.elasticsearch.action.search.SearchRequest
+import org.elasticsearch.action.search.SearchResponse
+import org.elasticsearch.action.support.WriteRequest
+import org.elasticsearch.action.support.master.AcknowledgedResponse
+import org.elasticsearch.client.Client
+import org.elasticsearch.cluster.service.ClusterService
+import org.elasticsearch.common.bytes.BytesReference
+import org.elasticsearch.common.regex.Regex
+import org.elasticsearch.common.settings.Settings
+import org.elasticsearch.common.xcontent.XContentFactory
+import org.elasticsearch.common.xcontent.XContentType
+import org.elasticsearch.index.mapper.SeqNoFieldMapper
+import org.elasticsearch.index.query.QueryBuilders
+import org.elasticsearch.search.SearchHit
+import org.elasticsearch.search.builder.SearchSourceBuilder
+import org.elasticsearch.search.sort.SortOrder
+
+/**
+ * Manages the percolator index backing document-level monitors. The queries of every [DocLevelMonitorInput] are
+ * registered in [QUERY_INDEX], next to a run context that records the last sequence number processed on every shard
+ * of the monitored indices. Each run therefore only fetches and percolates the documents indexed since the previous
+ * run, batched per shard, instead of searching the whole time range again. Both are keyed by the monitor id, which is
+ * why a [Monitor] can have only one [DocLevelMonitorInput].
+ *
+ * Fields of the monitored indices are copied into the mapping of [QUERY_INDEX] so queries are parsed against the same
+ * field types. Fields that can't be copied, for example because two monitored indices map them differently, fall back
+ * to `text` through `index.percolator.map_unmapped_fields_as_text`.
+ */
+class DocLevelMonitorQueries(
+    settings: Settings,
+    private val client: Client,
+    private val clusterService: ClusterService
+) {
+
+    init {
+        clusterService.clusterSettings.addSettingsUpdateConsumer(DOC_LEVEL_MONITOR_SHARD_FETCH_SIZE) { shardFetchSize = it }
+    }
+
+    companion object {
+        /** The percolator index holding the queries and run contexts of document-level monitors. */
+        const val QUERY_INDEX = ".opendistro-alerting-doc-level-queries"
+
+        const val MONITOR_ID_FIELD = "monitor_id"
+        const val MONITOR_VERSION_FIELD = "monitor_version"
+        const val QUERY_ID_FIELD = "query_id"
+        const val QUERY_FIELD = "query"
+        const val LAST_RUN_CONTEXT_FIELD = "last_run_context"
+
+        /** Fields of the input result that triggers of document-level monitors can inspect. */
+        const val DOCUMENTS_SCANNED_FIELD = "documents_scanned"
+        const val MATCHED_DOCUMENTS_FIELD = "matched_documents"
+
+        private const val PERCOLATOR_SLOT_FIELD = "_percolator_document_slot"
+        private const val MAX_QUERIES_PER_SEARCH = 10000
+
+        @JvmStatic
+        fun docLevelQueriesMapping() =
+                DocLevelMonitorQueries::class.java.getResource("doc_level_queries_mapping.json").readText()
+
+        private val logger = LogManager.getLogger(DocLevelMonitorQueries::class.java)
+    }
+
+    @Volatile private var shardFetchSize = DOC_LEVEL_MONITOR_SHARD_FETCH_SIZE.get(settings)
+
+    private var queryIndexInitialized: Boolean = false
+
+    private data class RunContext(val monitorVersion: Long, val lastSeqNos: Map<String, Map<String, Long>>)
+
+    /**
+     * Returns the input results of a document-level [monitor]: the number of new documents scanned and, for every query
+     * that matched, the index and id of the matching documents. The run context is only advanced when not a [dryrun].
+     */
+    suspend fun collectInputResults(monitor: Monitor, input: DocLevelMonitorInput, dryrun: Boolean): Map<String, Any> {
+        require(monitor.id != Monitor.NO_ID) { "Document-level monitors must be saved before they can be run" }
+
+        val concreteIndices = resolveIndices(input.indices)
+        val runContext = client.threadPool().threadContext.stashContext().use {
+            createQueryIndex()
+            val existingRunContext = loadRunContext(monitor.id)
+            if (existingRunContext?.monitorVersion != monitor.version) {
+                registerQueries(monitor, input, concreteIndices)
+            }
+            existingRunContext
+        }
+
+        // New documents are read with the monitor user's permissions on the monitored indices
+        val documents = mutableListOf<SearchHit>()
+        val lastSeqNos = mutableMapOf<String, Map<String, Long>>()
+        for (index in concreteIndices) {
+            val shardSeqNos = mutableMapOf<String, Long>()
+            val numberOfShards = clusterService.state().metadata.index(index)?.numberOfShards ?: continue
+            val globalCheckpoints = client.threadPool().threadContext.stashContext().use { refreshToGlobalCheckpoints(index) }
+            for (shard in 0 until numberOfShards) {
+                val lastSeqNo = runContext?.lastSeqNos?.get(index)?.get(shard.toString())
+                val globalCheckpoint = globalCheckpoints[shard]
+                if (globalCheckpoint == null) {
+                    // The shard's primary isn't started, so it is read on the next run from where it was left
+                    if (lastSeqNo != null) shardSeqNos[shard.toString()] = lastSeqNo
+                    continue
+                }
+                val (hits, seqNo) = fetchNewDocuments(index, shard, lastSeqNo, globalCheckpoint)
+                documents += hits
+                shardSeqNos[shard.toString()] = seqNo
+            }
+            lastSeqNos[index] = shardSeqNos
+        }
+
+        val matchedDocuments = mutableMapOf<String, MutableList<Map<String, Any>>>()
+        client.threadPool().threadContext.stashContext().use {
+            for (batch in documents.filter { it.hasSource() }.chunked(shardFetchSize)) {
+                percolate(monitor, input, batch).forEach { (queryId, matches) ->
+                    matchedDocuments.getOrPut(queryId) { mutableListOf() } += matches
+                }
+            }
+            if (!dryrun) saveRunContext(monitor, RunContext(monitor.version, lastSeqNos))
+        }
+
+        return mapOf(DOCUMENTS_SCANNED_FIELD to documents.size, MATCHED_DOCUMENTS_FIELD to matchedDocuments)
+    }
+
+    /** Removes the queries and run context of a deleted monitor. */
+    suspend fun deleteMonitorQueries(monitorId: String) {
+        if (!clusterService.state().metadata.hasIndex(QUERY_INDEX)) return
+
+        client.threadPool().threadContext.stashContext().use {
+            val ids = searchIds(monitorId, onlyQueries = false)
+            if (ids.isNotEmpty()) bulk(ids.map { DeleteRequest(QUERY_INDEX, it) })
+        }
+    }
+
+    private fun resolveIndices(indices: List<String>): List<String> {
+        val allIndices = clusterService.state().metadata.concreteAllIndices
+        return indices.flatMap { pattern -> allIndices.filter { Regex.simpleMatch(pattern, it) } }.distinct()
+    }
+
+    private suspend fun createQueryIndex() {
+        if (queryIndexInitialized) return
+        if (clusterService.state().metadata.hasIndex(QUERY_INDEX)) {
+            queryIndexInitialized = true
+            return
+        }
+
+        val request = CreateIndexRequest(QUERY_INDEX)
+                .mapping(AlertIndices.MAPPING_TYPE, docLevelQueriesMapping(), XContentType.JSON)
+                .settings(Settings.builder()
+                        .put("index.hidden", true)
+                        .put("index.percolator.map_unmapped_fields_as_text", true)
+                        .build())
+        queryIndexInitialized = try {
+            val createIndexResponse: CreateIndexResponse = client.admin().indices().suspendUntil { create(request, it) }
+            createIndexResponse.isAcknowledged
+        } catch (e: ResourceAlreadyExistsException) {
+            true
+        }
+    }
+
+    private suspend fun loadRunContext(monitorId: String): RunContext? {
+        val response: GetResponse = client.suspendUntil { client.get(GetRequest(QUERY_INDEX, runContextId(monitorId)), it) }
+        if (!response.isExists) return null
+
+        val source = response.sourceAsMap
+        @Suppress("UNCHECKED_CAST")
+        val lastRunContext = source[LAST_RUN_CONTEXT_FIELD] as? Map<String, Map<String, Number>> ?: mapOf()
+        return RunContext((source[MONITOR_VERSION_FIELD] as Number).toLong(),
+                lastRunContext.mapValues { (_, shards) -> shards.mapValues { (_, seqNo) -> seqNo.toLong() } })
+    }
+
+    private suspend fun saveRunContext(monitor: Monitor, runContext: RunContext) {
+        val source = XContentFactory.jsonBuilder().startObject()
+                .field(MONITOR_ID_FIELD, monitor.id)
+                .field(MONITOR_VERSION_FIELD, runContext.monitorVersion)
+                .field(LAST_RUN_CONTEXT_FIELD, runContext.lastSeqNos)
+                .endObject()
+        val request = IndexRequest(QUERY_INDEX).id(runContextId(monitor.id)).source(source)
+        val response: IndexResponse = client.suspendUntil { client.index(request, it) }
+        logger.debug("Saved run context of monitor ${monitor.id}: ${response.result}")
+    }
+
+    /** Replaces the registered queries of [monitor] with the queries of [input]. */
+    private suspend fun registerQueries(monitor: Monitor, input: DocLevelMonitorInput, concreteIndices: List<String>) {
+        updateQueryIndexMapping(concreteIndices)
+
+        val queryDocIds = input.queries.map { queryDocId(monitor.id, it.id) }.toSet()
+        val staleIds = searchIds(monitor.id, onlyQueries = true).filterNot { it in queryDocIds }
+        val requests = mutableListOf<DocWriteRequest<*>>()
+        staleIds.forEach { requests += DeleteRequest(QUERY_INDEX, it) }
+        input.queries.forEach { query ->
+            requests += IndexRequest(QUERY_INDEX)
+                    .id(queryDocId(monitor.id, query.id))
+                    .source(XContentFactory.jsonBuilder().startObject()
+                            .field(MONITOR_ID_FIELD, monitor.id)
+                            .field(MONITOR_VERSION_FIELD, monitor.version)
+                            .field(QUERY_ID_FIELD, query.id)
+                            .field(QUERY_FIELD, query.query)
+                            .endObject())
+        }
+        bulk(requests)
+    }
+
+    /** Copies the field mappings of the monitored indices so registered queries are parsed with the right field types. */
+    private suspend fun updateQueryIndexMapping(concreteIndices: List<String>) {
+        val reservedFields = setOf(MONITOR_ID_FIELD, MONITOR_VERSION_FIELD, QUERY_ID_FIELD, QUERY_FIELD, LAST_RUN_CONTEXT_FIELD)
+        val properties = mutableMapOf<String, Any>()
+        for (index in concreteIndices) {
+            val mapping = clusterService.state().metadata.index(index)?.mapping() ?: continue
+            @Suppress("UNCHECKED_CAST")
+            val indexProperties = mapping.sourceAsMap()["properties"] as? Map<String, Any> ?: continue
+            properties.putAll(indexProperties.filterKeys { it !in reservedFields })
+        }
+        if (properties.isEmpty()) return
+
+        try {
+            val request = PutMappingRequest(QUERY_INDEX).type(AlertIndices.MAPPING_TYPE).source(mapOf("properties" to properties))
+            val response: AcknowledgedResponse = client.admin().indices().suspendUntil { putMapping(request, it) }
+            if (!response.isAcknowledged) logger.info("Failed to update index mapping of $QUERY_INDEX")
+        } catch (e: Exception) {
+            logger.warn("Failed to copy the mappings of $concreteIndices to $QUERY_INDEX, unmapped fields are percolated as text", e)
+        }
+    }
+
+    /**
+     * Returns the global checkpoint of every shard of [index] whose primary is started, and refreshes [index] afterwards.
+     * Every operation up to a shard's global checkpoint has been processed by all of its in-sync copies, so after the
+     * refresh it is visible on whichever copy is searched. Sequence numbers above it may still become visible out of
+     * order and are left to a later run.
+     */
+    private suspend fun refreshToGlobalCheckpoints(index: String): Map<Int, Long> {
+        val statsRequest = IndicesStatsRequest().indices(index).clear()
+        val statsResponse: IndicesStatsResponse = client.admin().indices().suspendUntil { stats(statsRequest, it) }
+        val globalCheckpoints = statsResponse.shards
+                .filter { it.shardRouting.primary() && it.seqNoStats != null }
+                .associate { it.shardRouting.id to it.seqNoStats.globalCheckpoint }
+
+        val refreshResponse: RefreshResponse = client.admin().indices().suspendUntil { refresh(RefreshRequest(index), it) }
+        if (refreshResponse.failedShards > 0) {
+            logger.warn("Failed to refresh ${refreshResponse.failedShards} shards of $index before reading new documents")
+        }
+        return globalCheckpoints
+    }
+
+    /**
+     * Returns the documents indexed on [shard] of [index] after [lastSeqNo] and up to [globalCheckpoint], in sequence
+     * number order and at most [shardFetchSize] of them, together with the sequence number to continue from on the next
+     * run. On the first run of a monitor there is no [lastSeqNo] and only [globalCheckpoint] is recorded.
+     */
+    private suspend fun fetchNewDocuments(
+        index: String,
+        shard: Int,
+        lastSeqNo: Long?,
+        globalCheckpoint: Long
+    ): Pair<List<SearchHit>, Long> {
+        if (lastSeqNo == null) return emptyList<SearchHit>() to globalCheckpoint
+        if (globalCheckpoint <= lastSeqNo) return emptyList<SearchHit>() to lastSeqNo
+
+        val source = SearchSourceBuilder().seqNoAndPrimaryTerm(true)
+                .size(shardFetchSize)
+                .sort(SeqNoFieldMapper.NAME, SortOrder.ASC)
+                .query(QueryBuilders.rangeQuery(SeqNoFieldMapper.NAME).gt(lastSeqNo).lte(globalCheckpoint))
+        val request = SearchRequest(index).preference("_shards:$shard").source(source)
+        val response: SearchResponse = client.suspendUntil { client.search(request, it) }
+        val hits = response.hits.hits.toList()
+
+        // Everything up to the global checkpoint is visible, so a page that isn't full reaches it
+        return hits to if (hits.size < shardFetchSize) globalCheckpoint else hits.last().seqNo
+    }
+
+    /** Percolates [documents] against the registered queries of [monitor] and returns the matches of each query id. */
+    private suspend fun percolate(
+        monitor: Monitor,
+        input: DocLevelMonitorInput,
+        documents: List<SearchHit>
+    ): Map<String, List<Map<String, Any>>> {
+        val percolateQuery = XContentFactory.jsonBuilder().startObject()
+                .startObject("percolate")
+                .field("field", QUERY_FIELD)
+                .startArray("documents")
+        documents.forEach { percolateQuery.map(it.sourceAsMap) }
+        percolateQuery.endArray().endObject().endObject()
+
+        val query = QueryBuilders.boolQuery()
+                .must(QueryBuilders.wrapperQuery(BytesReference.bytes(percolateQuery)))
+                .filter(QueryBuilders.termQuery(MONITOR_ID_FIELD, monitor.id))
+        val request = SearchRequest(QUERY_INDEX).source(SearchSourceBuilder()
+                .query(query)
+                .size(minOf(input.queries.size, MAX_QUERIES_PER_SEARCH))
+                .fetchSource(QUERY_ID_FIELD, null))
+        val response: SearchResponse = client.suspendUntil { client.search(request, it) }
+
+        return response.hits.hits.associate { hit ->
+            val slots = hit.fields[PERCOLATOR_SLOT_FIELD]?.values.orEmpty()
+            val matches = slots.map { documents[(it as Number).toInt()] }.map { mapOf("_index" to it.index, "_id" to it.id) }
+            hit.sourceAsMap[QUERY_ID_FIELD] as String to matches
+        }
+    }
+
+    private suspend fun searchIds(monitorId: String, onlyQueries: Boolean): List<String> {
+        val query = QueryBuilders.boolQuery().filter(QueryBuilders.termQuery(MONITOR_ID_FIELD, monitorId))
+        if (onlyQueries) query.filter(QueryBuilders.existsQuery(QUERY_ID_FIELD))
+        val request = SearchRequest(QUERY_INDEX)
+                .source(SearchSourceBuilder().query(query).size(MAX_QUERIES_PER_SEARCH).fetchSource(false))
+        val response: SearchResponse = client.suspendUntil { client.search(request, it) }
+        return response.hits.hits.map { it.id }
+    }
+
+    private suspend fun bulk(requests: List<DocWriteRequest<*>>) {
+        if (requests.isEmpty()) return
+        val bulkRequest = BulkRequest().add(requests).setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE)
+        val bulkResponse: BulkResponse = client.suspendUntil { client.bulk(bulkRequest, it) }
+        if (bulkResponse.hasFailures()) {
+            throw RuntimeException("Failed to update $QUERY_INDEX: ${bulkResponse.buildFailureMessage()}")
+        }
+    }
+
+    private fun runContextId(monitorId: String) = "${monitorId}_run_context"
+
+    private fun queryDocId(monitorId: String, queryId: String) = "${monitorId}_$queryId"
+}
@@ -50,7 +50,8 @@ data class Alert(
     val errorMessage: String? = null,
     val errorHistory: List<AlertError>,
     val severity: String,
-    val actionExecutionResults: List<ActionExecutionResult>
+    val actionExecutionResults: List<ActionExecutionResult>,
+    val bucketKey: String? = null
 ) : Writeable, ToXContent {
 
     init {
@@ -68,11 +69,13 @@ data class Alert(
         errorMessage: String? = null,
         errorHistory: List<AlertError> = mutableListOf(),
         actionExecutionResults: List<ActionExecutionResult> = mutableListOf(),
-        schemaVersion: Int = NO_SCHEMA_VERSION
+        schemaVersion: Int = NO_SCHEMA_VERSION,
+        bucketKey: String? = null
     ) : this(monitorId = monitor.id, monitorName = monitor.name, monitorVersion = monitor.version, monitorUser = monitor.user,
             triggerId = trigger.id, triggerName = trigger.name, state = state, startTime = startTime,
             lastNotificationTime = lastNotificationTime, errorMessage = errorMessage, errorHistory = errorHistory,
-            severity = trigger.severity, actionExecutionResults = actionExecutionResults, schemaVersion = schemaVersion)
+            severity = trigger.severity, actionExecutionResults = actionExecutionResults, schemaVersion = schemaVersion,
+            bucketKey = bucketKey)
 
     enum class State {
         ACTIVE, ACKNOWLEDGED, COMPLETED, ERROR, DELETED
@@ -99,9 +102,15 @@ data class Alert(
             errorMessage = sin.readOptionalString(),
             errorHistory = sin.readList(::AlertError),
             severity = sin.readString(),
-            actionExecutionResults = sin.readList(::ActionExecutionResult)
+            actionExecutionResults = sin.readList(::ActionExecutionResult),
+            bucketKey = sin.readOptionalString()
     )
 
+    /** The action execution results keyed by action id, so that throttle checks don't scan the list for every action. */
+    val actionExecutionResultsById: Map<String, ActionExecutionResult> by lazy {
+        actionExecutionResults.associateBy { it.actionId }
+    }
+
     fun isAcknowledged(): Boolean = (state == State.ACKNOWLEDGED)
 
     @Throws(IOException::class)
@@ -125,6 +134,7 @@ data class Alert(
         out.writeCollection(errorHistory)
         out.writeString(severity)
         out.writeCollection(actionExecutionResults)
+        out.writeOptionalString(bucketKey)
     }
 
     companion object {
@@ -147,6 +157,11 @@ data class Alert(
         const val ALERT_HISTORY_FIELD = "alert_history"
         const val SEVERITY_FIELD = "severity"
         const val ACTION_EXECUTION_RESULTS_FIELD = "action_execution_results"
+        const val BUCKET_KEY_FIELD = "bucket_key"
+
+        /** The fields an alert can't be parsed without, which are fetched even when only some fields are requested. */
+        val REQUIRED_FIELDS = listOf(MONITOR_ID_FIELD, MONITOR_NAME_FIELD, TRIGGER_ID_FIELD, TRIGGER_NAME_FIELD, STATE_FIELD,
+                START_TIME_FIELD, SEVERITY_FIELD)
 
         const val NO_ID = ""
         const val NO_VERSION = Versions.NOT_FOUND
@@ -171,6 +186,7 @@ data class Alert(
             var errorMessage: String? = null
             val errorHistory: MutableList<AlertError> = mutableListOf()
             var actionExecutionResults: MutableList<ActionExecutionResult> = mutableListOf()
+            var bucketKey: String? = null
 
             ensureExpectedToken(XContentParser.Token.START_OBJECT, xcp.currentToken(), xcp)
             while (xcp.nextToken() != XContentParser.Token.END_OBJECT) {
@@ -204,6 +220,7 @@ data class Alert(
                             actionExecutionResults.add(ActionExecutionResult.parse(xcp))
                         }
                     }
+                    BUCKET_KEY_FIELD -> bucketKey = xcp.textOrNull()
                 }
             }
 
@@ -213,7 +230,7 @@ data class Alert(
                     state = requireNotNull(state), startTime = requireNotNull(startTime), endTime = endTime,
                     lastNotificationTime = lastNotificationTime, acknowledgedTime = acknowledgedTime,
                     errorMessage = errorMessage, errorHistory = errorHistory, severity = severity,
-                    actionExecutionResults = actionExecutionResults)
+                    actionExecutionResults = actionExecutionResults, bucketKey = bucketKey)
         }
 
         @JvmStatic
@@ -239,6 +256,7 @@ data class Alert(
                 .field(ALERT_HISTORY_FIELD, errorHistory.toTypedArray())
                 .field(SEVERITY_FIELD, severity)
                 .field(ACTION_EXECUTION_RESULTS_FIELD, actionExecutionResults.toTypedArray())
+                .field(BUCKET_KEY_FIELD, bucketKey)
                 .optionalTimeField(START_TIME_FIELD, startTime)
                 .optionalTimeField(LAST_NOTIFICATION_TIME_FIELD, lastNotificationTime)
                 .optionalTimeField(END_TIME_FIELD, endTime)
@@ -246,6 +264,34 @@ data class Alert(
                 .endObject()
     }
 
+    /**
+     * Writes only the fields updated by the monitor runner that differ from [previous], e.g. the action execution results
+     * are left out unless an action ran or was throttled. Used as a partial update of the alert document.
+     */
+    fun toPartialXContent(builder: XContentBuilder, previous: Alert): XContentBuilder {
+        builder.startObject()
+        if (schemaVersion != previous.schemaVersion) builder.field(SCHEMA_VERSION_FIELD, schemaVersion)
+        if (state != previous.state) builder.field(STATE_FIELD, state)
+        if (errorMessage != previous.errorMessage) builder.field(ERROR_MESSAGE_FIELD, errorMessage)
+        if (errorHistory != previous.errorHistory) builder.field(ALERT_HISTORY_FIELD, errorHistory.toTypedArray())
+        if (actionExecutionResults != previous.actionExecutionResults) {
+            builder.field(ACTION_EXECUTION_RESULTS_FIELD, actionExecutionResults.toTypedArray())
+        }
+        if (lastNotificationTime != previous.lastNotificationTime) {
+            builder.optionalTimeField(LAST_NOTIFICATION_TIME_FIELD, lastNotificationTime)
+        }
+        if (endTime != previous.endTime) builder.optionalTimeField(END_TIME_FIELD, endTime)
+        return builder.endObject()
+    }
+
+    /**
+     * Whether this alert differs from [previous] in more than its last notification time, which changes on every run of
+     * an active alert.
+     */
+    fun hasChangesOtherThanNotificationTime(previous: Alert): Boolean {
+        return copy(lastNotificationTime = previous.lastNotificationTime) != previous
+    }
+
     fun asTemplateArg(): Map<String, Any?> {
         return mapOf(ACKNOWLEDGED_TIME_FIELD to acknowledgedTime?.toEpochMilli(),
                 ALERT_ID_FIELD to id,
@@ -255,6 +301,7 @@ data class Alert(
                 LAST_NOTIFICATION_TIME_FIELD to lastNotificationTime?.toEpochMilli(),
                 SEVERITY_FIELD to severity,
                 START_TIME_FIELD to startTime.toEpochMilli(),
-                STATE_FIELD to state.toString())
+                STATE_FIELD to state.toString(),
+                BUCKET_KEY_FIELD to bucketKey)
     }
 }
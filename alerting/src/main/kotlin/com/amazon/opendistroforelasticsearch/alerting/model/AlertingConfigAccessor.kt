@@ -20,8 +20,6 @@ import com.amazon.opendistroforelasticsearch.alerting.elasticapi.suspendUntil
 import com.amazon.opendistroforelasticsearch.alerting.model.destination.Destination
 import com.amazon.opendistroforelasticsearch.alerting.model.destination.email.EmailAccount
 import com.amazon.opendistroforelasticsearch.alerting.model.destination.email.EmailGroup
-import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.withContext
 import org.elasticsearch.action.get.GetRequest
 import org.elasticsearch.action.get.GetResponse
 import org.elasticsearch.client.Client
@@ -32,36 +30,29 @@ import org.elasticsearch.common.xcontent.XContentHelper
 import org.elasticsearch.common.xcontent.XContentType
 
 /**
- * This is an accessor class to retrieve documents/information from the Alerting config index.
+ * This is an accessor class to retrieve documents/information from the Alerting config index. Documents are parsed on the
+ * caller's dispatcher.
  */
 class AlertingConfigAccessor {
     companion object {
         suspend fun getDestinationInfo(client: Client, xContentRegistry: NamedXContentRegistry, destinationId: String): Destination {
-            val jobSource = getAlertingConfigDocumentSource(client, "Destination", destinationId)
-            return withContext(Dispatchers.IO) {
-                val xcp = XContentHelper.createParser(xContentRegistry, LoggingDeprecationHandler.INSTANCE,
-                    jobSource, XContentType.JSON)
-                val destination = Destination.parseWithType(xcp)
-                destination
-            }
+            val getResponse = getAlertingConfigDocument(client, "Destination", destinationId)
+            val xcp = XContentHelper.createParser(xContentRegistry, LoggingDeprecationHandler.INSTANCE,
+                getResponse.sourceAsBytesRef, XContentType.JSON)
+            // The id and version key the destination's digest, circuit breaker and delivery metrics
+            return Destination.parseWithType(xcp, getResponse.id, getResponse.version)
         }
 
         suspend fun getEmailAccountInfo(client: Client, xContentRegistry: NamedXContentRegistry, emailAccountId: String): EmailAccount {
             val source = getAlertingConfigDocumentSource(client, "Email account", emailAccountId)
-            return withContext(Dispatchers.IO) {
-                val xcp = XContentHelper.createParser(xContentRegistry, LoggingDeprecationHandler.INSTANCE, source, XContentType.JSON)
-                val emailAccount = EmailAccount.parseWithType(xcp)
-                emailAccount
-            }
+            val xcp = XContentHelper.createParser(xContentRegistry, LoggingDeprecationHandler.INSTANCE, source, XContentType.JSON)
+            return EmailAccount.parseWithType(xcp)
         }
 
         suspend fun getEmailGroupInfo(client: Client, xContentRegistry: NamedXContentRegistry, emailGroupId: String): EmailGroup {
             val source = getAlertingConfigDocumentSource(client, "Email group", emailGroupId)
-            return withContext(Dispatchers.IO) {
-                val xcp = XContentHelper.createParser(xContentRegistry, LoggingDeprecationHandler.INSTANCE, source, XContentType.JSON)
-                val emailGroup = EmailGroup.parseWithType(xcp)
-                emailGroup
-            }
+            val xcp = XContentHelper.createParser(xContentRegistry, LoggingDeprecationHandler.INSTANCE, source, XContentType.JSON)
+            return EmailGroup.parseWithType(xcp)
         }
 
         private suspend fun getAlertingConfigDocumentSource(
@@ -69,13 +60,17 @@ class AlertingConfigAccessor {
             type: String,
             docId: String
         ): BytesReference {
+            return getAlertingConfigDocument(client, type, docId).sourceAsBytesRef
+        }
+
+        private suspend fun getAlertingConfigDocument(client: Client, type: String, docId: String): GetResponse {
             val getRequest = GetRequest(ScheduledJob.SCHEDULED_JOBS_INDEX, docId).routing(docId)
             val getResponse: GetResponse = client.suspendUntil { client.get(getRequest, it) }
             if (!getResponse.isExists || getResponse.isSourceEmpty) {
                 throw IllegalStateException("$type document with id $docId not found or source is empty")
             }
 
-            return getResponse.sourceAsBytesRef
+            return getResponse
         }
     }
 }
@@ -16,10 +16,10 @@
 package com.amazon.opendistroforelasticsearch.alerting.model
 
 import com.amazon.opendistroforelasticsearch.alerting.core.model.CronSchedule
+import com.amazon.opendistroforelasticsearch.alerting.core.model.DocLevelMonitorInput
 import com.amazon.opendistroforelasticsearch.alerting.core.model.Input
 import com.amazon.opendistroforelasticsearch.alerting.core.model.Schedule
 import com.amazon.opendistroforelasticsearch.alerting.core.model.ScheduledJob
-import com.amazon.opendistroforelasticsearch.alerting.core.model.SearchInput
 import com.amazon.opendistroforelasticsearch.alerting.elasticapi.instant
 import com.amazon.opendistroforelasticsearch.alerting.elasticapi.optionalTimeField
 import com.amazon.opendistroforelasticsearch.alerting.elasticapi.optionalUserField
@@ -74,7 +74,9 @@ data class Monitor(
         } else {
             require(enabledTime == null)
         }
-        require(inputs.size <= MONITOR_MAX_INPUTS) { "Monitors can only have $MONITOR_MAX_INPUTS search input." }
+        require(inputs.size <= MONITOR_MAX_INPUTS) { "Monitors can only support up to $MONITOR_MAX_INPUTS inputs." }
+        // The percolator queries and run context of a document-level input are kept per monitor
+        require(inputs.count { it is DocLevelMonitorInput } <= 1) { "Monitors can only support one doc-level input." }
         require(triggers.size <= MONITOR_MAX_TRIGGERS) { "Monitors can only support up to $MONITOR_MAX_TRIGGERS triggers." }
     }
 
@@ -91,7 +93,7 @@ data class Monitor(
             User(sin)
         } else null,
         schemaVersion = sin.readInt(),
-        inputs = sin.readList(::SearchInput),
+        inputs = sin.readList(Input.Companion::readFrom),
         triggers = sin.readList(::Trigger),
         uiMetadata = suppressWarning(sin.readMap())
     )
@@ -141,7 +143,7 @@ data class Monitor(
         out.writeBoolean(user != null)
         user?.writeTo(out)
         out.writeInt(schemaVersion)
-        out.writeCollection(inputs)
+        out.writeCollection(inputs) { o, input -> Input.writeTo(o, input) }
         out.writeCollection(triggers)
         out.writeMap(uiMetadata)
     }
@@ -19,9 +19,11 @@ import com.amazon.opendistroforelasticsearch.alerting.alerts.AlertError
 import com.amazon.opendistroforelasticsearch.alerting.elasticapi.optionalTimeField
 import org.apache.logging.log4j.LogManager
 import org.elasticsearch.ElasticsearchException
+import org.elasticsearch.ElasticsearchTimeoutException
 import org.elasticsearch.common.io.stream.StreamInput
 import org.elasticsearch.common.io.stream.StreamOutput
 import org.elasticsearch.common.io.stream.Writeable
+import org.elasticsearch.common.unit.TimeValue
 import org.elasticsearch.common.xcontent.ToXContent
 import org.elasticsearch.common.xcontent.XContentBuilder
 import org.elasticsearch.script.ScriptException
@@ -34,7 +36,8 @@ data class MonitorRunResult(
     val periodEnd: Instant,
     val error: Exception? = null,
     val inputResults: InputRunResults = InputRunResults(),
-    val triggerResults: Map<String, TriggerRunResult> = mapOf()
+    val triggerResults: Map<String, TriggerRunResult> = mapOf(),
+    val timedOutStages: List<String> = listOf()
 ) : Writeable, ToXContent {
 
     @Throws(IOException::class)
@@ -44,7 +47,8 @@ data class MonitorRunResult(
         sin.readInstant(), // periodEnd
         sin.readException(), // error
         InputRunResults.readFrom(sin), // inputResults
-        suppressWarning(sin.readMap()) // triggerResults
+        suppressWarning(sin.readMap()), // triggerResults
+        sin.readStringList() // timedOutStages
     )
 
     override fun toXContent(builder: XContentBuilder, params: ToXContent.Params): XContentBuilder {
@@ -55,6 +59,7 @@ data class MonitorRunResult(
                 .field("error", error?.message)
                 .field("input_results", inputResults)
                 .field("trigger_results", triggerResults)
+                .field("timed_out_stages", timedOutStages)
                 .endObject()
     }
 
@@ -95,6 +100,22 @@ data class MonitorRunResult(
         out.writeException(error)
         inputResults.writeTo(out)
         out.writeMap(triggerResults)
+        out.writeStringCollection(timedOutStages)
+    }
+}
+
+/**
+ * Thrown when a stage of a monitor run does not complete within its deadline. The stage is reported in
+ * [MonitorRunResult.timedOutStages].
+ */
+class MonitorStageTimeoutException(val stage: String, timeout: TimeValue) :
+    ElasticsearchTimeoutException("Monitor $stage stage timed out after $timeout") {
+
+    companion object {
+        const val INPUT_STAGE = "input"
+        const val TRIGGER_STAGE = "trigger"
+        const val ACTION_STAGE = "action"
+        const val ALERT_PERSISTENCE_STAGE = "alert_persistence"
     }
 }
 
@@ -139,7 +160,8 @@ data class TriggerRunResult(
     val triggerName: String,
     val triggered: Boolean,
     val error: Exception? = null,
-    val actionResults: MutableMap<String, ActionRunResult> = mutableMapOf()
+    val actionResults: MutableMap<String, ActionRunResult> = mutableMapOf(),
+    val triggeredBuckets: List<String> = listOf()
 ) : Writeable, ToXContent {
 
     @Throws(IOException::class)
@@ -147,7 +169,8 @@ data class TriggerRunResult(
         sin.readString(), // triggerName
         sin.readBoolean(), // triggered
         sin.readException(), // error
-        suppressWarning(sin.readMap()) // actionResults
+        suppressWarning(sin.readMap()), // actionResults
+        sin.readStringList() // triggeredBuckets
     )
 
     override fun toXContent(builder: XContentBuilder, params: ToXContent.Params): XContentBuilder {
@@ -158,6 +181,7 @@ data class TriggerRunResult(
                 .field("triggered", triggered)
                 .field("error", msg)
                 .field("action_results", actionResults as Map<String, ActionRunResult>)
+                .field("triggered_buckets", triggeredBuckets)
                 .endObject()
     }
 
@@ -180,6 +204,7 @@ data class TriggerRunResult(
         out.writeBoolean(triggered)
         out.writeException(error)
         out.writeMap(actionResults as Map<String, ActionRunResult>)
+        out.writeStringCollection(triggeredBuckets)
     }
 
     companion object {
@@ -33,7 +33,8 @@ data class Trigger(
     val severity: String,
     val condition: Script,
     val actions: List<Action>,
-    val id: String = UUIDs.base64UUID()
+    val id: String = UUIDs.base64UUID(),
+    val bucketAggregation: String? = null
 ) : Writeable, ToXContent {
 
     @Throws(IOException::class)
@@ -42,7 +43,8 @@ data class Trigger(
             sin.readString(), // severity
             Script(sin), // condition
             sin.readList(::Action), // actions
-            sin.readString() // id
+            sin.readString(), // id
+            sin.readOptionalString() // bucketAggregation
     )
     override fun toXContent(builder: XContentBuilder, params: ToXContent.Params): XContentBuilder {
         builder.startObject()
@@ -53,16 +55,23 @@ data class Trigger(
                 .field(SCRIPT_FIELD, condition)
                 .endObject()
                 .field(ACTIONS_FIELD, actions.toTypedArray())
-                .endObject()
+        if (bucketAggregation != null) builder.field(BUCKET_AGGREGATION_FIELD, bucketAggregation)
+        builder.endObject()
         return builder
     }
 
     /** Returns a representation of the trigger suitable for passing into painless and mustache scripts. */
-    fun asTemplateArg(): Map<String, Any> {
+    fun asTemplateArg(): Map<String, Any?> {
         return mapOf(ID_FIELD to id, NAME_FIELD to name, SEVERITY_FIELD to severity,
-                ACTIONS_FIELD to actions.map { it.asTemplateArg() })
+                ACTIONS_FIELD to actions.map { it.asTemplateArg() }, BUCKET_AGGREGATION_FIELD to bucketAggregation)
     }
 
+    /**
+     * A bucket-level trigger evaluates its condition once for every bucket of [bucketAggregation] in the first input's
+     * results and keeps a separate alert for each bucket key.
+     */
+    fun isBucketLevel(): Boolean = bucketAggregation != null
+
     @Throws(IOException::class)
     override fun writeTo(out: StreamOutput) {
         out.writeString(name)
@@ -70,6 +79,7 @@ data class Trigger(
         condition.writeTo(out)
         out.writeCollection(actions)
         out.writeString(id)
+        out.writeOptionalString(bucketAggregation)
     }
 
     companion object {
@@ -79,6 +89,7 @@ data class Trigger(
         const val CONDITION_FIELD = "condition"
         const val ACTIONS_FIELD = "actions"
         const val SCRIPT_FIELD = "script"
+        const val BUCKET_AGGREGATION_FIELD = "bucket_aggregation"
 
         @JvmStatic @Throws(IOException::class)
         fun parse(xcp: XContentParser): Trigger {
@@ -86,6 +97,7 @@ data class Trigger(
             lateinit var name: String
             lateinit var severity: String
             lateinit var condition: Script
+            var bucketAggregation: String? = null
             val actions: MutableList<Action> = mutableListOf()
             ensureExpectedToken(Token.START_OBJECT, xcp.currentToken(), xcp)
 
@@ -111,6 +123,12 @@ data class Trigger(
                             actions.add(Action.parse(xcp))
                         }
                     }
+                    BUCKET_AGGREGATION_FIELD -> {
+                        bucketAggregation = xcp.textOrNull()
+                        require(bucketAggregation == null || bucketAggregation.isNotBlank()) {
+                            "Bucket aggregation name must not be blank"
+                        }
+                    }
                 }
             }
 
@@ -119,7 +137,8 @@ data class Trigger(
                     severity = requireNotNull(severity) { "Trigger severity is null" },
                     condition = requireNotNull(condition) { "Trigger is null" },
                     actions = requireNotNull(actions) { "Trigger actions are null" },
-                    id = requireNotNull(id) { "Trigger id is null." })
+                    id = requireNotNull(id) { "Trigger id is null." },
+                    bucketAggregation = bucketAggregation)
         }
 
         @JvmStatic
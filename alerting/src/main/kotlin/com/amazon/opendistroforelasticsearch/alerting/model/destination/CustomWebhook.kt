@@ -18,6 +18,7 @@ package com.amazon.opendistroforelasticsearch.alerting.model.destination
 import org.elasticsearch.common.Strings
 import org.elasticsearch.common.io.stream.StreamInput
 import org.elasticsearch.common.io.stream.StreamOutput
+import org.elasticsearch.common.unit.TimeValue
 import org.elasticsearch.common.xcontent.ToXContent
 import org.elasticsearch.common.xcontent.XContentBuilder
 import org.elasticsearch.common.xcontent.XContentParser
@@ -39,17 +40,25 @@ data class CustomWebhook(
     val queryParams: Map<String, String>,
     val headerParams: Map<String, String>,
     val username: String?,
-    val password: String?
+    val password: String?,
+    val maxConnections: Int? = null,
+    val connectionTimeoutMillis: Int? = null,
+    val socketTimeoutMillis: Int? = null,
+    val digestWindow: TimeValue? = null
 ) : ToXContent {
 
     init {
         require(!(Strings.isNullOrEmpty(url) && Strings.isNullOrEmpty(host))) {
             "Url or Host name must be provided."
         }
+        require(maxConnections == null || maxConnections > 0) { "Max connections must be positive." }
+        require(connectionTimeoutMillis == null || connectionTimeoutMillis >= 0) { "Connection timeout cannot be negative." }
+        require(socketTimeoutMillis == null || socketTimeoutMillis >= 0) { "Socket timeout cannot be negative." }
+        require(digestWindow == null || digestWindow.millis() > 0) { "Digest window must be positive." }
     }
 
     override fun toXContent(builder: XContentBuilder, params: ToXContent.Params): XContentBuilder {
-        return builder.startObject(TYPE)
+        builder.startObject(TYPE)
                 .field(URL, url)
                 .field(SCHEME_FIELD, scheme)
                 .field(HOST_FIELD, host)
@@ -60,7 +69,12 @@ data class CustomWebhook(
                 .field(HEADER_PARAMS_FIELD, headerParams)
                 .field(USERNAME_FIELD, username)
                 .field(PASSWORD_FIELD, password)
-                .endObject()
+        // Connection overrides are only written when set so that destinations without them are stored unchanged
+        if (maxConnections != null) builder.field(MAX_CONNECTIONS_FIELD, maxConnections)
+        if (connectionTimeoutMillis != null) builder.field(CONNECTION_TIMEOUT_FIELD, connectionTimeoutMillis)
+        if (socketTimeoutMillis != null) builder.field(SOCKET_TIMEOUT_FIELD, socketTimeoutMillis)
+        if (digestWindow != null) builder.field(DIGEST_WINDOW_FIELD, digestWindow.stringRep)
+        return builder.endObject()
     }
 
     @Throws(IOException::class)
@@ -75,6 +89,10 @@ data class CustomWebhook(
         out.writeMap(headerParams)
         out.writeOptionalString(username)
         out.writeOptionalString(password)
+        out.writeOptionalInt(maxConnections)
+        out.writeOptionalInt(connectionTimeoutMillis)
+        out.writeOptionalInt(socketTimeoutMillis)
+        out.writeOptionalTimeValue(digestWindow)
     }
 
     companion object {
@@ -89,6 +107,10 @@ data class CustomWebhook(
         const val HEADER_PARAMS_FIELD = "header_params"
         const val USERNAME_FIELD = "username"
         const val PASSWORD_FIELD = "password"
+        const val MAX_CONNECTIONS_FIELD = "max_connections"
+        const val CONNECTION_TIMEOUT_FIELD = "connection_timeout_millis"
+        const val SOCKET_TIMEOUT_FIELD = "socket_timeout_millis"
+        const val DIGEST_WINDOW_FIELD = "digest_window"
 
         @JvmStatic
         @Throws(IOException::class)
@@ -103,6 +125,10 @@ data class CustomWebhook(
             var headerParams: Map<String, String> = mutableMapOf()
             var username: String? = null
             var password: String? = null
+            var maxConnections: Int? = null
+            var connectionTimeoutMillis: Int? = null
+            var socketTimeoutMillis: Int? = null
+            var digestWindow: TimeValue? = null
 
             ensureExpectedToken(XContentParser.Token.START_OBJECT, xcp.currentToken(), xcp)
             while (xcp.nextToken() != XContentParser.Token.END_OBJECT) {
@@ -119,12 +145,21 @@ data class CustomWebhook(
                     HEADER_PARAMS_FIELD -> headerParams = xcp.mapStrings()
                     USERNAME_FIELD -> username = xcp.textOrNull()
                     PASSWORD_FIELD -> password = xcp.textOrNull()
+                    MAX_CONNECTIONS_FIELD -> maxConnections = optionalInt(xcp)
+                    CONNECTION_TIMEOUT_FIELD -> connectionTimeoutMillis = optionalInt(xcp)
+                    SOCKET_TIMEOUT_FIELD -> socketTimeoutMillis = optionalInt(xcp)
+                    DIGEST_WINDOW_FIELD -> digestWindow = xcp.textOrNull()?.let { TimeValue.parseTimeValue(it, DIGEST_WINDOW_FIELD) }
                     else -> {
                         throw IllegalStateException("Unexpected field: $fieldName, while parsing custom webhook destination")
                     }
                 }
             }
-            return CustomWebhook(url, scheme, host, port, path, method, queryParams, headerParams, username, password)
+            return CustomWebhook(url, scheme, host, port, path, method, queryParams, headerParams, username, password,
+                maxConnections, connectionTimeoutMillis, socketTimeoutMillis, digestWindow)
+        }
+
+        private fun optionalInt(xcp: XContentParser): Int? {
+            return if (xcp.currentToken() == XContentParser.Token.VALUE_NULL) null else xcp.intValue()
         }
 
         @Suppress("UNCHECKED_CAST")
@@ -146,7 +181,11 @@ data class CustomWebhook(
                     suppressWarning(sin.readMap()), // queryParams)
                     suppressWarning(sin.readMap()), // headerParams)
                     sin.readOptionalString(), // username
-                    sin.readOptionalString() // password
+                    sin.readOptionalString(), // password
+                    sin.readOptionalInt(), // maxConnections
+                    sin.readOptionalInt(), // connectionTimeoutMillis
+                    sin.readOptionalInt(), // socketTimeoutMillis
+                    sin.readOptionalTimeValue() // digestWindow
                 )
             } else null
         }
@@ -22,26 +22,29 @@ import com.amazon.opendistroforelasticsearch.alerting.destination.message.Custom
 import com.amazon.opendistroforelasticsearch.alerting.destination.message.EmailMessage
 import com.amazon.opendistroforelasticsearch.alerting.destination.message.SlackMessage
 import com.amazon.opendistroforelasticsearch.alerting.destination.response.DestinationResponse
+import com.amazon.opendistroforelasticsearch.alerting.destination.util.Futures
 import com.amazon.opendistroforelasticsearch.alerting.elasticapi.convertToMap
 import com.amazon.opendistroforelasticsearch.alerting.elasticapi.instant
 import com.amazon.opendistroforelasticsearch.alerting.elasticapi.optionalTimeField
 import com.amazon.opendistroforelasticsearch.alerting.elasticapi.optionalUserField
 import com.amazon.opendistroforelasticsearch.alerting.model.destination.email.Email
 import com.amazon.opendistroforelasticsearch.alerting.util.DestinationType
+import com.amazon.opendistroforelasticsearch.alerting.util.HostDenyList
 import com.amazon.opendistroforelasticsearch.alerting.util.IndexUtils.Companion.NO_SCHEMA_VERSION
 import com.amazon.opendistroforelasticsearch.alerting.util.isHostInDenylist
 import com.amazon.opendistroforelasticsearch.commons.authuser.User
 import org.apache.logging.log4j.LogManager
 import org.elasticsearch.common.io.stream.StreamInput
 import org.elasticsearch.common.io.stream.StreamOutput
+import org.elasticsearch.common.unit.TimeValue
 import org.elasticsearch.common.xcontent.ToXContent
 import org.elasticsearch.common.xcontent.XContentBuilder
 import org.elasticsearch.common.xcontent.XContentParser
 import org.elasticsearch.common.xcontent.XContentParserUtils.ensureExpectedToken
 import java.io.IOException
-import java.net.InetAddress
 import java.time.Instant
 import java.util.Locale
+import java.util.concurrent.CompletableFuture
 
 /**
  * A value object that represents a Destination message.
@@ -237,17 +240,30 @@ data class Destination(
         }
     }
 
+    /**
+     * The window over which messages to this destination are aggregated into a single digest, or null when every message
+     * is delivered on its own.
+     */
+    val digestWindow: TimeValue?
+        get() = when (type) {
+            DestinationType.EMAIL -> email?.digestWindow
+            DestinationType.CUSTOM_WEBHOOK -> customWebhook?.digestWindow
+            else -> null
+        }
+
+    /**
+     * Builds the message for this destination and publishes it. HTTP destinations are delivered without blocking, so the
+     * returned future completes with the response content once the destination responds.
+     */
     @Throws(IOException::class)
     fun publish(
         compiledSubject: String?,
         compiledMessage: String,
         destinationCtx: DestinationContext,
-        denyHostRanges: List<String>
-    ): String {
+        denyList: HostDenyList
+    ): CompletableFuture<String> {
 
         val destinationMessage: BaseMessage
-        val responseContent: String
-        val responseStatusCode: Int
         when (type) {
             DestinationType.CHIME -> {
                 val messageContent = chime?.constructMessageContent(compiledSubject, compiledMessage)
@@ -273,6 +289,9 @@ data class Destination(
                         .withMethod(customWebhook?.method)
                         .withQueryParams(customWebhook?.queryParams)
                         .withHeaderParams(customWebhook?.headerParams)
+                        .withMaxConnections(customWebhook?.maxConnections)
+                        .withConnectTimeoutMillis(customWebhook?.connectionTimeoutMillis)
+                        .withSocketTimeoutMillis(customWebhook?.socketTimeoutMillis)
                         .withMessage(compiledMessage).build()
             }
             DestinationType.EMAIL -> {
@@ -289,17 +308,18 @@ data class Destination(
                         .withMessage(compiledMessage).build()
             }
             DestinationType.TEST_ACTION -> {
-                return "test action"
+                return CompletableFuture.completedFuture("test action")
             }
         }
 
-        validateDestinationUri(destinationMessage, denyHostRanges)
-        val response = Notification.publish(destinationMessage) as DestinationResponse
-        responseContent = response.responseContent
-        responseStatusCode = response.statusCode
-
-        logger.info("Message published for action name: $name, messageid: $responseContent, statuscode: $responseStatusCode")
-        return responseContent
+        validateDestinationUri(destinationMessage, denyList)
+        val published = Notification.publishAsync(destinationMessage, id)
+        return Futures.propagateCancellation(published, published.thenApply { baseResponse ->
+            val response = baseResponse as DestinationResponse
+            logger.info("Message published for action name: $name, messageid: ${response.responseContent}, " +
+                    "statuscode: ${response.statusCode}")
+            response.responseContent
+        })
     }
 
     fun constructResponseForDestinationType(type: DestinationType): Any {
@@ -317,10 +337,10 @@ data class Destination(
         return content
     }
 
-    private fun validateDestinationUri(destinationMessage: BaseMessage, denyHostRanges: List<String>) {
-        if (destinationMessage.isHostInDenylist(denyHostRanges)) {
+    private fun validateDestinationUri(destinationMessage: BaseMessage, denyList: HostDenyList) {
+        if (destinationMessage.isHostInDenylist(denyList)) {
             logger.error("Host: {} resolves to: {} which is in denylist: {}.", destinationMessage.uri.host,
-                    InetAddress.getByName(destinationMessage.uri.host), denyHostRanges)
+                    denyList.resolve(destinationMessage.uri.host), denyList.networks)
             throw IOException("The destination address is invalid.")
         }
     }
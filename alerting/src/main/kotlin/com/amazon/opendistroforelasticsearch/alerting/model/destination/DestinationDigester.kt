@@ -0,0 +1,192 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.model.destination
+
+import com.amazon.opendistroforelasticsearch.alerting.AlertingPlugin
+import com.amazon.opendistroforelasticsearch.alerting.settings.DestinationSettings.Companion.DIGEST_MAX_MESSAGES
+import com.amazon.opendistroforelasticsearch.alerting.util.DestinationType
+import com.amazon.opendistroforelasticsearch.alerting.util.HostDenyList
+import org.apache.logging.log4j.LogManager
+import org.elasticsearch.cluster.service.ClusterService
+import org.elasticsearch.common.Strings
+import org.elasticsearch.common.settings.Settings
+import org.elasticsearch.common.unit.TimeValue
+import org.elasticsearch.common.util.concurrent.AbstractRunnable
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException
+import org.elasticsearch.common.xcontent.XContentFactory
+import org.elasticsearch.threadpool.ThreadPool
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Aggregates messages to destinations that opted into digest delivery, so that a burst of alerts to the same destination
+ * within its digest window is delivered as a single summary message. Destinations without a digest window are published
+ * to directly.
+ *
+ * A digest is delivered with the destination as it was when its first message was queued. A message for an edited
+ * destination delivers the pending digest right away and starts a new one, or is published directly if the edit removed
+ * the digest window. The digest of a destination that is deleted during its window is still delivered.
+ */
+class DestinationDigester(
+    private val threadPool: ThreadPool,
+    settings: Settings,
+    clusterService: ClusterService
+) {
+
+    private val logger = LogManager.getLogger(javaClass)
+
+    @Volatile private var maxMessages = DIGEST_MAX_MESSAGES.get(settings)
+
+    private val pendingDigests = ConcurrentHashMap<String, PendingDigest>()
+
+    init {
+        clusterService.clusterSettings.addSettingsUpdateConsumer(DIGEST_MAX_MESSAGES) { maxMessages = it }
+    }
+
+    /**
+     * Publishes the message, or adds it to the destination's pending digest. A digested message completes as soon as it
+     * is queued, since its delivery happens once the window closes, and delivery failures are logged.
+     */
+    fun publish(
+        destination: Destination,
+        compiledSubject: String?,
+        compiledMessage: String,
+        destinationCtx: DestinationContext,
+        denyList: HostDenyList
+    ): CompletableFuture<String> {
+        val digestWindow = destination.digestWindow
+        if (digestWindow == null) {
+            pendingDigests.remove(destination.id)?.let { send(it) }
+            return destination.publish(compiledSubject, compiledMessage, destinationCtx, denyList)
+        }
+
+        var full = false
+        var outdated: PendingDigest? = null
+        val digest = pendingDigests.compute(destination.id) { id, pending ->
+            val current = if (pending != null && pending.destination.version != destination.version) {
+                outdated = pending
+                null
+            } else pending
+            (current ?: PendingDigest(destination, destinationCtx, denyList).also { scheduleDelivery(id, it, digestWindow) })
+                .also {
+                    it.messages.add(DigestMessage(compiledSubject, compiledMessage))
+                    full = it.messages.size >= maxMessages
+                }
+        }!!
+        // Its scheduled delivery finds it no longer mapped, so it is only sent once
+        outdated?.let { send(it) }
+        // A full digest is delivered right away rather than growing until its window closes
+        if (full) {
+            deliver(destination.id, digest)
+        }
+        return CompletableFuture.completedFuture(QUEUED_RESPONSE)
+    }
+
+    /**
+     * Delivers every pending digest without waiting for its window to close, e.g. when the node stops.
+     */
+    fun deliverAll() {
+        pendingDigests.forEach { (id, digest) -> deliver(id, digest) }
+    }
+
+    /**
+     * Delivers the digest on the notification pool once its window closes, since email is still sent synchronously. A
+     * full pool delays the digest by another window rather than dropping it.
+     */
+    private fun scheduleDelivery(id: String, digest: PendingDigest, digestWindow: TimeValue) {
+        threadPool.schedule(object : AbstractRunnable() {
+            override fun doRun() {
+                deliver(id, digest)
+            }
+
+            override fun onFailure(e: Exception) {
+                logger.error("Failed to deliver digest of ${digest.messages.size} messages to destination $id", e)
+            }
+
+            override fun onRejection(e: Exception) {
+                if (e is EsRejectedExecutionException && e.isExecutorShutdown) return
+                logger.warn("Notification pool rejected digest to destination $id, retrying in $digestWindow")
+                scheduleDelivery(id, digest, digestWindow)
+            }
+        }, digestWindow, AlertingPlugin.NOTIFICATION_THREAD_POOL_NAME)
+    }
+
+    private fun deliver(id: String, digest: PendingDigest) {
+        // A digest that was already delivered because it filled up or its destination changed is no longer mapped
+        if (!pendingDigests.remove(id, digest)) return
+        send(digest)
+    }
+
+    private fun send(digest: PendingDigest) {
+        val destination = digest.destination
+        val messages = digest.messages
+        try {
+            val (subject, body) = if (messages.size == 1) {
+                messages.first().subject to messages.first().message
+            } else {
+                summarize(destination.type, messages)
+            }
+            destination.publish(subject, body, digest.destinationCtx, digest.denyList).whenComplete { response, e ->
+                if (e != null) {
+                    logger.error("Failed to deliver digest of ${messages.size} messages to destination ${destination.id}", e)
+                } else {
+                    logger.debug("Delivered digest of ${messages.size} messages to destination ${destination.id}: $response")
+                }
+            }
+        } catch (e: Exception) {
+            logger.error("Failed to deliver digest of ${messages.size} messages to destination ${destination.id}", e)
+        }
+    }
+
+    /**
+     * Webhook receivers get the messages as a JSON document, while email gets a plain text summary.
+     */
+    private fun summarize(type: DestinationType, messages: List<DigestMessage>): Pair<String, String> {
+        val subject = "${messages.size} alert notifications"
+        if (type == DestinationType.CUSTOM_WEBHOOK) {
+            val builder = XContentFactory.jsonBuilder().startObject()
+                .field(COUNT_FIELD, messages.size)
+                .startArray(MESSAGES_FIELD)
+            messages.forEach {
+                builder.startObject().field(SUBJECT_FIELD, it.subject).field(MESSAGE_FIELD, it.message).endObject()
+            }
+            return subject to Strings.toString(builder.endArray().endObject())
+        }
+        val body = StringBuilder("${messages.size} alert notifications were sent to this destination:\n")
+        messages.forEachIndexed { i, message ->
+            body.append("\n--- ${i + 1}. ${message.subject ?: ""} ---\n").append(message.message).append('\n')
+        }
+        return subject to body.toString()
+    }
+
+    private data class DigestMessage(val subject: String?, val message: String)
+
+    private class PendingDigest(
+        val destination: Destination,
+        val destinationCtx: DestinationContext,
+        val denyList: HostDenyList
+    ) {
+        val messages = mutableListOf<DigestMessage>()
+    }
+
+    companion object {
+        const val QUEUED_RESPONSE = "Queued for digest delivery"
+        const val COUNT_FIELD = "count"
+        const val MESSAGES_FIELD = "messages"
+        const val SUBJECT_FIELD = "subject"
+        const val MESSAGE_FIELD = "message"
+    }
+}
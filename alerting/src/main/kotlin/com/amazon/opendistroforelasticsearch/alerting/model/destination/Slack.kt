@@ -15,8 +15,8 @@
 
 package com.amazon.opendistroforelasticsearch.alerting.model.destination
 
-import com.amazon.opendistroforelasticsearch.alerting.elasticapi.string
 import org.elasticsearch.common.Strings
+import org.elasticsearch.common.bytes.BytesReference
 import org.elasticsearch.common.io.stream.StreamInput
 import org.elasticsearch.common.io.stream.StreamOutput
 import org.elasticsearch.common.xcontent.ToXContent
@@ -81,12 +81,15 @@ data class Slack(val url: String) : ToXContent {
         }
     }
 
-    fun constructMessageContent(subject: String?, message: String): String {
+    /**
+     * Serializes the payload straight into bytes, which are sent as the request body without being copied into a String.
+     */
+    fun constructMessageContent(subject: String?, message: String): BytesReference {
         val messageContent: String? = if (Strings.isNullOrEmpty(subject)) message else "$subject \n\n $message"
         val builder = XContentFactory.contentBuilder(XContentType.JSON)
         builder.startObject()
                 .field("text", messageContent)
                 .endObject()
-        return builder.string()
+        return BytesReference.bytes(builder)
     }
 }
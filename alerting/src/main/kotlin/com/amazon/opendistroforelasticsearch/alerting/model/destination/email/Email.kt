@@ -19,6 +19,7 @@ import com.amazon.opendistroforelasticsearch.alerting.util.isValidEmail
 import org.elasticsearch.common.io.stream.StreamInput
 import org.elasticsearch.common.io.stream.StreamOutput
 import org.elasticsearch.common.io.stream.Writeable
+import org.elasticsearch.common.unit.TimeValue
 import org.elasticsearch.common.xcontent.ToXContent
 import org.elasticsearch.common.xcontent.XContentBuilder
 import org.elasticsearch.common.xcontent.XContentParser
@@ -34,36 +35,42 @@ import java.util.Locale
  */
 data class Email(
     val emailAccountID: String,
-    val recipients: List<Recipient>
+    val recipients: List<Recipient>,
+    val digestWindow: TimeValue? = null
 ) : Writeable, ToXContent {
 
     init {
         require(recipients.isNotEmpty()) { "At least one recipient must be provided" }
+        require(digestWindow == null || digestWindow.millis() > 0) { "Digest window must be positive" }
     }
 
     override fun toXContent(builder: XContentBuilder, params: ToXContent.Params): XContentBuilder {
-        return builder.startObject(TYPE)
+        builder.startObject(TYPE)
                 .field(EMAIL_ACCOUNT_ID_FIELD, emailAccountID)
                 .field(RECIPIENTS_FIELD, recipients.toTypedArray())
-                .endObject()
+        if (digestWindow != null) builder.field(DIGEST_WINDOW_FIELD, digestWindow.stringRep)
+        return builder.endObject()
     }
 
     @Throws(IOException::class)
     override fun writeTo(out: StreamOutput) {
         out.writeString(emailAccountID)
         out.writeCollection(recipients)
+        out.writeOptionalTimeValue(digestWindow)
     }
 
     companion object {
         const val TYPE = "email"
         const val EMAIL_ACCOUNT_ID_FIELD = "email_account_id"
         const val RECIPIENTS_FIELD = "recipients"
+        const val DIGEST_WINDOW_FIELD = "digest_window"
 
         @JvmStatic
         @Throws(IOException::class)
         fun parse(xcp: XContentParser): Email {
             lateinit var emailAccountID: String
             val recipients: MutableList<Recipient> = mutableListOf()
+            var digestWindow: TimeValue? = null
 
             ensureExpectedToken(Token.START_OBJECT, xcp.currentToken(), xcp)
             while (xcp.nextToken() != Token.END_OBJECT) {
@@ -78,6 +85,7 @@ data class Email(
                             recipients.add(Recipient.parse(xcp))
                         }
                     }
+                    DIGEST_WINDOW_FIELD -> digestWindow = xcp.textOrNull()?.let { TimeValue.parseTimeValue(it, DIGEST_WINDOW_FIELD) }
                     else -> {
                         throw IllegalStateException("Unexpected field: $fieldName, while parsing email destination")
                     }
@@ -86,7 +94,8 @@ data class Email(
 
             return Email(
                     requireNotNull(emailAccountID) { "Email account ID is null" },
-                    recipients
+                    recipients,
+                    digestWindow
             )
         }
 
@@ -96,7 +105,8 @@ data class Email(
             return if (sin.readBoolean()) {
                 Email(
                     sin.readString(), // emailAccountID
-                    sin.readList(::Recipient) // recipients
+                    sin.readList(::Recipient), // recipients
+                    sin.readOptionalTimeValue() // digestWindow
                 )
             } else null
         }
@@ -0,0 +1,123 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.resthandler
+
+import com.amazon.opendistroforelasticsearch.alerting.AlertingPlugin
+import com.amazon.opendistroforelasticsearch.alerting.action.AcknowledgeAlertsByQueryAction
+import com.amazon.opendistroforelasticsearch.alerting.action.AcknowledgeAlertsByQueryRequest
+import com.amazon.opendistroforelasticsearch.alerting.elasticapi.instant
+import com.amazon.opendistroforelasticsearch.alerting.util.REFRESH
+import org.apache.logging.log4j.LogManager
+import org.apache.logging.log4j.Logger
+import org.elasticsearch.action.support.WriteRequest.RefreshPolicy
+import org.elasticsearch.client.node.NodeClient
+import org.elasticsearch.common.xcontent.XContentParser
+import org.elasticsearch.common.xcontent.XContentParserUtils.ensureExpectedToken
+import org.elasticsearch.rest.BaseRestHandler
+import org.elasticsearch.rest.BaseRestHandler.RestChannelConsumer
+import org.elasticsearch.rest.BytesRestResponse
+import org.elasticsearch.rest.RestHandler.Route
+import org.elasticsearch.rest.RestRequest
+import org.elasticsearch.rest.RestRequest.Method.POST
+import org.elasticsearch.rest.RestStatus
+import org.elasticsearch.rest.action.RestToXContentListener
+import org.elasticsearch.tasks.LoggingTaskListener
+import java.io.IOException
+import java.time.Instant
+
+private val log: Logger = LogManager.getLogger(RestAcknowledgeAlertsByQueryAction::class.java)
+
+/**
+ * This class consists of the REST handler to acknowledge all ACTIVE alerts matching a severity, monitor ids, trigger
+ * names and a start time range, e.g. all alerts of an incident. With wait_for_completion=false the request returns the
+ * id of the task right away and the progress and result can be followed through the tasks API.
+ */
+class RestAcknowledgeAlertsByQueryAction : BaseRestHandler() {
+
+    override fun getName(): String {
+        return "acknowledge_alerts_by_query_action"
+    }
+
+    override fun routes(): List<Route> {
+        return listOf(
+                Route(POST, "${AlertingPlugin.MONITOR_BASE_URI}/alerts/_acknowledge_by_query")
+        )
+    }
+
+    @Throws(IOException::class)
+    override fun prepareRequest(request: RestRequest, client: NodeClient): RestChannelConsumer {
+        log.debug("${request.method()} ${AlertingPlugin.MONITOR_BASE_URI}/alerts/_acknowledge_by_query")
+
+        val refreshPolicy = RefreshPolicy.parse(request.param(REFRESH, RefreshPolicy.IMMEDIATE.value))
+        val waitForCompletion = request.paramAsBoolean("wait_for_completion", true)
+        val acknowledgeRequest = if (request.hasContent()) {
+            parseRequest(request.contentParser(), refreshPolicy, waitForCompletion)
+        } else {
+            AcknowledgeAlertsByQueryRequest("ALL", emptyList(), emptyList(), null, null, refreshPolicy, waitForCompletion)
+        }
+
+        if (waitForCompletion) {
+            return RestChannelConsumer { channel ->
+                client.execute(AcknowledgeAlertsByQueryAction.INSTANCE, acknowledgeRequest, RestToXContentListener(channel))
+            }
+        }
+        val validationException = acknowledgeRequest.validate()
+        if (validationException != null) throw validationException
+        return RestChannelConsumer { channel ->
+            val task = client.executeLocally(AcknowledgeAlertsByQueryAction.INSTANCE, acknowledgeRequest, LoggingTaskListener.instance())
+            val builder = channel.newBuilder().startObject().field("task", "${client.localNodeId}:${task.id}").endObject()
+            channel.sendResponse(BytesRestResponse(RestStatus.OK, builder))
+        }
+    }
+
+    private fun parseRequest(
+        xcp: XContentParser,
+        refreshPolicy: RefreshPolicy,
+        waitForCompletion: Boolean
+    ): AcknowledgeAlertsByQueryRequest {
+        var severityLevel = "ALL"
+        val monitorIds = mutableListOf<String>()
+        val triggerNames = mutableListOf<String>()
+        var startTimeFrom: Instant? = null
+        var startTimeTo: Instant? = null
+
+        ensureExpectedToken(XContentParser.Token.START_OBJECT, xcp.nextToken(), xcp)
+        while (xcp.nextToken() != XContentParser.Token.END_OBJECT) {
+            val fieldName = xcp.currentName()
+            xcp.nextToken()
+            when (fieldName) {
+                "severity" -> severityLevel = xcp.text()
+                "monitor_ids" -> {
+                    ensureExpectedToken(XContentParser.Token.START_ARRAY, xcp.currentToken(), xcp)
+                    while (xcp.nextToken() != XContentParser.Token.END_ARRAY) {
+                        monitorIds.add(xcp.text())
+                    }
+                }
+                "trigger_names" -> {
+                    ensureExpectedToken(XContentParser.Token.START_ARRAY, xcp.currentToken(), xcp)
+                    while (xcp.nextToken() != XContentParser.Token.END_ARRAY) {
+                        triggerNames.add(xcp.text())
+                    }
+                }
+                "start_time_from" -> startTimeFrom = xcp.instant()
+                "start_time_to" -> startTimeTo = xcp.instant()
+                else -> throw IllegalArgumentException("Unknown field [$fieldName] in acknowledge by query request")
+            }
+        }
+        return AcknowledgeAlertsByQueryRequest(severityLevel, monitorIds, triggerNames, startTimeFrom, startTimeTo,
+                refreshPolicy, waitForCompletion)
+    }
+}
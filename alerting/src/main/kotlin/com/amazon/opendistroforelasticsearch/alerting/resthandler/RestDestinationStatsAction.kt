@@ -0,0 +1,52 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.resthandler
+
+import com.amazon.opendistroforelasticsearch.alerting.AlertingPlugin
+import com.amazon.opendistroforelasticsearch.alerting.action.DestinationStatsAction
+import com.amazon.opendistroforelasticsearch.alerting.action.DestinationStatsRequest
+import org.elasticsearch.client.node.NodeClient
+import org.elasticsearch.common.Strings
+import org.elasticsearch.rest.BaseRestHandler
+import org.elasticsearch.rest.BaseRestHandler.RestChannelConsumer
+import org.elasticsearch.rest.RestHandler
+import org.elasticsearch.rest.RestRequest
+import org.elasticsearch.rest.action.RestActions
+
+/**
+ * This class consists of the REST handler to retrieve the rate limit and circuit breaker stats of destinations.
+ */
+class RestDestinationStatsAction : BaseRestHandler() {
+
+    override fun getName(): String {
+        return "destination_stats_action"
+    }
+
+    override fun routes(): List<RestHandler.Route> {
+        return listOf(
+                RestHandler.Route(RestRequest.Method.GET, "${AlertingPlugin.DESTINATION_BASE_URI}/_stats"),
+                RestHandler.Route(RestRequest.Method.GET, "${AlertingPlugin.DESTINATION_BASE_URI}/_stats/{nodeId}")
+        )
+    }
+
+    override fun prepareRequest(request: RestRequest, client: NodeClient): RestChannelConsumer {
+        val statsRequest = DestinationStatsRequest(Strings.splitStringByCommaToArray(request.param("nodeId")))
+        statsRequest.timeout(request.param("timeout"))
+        return RestChannelConsumer { channel ->
+            client.execute(DestinationStatsAction.INSTANCE, statsRequest, RestActions.NodesResponseRestListener(channel))
+        }
+    }
+}
@@ -57,6 +57,8 @@ class RestGetAlertsAction : BaseRestHandler() {
         val severityLevel = request.param("severityLevel", "ALL")
         val alertState = request.param("alertState", "ALL")
         val monitorId: String? = request.param("monitorId")
+        val cursor: String? = request.param("cursor")
+        val fields = request.paramAsStringArray("fields", null)?.toList()
         val table = Table(
                 sortOrder,
                 sortString,
@@ -66,7 +68,7 @@ class RestGetAlertsAction : BaseRestHandler() {
                 searchString
         )
 
-        val getAlertsRequest = GetAlertsRequest(table, severityLevel, alertState, monitorId)
+        val getAlertsRequest = GetAlertsRequest(table, severityLevel, alertState, monitorId, cursor, fields)
         return RestChannelConsumer {
             channel -> client.execute(GetAlertsAction.INSTANCE, getAlertsRequest, RestToXContentListener(channel))
         }
@@ -0,0 +1,61 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.resthandler
+
+import com.amazon.opendistroforelasticsearch.alerting.AlertingPlugin
+import com.amazon.opendistroforelasticsearch.alerting.action.GetAlertsSummaryAction
+import com.amazon.opendistroforelasticsearch.alerting.action.GetAlertsSummaryRequest
+import org.apache.logging.log4j.LogManager
+import org.elasticsearch.client.node.NodeClient
+import org.elasticsearch.rest.BaseRestHandler
+import org.elasticsearch.rest.BaseRestHandler.RestChannelConsumer
+import org.elasticsearch.rest.RestHandler.Route
+import org.elasticsearch.rest.RestRequest
+import org.elasticsearch.rest.RestRequest.Method.GET
+import org.elasticsearch.rest.action.RestToXContentListener
+
+/**
+ * This class consists of the REST handler to count alerts by state, severity, monitor and start time.
+ */
+class RestGetAlertsSummaryAction : BaseRestHandler() {
+
+    private val log = LogManager.getLogger(RestGetAlertsSummaryAction::class.java)
+
+    override fun getName(): String {
+        return "get_alerts_summary_action"
+    }
+
+    override fun routes(): List<Route> {
+        return listOf(
+                Route(GET, "${AlertingPlugin.MONITOR_BASE_URI}/alerts/_summary")
+        )
+    }
+
+    override fun prepareRequest(request: RestRequest, client: NodeClient): RestChannelConsumer {
+        log.debug("${request.method()} ${AlertingPlugin.MONITOR_BASE_URI}/alerts/_summary")
+
+        val severityLevel = request.param("severityLevel", "ALL")
+        val alertState = request.param("alertState", "ALL")
+        val monitorId: String? = request.param("monitorId")
+        val size = request.paramAsInt("size", 10)
+        val interval: String? = request.param("interval")
+
+        val summaryRequest = GetAlertsSummaryRequest(severityLevel, alertState, monitorId, size, interval)
+        return RestChannelConsumer {
+            channel -> client.execute(GetAlertsSummaryAction.INSTANCE, summaryRequest, RestToXContentListener(channel))
+        }
+    }
+}
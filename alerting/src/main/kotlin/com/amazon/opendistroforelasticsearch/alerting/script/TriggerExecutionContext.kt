@@ -28,12 +28,18 @@ data class TriggerExecutionContext(
     val periodStart: Instant,
     val periodEnd: Instant,
     val alert: Alert? = null,
-    val error: Exception? = null
+    val error: Exception? = null,
+    val bucket: Map<String, Any>? = null
 ) {
 
-    constructor(monitor: Monitor, trigger: Trigger, monitorRunResult: MonitorRunResult, alert: Alert? = null) :
-            this(monitor, trigger, monitorRunResult.inputResults.results, monitorRunResult.periodStart,
-            monitorRunResult.periodEnd, alert, monitorRunResult.scriptContextError(trigger))
+    constructor(
+        monitor: Monitor,
+        trigger: Trigger,
+        monitorRunResult: MonitorRunResult,
+        alert: Alert? = null,
+        bucket: Map<String, Any>? = null
+    ) : this(monitor, trigger, monitorRunResult.inputResults.results, monitorRunResult.periodStart,
+            monitorRunResult.periodEnd, alert, monitorRunResult.scriptContextError(trigger), bucket)
 
     /**
      * Mustache templates need special permissions to reflectively introspect field names. To avoid doing this we
@@ -46,6 +52,7 @@ data class TriggerExecutionContext(
                 "periodStart" to periodStart,
                 "periodEnd" to periodEnd,
                 "alert" to alert?.asTemplateArg(),
-                "error" to error)
+                "error" to error,
+                "bucket" to bucket)
     }
 }
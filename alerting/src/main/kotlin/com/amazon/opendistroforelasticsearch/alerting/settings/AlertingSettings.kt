@@ -17,8 +17,11 @@ package com.amazon.opendistroforelasticsearch.alerting.settings
 
 import com.amazon.opendistroforelasticsearch.alerting.AlertingPlugin
 import org.elasticsearch.common.settings.Setting
+import org.elasticsearch.common.unit.ByteSizeUnit
+import org.elasticsearch.common.unit.ByteSizeValue
 import org.elasticsearch.common.unit.TimeValue
 import java.util.concurrent.TimeUnit
+import java.util.function.Function
 
 /**
  * settings specific to [AlertingPlugin]. These settings include things like history index max age, request timeout, etc...
@@ -27,7 +30,7 @@ class AlertingSettings {
 
     companion object {
 
-        const val MONITOR_MAX_INPUTS = 1
+        const val MONITOR_MAX_INPUTS = 5
         const val MONITOR_MAX_TRIGGERS = 10
 
         val ALERTING_MAX_MONITORS = Setting.intSetting(
@@ -42,6 +45,34 @@ class AlertingSettings {
                 Setting.Property.NodeScope, Setting.Property.Dynamic
         )
 
+        val TRIGGER_TIMEOUT = Setting.positiveTimeSetting(
+                "opendistro.alerting.trigger_timeout",
+                TimeValue.timeValueSeconds(10),
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        val ACTION_TIMEOUT = Setting.positiveTimeSetting(
+                "opendistro.alerting.action_timeout",
+                TimeValue.timeValueSeconds(60),
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        val BUCKET_LEVEL_MAX_BUCKETS = Setting.intSetting(
+                "opendistro.alerting.bucket_level_max_buckets",
+                1000,
+                1,
+                10000,
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        val DOC_LEVEL_MONITOR_SHARD_FETCH_SIZE = Setting.intSetting(
+                "opendistro.alerting.doc_level_monitor_shard_fetch_size",
+                1000,
+                1,
+                10000,
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
         val INDEX_TIMEOUT = Setting.positiveTimeSetting(
                 "opendistro.alerting.index_timeout",
                 TimeValue.timeValueSeconds(60),
@@ -54,6 +85,14 @@ class AlertingSettings {
                 Setting.Property.NodeScope, Setting.Property.Dynamic
         )
 
+        // How stale the stored last notification time of an active alert may get before a run that changed nothing else
+        // writes it, 0 writes it on every run
+        val ALERT_FRESHNESS_INTERVAL = Setting.positiveTimeSetting(
+                "opendistro.alerting.alert_freshness_interval",
+                TimeValue.timeValueMinutes(5),
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
         val ALERT_BACKOFF_MILLIS = Setting.positiveTimeSetting(
                 "opendistro.alerting.alert_backoff_millis",
                 TimeValue.timeValueMillis(50),
@@ -96,10 +135,84 @@ class AlertingSettings {
                 Setting.Property.NodeScope, Setting.Property.Dynamic
         )
 
+        // 0 disables the condition, so that by default history indices roll over on age and size only
         val ALERT_HISTORY_MAX_DOCS = Setting.longSetting(
                 "opendistro.alerting.alert_history_max_docs",
-                1000L,
                 0L,
+                0L,
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        // 0 disables the condition
+        val ALERT_HISTORY_MAX_SIZE = Setting.byteSizeSetting(
+                "opendistro.alerting.alert_history_max_size",
+                ByteSizeValue(0),
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        // Applied as a max_size condition of this size times the number of primary shards of the history write index
+        val ALERT_HISTORY_MAX_PRIMARY_SHARD_SIZE = Setting.byteSizeSetting(
+                "opendistro.alerting.alert_history_max_primary_shard_size",
+                ByteSizeValue(30, ByteSizeUnit.GB),
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        // Shard and replica counts only apply to history indices created after they're changed
+        val ALERT_HISTORY_NUMBER_OF_SHARDS = Setting.intSetting(
+                "opendistro.alerting.alert_history_number_of_shards",
+                1,
+                1,
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        val ALERT_HISTORY_NUMBER_OF_REPLICAS = Setting.intSetting(
+                "opendistro.alerting.alert_history_number_of_replicas",
+                1,
+                0,
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        // Applied as index.sort.field and index.sort.order to history indices created after they're changed
+        val ALERT_HISTORY_INDEX_SORT_FIELD: Setting<List<String>> = Setting.listSetting(
+                "opendistro.alerting.alert_history_index_sort_field",
+                emptyList<String>(),
+                Function.identity(),
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        val ALERT_HISTORY_INDEX_SORT_ORDER: Setting<List<String>> = Setting.listSetting(
+                "opendistro.alerting.alert_history_index_sort_order",
+                emptyList<String>(),
+                Function.identity(),
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        // Applied to the current history write index when changed
+        val ALERT_HISTORY_REFRESH_INTERVAL = Setting.positiveTimeSetting(
+                "opendistro.alerting.alert_history_refresh_interval",
+                TimeValue.timeValueSeconds(1),
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        // Shard and replica counts only apply when the alert index is created
+        val ALERT_INDEX_NUMBER_OF_SHARDS = Setting.intSetting(
+                "opendistro.alerting.alert_index_number_of_shards",
+                1,
+                1,
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        val ALERT_INDEX_NUMBER_OF_REPLICAS = Setting.intSetting(
+                "opendistro.alerting.alert_index_number_of_replicas",
+                1,
+                0,
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        // Applied to the alert index when changed
+        val ALERT_INDEX_REFRESH_INTERVAL = Setting.positiveTimeSetting(
+                "opendistro.alerting.alert_index_refresh_interval",
+                TimeValue.timeValueSeconds(1),
                 Setting.Property.NodeScope, Setting.Property.Dynamic
         )
 
@@ -109,6 +222,20 @@ class AlertingSettings {
                 Setting.Property.NodeScope, Setting.Property.Dynamic
         )
 
+        // Summarizing deletes the summarized history alerts, so it has to be enabled explicitly
+        val ALERT_HISTORY_SUMMARY_ENABLED = Setting.boolSetting(
+                "opendistro.alerting.alert_history_summary_enabled",
+                false,
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        // History alerts that ended on a day before this long ago are summarized
+        val ALERT_HISTORY_SUMMARY_AFTER = Setting.positiveTimeSetting(
+                "opendistro.alerting.alert_history_summary_after",
+                TimeValue(7, TimeUnit.DAYS),
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
         val REQUEST_TIMEOUT = Setting.positiveTimeSetting(
                 "opendistro.alerting.request_timeout",
                 TimeValue.timeValueSeconds(10),
@@ -15,11 +15,14 @@
 
 package com.amazon.opendistroforelasticsearch.alerting.settings
 
+import com.amazon.opendistroforelasticsearch.alerting.destination.client.HttpConnectionConfig
+import com.amazon.opendistroforelasticsearch.alerting.destination.guard.DestinationGuardConfig
 import com.amazon.opendistroforelasticsearch.alerting.util.DestinationType
 import org.elasticsearch.common.settings.SecureSetting
 import org.elasticsearch.common.settings.SecureString
 import org.elasticsearch.common.settings.Setting
 import org.elasticsearch.common.settings.Settings
+import org.elasticsearch.common.unit.TimeValue
 import java.util.function.Function
 
 /**
@@ -32,6 +35,7 @@ class DestinationSettings {
 
         const val DESTINATION_SETTING_PREFIX = "opendistro.alerting.destination."
         const val EMAIL_DESTINATION_SETTING_PREFIX = DESTINATION_SETTING_PREFIX + "email."
+        const val HTTP_DESTINATION_SETTING_PREFIX = DESTINATION_SETTING_PREFIX + "http."
         val ALLOW_LIST_ALL = DestinationType.values().toList().map { it.value }
         val ALLOW_LIST_NONE = emptyList<String>()
 
@@ -65,6 +69,135 @@ class DestinationSettings {
                 Setting.Property.Final
         )
 
+        val HOST_DNS_CACHE_TTL = Setting.positiveTimeSetting(
+                DESTINATION_SETTING_PREFIX + "host.dns_cache_ttl",
+                TimeValue.timeValueSeconds(60),
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        val HTTP_MAX_CONNECTIONS = Setting.intSetting(
+                HTTP_DESTINATION_SETTING_PREFIX + "max_connections",
+                1000,
+                1,
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        val HTTP_MAX_CONNECTIONS_PER_ROUTE = Setting.intSetting(
+                HTTP_DESTINATION_SETTING_PREFIX + "max_connections_per_route",
+                200,
+                1,
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        val HTTP_CONNECTION_TIMEOUT = Setting.positiveTimeSetting(
+                HTTP_DESTINATION_SETTING_PREFIX + "connection_timeout",
+                TimeValue.timeValueSeconds(5),
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        val HTTP_CONNECTION_REQUEST_TIMEOUT = Setting.positiveTimeSetting(
+                HTTP_DESTINATION_SETTING_PREFIX + "connection_request_timeout",
+                TimeValue.timeValueSeconds(5),
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        val HTTP_SOCKET_TIMEOUT = Setting.positiveTimeSetting(
+                HTTP_DESTINATION_SETTING_PREFIX + "socket_timeout",
+                TimeValue.timeValueSeconds(50),
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        val HTTP_KEEP_ALIVE = Setting.positiveTimeSetting(
+                HTTP_DESTINATION_SETTING_PREFIX + "keep_alive",
+                TimeValue.timeValueMinutes(1),
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        val HTTP_IDLE_CONNECTION_TIMEOUT = Setting.positiveTimeSetting(
+                HTTP_DESTINATION_SETTING_PREFIX + "idle_connection_timeout",
+                TimeValue.timeValueSeconds(30),
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        val DIGEST_MAX_MESSAGES = Setting.intSetting(
+                DESTINATION_SETTING_PREFIX + "digest.max_messages",
+                100,
+                1,
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        // 0 disables rate limiting
+        val RATE_LIMIT_PERMITS_PER_SECOND = Setting.doubleSetting(
+                DESTINATION_SETTING_PREFIX + "rate_limit.permits_per_second",
+                50.0,
+                0.0,
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        val RATE_LIMIT_BURST = Setting.intSetting(
+                DESTINATION_SETTING_PREFIX + "rate_limit.burst",
+                100,
+                1,
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        val CIRCUIT_BREAKER_WINDOW_SIZE = Setting.intSetting(
+                DESTINATION_SETTING_PREFIX + "circuit_breaker.window_size",
+                20,
+                1,
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        val CIRCUIT_BREAKER_MINIMUM_CALLS = Setting.intSetting(
+                DESTINATION_SETTING_PREFIX + "circuit_breaker.minimum_calls",
+                10,
+                1,
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        val CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD: Setting<Double> = Setting(
+                DESTINATION_SETTING_PREFIX + "circuit_breaker.failure_rate_threshold",
+                "0.5",
+                Function { java.lang.Double.parseDouble(it) },
+                Setting.Validator<Double> { require(it > 0.0 && it <= 1.0) { "Failure rate threshold must be in (0, 1]" } },
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        val CIRCUIT_BREAKER_OPEN_DURATION = Setting.positiveTimeSetting(
+                DESTINATION_SETTING_PREFIX + "circuit_breaker.open_duration",
+                TimeValue.timeValueSeconds(30),
+                Setting.Property.NodeScope, Setting.Property.Dynamic
+        )
+
+        val HTTP_CONNECTION_SETTINGS = listOf(HTTP_MAX_CONNECTIONS, HTTP_MAX_CONNECTIONS_PER_ROUTE, HTTP_CONNECTION_TIMEOUT,
+                HTTP_CONNECTION_REQUEST_TIMEOUT, HTTP_SOCKET_TIMEOUT, HTTP_KEEP_ALIVE, HTTP_IDLE_CONNECTION_TIMEOUT)
+
+        val DESTINATION_GUARD_SETTINGS = listOf(RATE_LIMIT_PERMITS_PER_SECOND, RATE_LIMIT_BURST, CIRCUIT_BREAKER_WINDOW_SIZE,
+                CIRCUIT_BREAKER_MINIMUM_CALLS, CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD, CIRCUIT_BREAKER_OPEN_DURATION)
+
+        fun loadDestinationGuardConfig(settings: Settings): DestinationGuardConfig {
+            return DestinationGuardConfig.Builder()
+                    .withPermitsPerSecond(RATE_LIMIT_PERMITS_PER_SECOND.get(settings))
+                    .withBurst(RATE_LIMIT_BURST.get(settings))
+                    .withWindowSize(CIRCUIT_BREAKER_WINDOW_SIZE.get(settings))
+                    .withMinimumCalls(CIRCUIT_BREAKER_MINIMUM_CALLS.get(settings))
+                    .withFailureRateThreshold(CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD.get(settings))
+                    .withOpenDurationMillis(CIRCUIT_BREAKER_OPEN_DURATION.get(settings).millis())
+                    .build()
+        }
+
+        fun loadHttpConnectionConfig(settings: Settings): HttpConnectionConfig {
+            return HttpConnectionConfig.Builder()
+                    .withMaxConnections(HTTP_MAX_CONNECTIONS.get(settings))
+                    .withMaxConnectionsPerRoute(HTTP_MAX_CONNECTIONS_PER_ROUTE.get(settings))
+                    .withConnectTimeoutMillis(HTTP_CONNECTION_TIMEOUT.get(settings).millis().toInt())
+                    .withConnectionRequestTimeoutMillis(HTTP_CONNECTION_REQUEST_TIMEOUT.get(settings).millis().toInt())
+                    .withSocketTimeoutMillis(HTTP_SOCKET_TIMEOUT.get(settings).millis().toInt())
+                    .withKeepAliveMillis(HTTP_KEEP_ALIVE.get(settings).millis())
+                    .withIdleTimeoutMillis(HTTP_IDLE_CONNECTION_TIMEOUT.get(settings).millis())
+                    .build()
+        }
+
         fun loadDestinationSettings(settings: Settings): Map<String, SecureDestinationSettings> {
             // Only loading Email Destination settings for now since those are the only secure settings needed.
             // If this logic needs to be expanded to support other Destinations, different groups can be retrieved similar
@@ -0,0 +1,195 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.transport
+
+import com.amazon.opendistroforelasticsearch.alerting.action.AcknowledgeAlertsByQueryAction
+import com.amazon.opendistroforelasticsearch.alerting.action.AcknowledgeAlertsByQueryRequest
+import com.amazon.opendistroforelasticsearch.alerting.action.AcknowledgeAlertsByQueryResponse
+import com.amazon.opendistroforelasticsearch.alerting.action.AcknowledgeAlertsByQueryTask
+import com.amazon.opendistroforelasticsearch.alerting.alerts.AlertIndices
+import com.amazon.opendistroforelasticsearch.alerting.elasticapi.addFilter
+import com.amazon.opendistroforelasticsearch.alerting.elasticapi.optionalTimeField
+import com.amazon.opendistroforelasticsearch.alerting.model.Alert
+import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings
+import com.amazon.opendistroforelasticsearch.alerting.util.AlertingException
+import com.amazon.opendistroforelasticsearch.commons.ConfigConstants
+import com.amazon.opendistroforelasticsearch.commons.authuser.User
+import org.apache.logging.log4j.LogManager
+import org.elasticsearch.action.ActionListener
+import org.elasticsearch.action.bulk.BulkRequest
+import org.elasticsearch.action.bulk.BulkResponse
+import org.elasticsearch.action.search.SearchRequest
+import org.elasticsearch.action.search.SearchResponse
+import org.elasticsearch.action.support.ActionFilters
+import org.elasticsearch.action.support.HandledTransportAction
+import org.elasticsearch.action.update.UpdateRequest
+import org.elasticsearch.client.Client
+import org.elasticsearch.cluster.service.ClusterService
+import org.elasticsearch.common.inject.Inject
+import org.elasticsearch.common.settings.Settings
+import org.elasticsearch.common.xcontent.XContentFactory
+import org.elasticsearch.index.query.QueryBuilders
+import org.elasticsearch.search.SearchHit
+import org.elasticsearch.search.builder.SearchSourceBuilder
+import org.elasticsearch.search.sort.SortOrder
+import org.elasticsearch.tasks.Task
+import org.elasticsearch.transport.TransportService
+import java.io.IOException
+import java.time.Instant
+
+private val log = LogManager.getLogger(TransportAcknowledgeAlertsByQueryAction::class.java)
+
+/**
+ * Acknowledges the matching ACTIVE alerts a page at a time, so that acknowledging thousands of alerts during an
+ * incident neither loads them all into memory nor sends them in a single bulk request. Only one page is searched or
+ * acknowledged at a time. Pages are read with search_after on the monitor id and sequence number, which are unique
+ * together since the alerts of a monitor are routed to the same shard.
+ */
+class TransportAcknowledgeAlertsByQueryAction @Inject constructor(
+    transportService: TransportService,
+    val client: Client,
+    clusterService: ClusterService,
+    actionFilters: ActionFilters,
+    val settings: Settings
+) : HandledTransportAction<AcknowledgeAlertsByQueryRequest, AcknowledgeAlertsByQueryResponse>(
+        AcknowledgeAlertsByQueryAction.NAME, transportService, actionFilters, ::AcknowledgeAlertsByQueryRequest
+) {
+
+    @Volatile private var filterByEnabled = AlertingSettings.FILTER_BY_BACKEND_ROLES.get(settings)
+
+    init {
+        clusterService.clusterSettings.addSettingsUpdateConsumer(AlertingSettings.FILTER_BY_BACKEND_ROLES) { filterByEnabled = it }
+    }
+
+    override fun doExecute(
+        task: Task,
+        request: AcknowledgeAlertsByQueryRequest,
+        actionListener: ActionListener<AcknowledgeAlertsByQueryResponse>
+    ) {
+        val userStr = client.threadPool().threadContext.getTransient<String>(
+                ConfigConstants.OPENDISTRO_SECURITY_USER_INFO_THREAD_CONTEXT
+        )
+        log.debug("User and roles string from thread context: $userStr")
+        val user: User? = User.parse(userStr)
+
+        val queryBuilder = QueryBuilders.boolQuery()
+                .filter(QueryBuilders.termQuery(Alert.STATE_FIELD, Alert.State.ACTIVE.toString()))
+        if (request.severityLevel != "ALL")
+            queryBuilder.filter(QueryBuilders.termQuery(Alert.SEVERITY_FIELD, request.severityLevel))
+        if (request.monitorIds.isNotEmpty())
+            queryBuilder.filter(QueryBuilders.termsQuery(Alert.MONITOR_ID_FIELD, request.monitorIds))
+        if (request.triggerNames.isNotEmpty())
+            queryBuilder.filter(QueryBuilders.termsQuery("${Alert.TRIGGER_NAME_FIELD}.keyword", request.triggerNames))
+        if (request.startTimeFrom != null || request.startTimeTo != null) {
+            queryBuilder.filter(QueryBuilders.rangeQuery(Alert.START_TIME_FIELD)
+                    .gte(request.startTimeFrom?.toEpochMilli())
+                    .lte(request.startTimeTo?.toEpochMilli())
+                    .format("epoch_millis"))
+        }
+
+        val searchSourceBuilder = SearchSourceBuilder()
+                .query(queryBuilder)
+                .size(ACKNOWLEDGE_BATCH_SIZE)
+                .sort(Alert.MONITOR_ID_FIELD, SortOrder.ASC)
+                .sort("_seq_no", SortOrder.ASC)
+                .seqNoAndPrimaryTerm(true)
+                .fetchSource(arrayOf(Alert.MONITOR_ID_FIELD), null)
+
+        client.threadPool().threadContext.stashContext().use {
+            // user is null when: 1/ security is disabled. 2/when user is super-admin.
+            if (user != null && filterByEnabled) {
+                try {
+                    log.info("Filtering result by: ${user.backendRoles}")
+                    addFilter(user, searchSourceBuilder, "monitor_user.backend_roles.keyword")
+                } catch (ex: IOException) {
+                    actionListener.onFailure(AlertingException.wrap(ex))
+                    return
+                }
+            }
+            AcknowledgeByQueryHandler(task as AcknowledgeAlertsByQueryTask, request, searchSourceBuilder, actionListener).start()
+        }
+    }
+
+    inner class AcknowledgeByQueryHandler(
+        private val task: AcknowledgeAlertsByQueryTask,
+        private val request: AcknowledgeAlertsByQueryRequest,
+        private val searchSourceBuilder: SearchSourceBuilder,
+        private val actionListener: ActionListener<AcknowledgeAlertsByQueryResponse>
+    ) {
+        fun start() = searchPage(null)
+
+        private fun searchPage(searchAfter: Array<Any>?) {
+            if (task.isCancelled) {
+                finish()
+                return
+            }
+            // The total is only counted on the first page and reported through the task status
+            val source = searchSourceBuilder.shallowCopy().trackTotalHits(searchAfter == null)
+            if (searchAfter != null) source.searchAfter(searchAfter)
+            val searchRequest = SearchRequest().indices(AlertIndices.ALERT_INDEX).source(source)
+
+            client.search(searchRequest, object : ActionListener<SearchResponse> {
+                override fun onResponse(response: SearchResponse) {
+                    if (searchAfter == null) task.setTotal(response.hits.totalHits?.value ?: 0L)
+                    val hits = response.hits.hits
+                    if (hits.isEmpty()) finish() else acknowledge(hits)
+                }
+
+                override fun onFailure(t: Exception) {
+                    actionListener.onFailure(AlertingException.wrap(t))
+                }
+            })
+        }
+
+        private fun acknowledge(hits: Array<SearchHit>) {
+            val acknowledgedTime = Instant.now()
+            val updateRequests = hits.map { hit ->
+                UpdateRequest(AlertIndices.ALERT_INDEX, hit.id)
+                        .routing(hit.sourceAsMap[Alert.MONITOR_ID_FIELD] as String)
+                        .setIfSeqNo(hit.seqNo)
+                        .setIfPrimaryTerm(hit.primaryTerm)
+                        .doc(XContentFactory.jsonBuilder().startObject()
+                                .field(Alert.STATE_FIELD, Alert.State.ACKNOWLEDGED.toString())
+                                .optionalTimeField(Alert.ACKNOWLEDGED_TIME_FIELD, acknowledgedTime)
+                                .endObject())
+            }
+            val bulkRequest = BulkRequest().add(updateRequests).setRefreshPolicy(request.refreshPolicy)
+            client.bulk(bulkRequest, object : ActionListener<BulkResponse> {
+                override fun onResponse(response: BulkResponse) {
+                    val failed = response.items.count { it.isFailed }
+                    task.onBatch(response.items.size - failed, failed)
+                    if (hits.size < ACKNOWLEDGE_BATCH_SIZE) finish() else searchPage(hits.last().sortValues)
+                }
+
+                override fun onFailure(t: Exception) {
+                    actionListener.onFailure(AlertingException.wrap(t))
+                }
+            })
+        }
+
+        private fun finish() {
+            val status = task.status
+            log.info("Acknowledged ${status.acknowledged} of ${status.total} alerts by query in ${status.batches} batches, " +
+                    "${status.failed} failed, cancelled: ${task.isCancelled}")
+            actionListener.onResponse(AcknowledgeAlertsByQueryResponse(status.total, status.acknowledged, status.failed,
+                    task.isCancelled))
+        }
+    }
+
+    companion object {
+        const val ACKNOWLEDGE_BATCH_SIZE = 500
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.transport
+
+import com.amazon.opendistroforelasticsearch.alerting.AlertingPlugin
+import com.amazon.opendistroforelasticsearch.alerting.action.DestinationNodeStats
+import com.amazon.opendistroforelasticsearch.alerting.action.DestinationStatsAction
+import com.amazon.opendistroforelasticsearch.alerting.action.DestinationStatsRequest
+import com.amazon.opendistroforelasticsearch.alerting.action.DestinationStatsResponse
+import com.amazon.opendistroforelasticsearch.alerting.destination.client.DestinationHttpClientPool
+import com.amazon.opendistroforelasticsearch.alerting.destination.guard.DestinationGuard
+import com.amazon.opendistroforelasticsearch.alerting.destination.metrics.DeliveryMetrics
+import org.elasticsearch.action.FailedNodeException
+import org.elasticsearch.action.support.ActionFilters
+import org.elasticsearch.action.support.nodes.BaseNodeRequest
+import org.elasticsearch.action.support.nodes.TransportNodesAction
+import org.elasticsearch.cluster.service.ClusterService
+import org.elasticsearch.common.inject.Inject
+import org.elasticsearch.common.io.stream.StreamInput
+import org.elasticsearch.common.io.stream.StreamOutput
+import org.elasticsearch.threadpool.ThreadPool
+import org.elasticsearch.transport.TransportService
+import java.io.IOException
+
+class TransportDestinationStatsAction @Inject constructor(
+    threadPool: ThreadPool,
+    clusterService: ClusterService,
+    transportService: TransportService,
+    actionFilters: ActionFilters
+) : TransportNodesAction<DestinationStatsRequest, DestinationStatsResponse,
+        TransportDestinationStatsAction.DestinationNodeStatsRequest, DestinationNodeStats>(
+    DestinationStatsAction.NAME,
+    threadPool,
+    clusterService,
+    transportService,
+    actionFilters,
+    { DestinationStatsRequest(it) },
+    { DestinationNodeStatsRequest(it) },
+    ThreadPool.Names.MANAGEMENT,
+    DestinationNodeStats::class.java
+) {
+
+    override fun newNodeRequest(request: DestinationStatsRequest): DestinationNodeStatsRequest {
+        return DestinationNodeStatsRequest(request)
+    }
+
+    override fun newNodeResponse(si: StreamInput): DestinationNodeStats {
+        return DestinationNodeStats(si)
+    }
+
+    override fun newResponse(
+        request: DestinationStatsRequest,
+        responses: MutableList<DestinationNodeStats>,
+        failures: MutableList<FailedNodeException>
+    ): DestinationStatsResponse {
+        return DestinationStatsResponse(clusterService.clusterName, responses, failures)
+    }
+
+    override fun nodeOperation(request: DestinationNodeStatsRequest): DestinationNodeStats {
+        return DestinationNodeStats(
+            transportService.localNode,
+            DestinationGuard.getInstance().stats,
+            DeliveryMetrics.getInstance().stats,
+            threadPool.stats().firstOrNull { it.name == AlertingPlugin.NOTIFICATION_THREAD_POOL_NAME },
+            DestinationHttpClientPool.getHttpClient().routeStats.values.toList()
+        )
+    }
+
+    class DestinationNodeStatsRequest : BaseNodeRequest {
+
+        lateinit var request: DestinationStatsRequest
+
+        constructor(si: StreamInput) : super(si) {
+            request = DestinationStatsRequest(si)
+        }
+
+        constructor(request: DestinationStatsRequest) : super() {
+            this.request = request
+        }
+
+        @Throws(IOException::class)
+        override fun writeTo(out: StreamOutput) {
+            super.writeTo(out)
+            request.writeTo(out)
+        }
+    }
+}
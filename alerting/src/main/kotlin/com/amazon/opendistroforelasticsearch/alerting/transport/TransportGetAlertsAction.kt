@@ -23,6 +23,7 @@ import com.amazon.opendistroforelasticsearch.alerting.elasticapi.addFilter
 import com.amazon.opendistroforelasticsearch.alerting.model.Alert
 import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings
 import com.amazon.opendistroforelasticsearch.alerting.util.AlertingException
+import com.amazon.opendistroforelasticsearch.alerting.util.SearchCursor
 import com.amazon.opendistroforelasticsearch.commons.ConfigConstants
 import com.amazon.opendistroforelasticsearch.commons.authuser.User
 import org.apache.logging.log4j.LogManager
@@ -52,6 +53,8 @@ import java.io.IOException
 
 private val log = LogManager.getLogger(TransportGetAlertsAction::class.java)
 
+private val TIEBREAKER_FIELDS = listOf("_index", Alert.MONITOR_ID_FIELD, "_seq_no")
+
 class TransportGetAlertsAction @Inject constructor(
     transportService: TransportService,
     val client: Client,
@@ -115,52 +118,76 @@ class TransportGetAlertsAction @Inject constructor(
                     .sort(sortBuilder)
                     .size(tableProp.size)
                     .from(tableProp.startIndex)
+            // Tiebreakers so that cursors are stable. Sorting on _id needs deprecated fielddata, but an alert is unique by
+            // index, monitor id (which routes it to a shard) and sequence number.
+            TIEBREAKER_FIELDS.forEach { searchSourceBuilder.sort(it, SortOrder.ASC) }
+            try {
+                getAlertsRequest.cursor?.let { searchSourceBuilder.searchAfter(SearchCursor.decode(it)) }
+            } catch (e: IllegalArgumentException) {
+                actionListener.onFailure(AlertingException.wrap(e))
+                return
+            }
+            if (getAlertsRequest.fields != null) {
+                searchSourceBuilder.fetchSource((getAlertsRequest.fields + Alert.REQUIRED_FIELDS).distinct().toTypedArray(), null)
+            }
 
             client.threadPool().threadContext.stashContext().use {
-                resolve(searchSourceBuilder, actionListener, user)
+                resolve(searchSourceBuilder, actionListener, user, getAlertsRequest.fields)
             }
         }
 
         fun resolve(
             searchSourceBuilder: SearchSourceBuilder,
             actionListener: ActionListener<GetAlertsResponse>,
-            user: User?
+            user: User?,
+            fields: List<String>?
         ) {
             // user is null when: 1/ security is disabled. 2/when user is super-admin.
             if (user == null) {
                 // user is null when: 1/ security is disabled. 2/when user is super-admin.
-                search(searchSourceBuilder, actionListener)
+                search(searchSourceBuilder, actionListener, fields)
             } else if (!filterByEnabled) {
                 // security is enabled and filterby is disabled.
-                search(searchSourceBuilder, actionListener)
+                search(searchSourceBuilder, actionListener, fields)
             } else {
                 // security is enabled and filterby is enabled.
                 try {
                     log.info("Filtering result by: ${user.backendRoles}")
                     addFilter(user, searchSourceBuilder, "monitor_user.backend_roles.keyword")
-                    search(searchSourceBuilder, actionListener)
+                    search(searchSourceBuilder, actionListener, fields)
                 } catch (ex: IOException) {
                     actionListener.onFailure(AlertingException.wrap(ex))
                 }
             }
         }
 
-        fun search(searchSourceBuilder: SearchSourceBuilder, actionListener: ActionListener<GetAlertsResponse>) {
+        fun search(searchSourceBuilder: SearchSourceBuilder, actionListener: ActionListener<GetAlertsResponse>, fields: List<String>?) {
             val searchRequest = SearchRequest()
                     .indices(AlertIndices.ALL_INDEX_PATTERN)
                     .source(searchSourceBuilder)
 
             client.search(searchRequest, object : ActionListener<SearchResponse> {
                 override fun onResponse(response: SearchResponse) {
-                    val totalAlertCount = response.hits.totalHits?.value?.toInt()
-                    val alerts = response.hits.map { hit ->
-                        val xcp = XContentHelper.createParser(xContentRegistry, LoggingDeprecationHandler.INSTANCE,
-                                hit.sourceRef, XContentType.JSON)
-                        XContentParserUtils.ensureExpectedToken(XContentParser.Token.START_OBJECT, xcp.nextToken(), xcp)
-                        val alert = Alert.parse(xcp, hit.id, hit.version)
-                        alert
+                    val getAlertsResponse = try {
+                        val totalAlertCount = response.hits.totalHits?.value?.toInt()
+                        val alerts = response.hits.map { hit ->
+                            val xcp = XContentHelper.createParser(xContentRegistry, LoggingDeprecationHandler.INSTANCE,
+                                    hit.sourceRef, XContentType.JSON)
+                            XContentParserUtils.ensureExpectedToken(XContentParser.Token.START_OBJECT, xcp.nextToken(), xcp)
+                            val alert = Alert.parse(xcp, hit.id, hit.version)
+                            alert
+                        }
+                        val hits = response.hits.hits
+                        // A size of 0 only counts the alerts, so there is no page to continue from
+                        val nextCursor = if (hits.isNotEmpty() && hits.size == searchSourceBuilder.size()) {
+                            SearchCursor.encode(hits.last().sortValues)
+                        } else null
+                        GetAlertsResponse(alerts, totalAlertCount, nextCursor, fields)
+                    } catch (e: Exception) {
+                        actionListener.onFailure(e)
+                        return
                     }
-                    actionListener.onResponse(GetAlertsResponse(alerts, totalAlertCount))
+                    actionListener.onResponse(getAlertsResponse)
                 }
 
                 override fun onFailure(t: Exception) {
@@ -0,0 +1,151 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.transport
+
+import com.amazon.opendistroforelasticsearch.alerting.action.GetAlertsSummaryAction
+import com.amazon.opendistroforelasticsearch.alerting.action.GetAlertsSummaryRequest
+import com.amazon.opendistroforelasticsearch.alerting.action.GetAlertsSummaryResponse
+import com.amazon.opendistroforelasticsearch.alerting.alerts.AlertIndices
+import com.amazon.opendistroforelasticsearch.alerting.elasticapi.addFilter
+import com.amazon.opendistroforelasticsearch.alerting.model.Alert
+import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings
+import com.amazon.opendistroforelasticsearch.alerting.util.AlertingException
+import com.amazon.opendistroforelasticsearch.commons.ConfigConstants
+import com.amazon.opendistroforelasticsearch.commons.authuser.User
+import org.apache.logging.log4j.LogManager
+import org.elasticsearch.action.ActionListener
+import org.elasticsearch.action.search.SearchRequest
+import org.elasticsearch.action.search.SearchResponse
+import org.elasticsearch.action.support.ActionFilters
+import org.elasticsearch.action.support.HandledTransportAction
+import org.elasticsearch.client.Client
+import org.elasticsearch.cluster.service.ClusterService
+import org.elasticsearch.common.inject.Inject
+import org.elasticsearch.common.settings.Settings
+import org.elasticsearch.index.query.QueryBuilders
+import org.elasticsearch.search.aggregations.AggregationBuilders
+import org.elasticsearch.search.aggregations.Aggregations
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram
+import org.elasticsearch.search.aggregations.bucket.terms.Terms
+import org.elasticsearch.search.builder.SearchSourceBuilder
+import org.elasticsearch.tasks.Task
+import org.elasticsearch.transport.TransportService
+import java.io.IOException
+
+private val log = LogManager.getLogger(TransportGetAlertsSummaryAction::class.java)
+
+private const val BY_STATE = "by_state"
+private const val BY_SEVERITY = "by_severity"
+private const val BY_MONITOR_ID = "by_monitor_id"
+private const val BY_START_TIME = "by_start_time"
+
+/**
+ * Counts alerts with aggregations over the alert indices, without fetching any alert documents. Alerts are filtered
+ * the same way as by [TransportGetAlertsAction].
+ */
+class TransportGetAlertsSummaryAction @Inject constructor(
+    transportService: TransportService,
+    val client: Client,
+    clusterService: ClusterService,
+    actionFilters: ActionFilters,
+    val settings: Settings
+) : HandledTransportAction<GetAlertsSummaryRequest, GetAlertsSummaryResponse>(
+        GetAlertsSummaryAction.NAME, transportService, actionFilters, ::GetAlertsSummaryRequest
+) {
+
+    @Volatile private var filterByEnabled = AlertingSettings.FILTER_BY_BACKEND_ROLES.get(settings)
+
+    init {
+        clusterService.clusterSettings.addSettingsUpdateConsumer(AlertingSettings.FILTER_BY_BACKEND_ROLES) { filterByEnabled = it }
+    }
+
+    override fun doExecute(
+        task: Task,
+        request: GetAlertsSummaryRequest,
+        actionListener: ActionListener<GetAlertsSummaryResponse>
+    ) {
+        val userStr = client.threadPool().threadContext.getTransient<String>(
+                ConfigConstants.OPENDISTRO_SECURITY_USER_INFO_THREAD_CONTEXT
+        )
+        log.debug("User and roles string from thread context: $userStr")
+        val user: User? = User.parse(userStr)
+
+        val queryBuilder = QueryBuilders.boolQuery()
+        if (request.severityLevel != "ALL")
+            queryBuilder.filter(QueryBuilders.termQuery(Alert.SEVERITY_FIELD, request.severityLevel))
+        if (request.alertState != "ALL")
+            queryBuilder.filter(QueryBuilders.termQuery(Alert.STATE_FIELD, request.alertState))
+        if (request.monitorId != null)
+            queryBuilder.filter(QueryBuilders.termQuery(Alert.MONITOR_ID_FIELD, request.monitorId))
+
+        val searchSourceBuilder = SearchSourceBuilder()
+                .query(queryBuilder)
+                .size(0)
+                .trackTotalHits(true)
+                .aggregation(AggregationBuilders.terms(BY_STATE).field(Alert.STATE_FIELD).size(Alert.State.values().size))
+                .aggregation(AggregationBuilders.terms(BY_SEVERITY).field(Alert.SEVERITY_FIELD).size(request.size))
+                .aggregation(AggregationBuilders.terms(BY_MONITOR_ID).field(Alert.MONITOR_ID_FIELD).size(request.size))
+        if (request.interval != null) {
+            searchSourceBuilder.aggregation(AggregationBuilders.dateHistogram(BY_START_TIME)
+                    .field(Alert.START_TIME_FIELD)
+                    .fixedInterval(DateHistogramInterval(request.interval))
+                    .minDocCount(1))
+        }
+
+        client.threadPool().threadContext.stashContext().use {
+            // user is null when: 1/ security is disabled. 2/when user is super-admin.
+            if (user != null && filterByEnabled) {
+                try {
+                    log.info("Filtering result by: ${user.backendRoles}")
+                    addFilter(user, searchSourceBuilder, "monitor_user.backend_roles.keyword")
+                } catch (ex: IOException) {
+                    actionListener.onFailure(AlertingException.wrap(ex))
+                    return
+                }
+            }
+            search(searchSourceBuilder, actionListener)
+        }
+    }
+
+    private fun search(searchSourceBuilder: SearchSourceBuilder, actionListener: ActionListener<GetAlertsSummaryResponse>) {
+        val searchRequest = SearchRequest()
+                .indices(AlertIndices.ALL_INDEX_PATTERN)
+                .source(searchSourceBuilder)
+
+        client.search(searchRequest, object : ActionListener<SearchResponse> {
+            override fun onResponse(response: SearchResponse) {
+                val aggregations = response.aggregations
+                actionListener.onResponse(GetAlertsSummaryResponse(
+                        response.hits.totalHits?.value ?: 0L,
+                        termCounts(aggregations, BY_STATE),
+                        termCounts(aggregations, BY_SEVERITY),
+                        termCounts(aggregations, BY_MONITOR_ID),
+                        aggregations?.get<Histogram>(BY_START_TIME)?.buckets?.associate { it.keyAsString to it.docCount }
+                ))
+            }
+
+            override fun onFailure(t: Exception) {
+                actionListener.onFailure(AlertingException.wrap(t))
+            }
+        })
+    }
+
+    // Aggregations are missing when no alert index exists yet
+    private fun termCounts(aggregations: Aggregations?, name: String): Map<String, Long> {
+        return aggregations?.get<Terms>(name)?.buckets?.associate { it.keyAsString to it.docCount } ?: emptyMap()
+    }
+}
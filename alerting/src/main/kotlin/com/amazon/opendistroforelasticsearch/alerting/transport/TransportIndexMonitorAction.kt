@@ -19,6 +19,7 @@ import com.amazon.opendistroforelasticsearch.alerting.action.IndexMonitorAction
 import com.amazon.opendistroforelasticsearch.alerting.action.IndexMonitorRequest
 import com.amazon.opendistroforelasticsearch.alerting.action.IndexMonitorResponse
 import com.amazon.opendistroforelasticsearch.alerting.core.ScheduledJobIndices
+import com.amazon.opendistroforelasticsearch.alerting.core.model.DocLevelMonitorInput
 import com.amazon.opendistroforelasticsearch.alerting.core.model.ScheduledJob
 import com.amazon.opendistroforelasticsearch.alerting.core.model.ScheduledJob.Companion.SCHEDULED_JOBS_INDEX
 import com.amazon.opendistroforelasticsearch.alerting.core.model.ScheduledJob.Companion.SCHEDULED_JOB_TYPE
@@ -132,10 +133,11 @@ class TransportIndexMonitorAction @Inject constructor(
         user: User?
     ) {
         val indices = mutableListOf<String>()
-        val searchInputs = request.monitor.inputs.filter { it.name() == SearchInput.SEARCH_FIELD }
-        searchInputs.forEach {
-            val searchInput = it as SearchInput
-            indices.addAll(searchInput.indices)
+        request.monitor.inputs.forEach {
+            when (it) {
+                is SearchInput -> indices.addAll(it.indices)
+                is DocLevelMonitorInput -> indices.addAll(it.indices)
+            }
         }
         val searchRequest = SearchRequest().indices(*indices.toTypedArray())
                 .source(SearchSourceBuilder.searchSource().size(1).query(QueryBuilders.matchAllQuery()))
@@ -22,7 +22,13 @@ import com.amazon.opendistroforelasticsearch.commons.authuser.User
 import org.elasticsearch.ElasticsearchStatusException
 import org.elasticsearch.action.ActionListener
 import org.elasticsearch.rest.RestStatus
-import inet.ipaddr.IPAddressString
+import kotlinx.coroutines.suspendCancellableCoroutine
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+import java.util.concurrent.Executor
+import java.util.concurrent.RejectedExecutionException
+import kotlin.coroutines.resume
+import kotlin.coroutines.resumeWithException
 
 /**
  * RFC 5322 compliant pattern matching: https://www.ietf.org/rfc/rfc5322.txt
@@ -40,20 +46,47 @@ fun isValidEmail(email: String): Boolean {
     return validEmailPattern.matches(email)
 }
 
-/** Allowed Destinations are ones that are specified in the [DestinationSettings.ALLOW_LIST] setting. */
-fun Destination.isAllowed(allowList: List<String>): Boolean = allowList.contains(this.type.value)
+/**
+ * Suspends until this future completes, without blocking a thread while waiting. Cancelling the calling coroutine also
+ * cancels the future.
+ */
+suspend fun <T> CompletableFuture<T>.await(): T = suspendCancellableCoroutine { cont ->
+    whenComplete { result, e ->
+        if (e == null) {
+            cont.resume(result)
+        } else {
+            cont.resumeWithException(if (e is CompletionException && e.cause != null) e.cause!! else e)
+        }
+    }
+    cont.invokeOnCancellation { cancel(false) }
+}
 
-fun BaseMessage.isHostInDenylist(networks: List<String>): Boolean {
-    val ipStr = IPAddressString(this.uri.host)
-    for (network in networks) {
-        val netStr = IPAddressString(network)
-        if (netStr.contains(ipStr)) {
-            return true
+/**
+ * Runs [block] on this executor and suspends until it returns. Unlike a coroutine dispatcher over the executor, which
+ * falls back to another thread when its queue is full, a rejected [block] fails the caller with the executor's
+ * [RejectedExecutionException]. Cancelling the calling coroutine stops waiting but doesn't interrupt [block].
+ */
+suspend fun <T> Executor.submitAndAwait(block: () -> T): T = suspendCancellableCoroutine { cont ->
+    try {
+        execute {
+            val result = try {
+                block()
+            } catch (e: Exception) {
+                cont.resumeWithException(e)
+                return@execute
+            }
+            cont.resume(result)
         }
+    } catch (e: RejectedExecutionException) {
+        cont.resumeWithException(e)
     }
-    return false
 }
 
+/** Allowed Destinations are ones that are specified in the [DestinationSettings.ALLOW_LIST] setting. */
+fun Destination.isAllowed(allowList: List<String>): Boolean = allowList.contains(this.type.value)
+
+fun BaseMessage.isHostInDenylist(denyList: HostDenyList): Boolean = denyList.isDenied(this.uri.host)
+
 /**
   1. If filterBy is enabled
      a) Don't allow to create monitor/ destination (throw error) if the logged-on user has no backend roles configured.
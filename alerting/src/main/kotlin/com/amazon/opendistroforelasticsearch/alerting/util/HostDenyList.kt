@@ -0,0 +1,153 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.util
+
+import inet.ipaddr.IPAddressString
+import org.apache.logging.log4j.LogManager
+import org.elasticsearch.common.unit.TimeValue
+import java.net.Inet4Address
+import java.net.InetAddress
+import java.net.UnknownHostException
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * The host deny list setting compiled into a binary prefix trie per IP version, so that checking an
+ * address walks at most one node per address bit instead of parsing and scanning every network on each notification.
+ * Host names are resolved through [resolver], which caches the resolved addresses.
+ *
+ * Entries that aren't an IP address, network or range, e.g. host names, are logged and skipped. They never matched
+ * any host before the list was compiled either, and failing on them would keep the node from starting.
+ */
+class HostDenyList(networks: List<String>, private val resolver: CachingHostResolver = CachingHostResolver()) {
+
+    private val logger = LogManager.getLogger(javaClass)
+
+    val networks: List<String>
+
+    private val ipv4 = PrefixTrie()
+    private val ipv6 = PrefixTrie()
+
+    init {
+        val validNetworks = mutableListOf<String>()
+        for (network in networks) {
+            val address = IPAddressString(network).address
+            if (address == null) {
+                logger.warn("Ignoring invalid network [$network] in the host deny list")
+                continue
+            }
+            validNetworks.add(network)
+            // Ranges that aren't a single prefix block, e.g. 10.0.0.1-10.0.0.5, are covered by several blocks
+            for (block in address.spanWithPrefixBlocks()) {
+                val prefixLength = block.networkPrefixLength ?: block.bitCount
+                (if (block.isIPv4) ipv4 else ipv6).insert(block.lower.bytes, prefixLength)
+            }
+        }
+        this.networks = validNetworks
+    }
+
+    fun isEmpty(): Boolean = networks.isEmpty()
+
+    fun contains(address: InetAddress): Boolean {
+        return (if (address is Inet4Address) ipv4 else ipv6).matches(address.address)
+    }
+
+    /**
+     * Whether the host, an IP address or a host name, resolves to an address in the deny list. Hosts that can't be
+     * resolved aren't denied since they can't be delivered to either.
+     */
+    fun isDenied(host: String): Boolean {
+        if (isEmpty()) return false
+        return resolver.resolve(host).any { contains(it) }
+    }
+
+    fun resolve(host: String): List<InetAddress> = resolver.resolve(host)
+
+    private class PrefixTrie {
+        // Children of node n are at 2n (bit 0) and 2n + 1 (bit 1), 0 meaning no child. Node 0 is the root.
+        private var children = IntArray(64)
+        private var terminal = BooleanArray(32)
+        private var size = 1
+
+        fun insert(bytes: ByteArray, prefixLength: Int) {
+            var node = 0
+            for (i in 0 until prefixLength) {
+                if (terminal[node]) return
+                val slot = 2 * node + bit(bytes, i)
+                if (children[slot] == 0) {
+                    children[slot] = newNode()
+                }
+                node = children[slot]
+            }
+            terminal[node] = true
+        }
+
+        fun matches(bytes: ByteArray): Boolean {
+            var node = 0
+            for (i in 0 until bytes.size * 8) {
+                if (terminal[node]) return true
+                node = children[2 * node + bit(bytes, i)]
+                if (node == 0) return false
+            }
+            return terminal[node]
+        }
+
+        private fun newNode(): Int {
+            if (size == terminal.size) {
+                terminal = terminal.copyOf(size * 2)
+                children = children.copyOf(size * 4)
+            }
+            return size++
+        }
+
+        private fun bit(bytes: ByteArray, i: Int): Int = (bytes[i shr 3].toInt() shr (7 - (i and 7))) and 1
+    }
+}
+
+/**
+ * Resolves destination hosts and caches the addresses for [ttl], so that validating every notification doesn't go
+ * through a DNS lookup. Hosts that fail to resolve are cached as having no addresses.
+ */
+class CachingHostResolver(@Volatile var ttl: TimeValue = TimeValue.timeValueSeconds(60)) {
+
+    private val logger = LogManager.getLogger(javaClass)
+
+    private val cache = ConcurrentHashMap<String, CachedAddresses>()
+
+    fun resolve(host: String): List<InetAddress> {
+        val now = System.nanoTime()
+        val cached = cache[host]
+        if (cached != null && now - cached.resolvedAtNanos < ttl.nanos()) {
+            return cached.addresses
+        }
+        val addresses = try {
+            InetAddress.getAllByName(host).toList()
+        } catch (e: UnknownHostException) {
+            logger.debug("Failed to resolve destination host $host", e)
+            emptyList<InetAddress>()
+        }
+        if (cache.size >= MAX_CACHED_HOSTS) {
+            cache.entries.removeIf { now - it.value.resolvedAtNanos >= ttl.nanos() }
+        }
+        cache[host] = CachedAddresses(addresses, now)
+        return addresses
+    }
+
+    private data class CachedAddresses(val addresses: List<InetAddress>, val resolvedAtNanos: Long)
+
+    companion object {
+        const val MAX_CACHED_HOSTS = 10_000
+    }
+}
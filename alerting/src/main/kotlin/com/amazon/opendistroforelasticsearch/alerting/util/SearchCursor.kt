@@ -0,0 +1,52 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.util
+
+import org.elasticsearch.common.bytes.BytesArray
+import org.elasticsearch.common.bytes.BytesReference
+import org.elasticsearch.common.xcontent.LoggingDeprecationHandler
+import org.elasticsearch.common.xcontent.NamedXContentRegistry
+import org.elasticsearch.common.xcontent.XContentFactory
+import org.elasticsearch.common.xcontent.XContentHelper
+import org.elasticsearch.common.xcontent.XContentType
+import java.io.IOException
+import java.util.Base64
+
+/**
+ * Opaque cursors for paging with search_after. A cursor holds the sort values of the last hit of a page as a URL-safe
+ * base64 encoded JSON array.
+ */
+object SearchCursor {
+
+    fun encode(sortValues: Array<Any>): String {
+        val builder = XContentFactory.jsonBuilder().startArray()
+        sortValues.forEach { builder.value(it) }
+        val json = BytesReference.toBytes(BytesReference.bytes(builder.endArray()))
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json)
+    }
+
+    fun decode(cursor: String): Array<Any> {
+        return try {
+            val json = BytesArray(Base64.getUrlDecoder().decode(cursor))
+            XContentHelper.createParser(NamedXContentRegistry.EMPTY, LoggingDeprecationHandler.INSTANCE, json, XContentType.JSON)
+                    .use { xcp -> xcp.list().map { requireNotNull(it) }.toTypedArray() }
+        } catch (e: IllegalArgumentException) {
+            throw IllegalArgumentException("Invalid cursor: $cursor", e)
+        } catch (e: IOException) {
+            throw IllegalArgumentException("Invalid cursor: $cursor", e)
+        }
+    }
+}
@@ -62,6 +62,7 @@ import java.nio.file.Files
 import java.nio.file.Path
 import java.time.Instant
 import java.util.Locale
+import java.util.concurrent.TimeUnit
 import javax.management.MBeanServerInvocationHandler
 import javax.management.ObjectName
 import javax.management.remote.JMXConnectorFactory
@@ -386,13 +387,19 @@ abstract class AlertingRestTestCase : ODFERestTestCase() {
         return monitor.copy(id = id, version = version)
     }
 
-    protected fun searchAlerts(monitor: Monitor, indices: String = AlertIndices.ALERT_INDEX, refresh: Boolean = true): List<Alert> {
+    protected fun searchAlerts(
+        monitor: Monitor,
+        indices: String = AlertIndices.ALERT_INDEX,
+        refresh: Boolean = true,
+        size: Int = 10
+    ): List<Alert> {
         if (refresh) refreshIndex(indices)
 
         // If this is a test monitor (it doesn't have an ID) and no alerts will be saved for it.
         val searchParams = if (monitor.id != Monitor.NO_ID) mapOf("routing" to monitor.id) else mapOf()
         val request = """
                 { "version" : true,
+                  "size" : $size,
                   "query" : { "term" : { "${Alert.MONITOR_ID_FIELD}" : "${monitor.id}" } }
                 }
                 """.trimIndent()
@@ -406,6 +413,25 @@ abstract class AlertingRestTestCase : ODFERestTestCase() {
         }
     }
 
+    /** Indexes the alerts in batches of 100 and returns how long the bulk requests took in milliseconds. */
+    protected fun bulkIndexAlerts(index: String, alerts: List<Alert>): Long {
+        var tookMillis = 0L
+        alerts.chunked(100).forEach { batch ->
+            val body = batch.joinToString("") { alert ->
+                "{\"index\":{\"_index\":\"$index\",\"routing\":\"${alert.monitorId}\"}}\n" +
+                        alert.toXContent(XContentFactory.jsonBuilder(), ToXContent.EMPTY_PARAMS).string() + "\n"
+            }
+            val startTime = System.nanoTime()
+            val response = client().makeRequest("POST", "/_bulk", emptyMap(),
+                    StringEntity(body, ContentType.create("application/x-ndjson")))
+            tookMillis += TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime)
+            val bulkResponse = createParser(XContentType.JSON.xContent(), response.entity.content).map()
+            assertEquals("Bulk indexing into $index failed", false, bulkResponse["errors"])
+        }
+        client().makeRequest("POST", "/$index/_refresh")
+        return tookMillis
+    }
+
     protected fun acknowledgeAlerts(monitor: Monitor, vararg alerts: Alert): Response {
         val request = XContentFactory.jsonBuilder().startObject()
                 .array("alerts", *alerts.map { it.id }.toTypedArray())
@@ -441,6 +467,12 @@ abstract class AlertingRestTestCase : ODFERestTestCase() {
         return getAlerts(client(), dataMap, header)
     }
 
+    protected fun getAlertsSummary(client: RestClient, params: Map<String, String> = emptyMap()): Response {
+        val response = client.makeRequest("GET", "$ALERTING_BASE_URI/alerts/_summary", params)
+        assertEquals("Get alerts summary call failed.", RestStatus.OK, response.restStatus())
+        return response
+    }
+
     protected fun refreshIndex(index: String): Response {
         val response = client().makeRequest("POST", "/$index/_refresh")
         assertEquals("Unable to refresh index", RestStatus.OK, response.restStatus())
@@ -17,6 +17,8 @@ package com.amazon.opendistroforelasticsearch.alerting
 
 import com.amazon.opendistroforelasticsearch.alerting.alerts.AlertError
 import com.amazon.opendistroforelasticsearch.alerting.alerts.AlertIndices
+import com.amazon.opendistroforelasticsearch.alerting.core.model.DocLevelMonitorInput
+import com.amazon.opendistroforelasticsearch.alerting.core.model.DocLevelQuery
 import com.amazon.opendistroforelasticsearch.alerting.core.model.IntervalSchedule
 import com.amazon.opendistroforelasticsearch.alerting.model.Alert
 import com.amazon.opendistroforelasticsearch.alerting.model.Alert.State.ACKNOWLEDGED
@@ -24,6 +26,7 @@ import com.amazon.opendistroforelasticsearch.alerting.model.Alert.State.ACTIVE
 import com.amazon.opendistroforelasticsearch.alerting.model.Alert.State.COMPLETED
 import com.amazon.opendistroforelasticsearch.alerting.model.Alert.State.ERROR
 import com.amazon.opendistroforelasticsearch.alerting.model.Monitor
+import com.amazon.opendistroforelasticsearch.alerting.model.MonitorStageTimeoutException
 import com.amazon.opendistroforelasticsearch.alerting.core.model.SearchInput
 import com.amazon.opendistroforelasticsearch.alerting.model.ActionExecutionResult
 import com.amazon.opendistroforelasticsearch.alerting.model.action.Throttle
@@ -31,14 +34,18 @@ import com.amazon.opendistroforelasticsearch.alerting.model.destination.CustomWe
 import com.amazon.opendistroforelasticsearch.alerting.model.destination.Destination
 import com.amazon.opendistroforelasticsearch.alerting.model.destination.email.Email
 import com.amazon.opendistroforelasticsearch.alerting.model.destination.email.Recipient
+import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings
 import com.amazon.opendistroforelasticsearch.alerting.util.DestinationType
 import com.amazon.opendistroforelasticsearch.commons.authuser.User
 import org.elasticsearch.client.ResponseException
 import org.elasticsearch.client.WarningFailureException
 import org.elasticsearch.common.settings.Settings
+import org.elasticsearch.common.unit.TimeValue
 import org.elasticsearch.index.query.QueryBuilders
 import org.elasticsearch.rest.RestStatus
 import org.elasticsearch.script.Script
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder
+import org.elasticsearch.search.aggregations.bucket.composite.TermsValuesSourceBuilder
 import org.elasticsearch.search.builder.SearchSourceBuilder
 import org.junit.Assert
 import java.time.Instant
@@ -48,6 +55,7 @@ import java.time.temporal.ChronoUnit
 import java.time.temporal.ChronoUnit.DAYS
 import java.time.temporal.ChronoUnit.MILLIS
 import java.time.temporal.ChronoUnit.MINUTES
+import java.util.Locale
 
 class MonitorRunnerIT : AlertingRestTestCase() {
 
@@ -158,6 +166,62 @@ class MonitorRunnerIT : AlertingRestTestCase() {
         verifyAlert(alerts.single(), monitor, ERROR)
     }
 
+    fun `test execute monitor with multiple search inputs`() {
+        val testIndex = createTestIndex()
+        indexDoc(testIndex, "1", """{ "test_field" : "a" }""")
+        indexDoc(testIndex, "2", """{ "test_field" : "b" }""")
+
+        val allDocs = SearchInput(indices = listOf(testIndex), query = SearchSourceBuilder().query(QueryBuilders.matchAllQuery()))
+        val oneDoc = SearchInput(indices = listOf(testIndex),
+                query = SearchSourceBuilder().query(QueryBuilders.termQuery("test_field", "a")))
+        val triggerScript = """
+            // each input result is addressed by the position of its input
+            return ctx.results[0].hits.total.value == 2 && ctx.results[1].hits.total.value == 1
+        """.trimIndent()
+        val trigger = randomTrigger(condition = Script(triggerScript))
+        val monitor = randomMonitor(inputs = listOf(allDocs, oneDoc), triggers = listOf(trigger))
+
+        val response = executeMonitor(monitor, params = DRYRUN_MONITOR)
+
+        val output = entityAsMap(response)
+        @Suppress("UNCHECKED_CAST")
+        val results = output.objectMap("input_results")["results"] as List<Map<String, Any>>
+        assertEquals("Missing input results", 2, results.size)
+        for (triggerResult in output.objectMap("trigger_results").values) {
+            assertEquals(true, triggerResult["triggered"])
+        }
+    }
+
+    fun `test execute monitor fails all inputs when one input fails`() {
+        val testIndex = createTestIndex()
+        val goodInput = SearchInput(indices = listOf(testIndex), query = SearchSourceBuilder().query(QueryBuilders.matchAllQuery()))
+        createIndex("foo", Settings.EMPTY)
+        val badInput = SearchInput(indices = listOf("foo"), query = SearchSourceBuilder().query(QueryBuilders.matchAllQuery()))
+        val monitor = createMonitor(randomMonitor(inputs = listOf(goodInput, badInput),
+                triggers = listOf(randomTrigger(condition = NEVER_RUN))))
+
+        deleteIndex("foo")
+        val response = executeMonitor(monitor.id)
+
+        val output = entityAsMap(response)
+        val inputResults = output.stringMap("input_results")!!
+        assertTrue("Missing monitor error message", (inputResults["error"] as String).isNotEmpty())
+        assertTrue("Partial input results returned", (inputResults["results"] as List<*>).isEmpty())
+    }
+
+    fun `test execute monitor records input timeout`() {
+        client().updateSettings(AlertingSettings.INPUT_TIMEOUT.key, "1nanos")
+        val input = SearchInput(indices = listOf(createTestIndex()), query = SearchSourceBuilder().query(QueryBuilders.matchAllQuery()))
+        val monitor = randomMonitor(inputs = listOf(input), triggers = listOf(randomTrigger(condition = NEVER_RUN)))
+
+        val response = executeMonitor(monitor, params = DRYRUN_MONITOR)
+
+        val output = entityAsMap(response)
+        val inputResults = output.stringMap("input_results")!!
+        assertTrue("Missing input timeout error", (inputResults["error"] as String).contains("input stage timed out"))
+        assertEquals(listOf(MonitorStageTimeoutException.INPUT_STAGE), output["timed_out_stages"])
+    }
+
     fun `test execute monitor wrong monitorid`() {
         // use a non-existent monitoid to trigger a 404.
         createIndex("foo", Settings.EMPTY)
@@ -238,6 +302,97 @@ class MonitorRunnerIT : AlertingRestTestCase() {
         verifyAlert(completedAlert, monitor, COMPLETED)
     }
 
+    fun `test bucket-level trigger creates an alert per bucket across composite pages`() {
+        val testIndex = createTestIndex(randomAlphaOfLength(10).toLowerCase(Locale.ROOT), """
+          "properties" : {
+             "host" : { "type" : "keyword" }
+          }
+        """)
+        indexDoc(testIndex, "1", """{ "host" : "server-1" }""")
+        indexDoc(testIndex, "2", """{ "host" : "server-2" }""")
+        indexDoc(testIndex, "3", """{ "host" : "server-2" }""")
+        indexDoc(testIndex, "4", """{ "host" : "server-3" }""")
+
+        // A page size of 1 makes the runner follow after_key to collect every bucket
+        val compositeAgg = CompositeAggregationBuilder("hosts", listOf(TermsValuesSourceBuilder("host").field("host"))).size(1)
+        val input = SearchInput(indices = listOf(testIndex), query = SearchSourceBuilder().size(0).aggregation(compositeAgg))
+        val trigger = randomTrigger(condition = Script("return ctx.bucket.doc_count > 0"), destinationId = createDestination().id,
+                bucketAggregation = "hosts")
+        val monitor = createMonitor(randomMonitor(inputs = listOf(input), triggers = listOf(trigger)))
+
+        val response = executeMonitor(monitor.id)
+
+        val output = entityAsMap(response)
+        val triggerResult = output.objectMap("trigger_results").objectMap(trigger.id)
+        assertEquals(true, triggerResult["triggered"].toString().toBoolean())
+        assertEquals(listOf("host=server-1", "host=server-2", "host=server-3"), triggerResult["triggered_buckets"])
+
+        val alerts = searchAlerts(monitor)
+        assertEquals("Expected one alert per bucket", 3, alerts.size)
+        assertEquals(setOf("host=server-1", "host=server-2", "host=server-3"), alerts.map { it.bucketKey }.toSet())
+        alerts.forEach { verifyAlert(it, monitor) }
+
+        executeMonitor(monitor.id)
+        assertEquals("Active alerts should be updated, not duplicated", alerts.map { it.id }.toSet(),
+                searchAlerts(monitor).map { it.id }.toSet())
+    }
+
+    fun `test doc-level monitor only matches documents indexed since the last run`() {
+        val testIndex = createTestIndex(randomAlphaOfLength(10).toLowerCase(Locale.ROOT), """
+          "properties" : {
+             "level" : { "type" : "keyword" }
+          }
+        """)
+        indexDoc(testIndex, "1", """{ "level" : "error" }""")
+
+        val query = DocLevelQuery(id = "errors", name = "errors", query = QueryBuilders.termQuery("level", "error"))
+        val input = DocLevelMonitorInput(indices = listOf(testIndex), queries = listOf(query))
+        val trigger = randomTrigger(condition = Script("return ctx.results[0].matched_documents.size() > 0"))
+        val monitor = createMonitor(randomMonitor(inputs = listOf(input), triggers = listOf(trigger)))
+
+        // The first run only records the current position of every shard
+        var output = entityAsMap(executeMonitor(monitor.id))
+        var triggerResult = output.objectMap("trigger_results").objectMap(trigger.id)
+        assertEquals(false, triggerResult["triggered"].toString().toBoolean())
+
+        indexDoc(testIndex, "2", """{ "level" : "error" }""")
+        indexDoc(testIndex, "3", """{ "level" : "info" }""")
+
+        output = entityAsMap(executeMonitor(monitor.id))
+        @Suppress("UNCHECKED_CAST")
+        val inputResult = (output.objectMap("input_results")["results"] as List<Map<String, Any>>).first()
+        assertEquals(2, inputResult["documents_scanned"])
+        @Suppress("UNCHECKED_CAST")
+        val matches = (inputResult["matched_documents"] as Map<String, List<Map<String, Any>>>)["errors"]
+        assertEquals(listOf("2"), matches?.map { it["_id"] })
+        triggerResult = output.objectMap("trigger_results").objectMap(trigger.id)
+        assertEquals(true, triggerResult["triggered"].toString().toBoolean())
+
+        output = entityAsMap(executeMonitor(monitor.id))
+        triggerResult = output.objectMap("trigger_results").objectMap(trigger.id)
+        assertEquals("Documents should only be matched once", false, triggerResult["triggered"].toString().toBoolean())
+    }
+
+    fun `test doc-level monitor reads documents that weren't refreshed yet`() {
+        val testIndex = createTestIndex(randomAlphaOfLength(10).toLowerCase(Locale.ROOT), """
+          "properties" : {
+             "level" : { "type" : "keyword" }
+          }
+        """)
+        val query = DocLevelQuery(id = "errors", name = "errors", query = QueryBuilders.termQuery("level", "error"))
+        val input = DocLevelMonitorInput(indices = listOf(testIndex), queries = listOf(query))
+        val monitor = createMonitor(randomMonitor(inputs = listOf(input), triggers = listOf(randomTrigger())))
+        executeMonitor(monitor.id)
+
+        indexDoc(testIndex, "1", """{ "level" : "error" }""", refresh = false)
+        indexDoc(testIndex, "2", """{ "level" : "error" }""", refresh = false)
+
+        val output = entityAsMap(executeMonitor(monitor.id))
+        @Suppress("UNCHECKED_CAST")
+        val inputResult = (output.objectMap("input_results")["results"] as List<Map<String, Any>>).first()
+        assertEquals("Documents up to the global checkpoint should be read", 2, inputResult["documents_scanned"])
+    }
+
     fun `test execute monitor script error`() {
         // This painless script should cause a syntax error
         val trigger = randomTrigger(condition = Script("foo bar baz"))
@@ -585,6 +740,34 @@ class MonitorRunnerIT : AlertingRestTestCase() {
                 throttledActionResults[actionThrottleEnabled.id]!!.lastExecutionTime)
     }
 
+    fun `test active alert with only throttled actions writes just the throttled counts`() {
+        val action = randomAction(template = randomTemplateScript("Hello {{ctx.monitor.name}}"),
+                destinationId = createDestination().id,
+                throttleEnabled = true, throttle = Throttle(value = 5, unit = MINUTES))
+        val monitor = createMonitor(randomMonitor(triggers = listOf(randomTrigger(condition = ALWAYS_RUN, actions = listOf(action))),
+                schedule = IntervalSchedule(interval = 1, unit = ChronoUnit.MINUTES)))
+        executeMonitor(monitor.id)
+        val firstRunAlert = searchAlerts(monitor).single()
+
+        for (run in 1..3) {
+            // Runner uses ThreadPool.CachedTimeThread thread which only updates once every 200 ms.
+            Thread.sleep(200)
+            val throttledRunResult = entityAsMap(executeMonitor(monitor.id))
+            verifyActionThrottleResults(throttledRunResult, mutableMapOf(Pair(action.id, true)))
+            val throttledAlert = searchAlerts(monitor).single()
+            assertEquals("Last notification time was written before it got stale.",
+                    firstRunAlert.lastNotificationTime, throttledAlert.lastNotificationTime)
+            verifyActionExecutionResultInAlert(throttledAlert, mutableMapOf(Pair(action.id, run)))
+        }
+
+        client().updateSettings(AlertingSettings.ALERT_FRESHNESS_INTERVAL.key, "0s")
+        Thread.sleep(200)
+        executeMonitor(monitor.id)
+        val refreshedAlert = searchAlerts(monitor).single()
+        assertNotEquals("Last notification should be different.", firstRunAlert.lastNotificationTime, refreshedAlert.lastNotificationTime)
+        verifyActionExecutionResultInAlert(refreshedAlert, mutableMapOf(Pair(action.id, 4)))
+    }
+
     fun `test monitor with throttled action for different alerts`() {
         val actionThrottleEnabled = randomAction(template = randomTemplateScript("Hello {{ctx.monitor.name}}"),
                 destinationId = createDestination().id,
@@ -678,6 +861,31 @@ class MonitorRunnerIT : AlertingRestTestCase() {
         Assert.assertTrue(alerts.single().errorMessage?.contains("Connect timed out") as Boolean)
     }
 
+    fun `test execute monitor with digest custom webhook destination queues message`() {
+        val customWebhook = CustomWebhook("http://15.16.17.18", null, null, 80, null, "PUT", emptyMap(), emptyMap(), null, null,
+                digestWindow = TimeValue.timeValueMinutes(1))
+        val destination = createDestination(
+                Destination(
+                        type = DestinationType.CUSTOM_WEBHOOK,
+                        name = "testDesination",
+                        user = randomUser(),
+                        lastUpdateTime = Instant.now(),
+                        chime = null,
+                        slack = null,
+                        customWebhook = customWebhook,
+                        email = null
+                ))
+        val action = randomAction(destinationId = destination.id)
+        val trigger = randomTrigger(condition = ALWAYS_RUN, actions = listOf(action))
+        val monitor = createMonitor(randomMonitor(triggers = listOf(trigger)))
+        executeMonitor(adminClient(), monitor.id)
+
+        // The message is only delivered once the digest window closes, so the run doesn't wait for the destination
+        val alerts = searchAlerts(monitor)
+        assertEquals("Alert not saved", 1, alerts.size)
+        verifyAlert(alerts.single(), monitor, ACTIVE)
+    }
+
     fun `test execute monitor with custom webhook destination and denied host`() {
 
         listOf("http://10.1.1.1", "127.0.0.1").forEach {
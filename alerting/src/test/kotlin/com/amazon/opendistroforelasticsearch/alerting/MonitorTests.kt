@@ -15,7 +15,12 @@
 
 package com.amazon.opendistroforelasticsearch.alerting
 
+import com.amazon.opendistroforelasticsearch.alerting.core.model.Input
+import com.amazon.opendistroforelasticsearch.alerting.core.model.SearchInput
 import com.amazon.opendistroforelasticsearch.alerting.model.Trigger
+import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings
+import org.elasticsearch.index.query.QueryBuilders
+import org.elasticsearch.search.builder.SearchSourceBuilder
 import org.elasticsearch.test.ESTestCase
 import java.lang.IllegalArgumentException
 import java.time.Instant
@@ -54,4 +59,33 @@ class MonitorTests : ESTestCase() {
         } catch (e: IllegalArgumentException) {
         }
     }
+
+    fun `test max inputs`() {
+        val monitor = randomMonitor()
+
+        val inputs = mutableListOf<Input>()
+        for (i in 1..AlertingSettings.MONITOR_MAX_INPUTS) {
+            inputs.add(SearchInput(emptyList(), SearchSourceBuilder().query(QueryBuilders.matchAllQuery())))
+        }
+        assertEquals(inputs.size, monitor.copy(inputs = inputs).inputs.size)
+
+        inputs.add(SearchInput(emptyList(), SearchSourceBuilder().query(QueryBuilders.matchAllQuery())))
+        try {
+            monitor.copy(inputs = inputs)
+            fail("Monitor with too many inputs should be rejected.")
+        } catch (e: IllegalArgumentException) {
+        }
+    }
+
+    fun `test multiple doc-level inputs`() {
+        val monitor = randomMonitor()
+        val inputs = listOf(randomDocLevelMonitorInput(), SearchInput(emptyList(), SearchSourceBuilder()))
+        assertEquals(inputs, monitor.copy(inputs = inputs).inputs)
+
+        try {
+            monitor.copy(inputs = inputs + randomDocLevelMonitorInput())
+            fail("Monitor with more than one doc-level input should be rejected.")
+        } catch (e: IllegalArgumentException) {
+        }
+    }
 }
@@ -14,6 +14,8 @@
  */
 package com.amazon.opendistroforelasticsearch.alerting
 
+import com.amazon.opendistroforelasticsearch.alerting.core.model.DocLevelMonitorInput
+import com.amazon.opendistroforelasticsearch.alerting.core.model.DocLevelQuery
 import com.amazon.opendistroforelasticsearch.alerting.core.model.Input
 import com.amazon.opendistroforelasticsearch.alerting.core.model.IntervalSchedule
 import com.amazon.opendistroforelasticsearch.alerting.core.model.Schedule
@@ -25,6 +27,7 @@ import com.amazon.opendistroforelasticsearch.alerting.model.Alert
 import com.amazon.opendistroforelasticsearch.alerting.model.InputRunResults
 import com.amazon.opendistroforelasticsearch.alerting.model.Monitor
 import com.amazon.opendistroforelasticsearch.alerting.model.MonitorRunResult
+import com.amazon.opendistroforelasticsearch.alerting.model.MonitorStageTimeoutException
 import com.amazon.opendistroforelasticsearch.alerting.model.Trigger
 import com.amazon.opendistroforelasticsearch.alerting.model.TriggerRunResult
 import com.amazon.opendistroforelasticsearch.alerting.model.action.Action
@@ -60,6 +63,7 @@ import org.elasticsearch.test.ESTestCase.randomIntBetween
 import org.elasticsearch.test.rest.ESRestTestCase
 import java.time.Instant
 import java.time.temporal.ChronoUnit
+import java.util.Locale
 
 fun randomMonitor(
     name: String = ESRestTestCase.randomAlphaOfLength(10),
@@ -93,20 +97,37 @@ fun randomMonitorWithoutUser(
             user = null, uiMetadata = if (withMetadata) mapOf("foo" to "bar") else mapOf())
 }
 
+fun randomDocLevelQuery(
+    name: String = ESRestTestCase.randomAlphaOfLength(10),
+    field: String = ESRestTestCase.randomAlphaOfLength(5).toLowerCase(Locale.ROOT),
+    value: String = ESRestTestCase.randomAlphaOfLength(10)
+): DocLevelQuery {
+    return DocLevelQuery(name = name, query = QueryBuilders.termQuery(field, value))
+}
+
+fun randomDocLevelMonitorInput(
+    indices: List<String> = listOf(ESRestTestCase.randomAlphaOfLength(10).toLowerCase(Locale.ROOT)),
+    queries: List<DocLevelQuery> = (1..randomIntBetween(1, 5)).map { randomDocLevelQuery() }
+): DocLevelMonitorInput {
+    return DocLevelMonitorInput(indices = indices, queries = queries)
+}
+
 fun randomTrigger(
     id: String = UUIDs.base64UUID(),
     name: String = ESRestTestCase.randomAlphaOfLength(10),
     severity: String = "1",
     condition: Script = randomScript(),
     actions: List<Action> = mutableListOf(),
-    destinationId: String = ""
+    destinationId: String = "",
+    bucketAggregation: String? = null
 ): Trigger {
     return Trigger(
         id = id,
         name = name,
         severity = severity,
         condition = condition,
-        actions = if (actions.isEmpty()) (0..randomInt(10)).map { randomAction(destinationId = destinationId) } else actions)
+        actions = if (actions.isEmpty()) (0..randomInt(10)).map { randomAction(destinationId = destinationId) } else actions,
+        bucketAggregation = bucketAggregation)
 }
 
 fun randomEmailAccount(
@@ -192,7 +213,8 @@ fun randomMonitorRunResult(): MonitorRunResult {
         Instant.now(),
         null,
         randomInputRunResults(),
-        triggerResults
+        triggerResults,
+        listOf(MonitorStageTimeoutException.INPUT_STAGE)
     )
 }
 
@@ -301,6 +323,7 @@ fun parser(xc: String): XContentParser {
 
 fun xContentRegistry(): NamedXContentRegistry {
     return NamedXContentRegistry(listOf(
-            SearchInput.XCONTENT_REGISTRY) +
+            SearchInput.XCONTENT_REGISTRY,
+            DocLevelMonitorInput.XCONTENT_REGISTRY) +
             SearchModule(Settings.EMPTY, false, emptyList()).namedXContents)
 }
@@ -0,0 +1,77 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.action
+
+import org.elasticsearch.action.support.WriteRequest
+import org.elasticsearch.common.io.stream.BytesStreamOutput
+import org.elasticsearch.common.io.stream.StreamInput
+import org.elasticsearch.tasks.TaskId
+import org.elasticsearch.test.ESTestCase
+import java.time.Instant
+import java.time.temporal.ChronoUnit
+
+class AcknowledgeAlertsByQueryRequestTests : ESTestCase() {
+
+    fun `test acknowledge alerts by query request`() {
+        val to = Instant.now().truncatedTo(ChronoUnit.MILLIS)
+        val from = to.minus(1, ChronoUnit.HOURS)
+        val req = AcknowledgeAlertsByQueryRequest("1", listOf("monitor1", "monitor2"), listOf("trigger"), from, to,
+                WriteRequest.RefreshPolicy.WAIT_UNTIL, false)
+        assertNull(req.validate())
+        assertTrue(req.shouldStoreResult)
+
+        val out = BytesStreamOutput()
+        req.writeTo(out)
+        val sin = StreamInput.wrap(out.bytes().toBytesRef().bytes)
+        val newReq = AcknowledgeAlertsByQueryRequest(sin)
+
+        assertEquals("1", newReq.severityLevel)
+        assertEquals(listOf("monitor1", "monitor2"), newReq.monitorIds)
+        assertEquals(listOf("trigger"), newReq.triggerNames)
+        assertEquals(from, newReq.startTimeFrom)
+        assertEquals(to, newReq.startTimeTo)
+        assertEquals(WriteRequest.RefreshPolicy.WAIT_UNTIL, newReq.refreshPolicy)
+        assertFalse(newReq.waitForCompletion)
+    }
+
+    fun `test validate rejects inverted start time range`() {
+        val now = Instant.now()
+        val req = AcknowledgeAlertsByQueryRequest("ALL", emptyList(), emptyList(), now, now.minusSeconds(60),
+                WriteRequest.RefreshPolicy.IMMEDIATE, true)
+        assertNotNull(req.validate())
+        assertFalse(req.shouldStoreResult)
+    }
+
+    fun `test task status reports batches`() {
+        val req = AcknowledgeAlertsByQueryRequest("ALL", emptyList(), emptyList(), null, null,
+                WriteRequest.RefreshPolicy.IMMEDIATE, true)
+        val task = req.createTask(1, "transport", AcknowledgeAlertsByQueryAction.NAME, TaskId.EMPTY_TASK_ID, emptyMap())
+                as AcknowledgeAlertsByQueryTask
+        task.setTotal(700)
+        task.onBatch(500, 0)
+        task.onBatch(190, 10)
+
+        val out = BytesStreamOutput()
+        task.status.writeTo(out)
+        val sin = StreamInput.wrap(out.bytes().toBytesRef().bytes)
+        val status = AcknowledgeAlertsByQueryTask.Status(sin)
+
+        assertEquals(700L, status.total)
+        assertEquals(690L, status.acknowledged)
+        assertEquals(10L, status.failed)
+        assertEquals(2, status.batches)
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.action
+
+import com.amazon.opendistroforelasticsearch.alerting.elasticapi.string
+import org.elasticsearch.common.io.stream.BytesStreamOutput
+import org.elasticsearch.common.io.stream.StreamInput
+import org.elasticsearch.common.xcontent.ToXContent
+import org.elasticsearch.common.xcontent.XContentFactory
+import org.elasticsearch.test.ESTestCase
+
+class AcknowledgeAlertsByQueryResponseTests : ESTestCase() {
+
+    fun `test acknowledge alerts by query response`() {
+        val res = AcknowledgeAlertsByQueryResponse(1200, 1195, 5, false)
+
+        val out = BytesStreamOutput()
+        res.writeTo(out)
+        val sin = StreamInput.wrap(out.bytes().toBytesRef().bytes)
+        val newRes = AcknowledgeAlertsByQueryResponse(sin)
+
+        assertEquals(1200L, newRes.total)
+        assertEquals(1195L, newRes.acknowledged)
+        assertEquals(5L, newRes.failed)
+        assertFalse(newRes.cancelled)
+        assertEquals("{\"total\":1200,\"acknowledged\":1195,\"failed\":5,\"cancelled\":false}",
+                newRes.toXContent(XContentFactory.jsonBuilder(), ToXContent.EMPTY_PARAMS).string())
+    }
+}
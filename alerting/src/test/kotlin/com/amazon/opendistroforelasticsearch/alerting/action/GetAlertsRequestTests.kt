@@ -15,6 +15,7 @@
 
 package com.amazon.opendistroforelasticsearch.alerting.action
 
+import com.amazon.opendistroforelasticsearch.alerting.model.Alert
 import com.amazon.opendistroforelasticsearch.alerting.model.Table
 import org.elasticsearch.common.io.stream.BytesStreamOutput
 import org.elasticsearch.common.io.stream.StreamInput
@@ -64,4 +65,25 @@ class GetAlertsRequestTests : ESTestCase() {
         assertNotNull(req)
         assertNull(req.validate())
     }
+
+    fun `test get alerts request with cursor and fields`() {
+        val table = Table("asc", "sortString", null, 1, 0, "")
+        val req = GetAlertsRequest(table, "1", "active", null, "cursor", listOf(Alert.STATE_FIELD))
+
+        val out = BytesStreamOutput()
+        req.writeTo(out)
+        val sin = StreamInput.wrap(out.bytes().toBytesRef().bytes)
+        val newReq = GetAlertsRequest(sin)
+
+        assertEquals("cursor", newReq.cursor)
+        assertEquals(listOf(Alert.STATE_FIELD), newReq.fields)
+        assertNull(newReq.validate())
+    }
+
+    fun `test validate rejects cursor with start index`() {
+        val table = Table("asc", "sortString", null, 1, 10, "")
+
+        val req = GetAlertsRequest(table, "1", "active", null, "cursor")
+        assertNotNull(req.validate())
+    }
 }
@@ -23,6 +23,8 @@ import com.amazon.opendistroforelasticsearch.commons.authuser.User
 import org.elasticsearch.common.io.stream.BytesStreamOutput
 import org.elasticsearch.common.io.stream.StreamInput
 import org.elasticsearch.common.xcontent.ToXContent
+import org.elasticsearch.common.xcontent.XContentHelper
+import org.elasticsearch.common.xcontent.XContentType
 import org.elasticsearch.test.ESTestCase
 import org.junit.Assert
 import java.time.Instant
@@ -105,8 +107,54 @@ class GetAlertsResponseTests : ESTestCase() {
                 "\"monitor_user\":{\"name\":\"admin\",\"backend_roles\":[],\"roles\":[]," +
                 "\"custom_attribute_names\":[],\"user_requested_tenant\":null},\"trigger_id\":\"triggerId\"," +
                 "\"trigger_name\":\"triggerName\",\"state\":\"ACKNOWLEDGED\",\"error_message\":null,\"alert_history\":[]," +
-                "\"severity\":\"severity\",\"action_execution_results\":[],\"start_time\":" + now.toEpochMilli() +
+                "\"severity\":\"severity\",\"action_execution_results\":[],\"bucket_key\":null,\"start_time\":" + now.toEpochMilli() +
                 ",\"last_notification_time\":null,\"end_time\":null,\"acknowledged_time\":null}],\"totalAlerts\":1}"
         assertEquals(expectedXContentString, actualXContentString)
     }
+
+    fun `test get alerts response with next cursor`() {
+        val req = GetAlertsResponse(Collections.emptyList(), 0, "cursor")
+
+        val out = BytesStreamOutput()
+        req.writeTo(out)
+        val sin = StreamInput.wrap(out.bytes().toBytesRef().bytes)
+        val newReq = GetAlertsResponse(sin)
+        assertEquals("cursor", newReq.nextCursor)
+
+        val actualXContentString = newReq.toXContent(builder(), ToXContent.EMPTY_PARAMS).string()
+        assertEquals("{\"alerts\":[],\"totalAlerts\":0,\"nextCursor\":\"cursor\"}", actualXContentString)
+    }
+
+    fun `test get alerts response renders only the requested fields`() {
+        val alert = Alert(
+                id = "id",
+                monitorId = "monitorId",
+                monitorName = "monitorName",
+                monitorVersion = 0L,
+                monitorUser = null,
+                triggerId = "triggerId",
+                triggerName = "triggerName",
+                state = Alert.State.ACTIVE,
+                startTime = Instant.ofEpochMilli(1000L),
+                lastNotificationTime = null,
+                errorMessage = null,
+                errorHistory = Collections.emptyList(),
+                severity = "1",
+                actionExecutionResults = Collections.emptyList()
+        )
+        val req = GetAlertsResponse(listOf(alert), 1, null, listOf("monitor_name", "state"))
+
+        val out = BytesStreamOutput()
+        req.writeTo(out)
+        val sin = StreamInput.wrap(out.bytes().toBytesRef().bytes)
+        val newReq = GetAlertsResponse(sin)
+        assertEquals(listOf("monitor_name", "state"), newReq.fields)
+
+        // The projected alerts are rendered from maps, so their field order isn't fixed
+        val actualXContentString = newReq.toXContent(builder(), ToXContent.EMPTY_PARAMS).string()
+        val actual = XContentHelper.convertToMap(XContentType.JSON.xContent(), actualXContentString, false)
+        val expected = mapOf("id" to "id", "version" to -1, "monitor_name" to "monitorName", "state" to "ACTIVE")
+        assertEquals(listOf(expected), actual["alerts"])
+        assertEquals(1, actual["totalAlerts"])
+    }
 }
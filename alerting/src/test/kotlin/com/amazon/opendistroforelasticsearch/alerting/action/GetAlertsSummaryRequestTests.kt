@@ -0,0 +1,51 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.action
+
+import org.elasticsearch.common.io.stream.BytesStreamOutput
+import org.elasticsearch.common.io.stream.StreamInput
+import org.elasticsearch.test.ESTestCase
+
+class GetAlertsSummaryRequestTests : ESTestCase() {
+
+    fun `test get alerts summary request`() {
+        val req = GetAlertsSummaryRequest("1", "ACTIVE", "monitorId", 5, "1d")
+        assertNull(req.validate())
+
+        val out = BytesStreamOutput()
+        req.writeTo(out)
+        val sin = StreamInput.wrap(out.bytes().toBytesRef().bytes)
+        val newReq = GetAlertsSummaryRequest(sin)
+
+        assertEquals("1", newReq.severityLevel)
+        assertEquals("ACTIVE", newReq.alertState)
+        assertEquals("monitorId", newReq.monitorId)
+        assertEquals(5, newReq.size)
+        assertEquals("1d", newReq.interval)
+    }
+
+    fun `test validate rejects invalid size`() {
+        assertNotNull(GetAlertsSummaryRequest("ALL", "ALL", null, 0, null).validate())
+        assertNotNull(GetAlertsSummaryRequest("ALL", "ALL", null, GetAlertsSummaryRequest.MAX_SIZE + 1, null).validate())
+    }
+
+    fun `test validate rejects invalid interval`() {
+        assertNotNull(GetAlertsSummaryRequest("ALL", "ALL", null, 10, "foo").validate())
+        assertNotNull(GetAlertsSummaryRequest("ALL", "ALL", null, 10, "1M").validate())
+        assertNotNull(GetAlertsSummaryRequest("ALL", "ALL", null, 10, "59m").validate())
+        assertNull(GetAlertsSummaryRequest("ALL", "ALL", null, 10, "1h").validate())
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.action
+
+import com.amazon.opendistroforelasticsearch.alerting.builder
+import com.amazon.opendistroforelasticsearch.alerting.elasticapi.string
+import org.elasticsearch.common.io.stream.BytesStreamOutput
+import org.elasticsearch.common.io.stream.StreamInput
+import org.elasticsearch.common.xcontent.ToXContent
+import org.elasticsearch.test.ESTestCase
+
+class GetAlertsSummaryResponseTests : ESTestCase() {
+
+    fun `test get alerts summary response`() {
+        val res = GetAlertsSummaryResponse(5, linkedMapOf("ACTIVE" to 3L, "COMPLETED" to 2L), mapOf("1" to 5L),
+                linkedMapOf("monitor2" to 4L, "monitor1" to 1L), null)
+
+        val out = BytesStreamOutput()
+        res.writeTo(out)
+        val sin = StreamInput.wrap(out.bytes().toBytesRef().bytes)
+        val newRes = GetAlertsSummaryResponse(sin)
+
+        assertEquals(5L, newRes.totalAlerts)
+        assertEquals(res.byState, newRes.byState)
+        assertEquals(res.bySeverity, newRes.bySeverity)
+        assertEquals(listOf("monitor2", "monitor1"), newRes.byMonitorId.keys.toList())
+        assertNull(newRes.byStartTime)
+    }
+
+    fun `test toXContent for get alerts summary response`() {
+        val res = GetAlertsSummaryResponse(1, mapOf("ACTIVE" to 1L), mapOf("1" to 1L), mapOf("monitor" to 1L),
+                mapOf("2021-01-01T00:00:00.000Z" to 1L))
+
+        val actualXContentString = res.toXContent(builder(), ToXContent.EMPTY_PARAMS).string()
+        val expectedXContentString = "{\"totalAlerts\":1,\"byState\":{\"ACTIVE\":1},\"bySeverity\":{\"1\":1}," +
+                "\"byMonitorId\":{\"monitor\":1},\"byStartTime\":{\"2021-01-01T00:00:00.000Z\":1}}"
+        assertEquals(expectedXContentString, actualXContentString)
+    }
+}
@@ -19,6 +19,8 @@ import com.amazon.opendistroforelasticsearch.alerting.ALWAYS_RUN
 import com.amazon.opendistroforelasticsearch.alerting.AlertingRestTestCase
 import com.amazon.opendistroforelasticsearch.alerting.NEVER_RUN
 import com.amazon.opendistroforelasticsearch.alerting.core.model.ScheduledJob
+import com.amazon.opendistroforelasticsearch.alerting.model.Alert
+import com.amazon.opendistroforelasticsearch.alerting.randomAlert
 import com.amazon.opendistroforelasticsearch.alerting.randomMonitor
 import com.amazon.opendistroforelasticsearch.alerting.randomTrigger
 import com.amazon.opendistroforelasticsearch.alerting.settings.AlertingSettings
@@ -26,9 +28,12 @@ import com.amazon.opendistroforelasticsearch.alerting.makeRequest
 import org.apache.http.entity.ContentType.APPLICATION_JSON
 import org.apache.http.entity.StringEntity
 import org.elasticsearch.action.search.SearchResponse
+import org.elasticsearch.common.settings.Settings
 import org.elasticsearch.common.xcontent.XContentType
 import org.elasticsearch.common.xcontent.json.JsonXContent.jsonXContent
 import org.elasticsearch.rest.RestStatus
+import java.time.Instant
+import java.time.temporal.ChronoUnit
 
 class AlertIndicesIT : AlertingRestTestCase() {
 
@@ -45,7 +50,7 @@ class AlertIndicesIT : AlertingRestTestCase() {
         assertIndexDoesNotExist(AlertIndices.HISTORY_WRITE_INDEX)
 
         putAlertMappings(AlertIndices.alertMapping().trimStart('{').trimEnd('}')
-                .replace("\"schema_version\": 2", "\"schema_version\": 0"))
+                .replace("\"schema_version\": 4", "\"schema_version\": 0"))
         assertIndexExists(AlertIndices.ALERT_INDEX)
         assertIndexExists(AlertIndices.HISTORY_WRITE_INDEX)
         verifyIndexSchemaVersion(AlertIndices.ALERT_INDEX, 0)
@@ -54,9 +59,22 @@ class AlertIndicesIT : AlertingRestTestCase() {
         executeMonitor(createRandomMonitor())
         assertIndexExists(AlertIndices.ALERT_INDEX)
         assertIndexExists(AlertIndices.HISTORY_WRITE_INDEX)
-        verifyIndexSchemaVersion(ScheduledJob.SCHEDULED_JOBS_INDEX, 3)
-        verifyIndexSchemaVersion(AlertIndices.ALERT_INDEX, 2)
-        verifyIndexSchemaVersion(AlertIndices.HISTORY_WRITE_INDEX, 2)
+        verifyIndexSchemaVersion(ScheduledJob.SCHEDULED_JOBS_INDEX, 5)
+        verifyIndexSchemaVersion(AlertIndices.ALERT_INDEX, 4)
+        verifyIndexSchemaVersion(AlertIndices.HISTORY_WRITE_INDEX, 4)
+    }
+
+    fun `test alert indices with the previous nested mapping keep it`() {
+        wipeAllODFEIndices()
+        putAlertMappings(javaClass.classLoader.getResource("mappings/alert_mapping_v3.json").readText()
+                .trimStart('{').trimEnd('}'))
+
+        val executeResponse = executeMonitor(randomMonitor(triggers = listOf(randomTrigger(condition = ALWAYS_RUN))))
+        val output = entityAsMap(executeResponse)
+        assertNull("Error running a monitor with the previous alert mapping", output["error"])
+        verifyIndexSchemaVersion(AlertIndices.ALERT_INDEX, 3)
+        verifyIndexSchemaVersion(AlertIndices.HISTORY_WRITE_INDEX, 3)
+        wipeAllODFEIndices()
     }
 
     fun `test alert index gets recreated automatically if deleted`() {
@@ -88,6 +106,69 @@ class AlertIndicesIT : AlertingRestTestCase() {
         // Allow for a rollover index.
         Thread.sleep(2000)
         assertTrue("Did not find 3 alert indices", getAlertIndices().size >= 3)
+
+        // The master reports the rollover in the scheduled jobs stats
+        @Suppress("UNCHECKED_CAST")
+        val nodes = getAlertingStats()["nodes"] as Map<String, Map<String, Any>>
+        @Suppress("UNCHECKED_CAST")
+        val maintenanceMetrics = nodes.values.mapNotNull { it["index_maintenance_metrics"] as Map<String, Any>? }
+        assertTrue("Rollover not reported", maintenanceMetrics.any { it["last_rollover_time_millis"] != null })
+    }
+
+    fun `test history index shard and replica settings`() {
+        wipeAllODFEIndices()
+        client().updateSettings(AlertingSettings.ALERT_HISTORY_NUMBER_OF_SHARDS.key, 2)
+        client().updateSettings(AlertingSettings.ALERT_HISTORY_NUMBER_OF_REPLICAS.key, 0)
+
+        executeMonitor(randomMonitor(triggers = listOf(randomTrigger(condition = ALWAYS_RUN))))
+
+        val response = client().makeRequest("GET", "/_cat/indices/${AlertIndices.HISTORY_ALL}?format=json")
+        val historyIndex = createParser(XContentType.JSON.xContent(), response.entity.content).list()
+                .filterIsInstance<Map<String, Any>>().single()
+        assertEquals("History index has wrong number of shards", "2", historyIndex["pri"])
+        assertEquals("History index has wrong number of replicas", "0", historyIndex["rep"])
+    }
+
+    fun `test alert index settings`() {
+        wipeAllODFEIndices()
+        client().updateSettings(AlertingSettings.ALERT_INDEX_NUMBER_OF_REPLICAS.key, 0)
+        client().updateSettings(AlertingSettings.ALERT_INDEX_REFRESH_INTERVAL.key, "5s")
+        client().updateSettings(AlertingSettings.ALERT_HISTORY_INDEX_SORT_FIELD.key, listOf("monitor_id", "start_time"))
+        client().updateSettings(AlertingSettings.ALERT_HISTORY_INDEX_SORT_ORDER.key, listOf("asc", "desc"))
+
+        executeMonitor(randomMonitor(triggers = listOf(randomTrigger(condition = ALWAYS_RUN))))
+
+        val alertIndexSettings = getIndexSettings(AlertIndices.ALERT_INDEX)
+        assertEquals("0", alertIndexSettings["index.number_of_replicas"])
+        assertEquals("5s", alertIndexSettings["index.refresh_interval"])
+        val historyIndexSettings = getIndexSettings(AlertIndices.HISTORY_WRITE_INDEX)
+        assertEquals(listOf("monitor_id", "start_time"), historyIndexSettings["index.sort.field"])
+        assertEquals(listOf("asc", "desc"), historyIndexSettings["index.sort.order"])
+
+        // The refresh interval is applied to the existing indices when it changes
+        client().updateSettings(AlertingSettings.ALERT_INDEX_REFRESH_INTERVAL.key, "10s")
+        assertBusy { assertEquals("10s", getIndexSettings(AlertIndices.ALERT_INDEX)["index.refresh_interval"]) }
+    }
+
+    fun `test alert mapping indexes a single document per alert`() {
+        // A small indexing benchmark of the layout before schema version 4, which indexed alert history and action
+        // results as nested documents, against the current one
+        val previousMapping = javaClass.classLoader.getResource("mappings/alert_mapping_v3.json").readText()
+        val settings = Settings.builder().put("index.number_of_replicas", 0).build()
+        createIndex("alert-layout-previous", settings, previousMapping.trimStart('{').trimEnd('}'))
+        createIndex("alert-layout-current", settings, AlertIndices.alertMapping().trimStart('{').trimEnd('}'))
+
+        val alerts = (1..1000).map {
+            randomAlert().copy(errorHistory = (1..10).map { i -> AlertError(Instant.now(), "error $i") })
+        }
+        val previousMillis = bulkIndexAlerts("alert-layout-previous", alerts)
+        val currentMillis = bulkIndexAlerts("alert-layout-current", alerts)
+        logger.info("Indexed ${alerts.size} alerts in ${previousMillis}ms with the previous layout, ${currentMillis}ms with the current one")
+
+        // Lucene document counts include nested documents
+        val luceneDocsPerAlert = 1 + 10 + alerts.first().actionExecutionResults.size
+        assertEquals((alerts.size * luceneDocsPerAlert).toString(), getLuceneDocCount("alert-layout-previous"))
+        assertEquals(alerts.size.toString(), getLuceneDocCount("alert-layout-current"))
     }
 
     fun `test history disabled`() {
@@ -174,6 +255,57 @@ class AlertIndicesIT : AlertingRestTestCase() {
         assertEquals(0, getHistoryDocCount())
     }
 
+    fun `test old history is summarized`() {
+        resetHistorySettings()
+        executeMonitor(randomMonitor(triggers = listOf(randomTrigger(condition = ALWAYS_RUN))))
+
+        val monitor = randomMonitor()
+        val endTime = Instant.now().minus(10, ChronoUnit.DAYS).truncatedTo(ChronoUnit.DAYS).plus(1, ChronoUnit.HOURS)
+        val oldAlerts = (1..3).map { i ->
+            randomAlert(monitor).copy(state = Alert.State.COMPLETED, startTime = endTime.minusSeconds(60L * i), endTime = endTime,
+                    acknowledgedTime = if (i == 1) endTime else null)
+        }
+        bulkIndexAlerts(AlertIndices.HISTORY_WRITE_INDEX, oldAlerts)
+        assertEquals(3, getHistoryDocCount())
+
+        // Only history indices that were rolled over are summarized, after which they're deleted
+        client().updateSettings(AlertingSettings.ALERT_HISTORY_MAX_DOCS.key, 1)
+        client().updateSettings(AlertingSettings.ALERT_HISTORY_SUMMARY_ENABLED.key, true)
+        client().updateSettings(AlertingSettings.ALERT_HISTORY_ROLLOVER_PERIOD.key, "1s")
+        assertBusy { assertEquals(0, getHistoryDocCount()) }
+
+        var summary = getHistorySummary()
+        assertEquals(monitor.id, summary[AlertHistorySummarizer.MONITOR_ID_FIELD])
+        assertEquals(monitor.name, summary[AlertHistorySummarizer.MONITOR_NAME_FIELD])
+        assertEquals(endTime.truncatedTo(ChronoUnit.DAYS).toEpochMilli(), (summary[AlertHistorySummarizer.DAY_FIELD] as Number).toLong())
+        assertEquals(3, summary[AlertHistorySummarizer.ALERT_COUNT_FIELD])
+        assertEquals(1, summary[AlertHistorySummarizer.ACKNOWLEDGED_COUNT_FIELD])
+        assertEquals(60000, summary[AlertHistorySummarizer.MIN_DURATION_FIELD])
+        assertEquals(180000, summary[AlertHistorySummarizer.MAX_DURATION_FIELD])
+        assertEquals(360000, summary[AlertHistorySummarizer.TOTAL_DURATION_FIELD])
+
+        // An alert of the same monitor and day written to a later history index is added to the summary
+        val lateAlert = randomAlert(monitor).copy(state = Alert.State.COMPLETED, startTime = endTime.minusSeconds(240),
+                endTime = endTime, acknowledgedTime = null)
+        bulkIndexAlerts(AlertIndices.HISTORY_WRITE_INDEX, listOf(lateAlert))
+        assertBusy { assertEquals(4, getHistorySummary()[AlertHistorySummarizer.ALERT_COUNT_FIELD]) }
+        summary = getHistorySummary()
+        assertEquals(1, summary[AlertHistorySummarizer.ACKNOWLEDGED_COUNT_FIELD])
+        assertEquals(240000, summary[AlertHistorySummarizer.MAX_DURATION_FIELD])
+        assertEquals(600000, summary[AlertHistorySummarizer.TOTAL_DURATION_FIELD])
+        assertEquals(2, (summary[AlertHistorySummarizer.SOURCE_INDICES_FIELD] as List<*>).size)
+        assertEquals(0, getHistoryDocCount())
+
+        client().updateSettings(AlertingSettings.ALERT_HISTORY_SUMMARY_ENABLED.key, false)
+    }
+
+    private fun getHistorySummary(): Map<String, Any> {
+        adminClient().makeRequest("POST", "${AlertHistorySummarizer.SUMMARY_INDEX}/_refresh")
+        val response = adminClient().makeRequest("POST", "${AlertHistorySummarizer.SUMMARY_INDEX}/_search", emptyMap(),
+                StringEntity("{\"query\":{\"match_all\":{}}}", APPLICATION_JSON))
+        return SearchResponse.fromXContent(createParser(jsonXContent, response.entity.content)).hits.hits.single().sourceAsMap
+    }
+
     private fun assertIndexExists(index: String) {
         val response = client().makeRequest("HEAD", index)
         assertEquals("Index $index does not exist.", RestStatus.OK, response.restStatus())
@@ -188,6 +320,7 @@ class AlertIndicesIT : AlertingRestTestCase() {
         client().updateSettings(AlertingSettings.ALERT_HISTORY_ENABLED.key, "true")
         client().updateSettings(AlertingSettings.ALERT_HISTORY_ROLLOVER_PERIOD.key, "60s")
         client().updateSettings(AlertingSettings.ALERT_HISTORY_RETENTION_PERIOD.key, "60s")
+        client().updateSettings(AlertingSettings.ALERT_HISTORY_MAX_DOCS.key, 0)
     }
 
     private fun getAlertIndices(): List<String> {
@@ -200,6 +333,19 @@ class AlertIndicesIT : AlertingRestTestCase() {
         return indices
     }
 
+    private fun getIndexSettings(index: String): Map<String, Any> {
+        val response = client().makeRequest("GET", "/$index/_settings", mapOf("flat_settings" to "true"))
+        val indices = createParser(XContentType.JSON.xContent(), response.entity.content).map()
+        @Suppress("UNCHECKED_CAST")
+        return (indices.values.single() as Map<String, Map<String, Any>>).getValue("settings")
+    }
+
+    private fun getLuceneDocCount(index: String): String {
+        val response = client().makeRequest("GET", "/_cat/indices/$index?format=json")
+        val xcp = createParser(XContentType.JSON.xContent(), response.entity.content)
+        return (xcp.list().single() as Map<*, *>)["docs.count"] as String
+    }
+
     private fun getHistoryDocCount(): Long {
         val request = """
             {
@@ -15,8 +15,14 @@
 
 package com.amazon.opendistroforelasticsearch.alerting.model
 
+import com.amazon.opendistroforelasticsearch.alerting.elasticapi.string
+import com.amazon.opendistroforelasticsearch.alerting.randomActionExecutionResult
 import com.amazon.opendistroforelasticsearch.alerting.randomAlert
+import org.elasticsearch.common.xcontent.XContentFactory
+import org.elasticsearch.common.xcontent.XContentHelper
+import org.elasticsearch.common.xcontent.XContentType
 import org.elasticsearch.test.ESTestCase
+import java.time.Instant
 
 class AlertTests : ESTestCase() {
     fun `test alert as template args`() {
@@ -42,4 +48,45 @@ class AlertTests : ESTestCase() {
         val activeAlert = randomAlert().copy(state = Alert.State.ACTIVE)
         assertFalse("Alert is acknowledged", activeAlert.isAcknowledged())
     }
+
+    fun `test action execution results by id`() {
+        val result = randomActionExecutionResult()
+        val alert = randomAlert().copy(actionExecutionResults = listOf(randomActionExecutionResult(), result))
+
+        assertEquals(result, alert.actionExecutionResultsById[result.actionId])
+        assertNull(alert.actionExecutionResultsById["unknown"])
+    }
+
+    fun `test partial xcontent only contains changed fields`() {
+        val previous = randomAlert()
+        val notified = previous.copy(lastNotificationTime = Instant.ofEpochMilli(1000))
+
+        val partial = partialXContent(notified, previous)
+        assertEquals(setOf(Alert.LAST_NOTIFICATION_TIME_FIELD), partial.keys)
+
+        val executed = notified.copy(actionExecutionResults = previous.actionExecutionResults + randomActionExecutionResult())
+        assertEquals(setOf(Alert.LAST_NOTIFICATION_TIME_FIELD, Alert.ACTION_EXECUTION_RESULTS_FIELD),
+                partialXContent(executed, previous).keys)
+        assertTrue("Unchanged alert has fields in partial update", partialXContent(previous, previous).isEmpty())
+    }
+
+    fun `test changes other than notification time`() {
+        val previous = randomAlert().copy(actionExecutionResults = listOf(randomActionExecutionResult()))
+        assertFalse(previous.copy(lastNotificationTime = Instant.ofEpochMilli(1000)).hasChangesOtherThanNotificationTime(previous))
+
+        val throttled = previous.copy(lastNotificationTime = Instant.ofEpochMilli(1000),
+                actionExecutionResults = previous.actionExecutionResults.map { it.copy(throttledCount = it.throttledCount + 1) })
+        assertTrue(throttled.hasChangesOtherThanNotificationTime(previous))
+        val executed = previous.copy(actionExecutionResults = previous.actionExecutionResults.map {
+            it.copy(lastExecutionTime = Instant.ofEpochMilli(2000))
+        })
+        assertTrue(executed.hasChangesOtherThanNotificationTime(previous))
+        assertTrue(previous.copy(state = Alert.State.ERROR, errorMessage = "error").hasChangesOtherThanNotificationTime(previous))
+        assertTrue(previous.copy(schemaVersion = previous.schemaVersion + 1).hasChangesOtherThanNotificationTime(previous))
+    }
+
+    private fun partialXContent(alert: Alert, previous: Alert): Map<String, Any?> {
+        val json = alert.toPartialXContent(XContentFactory.jsonBuilder(), previous).string()
+        return XContentHelper.convertToMap(XContentType.JSON.xContent(), json, false)
+    }
 }
@@ -0,0 +1,175 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.model
+
+import com.amazon.opendistroforelasticsearch.alerting.AlertingPlugin
+import com.amazon.opendistroforelasticsearch.alerting.model.destination.CustomWebhook
+import com.amazon.opendistroforelasticsearch.alerting.model.destination.Destination
+import com.amazon.opendistroforelasticsearch.alerting.model.destination.DestinationContext
+import com.amazon.opendistroforelasticsearch.alerting.model.destination.DestinationDigester
+import com.amazon.opendistroforelasticsearch.alerting.settings.DestinationSettings
+import com.amazon.opendistroforelasticsearch.alerting.util.DestinationType
+import com.amazon.opendistroforelasticsearch.alerting.util.HostDenyList
+import com.carrotsearch.randomizedtesting.annotations.ThreadLeakScope
+import com.sun.net.httpserver.HttpServer
+import org.elasticsearch.cluster.service.ClusterService
+import org.elasticsearch.common.SuppressForbidden
+import org.elasticsearch.common.settings.ClusterSettings
+import org.elasticsearch.common.settings.Settings
+import org.elasticsearch.common.unit.TimeValue
+import org.elasticsearch.rest.RestStatus
+import org.elasticsearch.test.ESTestCase
+import org.elasticsearch.threadpool.FixedExecutorBuilder
+import org.elasticsearch.threadpool.TestThreadPool
+import org.elasticsearch.threadpool.ThreadPool
+import org.junit.After
+import org.junit.Before
+import java.io.IOException
+import java.net.InetAddress
+import java.net.InetSocketAddress
+import java.time.Instant
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
+
+/**
+ * Publishes messages of a [Destination], directly and through the [DestinationDigester], to a local HTTP stub server.
+ */
+@SuppressForbidden(reason = "use a http server")
+// The I/O threads of the shared non-blocking destination client outlive the test
+@ThreadLeakScope(ThreadLeakScope.Scope.NONE)
+class DestinationPublishTests : ESTestCase() {
+
+    private lateinit var server: HttpServer
+    private val requestReceived = CountDownLatch(1)
+    private val requestAborted = CountDownLatch(1)
+    private val received = LinkedBlockingQueue<Pair<String, String>>()
+    private lateinit var threadPool: ThreadPool
+
+    @Before
+    fun startServer() {
+        server = HttpServer.create(InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0)
+        server.createContext("/hang") { exchange ->
+            exchange.requestBody.use { it.readBytes() }
+            requestReceived.countDown()
+            // Streams the response until the client goes away, so the delivery never completes on its own
+            try {
+                exchange.sendResponseHeaders(RestStatus.OK.status, 0)
+                exchange.responseBody.use { out ->
+                    while (true) {
+                        out.write(' '.toInt())
+                        out.flush()
+                        Thread.sleep(50)
+                    }
+                }
+            } catch (e: IOException) {
+                requestAborted.countDown()
+            }
+        }
+        server.createContext("/capture") { exchange ->
+            val body = exchange.requestBody.use { String(it.readBytes(), Charsets.UTF_8) }
+            received.add(exchange.requestURI.path to body)
+            exchange.sendResponseHeaders(RestStatus.OK.status, -1)
+            exchange.close()
+        }
+        server.start()
+        threadPool = TestThreadPool(javaClass.simpleName,
+                FixedExecutorBuilder(Settings.EMPTY, AlertingPlugin.NOTIFICATION_THREAD_POOL_NAME, 1, 10))
+    }
+
+    @After
+    fun stopServer() {
+        server.stop(0)
+        ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS)
+    }
+
+    fun `test cancelling a published message aborts the http request`() {
+        val url = "http://${server.address.hostString}:${server.address.port}/hang"
+        val destination = Destination(
+            type = DestinationType.CUSTOM_WEBHOOK,
+            name = "test",
+            user = null,
+            lastUpdateTime = Instant.now(),
+            chime = null,
+            slack = null,
+            customWebhook = CustomWebhook(url, null, null, -1, null, null, emptyMap(), emptyMap(), null, null),
+            email = null
+        )
+
+        val published = destination.publish(null, "{}", DestinationContext(), HostDenyList(emptyList()))
+        assertTrue("The stub server didn't receive the request", requestReceived.await(30, TimeUnit.SECONDS))
+
+        published.cancel(true)
+        assertTrue("The stub server didn't see the request aborted", requestAborted.await(30, TimeUnit.SECONDS))
+    }
+
+    fun `test digest is delivered on the notification pool once its window closes`() {
+        val digester = digester()
+        val destination = digestDestination("/capture/digest", version = 1, digestWindow = TimeValue.timeValueSeconds(1))
+
+        digester.publish(destination, "first", "one", DestinationContext(), HostDenyList(emptyList())).get()
+        digester.publish(destination, "second", "two", DestinationContext(), HostDenyList(emptyList())).get()
+
+        val delivery = received.poll(30, TimeUnit.SECONDS)
+        assertNotNull("The digest wasn't delivered", delivery)
+        val (path, body) = delivery!!
+        assertEquals("/capture/digest", path)
+        assertTrue("The digest doesn't summarize both messages: $body", body.contains("\"count\":2"))
+        assertBusy {
+            val notificationPool = threadPool.stats().first { it.name == AlertingPlugin.NOTIFICATION_THREAD_POOL_NAME }
+            assertEquals(1L, notificationPool.completed)
+        }
+    }
+
+    fun `test editing a destination delivers its pending digest`() {
+        val digester = digester()
+        val window = TimeValue.timeValueHours(1)
+
+        digester.publish(digestDestination("/capture/before", version = 1, digestWindow = window),
+                "first", "one", DestinationContext(), HostDenyList(emptyList())).get()
+        digester.publish(digestDestination("/capture/after", version = 2, digestWindow = window),
+                "second", "two", DestinationContext(), HostDenyList(emptyList())).get()
+        assertEquals("/capture/before" to "one", received.poll(30, TimeUnit.SECONDS))
+
+        // Removing the digest window publishes directly, after delivering what was queued before the edit
+        digester.publish(digestDestination("/capture/direct", version = 3, digestWindow = null),
+                "third", "three", DestinationContext(), HostDenyList(emptyList())).get()
+        val delivered = listOf(received.poll(30, TimeUnit.SECONDS), received.poll(30, TimeUnit.SECONDS))
+        assertEquals(setOf("/capture/after" to "two", "/capture/direct" to "three"), delivered.toSet())
+    }
+
+    private fun digester(): DestinationDigester {
+        val clusterSettings = ClusterSettings(Settings.EMPTY, setOf(DestinationSettings.DIGEST_MAX_MESSAGES))
+        return DestinationDigester(threadPool, Settings.EMPTY, ClusterService(Settings.EMPTY, clusterSettings, threadPool))
+    }
+
+    private fun digestDestination(path: String, version: Long, digestWindow: TimeValue?): Destination {
+        val url = "http://${server.address.hostString}:${server.address.port}$path"
+        return Destination(
+            id = "digest-destination",
+            version = version,
+            type = DestinationType.CUSTOM_WEBHOOK,
+            name = "test",
+            user = null,
+            lastUpdateTime = Instant.now(),
+            chime = null,
+            slack = null,
+            customWebhook = CustomWebhook(url, null, null, -1, null, null, emptyMap(), emptyMap(), null, null,
+                    digestWindow = digestWindow),
+            email = null
+        )
+    }
+}
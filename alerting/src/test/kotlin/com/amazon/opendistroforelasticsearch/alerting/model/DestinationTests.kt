@@ -26,6 +26,7 @@ import com.amazon.opendistroforelasticsearch.alerting.model.destination.email.Re
 import com.amazon.opendistroforelasticsearch.alerting.util.DestinationType
 import org.elasticsearch.common.io.stream.BytesStreamOutput
 import org.elasticsearch.common.io.stream.StreamInput
+import org.elasticsearch.common.unit.TimeValue
 import org.elasticsearch.test.ESTestCase
 import java.time.Instant
 
@@ -112,6 +113,64 @@ class DestinationTests : ESTestCase() {
         }
     }
 
+    fun `test custom webhook destination with invalid max connections`() {
+        try {
+            CustomWebhook("http://abc.com", null, null, -1, null, null, emptyMap(), emptyMap(), null, null, maxConnections = 0)
+            fail("Creating a custom webhook destination with no connections did not fail.")
+        } catch (ignored: IllegalArgumentException) {
+        }
+    }
+
+    fun `test customwebhook destination create using stream with connection overrides`() {
+        val customWebhook = CustomWebhook("test.com", null, "localhost", 162, null, "POST", mutableMapOf(), mutableMapOf(),
+                null, null, 5, 1000, 2000)
+        val out = BytesStreamOutput()
+        out.writeBoolean(true)
+        customWebhook.writeTo(out)
+        val sin = StreamInput.wrap(out.bytes().toBytesRef().bytes)
+        val newCustomWebhook = CustomWebhook.readFrom(sin)
+
+        assertEquals(customWebhook, newCustomWebhook)
+    }
+
+    fun `test custom webhook destination with connection overrides`() {
+        val destString = "{\"type\":\"custom_webhook\",\"name\":\"TestWebhookDest\",\"schema_version\":1," +
+                "\"last_update_time\":1600063313658,\"custom_webhook\":{\"url\":\"http://abc.com\",\"port\":-1," +
+                "\"max_connections\":5,\"connection_timeout_millis\":1000,\"socket_timeout_millis\":null}}"
+        val parsedDest = Destination.parse(parser(destString))
+        assertEquals(5, parsedDest.customWebhook!!.maxConnections)
+        assertEquals(1000, parsedDest.customWebhook!!.connectionTimeoutMillis)
+        assertNull(parsedDest.customWebhook!!.socketTimeoutMillis)
+    }
+
+    fun `test email destination with digest window create using stream`() {
+        val email = Email("3456", listOf(Recipient(Recipient.RecipientType.EMAIL, null, "test@email.com")),
+                TimeValue.timeValueMinutes(5))
+        val out = BytesStreamOutput()
+        out.writeBoolean(true)
+        email.writeTo(out)
+        val sin = StreamInput.wrap(out.bytes().toBytesRef().bytes)
+        val newEmail = Email.readFrom(sin)
+
+        assertEquals(email, newEmail)
+    }
+
+    fun `test email destination with invalid digest window`() {
+        try {
+            Email("3456", listOf(Recipient(Recipient.RecipientType.EMAIL, null, "test@email.com")), TimeValue.ZERO)
+            fail("Creating an email destination with an empty digest window did not fail.")
+        } catch (ignored: IllegalArgumentException) {
+        }
+    }
+
+    fun `test custom webhook destination with digest window`() {
+        val destString = "{\"type\":\"custom_webhook\",\"name\":\"TestWebhookDest\",\"schema_version\":1," +
+                "\"last_update_time\":1600063313658,\"custom_webhook\":{\"url\":\"http://abc.com\",\"port\":-1," +
+                "\"digest_window\":\"2m\"}}"
+        val parsedDest = Destination.parse(parser(destString))
+        assertEquals(TimeValue.timeValueMinutes(2), parsedDest.digestWindow)
+    }
+
     fun `test chime destination create using stream`() {
         val chimeDest = Destination("1234", 0L, 1, 1, 1, DestinationType.CHIME, "TestChimeDest",
         randomUser(), Instant.now(), Chime("test.com"), null, null, null)
@@ -22,6 +22,7 @@ import com.amazon.opendistroforelasticsearch.alerting.model.destination.email.Em
 import com.amazon.opendistroforelasticsearch.alerting.model.destination.email.EmailGroup
 import com.amazon.opendistroforelasticsearch.alerting.randomAction
 import com.amazon.opendistroforelasticsearch.alerting.randomActionRunResult
+import com.amazon.opendistroforelasticsearch.alerting.randomDocLevelMonitorInput
 import com.amazon.opendistroforelasticsearch.alerting.randomEmailAccount
 import com.amazon.opendistroforelasticsearch.alerting.randomEmailGroup
 import com.amazon.opendistroforelasticsearch.alerting.randomInputRunResults
@@ -34,7 +35,11 @@ import com.amazon.opendistroforelasticsearch.alerting.randomUser
 import com.amazon.opendistroforelasticsearch.alerting.randomUserEmpty
 import com.amazon.opendistroforelasticsearch.commons.authuser.User
 import org.elasticsearch.common.io.stream.BytesStreamOutput
+import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry
 import org.elasticsearch.common.io.stream.StreamInput
+import org.elasticsearch.common.settings.Settings
+import org.elasticsearch.search.SearchModule
 import org.elasticsearch.search.builder.SearchSourceBuilder
 import org.elasticsearch.test.ESTestCase
 
@@ -103,6 +108,15 @@ class WriteableTests : ESTestCase() {
         assertEquals("Round tripping Trigger doesn't work", trigger, newTrigger)
     }
 
+    fun `test bucket-level trigger as stream`() {
+        val trigger = randomTrigger(bucketAggregation = "composite_agg")
+        val out = BytesStreamOutput()
+        trigger.writeTo(out)
+        val sin = StreamInput.wrap(out.bytes().toBytesRef().bytes)
+        val newTrigger = Trigger(sin)
+        assertEquals("Round tripping Trigger doesn't work", trigger, newTrigger)
+    }
+
     fun `test actionrunresult as stream`() {
         val actionRunResult = randomActionRunResult()
         val out = BytesStreamOutput()
@@ -148,6 +162,16 @@ class WriteableTests : ESTestCase() {
         assertEquals("Round tripping MonitorRunResult doesn't work", input, newInput)
     }
 
+    fun `test monitor with doc-level input as stream`() {
+        val monitor = randomMonitor().copy(inputs = listOf(randomDocLevelMonitorInput()))
+        val out = BytesStreamOutput()
+        monitor.writeTo(out)
+        val registry = NamedWriteableRegistry(SearchModule(Settings.EMPTY, false, emptyList()).namedWriteables)
+        val sin = NamedWriteableAwareStreamInput(out.bytes().streamInput(), registry)
+        val newMonitor = Monitor(sin)
+        assertEquals("Round tripping Monitor doesn't work", monitor, newMonitor)
+    }
+
     fun `test user as stream`() {
         val user = randomUser()
         val out = BytesStreamOutput()
@@ -25,6 +25,7 @@ import com.amazon.opendistroforelasticsearch.alerting.parser
 import com.amazon.opendistroforelasticsearch.alerting.randomAction
 import com.amazon.opendistroforelasticsearch.alerting.randomActionExecutionResult
 import com.amazon.opendistroforelasticsearch.alerting.randomAlert
+import com.amazon.opendistroforelasticsearch.alerting.randomDocLevelMonitorInput
 import com.amazon.opendistroforelasticsearch.alerting.randomEmailAccount
 import com.amazon.opendistroforelasticsearch.alerting.randomEmailGroup
 import com.amazon.opendistroforelasticsearch.alerting.randomMonitor
@@ -108,6 +109,16 @@ class XContentTests : ESTestCase() {
         assertEquals("Round tripping Trigger doesn't work", trigger, parsedTrigger)
     }
 
+    fun `test bucket-level trigger parsing`() {
+        val trigger = randomTrigger(bucketAggregation = "composite_agg")
+
+        val triggerString = trigger.toXContent(builder(), ToXContent.EMPTY_PARAMS).string()
+        val parsedTrigger = Trigger.parse(parser(triggerString))
+
+        assertEquals("Round tripping Trigger doesn't work", trigger, parsedTrigger)
+        assertTrue("Trigger should be bucket-level", parsedTrigger.isBucketLevel())
+    }
+
     fun `test alert parsing`() {
         val alert = randomAlert()
 
@@ -117,6 +128,15 @@ class XContentTests : ESTestCase() {
         assertEquals("Round tripping alert doesn't work", alert, parsedAlert)
     }
 
+    fun `test alert parsing with bucket key`() {
+        val alert = randomAlert().copy(bucketKey = "host=server-1,service=api")
+
+        val alertString = alert.toXContent(builder(), ToXContent.EMPTY_PARAMS).string()
+        val parsedAlert = Alert.parse(parser(alertString))
+
+        assertEquals("Round tripping alert doesn't work", alert, parsedAlert)
+    }
+
     fun `test alert parsing without user`() {
         val alertStr = "{\"id\":\"\",\"version\":-1,\"monitor_id\":\"\",\"schema_version\":0,\"monitor_version\":1," +
                 "\"monitor_name\":\"ARahqfRaJG\",\"trigger_id\":\"fhe1-XQBySl0wQKDBkOG\",\"trigger_name\":\"ffELMuhlro\"," +
@@ -174,6 +194,14 @@ class XContentTests : ESTestCase() {
         assertEquals(0, parsedUser.roles.size)
     }
 
+    fun `test doc-level monitor parsing`() {
+        val monitor = randomMonitor(inputs = listOf(randomDocLevelMonitorInput()))
+
+        val monitorString = monitor.toJsonString()
+        val parsedMonitor = Monitor.parse(parser(monitorString))
+        assertEquals("Round tripping Monitor doesn't work", monitor, parsedMonitor)
+    }
+
     fun `test monitor parsing without user`() {
         val monitor = randomMonitorWithoutUser()
 
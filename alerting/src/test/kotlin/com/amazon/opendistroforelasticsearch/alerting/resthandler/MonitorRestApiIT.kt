@@ -40,6 +40,7 @@ import org.apache.http.HttpHeaders
 import org.apache.http.entity.ContentType
 import org.apache.http.message.BasicHeader
 import org.apache.http.nio.entity.NStringEntity
+import org.elasticsearch.client.Response
 import org.elasticsearch.client.ResponseException
 import org.elasticsearch.client.WarningFailureException
 import org.elasticsearch.common.bytes.BytesReference
@@ -54,6 +55,7 @@ import org.elasticsearch.search.builder.SearchSourceBuilder
 import org.elasticsearch.test.ESTestCase
 import org.elasticsearch.test.junit.annotations.TestLogging
 import org.elasticsearch.test.rest.ESRestTestCase
+import java.time.Instant
 import java.time.ZoneId
 import java.time.temporal.ChronoUnit
 
@@ -497,6 +499,102 @@ class MonitorRestApiIT : AlertingRestTestCase() {
         assertFalse("Alert in state ${activeAlert.state} found in failed list", failedResponseList.contains(activeAlert.id))
     }
 
+    fun `test acknowledge alerts by query`() {
+        putAlertMappings() // Required as we do not have a create alert API.
+        val monitor1 = createRandomMonitor(refresh = true)
+        val monitor2 = createRandomMonitor(refresh = true)
+        val otherMonitor = createRandomMonitor(refresh = true)
+        // More matching alerts than fit in one batch of the acknowledge by query request
+        val matching = listOf(monitor1, monitor2).flatMap { monitor ->
+            (1..300).map { randomAlert(monitor).copy(state = Alert.State.ACTIVE, severity = "1") }
+        }
+        val notMatching = listOf(
+                randomAlert(monitor1).copy(state = Alert.State.ACTIVE, severity = "2"),
+                randomAlert(monitor1).copy(state = Alert.State.COMPLETED, severity = "1"),
+                randomAlert(monitor2).copy(state = Alert.State.ERROR, severity = "1"),
+                randomAlert(otherMonitor).copy(state = Alert.State.ACTIVE, severity = "1")
+        )
+        bulkIndexAlerts(AlertIndices.ALERT_INDEX, matching + notMatching)
+
+        val response = acknowledgeAlertsByQuery("""
+            { "severity": "1", "monitor_ids": ["${monitor1.id}", "${monitor2.id}"] }
+        """.trimIndent())
+
+        val responseMap = response.asMap()
+        assertEquals(600, responseMap["total"])
+        assertEquals(600, responseMap["acknowledged"])
+        assertEquals(0, responseMap["failed"])
+        assertEquals(false, responseMap["cancelled"])
+        assertEquals(300, countAlerts(monitor1, Alert.State.ACKNOWLEDGED))
+        assertEquals(300, countAlerts(monitor2, Alert.State.ACKNOWLEDGED))
+        assertEquals("Alert with another severity was acknowledged", 1, countAlerts(monitor1, Alert.State.ACTIVE))
+        assertEquals(1, countAlerts(monitor1, Alert.State.COMPLETED))
+        assertEquals(1, countAlerts(monitor2, Alert.State.ERROR))
+        assertEquals("Alert of another monitor was acknowledged", 1, countAlerts(otherMonitor, Alert.State.ACTIVE))
+        assertEquals(0, countAlerts(otherMonitor, Alert.State.ACKNOWLEDGED))
+    }
+
+    fun `test acknowledge alerts by query without waiting for completion`() {
+        putAlertMappings() // Required as we do not have a create alert API.
+        val monitor = createRandomMonitor(refresh = true)
+        bulkIndexAlerts(AlertIndices.ALERT_INDEX, (1..510).map { randomAlert(monitor).copy(state = Alert.State.ACTIVE) })
+
+        val response = acknowledgeAlertsByQuery("""{ "monitor_ids": ["${monitor.id}"] }""", waitForCompletion = false)
+
+        val taskId = response.asMap()["task"] as String
+        assertNotNull("No task id returned", taskId)
+        assertBusy {
+            val taskResponse = client().makeRequest("GET", "/_tasks/$taskId").asMap()
+            assertEquals(true, taskResponse["completed"])
+            val result = taskResponse["response"] as Map<String, Any>
+            assertEquals(510, result["total"])
+            assertEquals(510, result["acknowledged"])
+            assertEquals(0, result["failed"])
+        }
+        assertEquals(510, countAlerts(monitor, Alert.State.ACKNOWLEDGED))
+        assertEquals(0, countAlerts(monitor, Alert.State.ACTIVE))
+    }
+
+    fun `test get alerts summary`() {
+        putAlertMappings() // Required as we do not have a create alert API.
+        val monitor = createRandomMonitor(refresh = true)
+        val otherMonitor = createRandomMonitor(refresh = true)
+        val day = Instant.parse("2021-03-01T10:00:00Z")
+        createAlert(randomAlert(monitor).copy(state = Alert.State.ACTIVE, severity = "1", startTime = day))
+        createAlert(randomAlert(monitor).copy(state = Alert.State.ACTIVE, severity = "1", startTime = day.plusSeconds(60)))
+        createAlert(randomAlert(monitor).copy(state = Alert.State.ACKNOWLEDGED, severity = "2",
+                startTime = day.plus(1, ChronoUnit.DAYS)))
+        createAlert(randomAlert(monitor).copy(state = Alert.State.COMPLETED, severity = "1", startTime = day.plus(3, ChronoUnit.DAYS)))
+        createAlert(randomAlert(otherMonitor).copy(state = Alert.State.ACTIVE, severity = "1", startTime = day))
+
+        val summary = getAlertsSummary(client(), mapOf("monitorId" to monitor.id, "interval" to "1d")).asMap()
+
+        assertEquals(4, summary["totalAlerts"])
+        assertEquals(mapOf("ACTIVE" to 2, "ACKNOWLEDGED" to 1, "COMPLETED" to 1), summary["byState"])
+        assertEquals(mapOf("1" to 3, "2" to 1), summary["bySeverity"])
+        assertEquals(mapOf(monitor.id to 4), summary["byMonitorId"])
+        // Empty days are left out of the histogram
+        val byStartTime = summary["byStartTime"] as Map<String, Int>
+        assertEquals(listOf(2, 1, 1), byStartTime.values.toList())
+        assertTrue("Unexpected first bucket ${byStartTime.keys}", byStartTime.keys.first().startsWith("2021-03-01"))
+
+        val allMonitors = getAlertsSummary(client(), mapOf("alertState" to "ACTIVE")).asMap()
+        assertEquals(3, allMonitors["totalAlerts"])
+        assertEquals(mapOf(monitor.id to 2, otherMonitor.id to 1), allMonitors["byMonitorId"])
+        assertNull("Histogram returned without an interval", allMonitors["byStartTime"])
+    }
+
+    fun `test get alerts summary with an invalid interval`() {
+        for (interval in listOf("foo", "1m")) {
+            try {
+                getAlertsSummary(client(), mapOf("interval" to interval))
+                fail("Expected 400 BAD_REQUEST response for interval $interval")
+            } catch (e: ResponseException) {
+                assertEquals("Unexpected status", RestStatus.BAD_REQUEST, e.response.restStatus())
+            }
+        }
+    }
+
     fun `test get all alerts in all states`() {
         putAlertMappings() // Required as we do not have a create alert API.
         val monitor = createRandomMonitor(refresh = true)
@@ -520,6 +618,23 @@ class MonitorRestApiIT : AlertingRestTestCase() {
         assertFalse("Invalid alert with id, ${invalidAlert.id}, found in alert list", alerts.contains(invalidAlert.id))
     }
 
+    fun `test get alerts with size 0 only counts them`() {
+        putAlertMappings() // Required as we do not have a create alert API.
+        val monitor = createRandomMonitor(refresh = true)
+        createAlert(randomAlert(monitor).copy(state = Alert.State.ACTIVE))
+        createAlert(randomAlert(monitor).copy(state = Alert.State.ERROR))
+
+        val inputMap = HashMap<String, Any>()
+        inputMap["monitorId"] = monitor.id
+        inputMap["size"] = 0
+
+        val responseMap = getAlerts(inputMap).asMap()
+
+        assertEquals(2, responseMap["totalAlerts"])
+        assertEquals(emptyList<Any>(), responseMap["alerts"])
+        assertFalse("A count-only request returned a cursor", responseMap.containsKey("nextCursor"))
+    }
+
     fun `test get all alerts with active states`() {
         putAlertMappings() // Required as we do not have a create alert API.
         val monitor = createRandomMonitor(refresh = true)
@@ -646,6 +761,46 @@ class MonitorRestApiIT : AlertingRestTestCase() {
         assertEquals("Alert data incorrect", alert.copy(state = Alert.State.DELETED), historyAlerts.single())
     }
 
+    fun `test delete monitor moves more alerts than the default search size`() {
+        client().updateSettings(ScheduledJobSettings.SWEEPER_ENABLED.key, true)
+        putAlertMappings()
+        val monitor = createRandomMonitor(true)
+        repeat(25) { createAlert(randomAlert(monitor).copy(state = Alert.State.ACTIVE)) }
+        refreshIndex("*")
+        val deleteResponse = client().makeRequest("DELETE", "$ALERTING_BASE_URI/${monitor.id}")
+        assertEquals("Delete request not successful", RestStatus.OK, deleteResponse.restStatus())
+
+        // Wait 5 seconds for event to be processed and alerts moved
+        Thread.sleep(5000)
+
+        assertEquals("Active alerts were not deleted", 0, searchAlerts(monitor).size)
+        val historyAlerts = searchAlerts(monitor, AlertIndices.HISTORY_WRITE_INDEX, size = 100)
+        assertEquals("Alerts were not moved to history", 25, historyAlerts.size)
+        assertTrue("Alert data incorrect", historyAlerts.all { it.state == Alert.State.DELETED })
+    }
+
+    fun `test deleting several monitors moves their alerts`() {
+        client().updateSettings(ScheduledJobSettings.SWEEPER_ENABLED.key, true)
+        putAlertMappings()
+        val monitors = (1..3).map { createRandomMonitor(true) }
+        monitors.forEach { createAlert(randomAlert(it).copy(state = Alert.State.ACTIVE)) }
+        refreshIndex("*")
+        monitors.forEach {
+            val deleteResponse = client().makeRequest("DELETE", "$ALERTING_BASE_URI/${it.id}")
+            assertEquals("Delete request not successful", RestStatus.OK, deleteResponse.restStatus())
+        }
+
+        // Wait 5 seconds for event to be processed and alerts moved
+        Thread.sleep(5000)
+
+        monitors.forEach {
+            assertEquals("Active alert was not deleted", 0, searchAlerts(it).size)
+            val historyAlerts = searchAlerts(it, AlertIndices.HISTORY_WRITE_INDEX)
+            assertEquals("Alert was not moved to history", 1, historyAlerts.size)
+            assertEquals("Alert state incorrect", Alert.State.DELETED, historyAlerts.single().state)
+        }
+    }
+
     fun `test delete trigger moves alerts`() {
         client().updateSettings(ScheduledJobSettings.SWEEPER_ENABLED.key, true)
         putAlertMappings()
@@ -803,6 +958,23 @@ class MonitorRestApiIT : AlertingRestTestCase() {
         }
     }
 
+    private fun acknowledgeAlertsByQuery(body: String, waitForCompletion: Boolean = true): Response {
+        val response = client().makeRequest("POST",
+                "$ALERTING_BASE_URI/alerts/_acknowledge_by_query?refresh=true&wait_for_completion=$waitForCompletion",
+                emptyMap(), NStringEntity(body, ContentType.APPLICATION_JSON))
+        assertEquals("Acknowledge by query call failed.", RestStatus.OK, response.restStatus())
+        return response
+    }
+
+    private fun countAlerts(monitor: Monitor, state: Alert.State): Int {
+        val query = QueryBuilders.boolQuery()
+                .filter(QueryBuilders.termQuery(Alert.MONITOR_ID_FIELD, monitor.id))
+                .filter(QueryBuilders.termQuery(Alert.STATE_FIELD, state.toString()))
+        val response = client().makeRequest("GET", "/${AlertIndices.ALERT_INDEX}/_count?routing=${monitor.id}", emptyMap(),
+                NStringEntity("{\"query\":$query}", ContentType.APPLICATION_JSON))
+        return response.asMap()["count"] as Int
+    }
+
     private fun randomMonitorWithThrottle(value: Int, unit: ChronoUnit = ChronoUnit.MINUTES): Monitor {
         val throttle = randomThrottle(value, unit)
         val action = randomAction().copy(throttle = throttle)
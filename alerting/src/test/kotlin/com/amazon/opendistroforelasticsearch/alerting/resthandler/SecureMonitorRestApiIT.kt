@@ -406,6 +406,32 @@ class SecureMonitorRestApiIT : AlertingRestTestCase() {
         }
     }
 
+    fun `test get alerts summary with filter by`() {
+        // if security is disabled and filter by is enabled, we can't create monitor
+        // refer: `test create monitor with enable filter by`
+        if (!securityEnabled()) return
+
+        enableFilterBy()
+        putAlertMappings()
+        val monitor = createRandomMonitor(refresh = true)
+        createAlert(randomAlert(monitor).copy(state = Alert.State.ACKNOWLEDGED))
+        createAlert(randomAlert(monitor).copy(state = Alert.State.ACTIVE))
+
+        // summarize as "admin" - must count 2 alerts
+        val adminResponseMap = getAlertsSummary(client()).asMap()
+        assertEquals(2, adminResponseMap["totalAlerts"])
+
+        // summarize as userOne, whose backend roles don't match the monitor's - must count 0 alerts
+        createUserRolesMapping("alerting_full_access", arrayOf(user))
+        try {
+            val responseMap = getAlertsSummary(userClient as RestClient).asMap()
+            assertEquals(0, responseMap["totalAlerts"])
+            assertEquals(emptyMap<String, Int>(), responseMap["byMonitorId"])
+        } finally {
+            deleteRoleMapping("alerting_full_access")
+        }
+    }
+
     // Execute Monitor related security tests
 
     fun `test execute monitor with elevate permissions`() {
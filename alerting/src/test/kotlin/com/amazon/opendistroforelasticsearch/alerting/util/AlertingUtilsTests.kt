@@ -17,19 +17,27 @@ package com.amazon.opendistroforelasticsearch.alerting.util
 
 import com.amazon.opendistroforelasticsearch.alerting.destination.message.BaseMessage
 import com.amazon.opendistroforelasticsearch.alerting.destination.message.CustomWebhookMessage
+import kotlinx.coroutines.runBlocking
+import org.elasticsearch.common.settings.Settings
+import org.elasticsearch.common.util.concurrent.EsExecutors
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException
+import org.elasticsearch.common.util.concurrent.ThreadContext
 import org.elasticsearch.test.ESTestCase
 import java.util.HashMap
+import java.util.concurrent.CountDownLatch
 
 class AlertingUtilsTests : ESTestCase() {
 
-    private val HOST_DENY_LIST = listOf(
+    private val HOST_DENY_LIST = HostDenyList(listOf(
             "127.0.0.0/8",
             "10.0.0.0/8",
             "172.16.0.0/12",
             "192.168.0.0/16",
             "0.0.0.0/8",
-            "9.9.9.9" // ip
-    )
+            "9.9.9.9", // ip
+            "10.0.0.1-10.0.0.5", // range
+            "fd00::/8"
+    ))
 
     fun `test ips in denylist`() {
         val ips = listOf(
@@ -39,7 +47,9 @@ class AlertingUtilsTests : ESTestCase() {
                 "172.16.0.1", // "172.16.0.0/12"
                 "192.168.0.1", // 192.168.0.0/16"
                 "0.0.0.1", // 0.0.0.0/8
-                "9.9.9.9"
+                "9.9.9.9",
+                "10.0.0.3", // 10.0.0.1-10.0.0.5
+                "fd12::1" // fd00::/8
         )
         for (ip in ips) {
             val bm = createMessageWithHost(ip)
@@ -47,6 +57,14 @@ class AlertingUtilsTests : ESTestCase() {
         }
     }
 
+    fun `test ips not in denylist`() {
+        val ips = listOf("9.9.9.8", "172.32.0.1", "11.0.0.1", "fe80::1")
+        for (ip in ips) {
+            val bm = createMessageWithHost(ip)
+            assertEquals(false, bm.isHostInDenylist(HOST_DENY_LIST))
+        }
+    }
+
     fun `test url in denylist`() {
         val urls = listOf("https://www.amazon.com", "https://mytest.com", "https://mytest.com")
         for (url in urls) {
@@ -55,6 +73,47 @@ class AlertingUtilsTests : ESTestCase() {
         }
     }
 
+    fun `test invalid networks in denylist are skipped`() {
+        val denyList = HostDenyList(listOf("not a network", "10.0.0.0/8", "example.com"))
+        assertEquals(listOf("10.0.0.0/8"), denyList.networks)
+        assertEquals(true, createMessageWithHost("10.0.0.1").isHostInDenylist(denyList))
+        assertEquals(false, createMessageWithHost("11.0.0.1").isHostInDenylist(denyList))
+    }
+
+    fun `test submit and await returns the result from the executor`() {
+        val executor = EsExecutors.newFixed("test", 1, 1, EsExecutors.daemonThreadFactory("test"), ThreadContext(Settings.EMPTY))
+        try {
+            assertEquals("done", runBlocking { executor.submitAndAwait { "done" } })
+            expectThrows(IllegalStateException::class.java) {
+                runBlocking { executor.submitAndAwait { throw IllegalStateException("failed") } }
+            }
+        } finally {
+            terminate(executor)
+        }
+    }
+
+    fun `test submit and await fails with the rejection when the executor is full`() {
+        val executor = EsExecutors.newFixed("test", 1, 1, EsExecutors.daemonThreadFactory("test"), ThreadContext(Settings.EMPTY))
+        val running = CountDownLatch(1)
+        val release = CountDownLatch(1)
+        try {
+            // One task occupies the only thread and a second one fills the queue
+            executor.execute {
+                running.countDown()
+                release.await()
+            }
+            running.await()
+            executor.execute { }
+
+            expectThrows(EsRejectedExecutionException::class.java) {
+                runBlocking { executor.submitAndAwait { "not run" } }
+            }
+        } finally {
+            release.countDown()
+            terminate(executor)
+        }
+    }
+
     private fun createMessageWithHost(host: String): BaseMessage {
         return CustomWebhookMessage.Builder("abc")
                 .withHost(host)
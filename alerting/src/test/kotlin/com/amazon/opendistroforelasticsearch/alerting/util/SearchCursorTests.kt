@@ -0,0 +1,38 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.util
+
+import org.elasticsearch.test.ESTestCase
+
+class SearchCursorTests : ESTestCase() {
+
+    fun `test cursor round trip`() {
+        val sortValues = arrayOf<Any>("monitor name", ".opendistro-alerting-alerts", 1612345678901L, 7)
+
+        val decoded = SearchCursor.decode(SearchCursor.encode(sortValues))
+
+        assertEquals(4, decoded.size)
+        assertEquals("monitor name", decoded[0])
+        assertEquals(".opendistro-alerting-alerts", decoded[1])
+        assertEquals(1612345678901L, (decoded[2] as Number).toLong())
+        assertEquals(7, (decoded[3] as Number).toInt())
+    }
+
+    fun `test invalid cursor`() {
+        expectThrows(IllegalArgumentException::class.java) { SearchCursor.decode("not a cursor!") }
+        expectThrows(IllegalArgumentException::class.java) { SearchCursor.decode("bm90IGpzb24") }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.core
+
+import org.elasticsearch.common.io.stream.StreamInput
+import org.elasticsearch.common.io.stream.StreamOutput
+import org.elasticsearch.common.io.stream.Writeable
+import org.elasticsearch.common.xcontent.ToXContent
+import org.elasticsearch.common.xcontent.ToXContentFragment
+import org.elasticsearch.common.xcontent.XContentBuilder
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Metrics of the periodic rollover and retention of the indices that jobs write their results to. Only the node that
+ * runs this maintenance, the master, has them.
+ */
+data class IndexMaintenanceMetrics(
+    val lastRunDurationMillis: Long,
+    val lastRolloverTimeMillis: Long?,
+    val deletedIndices: Long
+) : ToXContentFragment, Writeable {
+
+    constructor(si: StreamInput) : this(si.readLong(), si.readOptionalLong(), si.readVLong())
+
+    override fun writeTo(out: StreamOutput) {
+        out.writeLong(lastRunDurationMillis)
+        out.writeOptionalLong(lastRolloverTimeMillis)
+        out.writeVLong(deletedIndices)
+    }
+
+    override fun toXContent(builder: XContentBuilder, params: ToXContent.Params): XContentBuilder {
+        builder.field("last_run_duration_millis", lastRunDurationMillis)
+        builder.field("last_rollover_time_millis", lastRolloverTimeMillis)
+        builder.field("deleted_indices", deletedIndices)
+        return builder
+    }
+}
+
+/**
+ * Records [IndexMaintenanceMetrics] as the maintenance runs, for the scheduled jobs stats to report.
+ */
+class IndexMaintenanceMetricsRecorder {
+
+    @Volatile private var lastRunDurationMillis: Long? = null
+    @Volatile private var lastRolloverTimeMillis: Long? = null
+    private val deletedIndices = AtomicLong()
+
+    fun recordRun(durationMillis: Long) {
+        lastRunDurationMillis = durationMillis
+    }
+
+    fun recordRollover(timeMillis: Long) {
+        lastRolloverTimeMillis = timeMillis
+    }
+
+    fun recordDeletedIndices(count: Int) {
+        deletedIndices.addAndGet(count.toLong())
+    }
+
+    /** Returns the metrics, or null if no maintenance run has finished on this node. */
+    fun getMetrics(): IndexMaintenanceMetrics? {
+        val duration = lastRunDurationMillis ?: return null
+        return IndexMaintenanceMetrics(duration, lastRolloverTimeMillis, deletedIndices.get())
+    }
+}
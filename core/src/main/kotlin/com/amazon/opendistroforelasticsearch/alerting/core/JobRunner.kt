@@ -24,4 +24,11 @@ interface JobRunner {
     fun postIndex(job: ScheduledJob)
 
     fun runJob(job: ScheduledJob, periodStart: Instant, periodEnd: Instant)
+
+    /**
+     * Cancels the run of the job with [jobId] that is currently executing on this node, if any.
+     *
+     * @return <code>true</code> if an in-flight run was cancelled.
+     */
+    fun cancelRunningJob(jobId: String): Boolean
 }
@@ -15,6 +15,7 @@
 
 package com.amazon.opendistroforelasticsearch.alerting.core.action.node
 
+import com.amazon.opendistroforelasticsearch.alerting.core.IndexMaintenanceMetrics
 import com.amazon.opendistroforelasticsearch.alerting.core.JobSweeperMetrics
 import com.amazon.opendistroforelasticsearch.alerting.core.resthandler.RestScheduledJobStatsHandler
 import com.amazon.opendistroforelasticsearch.alerting.core.schedule.JobSchedulerMetrics
@@ -43,22 +44,30 @@ class ScheduledJobStats : BaseNodeResponse, ToXContentFragment {
     var status: ScheduleStatus
     var jobSweeperMetrics: JobSweeperMetrics? = null
     var jobInfos: Array<JobSchedulerMetrics>? = null
+    var cancelledJobRuns: Long = 0
+    var indexMaintenanceMetrics: IndexMaintenanceMetrics? = null
 
     constructor(si: StreamInput) : super(si) {
         this.status = si.readEnum(ScheduleStatus::class.java)
         this.jobSweeperMetrics = si.readOptionalWriteable { JobSweeperMetrics(it) }
         this.jobInfos = si.readOptionalArray({ sti: StreamInput -> JobSchedulerMetrics(sti) }, { size -> arrayOfNulls(size) })
+        this.cancelledJobRuns = si.readVLong()
+        this.indexMaintenanceMetrics = si.readOptionalWriteable { IndexMaintenanceMetrics(it) }
     }
 
     constructor(
         node: DiscoveryNode,
         status: ScheduleStatus,
         jobSweeperMetrics: JobSweeperMetrics?,
-        jobsInfo: Array<JobSchedulerMetrics>?
+        jobsInfo: Array<JobSchedulerMetrics>?,
+        cancelledJobRuns: Long = 0,
+        indexMaintenanceMetrics: IndexMaintenanceMetrics? = null
     ) : super(node) {
         this.status = status
         this.jobSweeperMetrics = jobSweeperMetrics
         this.jobInfos = jobsInfo
+        this.cancelledJobRuns = cancelledJobRuns
+        this.indexMaintenanceMetrics = indexMaintenanceMetrics
     }
 
     companion object {
@@ -71,18 +80,27 @@ class ScheduledJobStats : BaseNodeResponse, ToXContentFragment {
         out.writeEnum(status)
         out.writeOptionalWriteable(jobSweeperMetrics)
         out.writeOptionalArray(jobInfos)
+        out.writeVLong(cancelledJobRuns)
+        out.writeOptionalWriteable(indexMaintenanceMetrics)
     }
 
     override fun toXContent(builder: XContentBuilder, params: ToXContent.Params): XContentBuilder {
         builder.field("name", node.name)
         builder.field("schedule_status", status)
         builder.field("roles", node.roles.map { it.roleName().toUpperCase() })
+        builder.field("cancelled_job_runs", cancelledJobRuns)
         if (jobSweeperMetrics != null) {
             builder.startObject(RestScheduledJobStatsHandler.JOB_SCHEDULING_METRICS)
             jobSweeperMetrics!!.toXContent(builder, params)
             builder.endObject()
         }
 
+        if (indexMaintenanceMetrics != null) {
+            builder.startObject(RestScheduledJobStatsHandler.INDEX_MAINTENANCE_METRICS)
+            indexMaintenanceMetrics!!.toXContent(builder, params)
+            builder.endObject()
+        }
+
         if (jobInfos != null) {
             builder.startObject(RestScheduledJobStatsHandler.JOBS_INFO)
             for (job in jobInfos!!) {
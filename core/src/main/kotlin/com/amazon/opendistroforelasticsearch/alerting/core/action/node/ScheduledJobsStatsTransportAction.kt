@@ -15,6 +15,7 @@
 
 package com.amazon.opendistroforelasticsearch.alerting.core.action.node
 
+import com.amazon.opendistroforelasticsearch.alerting.core.IndexMaintenanceMetricsRecorder
 import com.amazon.opendistroforelasticsearch.alerting.core.JobSweeper
 import com.amazon.opendistroforelasticsearch.alerting.core.JobSweeperMetrics
 import com.amazon.opendistroforelasticsearch.alerting.core.ScheduledJobIndices
@@ -42,6 +43,7 @@ class ScheduledJobsStatsTransportAction : TransportNodesAction<ScheduledJobsStat
     private val jobSweeper: JobSweeper
     private val jobScheduler: JobScheduler
     private val scheduledJobIndices: ScheduledJobIndices
+    private val indexMaintenanceMetrics: IndexMaintenanceMetricsRecorder
 
     @Inject
     constructor(
@@ -51,7 +53,8 @@ class ScheduledJobsStatsTransportAction : TransportNodesAction<ScheduledJobsStat
         actionFilters: ActionFilters,
         jobSweeper: JobSweeper,
         jobScheduler: JobScheduler,
-        scheduledJobIndices: ScheduledJobIndices
+        scheduledJobIndices: ScheduledJobIndices,
+        indexMaintenanceMetrics: IndexMaintenanceMetricsRecorder
     ) : super(
         ScheduledJobsStatsAction.NAME,
         threadPool,
@@ -66,6 +69,7 @@ class ScheduledJobsStatsTransportAction : TransportNodesAction<ScheduledJobsStat
         this.jobSweeper = jobSweeper
         this.jobScheduler = jobScheduler
         this.scheduledJobIndices = scheduledJobIndices
+        this.indexMaintenanceMetrics = indexMaintenanceMetrics
     }
 
     override fun newNodeRequest(request: ScheduledJobsStatsRequest): ScheduledJobStatusRequest {
@@ -108,7 +112,9 @@ class ScheduledJobsStatsTransportAction : TransportNodesAction<ScheduledJobsStat
         return ScheduledJobStats(this.transportService.localNode,
                 status,
                 if (scheduledJobsStatusRequest.jobSchedulingMetrics) jobSweeperMetrics else null,
-                if (scheduledJobsStatusRequest.jobsInfo) jobSchedulerMetrics.toTypedArray() else null)
+                if (scheduledJobsStatusRequest.jobsInfo) jobSchedulerMetrics.toTypedArray() else null,
+                jobScheduler.getCancelledRunCount(),
+                if (scheduledJobsStatusRequest.jobSchedulingMetrics) indexMaintenanceMetrics.getMetrics() else null)
     }
 
     private fun evaluateStatus(
@@ -0,0 +1,109 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.core.model
+
+import org.elasticsearch.common.CheckedFunction
+import org.elasticsearch.common.ParseField
+import org.elasticsearch.common.io.stream.StreamInput
+import org.elasticsearch.common.io.stream.StreamOutput
+import org.elasticsearch.common.xcontent.NamedXContentRegistry
+import org.elasticsearch.common.xcontent.ToXContent
+import org.elasticsearch.common.xcontent.XContentBuilder
+import org.elasticsearch.common.xcontent.XContentParser
+import org.elasticsearch.common.xcontent.XContentParser.Token
+import org.elasticsearch.common.xcontent.XContentParserUtils.ensureExpectedToken
+import java.io.IOException
+
+/**
+ * Input of a document-level monitor. Instead of searching [indices] on every run, the [queries] are registered in a
+ * percolator index and only the documents indexed since the monitor's last run are matched against them.
+ */
+data class DocLevelMonitorInput(val indices: List<String>, val queries: List<DocLevelQuery>) : Input {
+
+    init {
+        require(indices.isNotEmpty()) { "DocLevelMonitorInput must specify at least one index" }
+        require(queries.isNotEmpty()) { "DocLevelMonitorInput must specify at least one query" }
+        require(queries.map { it.id }.toSet().size == queries.size) { "Duplicate query ids in DocLevelMonitorInput" }
+    }
+
+    @Throws(IOException::class)
+    constructor(sin: StreamInput) : this(
+        sin.readStringList(), // indices
+        sin.readList(::DocLevelQuery) // queries
+    )
+
+    override fun toXContent(builder: XContentBuilder, params: ToXContent.Params): XContentBuilder {
+        return builder.startObject()
+                .startObject(DOC_LEVEL_INPUT_FIELD)
+                .field(INDICES_FIELD, indices.toTypedArray())
+                .field(QUERIES_FIELD, queries.toTypedArray())
+                .endObject()
+                .endObject()
+    }
+
+    override fun name(): String {
+        return DOC_LEVEL_INPUT_FIELD
+    }
+
+    @Throws(IOException::class)
+    override fun writeTo(out: StreamOutput) {
+        out.writeStringCollection(indices)
+        out.writeCollection(queries)
+    }
+
+    companion object {
+        const val INDICES_FIELD = "indices"
+        const val QUERIES_FIELD = "queries"
+        const val DOC_LEVEL_INPUT_FIELD = "doc_level_input"
+
+        val XCONTENT_REGISTRY = NamedXContentRegistry.Entry(Input::class.java, ParseField(DOC_LEVEL_INPUT_FIELD),
+                CheckedFunction { parseInner(it) })
+
+        @JvmStatic @Throws(IOException::class)
+        private fun parseInner(xcp: XContentParser): DocLevelMonitorInput {
+            val indices = mutableListOf<String>()
+            val queries = mutableListOf<DocLevelQuery>()
+
+            ensureExpectedToken(Token.START_OBJECT, xcp.currentToken(), xcp)
+            while (xcp.nextToken() != Token.END_OBJECT) {
+                val fieldName = xcp.currentName()
+                xcp.nextToken()
+                when (fieldName) {
+                    INDICES_FIELD -> {
+                        ensureExpectedToken(Token.START_ARRAY, xcp.currentToken(), xcp)
+                        while (xcp.nextToken() != Token.END_ARRAY) {
+                            indices.add(xcp.text())
+                        }
+                    }
+                    QUERIES_FIELD -> {
+                        ensureExpectedToken(Token.START_ARRAY, xcp.currentToken(), xcp)
+                        while (xcp.nextToken() != Token.END_ARRAY) {
+                            queries.add(DocLevelQuery.parse(xcp))
+                        }
+                    }
+                }
+            }
+
+            return DocLevelMonitorInput(indices, queries)
+        }
+
+        @JvmStatic
+        @Throws(IOException::class)
+        fun readFrom(sin: StreamInput): DocLevelMonitorInput {
+            return DocLevelMonitorInput(sin)
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.core.model
+
+import org.elasticsearch.common.UUIDs
+import org.elasticsearch.common.io.stream.StreamInput
+import org.elasticsearch.common.io.stream.StreamOutput
+import org.elasticsearch.common.io.stream.Writeable
+import org.elasticsearch.common.xcontent.ToXContent
+import org.elasticsearch.common.xcontent.ToXContentObject
+import org.elasticsearch.common.xcontent.XContentBuilder
+import org.elasticsearch.common.xcontent.XContentParser
+import org.elasticsearch.common.xcontent.XContentParser.Token
+import org.elasticsearch.common.xcontent.XContentParserUtils.ensureExpectedToken
+import org.elasticsearch.index.query.AbstractQueryBuilder
+import org.elasticsearch.index.query.QueryBuilder
+import java.io.IOException
+
+/**
+ * A single query of a [DocLevelMonitorInput]. The query is registered in a percolator index and every newly indexed
+ * document of the input's indices is matched against it.
+ */
+data class DocLevelQuery(
+    val id: String = UUIDs.base64UUID(),
+    val name: String,
+    val query: QueryBuilder
+) : Writeable, ToXContentObject {
+
+    @Throws(IOException::class)
+    constructor(sin: StreamInput) : this(
+        sin.readString(), // id
+        sin.readString(), // name
+        sin.readNamedWriteable(QueryBuilder::class.java) // query
+    )
+
+    override fun toXContent(builder: XContentBuilder, params: ToXContent.Params): XContentBuilder {
+        return builder.startObject()
+                .field(QUERY_ID_FIELD, id)
+                .field(NAME_FIELD, name)
+                .field(QUERY_FIELD, query)
+                .endObject()
+    }
+
+    @Throws(IOException::class)
+    override fun writeTo(out: StreamOutput) {
+        out.writeString(id)
+        out.writeString(name)
+        out.writeNamedWriteable(query)
+    }
+
+    companion object {
+        const val QUERY_ID_FIELD = "id"
+        const val NAME_FIELD = "name"
+        const val QUERY_FIELD = "query"
+
+        @JvmStatic @Throws(IOException::class)
+        fun parse(xcp: XContentParser): DocLevelQuery {
+            var id = UUIDs.base64UUID() // assign a default query id if one is not specified
+            lateinit var name: String
+            var query: QueryBuilder? = null
+
+            ensureExpectedToken(Token.START_OBJECT, xcp.currentToken(), xcp)
+            while (xcp.nextToken() != Token.END_OBJECT) {
+                val fieldName = xcp.currentName()
+                xcp.nextToken()
+                when (fieldName) {
+                    QUERY_ID_FIELD -> id = xcp.text()
+                    NAME_FIELD -> name = xcp.text()
+                    QUERY_FIELD -> query = AbstractQueryBuilder.parseInnerQueryBuilder(xcp)
+                }
+            }
+
+            return DocLevelQuery(id, requireNotNull(name) { "DocLevelQuery name is null" },
+                    requireNotNull(query) { "DocLevelQuery query is null" })
+        }
+
+        @JvmStatic
+        @Throws(IOException::class)
+        fun readFrom(sin: StreamInput): DocLevelQuery {
+            return DocLevelQuery(sin)
+        }
+    }
+}
@@ -15,6 +15,8 @@
 
 package com.amazon.opendistroforelasticsearch.alerting.core.model
 
+import org.elasticsearch.common.io.stream.StreamInput
+import org.elasticsearch.common.io.stream.StreamOutput
 import org.elasticsearch.common.io.stream.Writeable
 import org.elasticsearch.common.xcontent.ToXContentObject
 import org.elasticsearch.common.xcontent.XContentParser
@@ -34,6 +36,24 @@ interface Input : Writeable, ToXContentObject {
             ensureExpectedToken(Token.END_OBJECT, xcp.nextToken(), xcp)
             return input
         }
+
+        /** Reads an input written by [writeTo], which prefixes the input with its [name]. */
+        @JvmStatic
+        @Throws(IOException::class)
+        fun readFrom(sin: StreamInput): Input {
+            return when (val type = sin.readString()) {
+                SearchInput.SEARCH_FIELD -> SearchInput(sin)
+                DocLevelMonitorInput.DOC_LEVEL_INPUT_FIELD -> DocLevelMonitorInput(sin)
+                else -> throw IllegalStateException("Unexpected input type [$type] when reading input")
+            }
+        }
+
+        @JvmStatic
+        @Throws(IOException::class)
+        fun writeTo(out: StreamOutput, input: Input) {
+            out.writeString(input.name())
+            input.writeTo(out)
+        }
     }
 
     fun name(): String
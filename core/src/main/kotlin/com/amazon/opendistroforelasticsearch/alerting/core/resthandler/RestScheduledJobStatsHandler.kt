@@ -36,6 +36,7 @@ class RestScheduledJobStatsHandler(private val path: String) : BaseRestHandler()
     companion object {
         const val JOB_SCHEDULING_METRICS: String = "job_scheduling_metrics"
         const val JOBS_INFO: String = "jobs_info"
+        const val INDEX_MAINTENANCE_METRICS: String = "index_maintenance_metrics"
         private val METRICS = mapOf<String, (ScheduledJobsStatsRequest) -> Unit>(
                 JOB_SCHEDULING_METRICS to { it -> it.jobSchedulingMetrics = true },
                 JOBS_INFO to { it -> it.jobsInfo = true }
@@ -25,6 +25,7 @@ import java.time.Duration
 import java.time.Instant
 import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
 import java.util.stream.Collectors
 
 /**
@@ -40,6 +41,11 @@ class JobScheduler(private val threadPool: ThreadPool, private val jobRunner: Jo
      */
     private val scheduledJobIdToInfo = ConcurrentHashMap<String, ScheduledJobInfo>()
 
+    /**
+     * Number of in-flight runs cancelled because their ScheduledJob was descheduled.
+     */
+    private val cancelledRunCount = AtomicLong()
+
     /**
      * Schedules the jobs in [jobsToSchedule] for execution.
      *
@@ -108,7 +114,9 @@ class JobScheduler(private val threadPool: ThreadPool, private val jobRunner: Jo
     }
 
     /**
-     * Mark the scheduledJob as descheduled and try to cancel any future schedule for given scheduledJob id.
+     * Mark the scheduledJob as descheduled and try to cancel any future schedule for given scheduledJob id. A run of the
+     * scheduledJob that is already executing is cancelled as well, so that an updated, deleted or moved ScheduledJob does
+     * not keep running its old version.
      *
      * [deschedule] is considered successful when
      * 1. ScheduledJob id does not exist.
@@ -137,6 +145,11 @@ class JobScheduler(private val threadPool: ThreadPool, private val jobRunner: Jo
                 result = scheduledFuture.cancel()
             }
 
+            if (jobRunner.cancelRunningJob(id)) {
+                logger.info("Cancelled in-flight run of jobId : $id")
+                cancelledRunCount.incrementAndGet()
+            }
+
             if (result) {
                 // If we have successfully descheduled the job, remove from the info map.
                 scheduledJobIdToInfo.remove(scheduledJobInfo.scheduledJobId, scheduledJobInfo)
@@ -210,6 +223,13 @@ class JobScheduler(private val threadPool: ThreadPool, private val jobRunner: Jo
                 .collect(Collectors.toList())
     }
 
+    /**
+     * @return number of in-flight runs cancelled by [deschedule] since this node started.
+     */
+    fun getCancelledRunCount(): Long {
+        return cancelledRunCount.get()
+    }
+
     fun postIndex(job: ScheduledJob) {
         jobRunner.postIndex(job)
     }
@@ -19,13 +19,19 @@ import com.amazon.opendistroforelasticsearch.commons.InjectSecurity
 import com.amazon.opendistroforelasticsearch.commons.authuser.User
 import kotlinx.coroutines.ThreadContextElement
 import kotlinx.coroutines.delay
+import kotlinx.coroutines.suspendCancellableCoroutine
 import org.apache.logging.log4j.Logger
 import org.elasticsearch.ElasticsearchException
 import org.elasticsearch.action.ActionListener
+import org.elasticsearch.action.ActionRequest
+import org.elasticsearch.action.ActionResponse
+import org.elasticsearch.action.ActionType
+import org.elasticsearch.action.admin.cluster.node.tasks.cancel.CancelTasksRequest
 import org.elasticsearch.action.bulk.BackoffPolicy
 import org.elasticsearch.action.search.SearchResponse
 import org.elasticsearch.action.search.ShardSearchFailure
 import org.elasticsearch.client.ElasticsearchClient
+import org.elasticsearch.client.node.NodeClient
 import org.elasticsearch.common.bytes.BytesReference
 import org.elasticsearch.common.settings.Settings
 import org.elasticsearch.common.util.concurrent.ThreadContext
@@ -43,6 +49,7 @@ import org.elasticsearch.rest.RestStatus.BAD_GATEWAY
 import org.elasticsearch.rest.RestStatus.GATEWAY_TIMEOUT
 import org.elasticsearch.rest.RestStatus.SERVICE_UNAVAILABLE
 import org.elasticsearch.search.builder.SearchSourceBuilder
+import org.elasticsearch.tasks.TaskId
 import java.time.Instant
 import kotlin.coroutines.CoroutineContext
 import kotlin.coroutines.resume
@@ -170,6 +177,42 @@ suspend fun <C : ElasticsearchClient, T> C.suspendUntil(block: C.(ActionListener
         })
     }
 
+/**
+ * Like [suspendUntil], but the suspended coroutine can be cancelled, e.g. by [kotlinx.coroutines.withTimeout], while it is
+ * waiting for the response. A response that arrives after cancellation is dropped.
+ *
+ * @param block - a block of code that is passed an [ActionListener] that should be passed to the ES client API.
+ */
+suspend fun <C : ElasticsearchClient, T> C.suspendUntilCancellable(block: C.(ActionListener<T>) -> Unit): T =
+    suspendCancellableCoroutine { cont ->
+        block(object : ActionListener<T> {
+            override fun onResponse(response: T) = cont.resume(response)
+
+            override fun onFailure(e: Exception) = cont.resumeWithException(e)
+        })
+    }
+
+/**
+ * Executes [request] as a task on the local node and suspends until it completes. If the calling coroutine is cancelled
+ * while waiting, the task is cancelled as well so that e.g. a search stops consuming resources on the cluster.
+ */
+suspend fun <Request : ActionRequest, Response : ActionResponse> NodeClient.suspendUntilCancellable(
+    action: ActionType<Response>,
+    request: Request
+): Response = suspendCancellableCoroutine { cont ->
+    val task = executeLocally(action, request, object : ActionListener<Response> {
+        override fun onResponse(response: Response) = cont.resume(response)
+
+        override fun onFailure(e: Exception) = cont.resumeWithException(e)
+    })
+    cont.invokeOnCancellation {
+        val cancelRequest = CancelTasksRequest()
+                .setTaskId(TaskId(localNodeId, task.id))
+                .setReason("calling coroutine was cancelled")
+        admin().cluster().cancelTasks(cancelRequest, ActionListener.wrap(Runnable { }))
+    }
+}
+
 /**
  * Store a [ThreadContext] and restore a [ThreadContext] when the coroutine resumes on a different thread.
  *
@@ -33,4 +33,13 @@ class WriteableTests {
         val newMetrics = JobSchedulerMetrics(sin)
         assertEquals("Round tripping metrics doesn't work", metrics.scheduledJobId, newMetrics.scheduledJobId)
     }
+
+    @Test
+    fun `test index maintenance metrics as stream`() {
+        val metrics = IndexMaintenanceMetrics(1500, DateTime.now().millis, 3)
+        val out = BytesStreamOutput()
+        metrics.writeTo(out)
+        val sin = StreamInput.wrap(out.bytes().toBytesRef().bytes)
+        assertEquals("Round tripping metrics doesn't work", metrics, IndexMaintenanceMetrics(sin))
+    }
 }
@@ -15,6 +15,8 @@
 
 package com.amazon.opendistroforelasticsearch.alerting.core
 
+import com.amazon.opendistroforelasticsearch.alerting.core.model.DocLevelMonitorInput
+import com.amazon.opendistroforelasticsearch.alerting.core.model.DocLevelQuery
 import com.amazon.opendistroforelasticsearch.alerting.core.model.Input
 import com.amazon.opendistroforelasticsearch.alerting.core.model.SearchInput
 import com.amazon.opendistroforelasticsearch.alerting.core.model.XContentTestBase
@@ -37,6 +39,18 @@ class XContentTests : XContentTestBase {
         assertEquals(input, parsedInput, "Round tripping input doesn't work")
     }
 
+    @Test
+    fun `test doc-level input parsing`() {
+        val input = DocLevelMonitorInput(indices = listOf("foo"), queries = listOf(
+                DocLevelQuery(name = "error", query = QueryBuilders.termQuery("level", "error")),
+                DocLevelQuery(name = "slow", query = QueryBuilders.rangeQuery("took").gt(1000))))
+
+        val inputString = input.toXContent(builder(), ToXContent.EMPTY_PARAMS).string()
+        val parsedInput = Input.parse(parser(inputString))
+
+        assertEquals(input, parsedInput, "Round tripping doc-level input doesn't work")
+    }
+
     private fun randomInput(): Input {
         return SearchInput(indices = listOf("foo", "bar"),
                 query = SearchSourceBuilder().query(QueryBuilders.matchAllQuery()))
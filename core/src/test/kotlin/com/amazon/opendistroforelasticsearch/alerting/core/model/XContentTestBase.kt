@@ -35,7 +35,7 @@ interface XContentTestBase {
     }
 
     fun xContentRegistry(): NamedXContentRegistry {
-        return NamedXContentRegistry(listOf(SearchInput.XCONTENT_REGISTRY) +
+        return NamedXContentRegistry(listOf(SearchInput.XCONTENT_REGISTRY, DocLevelMonitorInput.XCONTENT_REGISTRY) +
                 SearchModule(Settings.EMPTY, false, emptyList()).namedXContents)
     }
 }
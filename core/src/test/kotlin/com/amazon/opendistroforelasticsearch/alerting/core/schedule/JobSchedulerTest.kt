@@ -61,6 +61,27 @@ class JobSchedulerTest {
         assertTrue(jobScheduler.deschedule("mockScheduledJob-id"), "Descheduling should be true.")
     }
 
+    @Test
+    fun `deschedule cancels in-flight run`() {
+        val mockScheduledJob = MockScheduledJob(
+                "mockScheduledJob-id",
+                1L,
+                "mockScheduledJob-name",
+                "MockScheduledJob",
+                true,
+                IntervalSchedule(1, ChronoUnit.MINUTES),
+                Instant.now(),
+                Instant.now())
+
+        assertTrue(jobScheduler.schedule(mockScheduledJob))
+        // Simulate a run that is still executing when the job gets descheduled
+        jobRunner.runJob(mockScheduledJob, Instant.now(), Instant.now())
+
+        assertTrue(jobScheduler.deschedule("mockScheduledJob-id"), "Descheduling should be true.")
+        assertEquals(1, jobRunner.numberOfCancel, "In-flight run was not cancelled.")
+        assertEquals(1L, jobScheduler.getCancelledRunCount(), "Cancelled run count is wrong.")
+    }
+
     @Test
     fun `schedule cron past year`() {
         // This is to run cron in Feb 30 which we should never run.
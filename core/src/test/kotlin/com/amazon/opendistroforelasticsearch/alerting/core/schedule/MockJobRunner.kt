@@ -26,6 +26,9 @@ class MockJobRunner : JobRunner {
         private set
     var numberOfDelete: Int = 0
         private set
+    var numberOfCancel: Int = 0
+        private set
+    private val runningJobIds = mutableSetOf<String>()
 
     override fun postDelete(jobId: String) {
         numberOfDelete++
@@ -37,5 +40,12 @@ class MockJobRunner : JobRunner {
 
     override fun runJob(job: ScheduledJob, periodStart: Instant, periodEnd: Instant) {
         numberOfRun++
+        runningJobIds.add(job.id)
+    }
+
+    override fun cancelRunningJob(jobId: String): Boolean {
+        if (!runningJobIds.remove(jobId)) return false
+        numberOfCancel++
+        return true
     }
 }
@@ -17,12 +17,19 @@ package com.amazon.opendistroforelasticsearch.alerting.destination;
 
 import com.amazon.opendistroforelasticsearch.alerting.destination.factory.DestinationFactory;
 import com.amazon.opendistroforelasticsearch.alerting.destination.factory.DestinationFactoryProvider;
+import com.amazon.opendistroforelasticsearch.alerting.destination.guard.DestinationGuard;
+import com.amazon.opendistroforelasticsearch.alerting.destination.guard.DestinationRejectedException;
 import com.amazon.opendistroforelasticsearch.alerting.destination.message.BaseMessage;
+import com.amazon.opendistroforelasticsearch.alerting.destination.metrics.DeliveryMetrics;
 import com.amazon.opendistroforelasticsearch.alerting.destination.response.BaseResponse;
+import com.amazon.opendistroforelasticsearch.alerting.destination.util.Futures;
+import org.elasticsearch.rest.RestStatus;
 
 import java.io.IOException;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This is a client facing Notification class to publish the messages
@@ -44,5 +51,68 @@ public class Notification {
                 return destinationFactory.publish(notificationMessage);
             });
     }
-}
 
+    /**
+     * Publishes the notification message to the corresponding notification
+     * channel without blocking on the delivery
+     *
+     * @param notificationMessage
+     * @return future of the BaseResponse
+     */
+    public static CompletableFuture<BaseResponse> publishAsync(BaseMessage notificationMessage) {
+        return AccessController.doPrivileged((PrivilegedAction<CompletableFuture<BaseResponse>>) () -> {
+            DestinationFactory destinationFactory = DestinationFactoryProvider.getFactory(notificationMessage.getChannelType());
+            return destinationFactory.publishAsync(notificationMessage);
+        });
+    }
+
+    /**
+     * Publishes the notification message to the corresponding notification
+     * channel through the rate limiter and circuit breaker of the destination.
+     * Rejected deliveries fail fast with a DestinationRejectedException.
+     * Attempts, outcomes and latencies are recorded in the DeliveryMetrics of the destination.
+     *
+     * @param notificationMessage
+     * @param destinationId id of the destination the message is delivered to
+     * @return future of the BaseResponse
+     */
+    public static CompletableFuture<BaseResponse> publishAsync(BaseMessage notificationMessage, String destinationId) {
+        DestinationGuard guard = DestinationGuard.getInstance();
+        DeliveryMetrics metrics = DeliveryMetrics.getInstance();
+        String destinationType = notificationMessage.getChannelType().name();
+        try {
+            guard.acquire(destinationId);
+        } catch (DestinationRejectedException ex) {
+            metrics.recordRejected(destinationType, destinationId);
+            CompletableFuture<BaseResponse> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(ex);
+            return rejected;
+        }
+
+        metrics.recordAttempt(destinationType, destinationId);
+        long startNanos = System.nanoTime();
+        CompletableFuture<BaseResponse> future;
+        try {
+            future = publishAsync(notificationMessage);
+        } catch (RuntimeException ex) {
+            guard.onFailure(destinationId);
+            metrics.recordFailure(destinationType, destinationId, elapsedMillis(startNanos));
+            throw ex;
+        }
+        return Futures.propagateCancellation(future, future.whenComplete((response, ex) -> {
+            long latencyMillis = elapsedMillis(startNanos);
+            // Email destinations report 0 for a sent message, the http destinations report 200
+            if (ex == null && (response.getStatusCode() == RestStatus.OK.getStatus() || response.getStatusCode() == 0)) {
+                guard.onSuccess(destinationId);
+                metrics.recordSuccess(destinationType, destinationId, latencyMillis);
+            } else {
+                guard.onFailure(destinationId);
+                metrics.recordFailure(destinationType, destinationId, latencyMillis);
+            }
+        }));
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
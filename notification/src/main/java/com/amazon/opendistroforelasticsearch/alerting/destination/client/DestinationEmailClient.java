@@ -30,7 +30,6 @@ import javax.mail.Message;
 import javax.mail.MessagingException;
 import javax.mail.PasswordAuthentication;
 import javax.mail.Session;
-import javax.mail.Transport;
 
 /**
  * This class handles the connections to the given Destination.
@@ -38,41 +37,24 @@ import javax.mail.Transport;
 public class DestinationEmailClient {
 
     private static final Logger logger = LogManager.getLogger(DestinationEmailClient.class);
-    
+
+    private static SmtpTransportPool TRANSPORT_POOL = new SmtpTransportPool();
+
     public String execute(BaseMessage message) throws Exception {
         if (message instanceof EmailMessage) {
             EmailMessage emailMessage = (EmailMessage) message;
             Session session = null;
 
-            Properties prop = new Properties();
-            prop.put("mail.transport.protocol", "smtp");
-            prop.put("mail.smtp.host", emailMessage.getHost());
-            prop.put("mail.smtp.port", emailMessage.getPort());
-
-            if (emailMessage.getUsername() != null && !emailMessage.getUsername().equals("".toCharArray())) {
-                prop.put("mail.smtp.auth", true);
-                try {
-                    session = Session.getInstance(prop, new Authenticator() {
-	                    protected PasswordAuthentication getPasswordAuthentication() {
-	                        return new PasswordAuthentication(
-	                                emailMessage.getUsername().toString(),
-                                    emailMessage.getPassword().toString());
-                        }
-		            });
-                } catch (IllegalStateException e) {
-                    return e.getMessage();
-                }
-            } else {
-                session = Session.getInstance(prop);
-            }
+            boolean authenticate = emailMessage.getUsername() != null && !emailMessage.getUsername().equals("".toCharArray());
+            String username = authenticate ? emailMessage.getUsername().toString() : null;
+            String password = authenticate ? emailMessage.getPassword().toString() : null;
+            SmtpTransportPool.Key key = new SmtpTransportPool.Key(emailMessage.getHost(), emailMessage.getPort(),
+                    emailMessage.getMethod(), username);
 
-            switch(emailMessage.getMethod()) {
-            case "ssl":
-                prop.put("mail.smtp.ssl.enable", true);
-                break;
-            case "starttls":
-                prop.put("mail.smtp.starttls.enable", true);
-                break;
+            try {
+                session = TRANSPORT_POOL.getSession(key, password, () -> createSession(emailMessage, username, password));
+            } catch (IllegalStateException e) {
+                return e.getMessage();
             }
 
             try {
@@ -90,11 +72,48 @@ public class DestinationEmailClient {
         return "Sent";
     }
 
+    /**
+     * Sessions are shared by every message to the same account, so the credentials are captured here rather than
+     * read from the message that happened to create the session.
+     */
+    private Session createSession(EmailMessage emailMessage, String username, String password) {
+        Properties prop = new Properties();
+        prop.put("mail.transport.protocol", "smtp");
+        prop.put("mail.smtp.host", emailMessage.getHost());
+        prop.put("mail.smtp.port", emailMessage.getPort());
+
+        switch(emailMessage.getMethod()) {
+        case "ssl":
+            prop.put("mail.smtp.ssl.enable", true);
+            break;
+        case "starttls":
+            prop.put("mail.smtp.starttls.enable", true);
+            break;
+        }
+
+        if (username != null) {
+            prop.put("mail.smtp.auth", true);
+            return Session.getInstance(prop, new Authenticator() {
+                protected PasswordAuthentication getPasswordAuthentication() {
+                    return new PasswordAuthentication(username, password);
+                }
+            });
+        }
+        return Session.getInstance(prop);
+    }
+
     /*
      * This method is useful for mocking the client
      */
     public void SendMessage(Message msg) throws Exception {
-        Transport.send(msg);
+        TRANSPORT_POOL.send(msg);
+    }
+
+    /**
+     * Closes pooled SMTP connections that have been idle longer than the pool's idle timeout.
+     */
+    public void evictIdleTransports() {
+        TRANSPORT_POOL.evictIdleTransports();
     }
 
     private InternetAddress[] getRecipientsAsAddresses(List<String> recipients) throws Exception {
@@ -105,4 +124,11 @@ public class DestinationEmailClient {
 
         return addresses.toArray(new InternetAddress[0]);
     }
+
+    /*
+     * This method is useful for testing the pool with custom limits
+     */
+    public void setTransportPool(SmtpTransportPool transportPool) {
+        TRANSPORT_POOL = transportPool;
+    }
 }
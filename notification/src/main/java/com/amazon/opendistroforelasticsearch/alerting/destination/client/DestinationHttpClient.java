@@ -17,7 +17,9 @@ package com.amazon.opendistroforelasticsearch.alerting.destination.client;
 
 import com.amazon.opendistroforelasticsearch.alerting.destination.message.BaseMessage;
 import com.amazon.opendistroforelasticsearch.alerting.destination.message.CustomWebhookMessage;
+import org.apache.http.HttpClientConnection;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
@@ -27,16 +29,32 @@ import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.NHttpClientConnection;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.util.EntityUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.Strings;
-import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.rest.RestStatus;
 
 import java.io.IOException;
@@ -45,9 +63,17 @@ import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 
 /**
@@ -57,10 +83,16 @@ public class DestinationHttpClient {
 
     private static final Logger logger = LogManager.getLogger(DestinationHttpClient.class);
 
+    private static final int ASYNC_IO_THREADS = 2;
+
+    /**
+     * Pool sizes of the blocking client, which only serves synchronous publishes. The configured pool sizes apply to the
+     * non-blocking client that deliveries go through.
+     */
     private static final int MAX_CONNECTIONS = 60;
     private static final int MAX_CONNECTIONS_PER_ROUTE = 20;
-    private static final int TIMEOUT_MILLISECONDS = (int) TimeValue.timeValueSeconds(5).millis();
-    private static final int SOCKET_TIMEOUT_MILLISECONDS = (int)TimeValue.timeValueSeconds(50).millis();
+
+    private static final ContentType BODY_CONTENT_TYPE = ContentType.create("text/plain", StandardCharsets.UTF_8);
 
     /**
      * all valid response status
@@ -70,26 +102,281 @@ public class DestinationHttpClient {
             RestStatus.NON_AUTHORITATIVE_INFORMATION.getStatus(), RestStatus.NO_CONTENT.getStatus(),
             RestStatus.RESET_CONTENT.getStatus(), RestStatus.PARTIAL_CONTENT.getStatus(),
             RestStatus.MULTI_STATUS.getStatus())));
-    
+
+    /**
+     * Pool sizes and timeouts can be changed at runtime, so requests read the current config when they are built
+     * instead of relying on the defaults the clients were created with.
+     */
+    private static volatile HttpConnectionConfig CONNECTION_CONFIG = HttpConnectionConfig.DEFAULT;
+
+    /**
+     * Honours the keep-alive the destination asks for, capped at the configured maximum so that pooled connections
+     * don't outlive what the settings allow.
+     */
+    private static final ConnectionKeepAliveStrategy KEEP_ALIVE_STRATEGY = (response, context) -> {
+        long keepAliveMillis = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+        long maxKeepAliveMillis = CONNECTION_CONFIG.getKeepAliveMillis();
+        return keepAliveMillis > 0 ? Math.min(keepAliveMillis, maxKeepAliveMillis) : maxKeepAliveMillis;
+    };
+
+    /**
+     * Routes that have been delivered to, so that pool stats can be reported per destination host.
+     */
+    private static final Set<HttpRoute> ROUTES = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Pool sizes of routes that a destination overrode. Destinations sharing a host share its route, so the size is the
+     * largest one any of them asked for since the route was last idle, and destinations without an override ask for the
+     * configured default. It is reset once the route is idle, which is when a removed override stops applying.
+     */
+    private static final Map<HttpRoute, Integer> ROUTE_MAX_CONNECTIONS = new ConcurrentHashMap<>();
+
+    /**
+     * How long deliveries waited to lease a connection, keyed by the route's target host. A route's pool can be exhausted
+     * while the destination itself responds quickly, which the pool stats only show as a momentary pending count.
+     */
+    private static final Map<String, LeaseWaits> LEASE_WAITS = new ConcurrentHashMap<>();
+
+    private static final PoolingHttpClientConnectionManager CONNECTION_MANAGER = new PoolingHttpClientConnectionManager() {
+        @Override
+        public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+            ConnectionRequest request = super.requestConnection(route, state);
+            return new ConnectionRequest() {
+                @Override
+                public HttpClientConnection get(long timeout, TimeUnit timeUnit)
+                        throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                    long startNanos = System.nanoTime();
+                    boolean leased = false;
+                    try {
+                        HttpClientConnection connection = request.get(timeout, timeUnit);
+                        leased = true;
+                        return connection;
+                    } finally {
+                        recordLeaseWait(route, startNanos, leased);
+                    }
+                }
+
+                @Override
+                public boolean cancel() {
+                    return request.cancel();
+                }
+            };
+        }
+    };
+
     private static CloseableHttpClient HTTP_CLIENT = createHttpClient();
 
+    /**
+     * Created on first use so that its I/O threads are only started by nodes that deliver to HTTP destinations.
+     */
+    private static volatile CloseableHttpAsyncClient ASYNC_HTTP_CLIENT;
+    private static volatile PoolingNHttpClientConnectionManager ASYNC_CONNECTION_MANAGER;
+
     private static CloseableHttpClient createHttpClient() {
-        RequestConfig config = RequestConfig.custom()
-                .setConnectTimeout(TIMEOUT_MILLISECONDS)
-                .setConnectionRequestTimeout(TIMEOUT_MILLISECONDS)
-                .setSocketTimeout(SOCKET_TIMEOUT_MILLISECONDS)
+        CONNECTION_MANAGER.setMaxTotal(MAX_CONNECTIONS);
+        CONNECTION_MANAGER.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+
+        return HttpClientBuilder.create()
+                .setDefaultRequestConfig(defaultRequestConfig(CONNECTION_CONFIG))
+                .setConnectionManager(CONNECTION_MANAGER)
+                .setKeepAliveStrategy(KEEP_ALIVE_STRATEGY)
+                .setRetryHandler(new DefaultHttpRequestRetryHandler())
+                .useSystemProperties()
+                .build();
+    }
+
+    private static CloseableHttpAsyncClient createAsyncHttpClient() {
+        HttpConnectionConfig config = CONNECTION_CONFIG;
+        IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(ASYNC_IO_THREADS)
+                .setConnectTimeout(config.getConnectTimeoutMillis())
+                .setSoTimeout(config.getSocketTimeoutMillis())
                 .build();
 
-        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
-        connectionManager.setMaxTotal(MAX_CONNECTIONS);
-        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+        PoolingNHttpClientConnectionManager connectionManager;
+        try {
+            connectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(ioReactorConfig)) {
+                @Override
+                public Future<NHttpClientConnection> requestConnection(HttpRoute route, Object state, long connectTimeout,
+                        long leaseTimeout, TimeUnit timeUnit, FutureCallback<NHttpClientConnection> callback) {
+                    return super.requestConnection(route, state, connectTimeout, leaseTimeout, timeUnit,
+                            timedLeaseCallback(route, callback));
+                }
+            };
+        } catch (IOReactorException exception) {
+            throw new IllegalStateException("Error creating the destination I/O reactor", exception);
+        }
+        applyPoolLimits(connectionManager, config);
+        ROUTE_MAX_CONNECTIONS.forEach(connectionManager::setMaxPerRoute);
+        ASYNC_CONNECTION_MANAGER = connectionManager;
 
-        return HttpClientBuilder.create()
-                .setDefaultRequestConfig(config)
+        CloseableHttpAsyncClient client = HttpAsyncClientBuilder.create()
+                .setDefaultRequestConfig(defaultRequestConfig(config))
                 .setConnectionManager(connectionManager)
-                .setRetryHandler(new DefaultHttpRequestRetryHandler())
+                .setKeepAliveStrategy(KEEP_ALIVE_STRATEGY)
                 .useSystemProperties()
                 .build();
+        client.start();
+        return client;
+    }
+
+    private static CloseableHttpAsyncClient getAsyncHttpClient() {
+        if (ASYNC_HTTP_CLIENT == null) {
+            synchronized (DestinationHttpClient.class) {
+                if (ASYNC_HTTP_CLIENT == null) {
+                    ASYNC_HTTP_CLIENT = createAsyncHttpClient();
+                }
+            }
+        }
+        return ASYNC_HTTP_CLIENT;
+    }
+
+    /**
+     * Wraps the callback of a non-blocking lease request so that the time until the connection is leased is recorded.
+     * A new connection is only leased once it's connected, so the wait includes connecting to the destination.
+     */
+    private static FutureCallback<NHttpClientConnection> timedLeaseCallback(HttpRoute route,
+                                                                            FutureCallback<NHttpClientConnection> callback) {
+        long startNanos = System.nanoTime();
+        return new FutureCallback<NHttpClientConnection>() {
+            @Override
+            public void completed(NHttpClientConnection connection) {
+                recordLeaseWait(route, startNanos, true);
+                if (callback != null) {
+                    callback.completed(connection);
+                }
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                recordLeaseWait(route, startNanos, false);
+                if (callback != null) {
+                    callback.failed(ex);
+                }
+            }
+
+            @Override
+            public void cancelled() {
+                if (callback != null) {
+                    callback.cancelled();
+                }
+            }
+        };
+    }
+
+    private static void recordLeaseWait(HttpRoute route, long startNanos, boolean leased) {
+        LEASE_WAITS.computeIfAbsent(route.getTargetHost().toURI(), host -> new LeaseWaits())
+                .record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), leased);
+    }
+
+    private static RequestConfig defaultRequestConfig(HttpConnectionConfig config) {
+        return RequestConfig.custom()
+                .setConnectTimeout(config.getConnectTimeoutMillis())
+                .setConnectionRequestTimeout(config.getConnectionRequestTimeoutMillis())
+                .setSocketTimeout(config.getSocketTimeoutMillis())
+                .build();
+    }
+
+    private static void applyPoolLimits(ConnPoolControl<HttpRoute> pool, HttpConnectionConfig config) {
+        pool.setMaxTotal(config.getMaxConnections());
+        pool.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+    }
+
+    /**
+     * Applies new pool sizes and timeouts. Pool sizes take effect on the existing non-blocking pool, timeouts on the next
+     * request.
+     */
+    public void updateConnectionConfig(HttpConnectionConfig config) {
+        CONNECTION_CONFIG = config;
+        PoolingNHttpClientConnectionManager asyncConnectionManager = ASYNC_CONNECTION_MANAGER;
+        if (asyncConnectionManager != null) {
+            applyPoolLimits(asyncConnectionManager, config);
+        }
+        logger.debug("Updated destination connection config: " + config);
+    }
+
+    /**
+     * Closes pooled connections that have expired or have been idle longer than the configured idle timeout, and drops
+     * routes that no longer hold any connections.
+     */
+    public void evictIdleConnections() {
+        long idleTimeoutMillis = CONNECTION_CONFIG.getIdleTimeoutMillis();
+        CONNECTION_MANAGER.closeExpiredConnections();
+        CONNECTION_MANAGER.closeIdleConnections(idleTimeoutMillis, TimeUnit.MILLISECONDS);
+        PoolingNHttpClientConnectionManager asyncConnectionManager = ASYNC_CONNECTION_MANAGER;
+        if (asyncConnectionManager != null) {
+            asyncConnectionManager.closeExpiredConnections();
+            asyncConnectionManager.closeIdleConnections(idleTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        if (logger.isDebugEnabled()) {
+            for (RouteStats stats : getRouteStats().values()) {
+                logger.debug("Destination route " + stats.getHost() + ": [leased: " + stats.getLeased() + "; pending: "
+                        + stats.getPending() + "; available: " + stats.getAvailable() + "; max: " + stats.getMax()
+                        + "; leases: " + stats.getLeases() + "; max lease wait: " + stats.getLeaseWaitMaxMillis() + "ms]");
+            }
+        }
+        for (HttpRoute route : ROUTES) {
+            if (isUnused(CONNECTION_MANAGER.getStats(route))
+                    && (asyncConnectionManager == null || isUnused(asyncConnectionManager.getStats(route)))) {
+                ROUTES.remove(route);
+                LEASE_WAITS.remove(route.getTargetHost().toURI());
+                if (ROUTE_MAX_CONNECTIONS.remove(route) != null) {
+                    CONNECTION_MANAGER.setMaxPerRoute(route, MAX_CONNECTIONS_PER_ROUTE);
+                    if (asyncConnectionManager != null) {
+                        asyncConnectionManager.setMaxPerRoute(route, CONNECTION_CONFIG.getMaxConnectionsPerRoute());
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isUnused(PoolStats stats) {
+        return stats.getLeased() == 0 && stats.getPending() == 0 && stats.getAvailable() == 0;
+    }
+
+    /**
+     * Returns the pool and lease wait stats of every destination route, keyed by target host. A route and its stats are
+     * dropped once its pools hold no connections after an idle eviction.
+     */
+    public Map<String, RouteStats> getRouteStats() {
+        Map<String, RouteStats> routeStats = new HashMap<>();
+        PoolingNHttpClientConnectionManager asyncConnectionManager = ASYNC_CONNECTION_MANAGER;
+        for (HttpRoute route : ROUTES) {
+            PoolStats stats = CONNECTION_MANAGER.getStats(route);
+            if (asyncConnectionManager != null) {
+                PoolStats asyncStats = asyncConnectionManager.getStats(route);
+                stats = new PoolStats(stats.getLeased() + asyncStats.getLeased(),
+                        stats.getPending() + asyncStats.getPending(),
+                        stats.getAvailable() + asyncStats.getAvailable(),
+                        Math.max(stats.getMax(), asyncStats.getMax()));
+            }
+            String host = route.getTargetHost().toURI();
+            LeaseWaits leaseWaits = LEASE_WAITS.getOrDefault(host, LeaseWaits.NONE);
+            routeStats.put(host, new RouteStats(host, stats.getLeased(), stats.getPending(), stats.getAvailable(),
+                    stats.getMax(), leaseWaits.leases.sum(), leaseWaits.failures.sum(), leaseWaits.waitSumMillis.sum(),
+                    leaseWaits.waitMaxMillis.get()));
+        }
+        return routeStats;
+    }
+
+    private static final class LeaseWaits {
+        private static final LeaseWaits NONE = new LeaseWaits();
+
+        private final LongAdder leases = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder waitSumMillis = new LongAdder();
+        private final LongAccumulator waitMaxMillis = new LongAccumulator(Math::max, 0);
+
+        private void record(long waitMillis, boolean leased) {
+            if (leased) {
+                leases.increment();
+            } else {
+                failures.increment();
+            }
+            waitSumMillis.add(waitMillis);
+            waitMaxMillis.accumulate(waitMillis);
+        }
     }
 
     public String execute(BaseMessage message) throws Exception {
@@ -105,7 +392,59 @@ public class DestinationHttpClient {
         }
     }
 
+    /**
+     * Sends the message without holding a thread for the round-trip. The returned future completes with the response
+     * content, or exceptionally if the request fails or the destination responds with an invalid status. Cancelling the
+     * future aborts the request.
+     */
+    public CompletableFuture<String> executeAsync(BaseMessage message) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        // The async pool has to exist before the request is built so that route overrides are applied to it
+        CloseableHttpAsyncClient asyncHttpClient = getAsyncHttpClient();
+        HttpRequestBase httpRequest;
+        try {
+            httpRequest = buildHttpRequest(message);
+        } catch (Exception ex) {
+            result.completeExceptionally(ex);
+            return result;
+        }
+
+        Future<HttpResponse> pending = asyncHttpClient.execute(httpRequest, new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse response) {
+                try {
+                    validateResponseStatus(response);
+                    result.complete(getResponseString(response));
+                } catch (Exception ex) {
+                    result.completeExceptionally(ex);
+                } finally {
+                    EntityUtils.consumeQuietly(response.getEntity());
+                }
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                result.completeExceptionally(ex);
+            }
+
+            @Override
+            public void cancelled() {
+                result.cancel(false);
+            }
+        });
+        result.whenComplete((response, ex) -> {
+            if (result.isCancelled()) {
+                pending.cancel(true);
+            }
+        });
+        return result;
+    }
+
     private CloseableHttpResponse getHttpResponse(BaseMessage message) throws Exception {
+        return HTTP_CLIENT.execute(buildHttpRequest(message));
+    }
+
+    private HttpRequestBase buildHttpRequest(BaseMessage message) throws Exception {
         URI uri = null;
         HttpRequestBase httpRequest;
         if (message instanceof CustomWebhookMessage) {
@@ -127,12 +466,73 @@ public class DestinationHttpClient {
         }
 
         httpRequest.setURI(uri);
+        httpRequest.setConfig(requestConfig(message));
+        configureRoute(message, uri);
         if (httpRequest instanceof HttpEntityEnclosingRequestBase){
-            StringEntity entity = new StringEntity(extractBody(message), StandardCharsets.UTF_8);
-            ((HttpEntityEnclosingRequestBase) httpRequest).setEntity(entity);
+            ((HttpEntityEnclosingRequestBase) httpRequest).setEntity(createEntity(message));
         }
 
-        return HTTP_CLIENT.execute(httpRequest);
+        return httpRequest;
+    }
+
+    private RequestConfig requestConfig(BaseMessage message) {
+        HttpConnectionConfig config = CONNECTION_CONFIG;
+        int connectTimeoutMillis = config.getConnectTimeoutMillis();
+        int socketTimeoutMillis = config.getSocketTimeoutMillis();
+        if (message instanceof CustomWebhookMessage) {
+            CustomWebhookMessage customWebhookMessage = (CustomWebhookMessage) message;
+            if (customWebhookMessage.getConnectTimeoutMillis() != null) {
+                connectTimeoutMillis = customWebhookMessage.getConnectTimeoutMillis();
+            }
+            if (customWebhookMessage.getSocketTimeoutMillis() != null) {
+                socketTimeoutMillis = customWebhookMessage.getSocketTimeoutMillis();
+            }
+        }
+        return RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMillis)
+                .setConnectionRequestTimeout(config.getConnectionRequestTimeoutMillis())
+                .setSocketTimeout(socketTimeoutMillis)
+                .build();
+    }
+
+    /**
+     * Tracks the route for pool stats and resolves its pool size when a destination overrides it. The route is derived
+     * from the target host only, so the override doesn't apply when deliveries go through a proxy.
+     */
+    private void configureRoute(BaseMessage message, URI uri) {
+        if (uri.getHost() == null) {
+            return;
+        }
+        String scheme = uri.getScheme() == null ? "https" : uri.getScheme();
+        boolean secure = "https".equalsIgnoreCase(scheme);
+        int port = uri.getPort() > 0 ? uri.getPort() : (secure ? 443 : 80);
+        HttpRoute route = new HttpRoute(new HttpHost(uri.getHost(), port, scheme), null, secure);
+        boolean newRoute = ROUTES.add(route);
+
+        Integer maxConnections = message instanceof CustomWebhookMessage ?
+                ((CustomWebhookMessage) message).getMaxConnections() : null;
+        if (maxConnections == null && !ROUTE_MAX_CONNECTIONS.containsKey(route)) {
+            return;
+        }
+        int defaultMaxPerRoute = CONNECTION_CONFIG.getMaxConnectionsPerRoute();
+        int requested = maxConnections != null ? maxConnections : defaultMaxPerRoute;
+        ROUTE_MAX_CONNECTIONS.compute(route, (r, current) -> {
+            int resolved;
+            if (current != null) {
+                resolved = Math.max(current, requested);
+            } else {
+                // A route that was already in use without an override serves destinations that ask for the default
+                resolved = newRoute ? requested : Math.max(defaultMaxPerRoute, requested);
+            }
+            if (current == null || resolved != current) {
+                CONNECTION_MANAGER.setMaxPerRoute(route, resolved);
+                PoolingNHttpClientConnectionManager asyncConnectionManager = ASYNC_CONNECTION_MANAGER;
+                if (asyncConnectionManager != null) {
+                    asyncConnectionManager.setMaxPerRoute(route, resolved);
+                }
+            }
+            return resolved;
+        });
     }
 
     private HttpRequestBase constructHttpRequest(String method) {
@@ -148,7 +548,7 @@ public class DestinationHttpClient {
         }
     }
 
-    public String getResponseString(CloseableHttpResponse response) throws IOException {
+    public String getResponseString(HttpResponse response) throws IOException {
             HttpEntity entity = response.getEntity();
             if (entity == null)
                 return "{}";
@@ -167,8 +567,13 @@ public class DestinationHttpClient {
         }
     }
 
-    private String extractBody(BaseMessage message) {
-        return message.getMessageContent();
+    /**
+     * Sends the message bytes as they are. A payload that was serialized into a single buffer is sent without copying,
+     * one that spans several pages is copied once.
+     */
+    private HttpEntity createEntity(BaseMessage message) {
+        BytesRef body = message.getMessageContentBytes().toBytesRef();
+        return new ByteArrayEntity(body.bytes, body.offset, body.length, BODY_CONTENT_TYPE);
     }
 
     /*
@@ -177,4 +582,11 @@ public class DestinationHttpClient {
      public void setHttpClient(CloseableHttpClient httpClient) {
         HTTP_CLIENT = httpClient;
     }
+
+    /*
+     * This method is useful for Mocking the async client
+     */
+    public void setAsyncHttpClient(CloseableHttpAsyncClient asyncHttpClient) {
+        ASYNC_HTTP_CLIENT = asyncHttpClient;
+    }
 }
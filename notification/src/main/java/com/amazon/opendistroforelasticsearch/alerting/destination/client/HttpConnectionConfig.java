@@ -0,0 +1,142 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistroforelasticsearch.alerting.destination.client;
+
+import org.elasticsearch.common.unit.TimeValue;
+
+/**
+ * This class holds the connection pool and timeout settings used by {@link DestinationHttpClient}.
+ */
+public final class HttpConnectionConfig {
+
+    public static final HttpConnectionConfig DEFAULT = new Builder().build();
+
+    private final int maxConnections;
+    private final int maxConnectionsPerRoute;
+    private final int connectTimeoutMillis;
+    private final int connectionRequestTimeoutMillis;
+    private final int socketTimeoutMillis;
+    private final long keepAliveMillis;
+    private final long idleTimeoutMillis;
+
+    private HttpConnectionConfig(final int maxConnections,
+                                 final int maxConnectionsPerRoute,
+                                 final int connectTimeoutMillis,
+                                 final int connectionRequestTimeoutMillis,
+                                 final int socketTimeoutMillis,
+                                 final long keepAliveMillis,
+                                 final long idleTimeoutMillis) {
+        if (maxConnections < 1 || maxConnectionsPerRoute < 1) {
+            throw new IllegalArgumentException("Connection pool sizes must be positive");
+        }
+        if (maxConnectionsPerRoute > maxConnections) {
+            throw new IllegalArgumentException("Connections per route cannot exceed the total number of connections");
+        }
+        this.maxConnections = maxConnections;
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.connectionRequestTimeoutMillis = connectionRequestTimeoutMillis;
+        this.socketTimeoutMillis = socketTimeoutMillis;
+        this.keepAliveMillis = keepAliveMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "MaxConnections: " + maxConnections + ", MaxConnectionsPerRoute: " + maxConnectionsPerRoute +
+                ", ConnectTimeout: " + connectTimeoutMillis + ", ConnectionRequestTimeout: " + connectionRequestTimeoutMillis +
+                ", SocketTimeout: " + socketTimeoutMillis + ", KeepAlive: " + keepAliveMillis + ", IdleTimeout: " + idleTimeoutMillis;
+    }
+
+    public static class Builder {
+        private int maxConnections = 1000;
+        private int maxConnectionsPerRoute = 200;
+        private int connectTimeoutMillis = (int) TimeValue.timeValueSeconds(5).millis();
+        private int connectionRequestTimeoutMillis = (int) TimeValue.timeValueSeconds(5).millis();
+        private int socketTimeoutMillis = (int) TimeValue.timeValueSeconds(50).millis();
+        private long keepAliveMillis = TimeValue.timeValueMinutes(1).millis();
+        private long idleTimeoutMillis = TimeValue.timeValueSeconds(30).millis();
+
+        public HttpConnectionConfig.Builder withMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        public HttpConnectionConfig.Builder withMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+            this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+            return this;
+        }
+
+        public HttpConnectionConfig.Builder withConnectTimeoutMillis(int connectTimeoutMillis) {
+            this.connectTimeoutMillis = connectTimeoutMillis;
+            return this;
+        }
+
+        public HttpConnectionConfig.Builder withConnectionRequestTimeoutMillis(int connectionRequestTimeoutMillis) {
+            this.connectionRequestTimeoutMillis = connectionRequestTimeoutMillis;
+            return this;
+        }
+
+        public HttpConnectionConfig.Builder withSocketTimeoutMillis(int socketTimeoutMillis) {
+            this.socketTimeoutMillis = socketTimeoutMillis;
+            return this;
+        }
+
+        public HttpConnectionConfig.Builder withKeepAliveMillis(long keepAliveMillis) {
+            this.keepAliveMillis = keepAliveMillis;
+            return this;
+        }
+
+        public HttpConnectionConfig.Builder withIdleTimeoutMillis(long idleTimeoutMillis) {
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            return this;
+        }
+
+        public HttpConnectionConfig build() {
+            return new HttpConnectionConfig(maxConnections, maxConnectionsPerRoute, connectTimeoutMillis,
+                    connectionRequestTimeoutMillis, socketTimeoutMillis, keepAliveMillis, idleTimeoutMillis);
+        }
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public int getConnectionRequestTimeoutMillis() {
+        return connectionRequestTimeoutMillis;
+    }
+
+    public int getSocketTimeoutMillis() {
+        return socketTimeoutMillis;
+    }
+
+    public long getKeepAliveMillis() {
+        return keepAliveMillis;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+}
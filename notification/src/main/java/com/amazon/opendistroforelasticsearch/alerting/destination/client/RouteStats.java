@@ -0,0 +1,95 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.destination.client;
+
+/**
+ * This class holds a snapshot of the connection pool of a destination route, summed over the blocking and the
+ * non-blocking client, and of how long deliveries waited to lease a connection from it.
+ */
+public class RouteStats {
+
+    private final String host;
+    private final int leased;
+    private final int pending;
+    private final int available;
+    private final int max;
+    private final long leases;
+    private final long leaseFailures;
+    private final long leaseWaitSumMillis;
+    private final long leaseWaitMaxMillis;
+
+    public RouteStats(String host, int leased, int pending, int available, int max, long leases, long leaseFailures,
+                      long leaseWaitSumMillis, long leaseWaitMaxMillis) {
+        this.host = host;
+        this.leased = leased;
+        this.pending = pending;
+        this.available = available;
+        this.max = max;
+        this.leases = leases;
+        this.leaseFailures = leaseFailures;
+        this.leaseWaitSumMillis = leaseWaitSumMillis;
+        this.leaseWaitMaxMillis = leaseWaitMaxMillis;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getLeased() {
+        return leased;
+    }
+
+    /**
+     * The number of requests waiting to lease a connection from the route's pool.
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    public int getAvailable() {
+        return available;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    /**
+     * The number of connections leased from the route's pool.
+     */
+    public long getLeases() {
+        return leases;
+    }
+
+    /**
+     * The number of lease requests that failed, e.g. because no connection became available within the connection
+     * request timeout.
+     */
+    public long getLeaseFailures() {
+        return leaseFailures;
+    }
+
+    /**
+     * The total time lease requests, successful or not, waited for a connection.
+     */
+    public long getLeaseWaitSumMillis() {
+        return leaseWaitSumMillis;
+    }
+
+    public long getLeaseWaitMaxMillis() {
+        return leaseWaitMaxMillis;
+    }
+}
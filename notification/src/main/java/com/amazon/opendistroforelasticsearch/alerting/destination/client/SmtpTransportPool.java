@@ -0,0 +1,268 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistroforelasticsearch.alerting.destination.client;
+
+import com.sun.mail.smtp.SMTPSendFailedException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.unit.TimeValue;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.Transport;
+
+/**
+ * This class keeps connected SMTP transports per email account, so that consecutive emails to the same server reuse
+ * the connection instead of opening, securing and authenticating a new one for every message.
+ */
+public class SmtpTransportPool {
+
+    private static final Logger logger = LogManager.getLogger(SmtpTransportPool.class);
+
+    public static final int DEFAULT_MAX_TRANSPORTS_PER_KEY = 10;
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = TimeValue.timeValueMinutes(1).millis();
+    public static final long DEFAULT_LEASE_TIMEOUT_MILLIS = TimeValue.timeValueSeconds(30).millis();
+
+    private final int maxTransportsPerKey;
+    private final long idleTimeoutMillis;
+    private final long leaseTimeoutMillis;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Session, Entry> entriesBySession = new ConcurrentHashMap<>();
+
+    public SmtpTransportPool() {
+        this(DEFAULT_MAX_TRANSPORTS_PER_KEY, DEFAULT_IDLE_TIMEOUT_MILLIS, DEFAULT_LEASE_TIMEOUT_MILLIS);
+    }
+
+    public SmtpTransportPool(int maxTransportsPerKey, long idleTimeoutMillis, long leaseTimeoutMillis) {
+        if (maxTransportsPerKey < 1) {
+            throw new IllegalArgumentException("Max transports must be positive");
+        }
+        this.maxTransportsPerKey = maxTransportsPerKey;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leaseTimeoutMillis = leaseTimeoutMillis;
+    }
+
+    /**
+     * Returns the session shared by every message sent with the given key. The session is recreated, and its idle
+     * transports closed, when the password changes.
+     */
+    public Session getSession(Key key, String password, Supplier<Session> sessionFactory) {
+        Entry entry = entries.compute(key, (k, existing) -> {
+            if (existing != null && Objects.equals(existing.password, password)) {
+                return existing;
+            }
+            if (existing != null) {
+                entriesBySession.remove(existing.session);
+                existing.retire();
+            }
+            Entry created = new Entry(key, sessionFactory.get(), password, maxTransportsPerKey);
+            entriesBySession.put(created.session, created);
+            return created;
+        });
+        return entry.session;
+    }
+
+    /**
+     * Sends the message over a pooled transport of its session. A reused transport that turns out to be disconnected
+     * is replaced once by a fresh connection. Messages from sessions that were not created by this pool are sent with
+     * a one-off connection.
+     */
+    public void send(Message message) throws MessagingException {
+        Entry entry = entriesBySession.get(message.getSession());
+        if (entry == null) {
+            Transport.send(message);
+            return;
+        }
+
+        try {
+            if (!entry.permits.tryAcquire(leaseTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("Timed out waiting for an SMTP connection to " + entry.key);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted waiting for an SMTP connection to " + entry.key, e);
+        }
+
+        PooledTransport pooled = null;
+        try {
+            message.saveChanges();
+            pooled = entry.pollIdle(idleTimeoutMillis);
+            if (pooled == null) {
+                pooled = connect(entry);
+                pooled.transport.sendMessage(message, message.getAllRecipients());
+            } else {
+                try {
+                    pooled.transport.sendMessage(message, message.getAllRecipients());
+                } catch (MessagingException | IllegalStateException e) {
+                    if (e instanceof MessagingException && !isConnectionFailure((MessagingException) e)) {
+                        throw e;
+                    }
+                    logger.debug("Reconnecting pooled SMTP transport to " + entry.key, e);
+                    close(pooled);
+                    pooled = connect(entry);
+                    pooled.transport.sendMessage(message, message.getAllRecipients());
+                }
+            }
+            entry.release(pooled);
+            pooled = null;
+        } finally {
+            if (pooled != null) {
+                close(pooled);
+            }
+            entry.permits.release();
+        }
+    }
+
+    /**
+     * Closes transports that have been idle longer than the idle timeout.
+     */
+    public void evictIdleTransports() {
+        for (Entry entry : entries.values()) {
+            entry.closeIdle(idleTimeoutMillis);
+        }
+    }
+
+    private PooledTransport connect(Entry entry) throws MessagingException {
+        Transport transport = entry.session.getTransport();
+        transport.connect();
+        return new PooledTransport(transport);
+    }
+
+    /**
+     * A server rejecting the message is reported with its reply code, while a dropped connection surfaces without
+     * one, or as a plain messaging failure when the command can't be written.
+     */
+    private static boolean isConnectionFailure(MessagingException e) {
+        if (e instanceof SMTPSendFailedException) {
+            return ((SMTPSendFailedException) e).getReturnCode() == -1;
+        }
+        return !(e instanceof SendFailedException);
+    }
+
+    private static void close(PooledTransport pooled) {
+        try {
+            pooled.transport.close();
+        } catch (MessagingException e) {
+            logger.debug("Failed to close SMTP transport", e);
+        }
+    }
+
+    /**
+     * Identifies the SMTP server and account a transport is connected and authenticated to.
+     */
+    public static final class Key {
+        private final String host;
+        private final int port;
+        private final String method;
+        private final String username;
+
+        public Key(String host, int port, String method, String username) {
+            this.host = host;
+            this.port = port;
+            this.method = method;
+            this.username = username;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return port == key.port && Objects.equals(host, key.host) && Objects.equals(method, key.method) &&
+                    Objects.equals(username, key.username);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(host, port, method, username);
+        }
+
+        @Override
+        public String toString() {
+            return "Host: " + host + ", Port: " + port + ", Method: " + method + ", Username: " + username;
+        }
+    }
+
+    private static final class PooledTransport {
+        private final Transport transport;
+        private long lastUsedNanos = System.nanoTime();
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+    }
+
+    private static final class Entry {
+        private final Key key;
+        private final Session session;
+        private final String password;
+        private final Semaphore permits;
+        private final Deque<PooledTransport> idle = new ArrayDeque<>();
+        private boolean retired;
+
+        private Entry(Key key, Session session, String password, int maxTransports) {
+            this.key = key;
+            this.session = session;
+            this.password = password;
+            this.permits = new Semaphore(maxTransports);
+        }
+
+        /**
+         * Returns the most recently used idle transport, closing any that have outlived the idle timeout.
+         */
+        private synchronized PooledTransport pollIdle(long idleTimeoutMillis) {
+            closeIdle(idleTimeoutMillis);
+            return idle.pollFirst();
+        }
+
+        private synchronized void release(PooledTransport pooled) {
+            if (retired) {
+                close(pooled);
+                return;
+            }
+            pooled.lastUsedNanos = System.nanoTime();
+            idle.addFirst(pooled);
+        }
+
+        /**
+         * Closes the idle transports of an entry that was replaced, and any transport still leased once it's released.
+         */
+        private synchronized void retire() {
+            retired = true;
+            closeIdle(0);
+        }
+
+        private synchronized void closeIdle(long idleTimeoutMillis) {
+            long now = System.nanoTime();
+            while (!idle.isEmpty() &&
+                    TimeUnit.NANOSECONDS.toMillis(now - idle.peekLast().lastUsedNanos) >= idleTimeoutMillis) {
+                close(idle.pollLast());
+            }
+        }
+    }
+}
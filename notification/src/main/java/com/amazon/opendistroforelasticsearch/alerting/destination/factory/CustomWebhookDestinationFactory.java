@@ -18,11 +18,16 @@ package com.amazon.opendistroforelasticsearch.alerting.destination.factory;
 import com.amazon.opendistroforelasticsearch.alerting.destination.client.DestinationHttpClient;
 import com.amazon.opendistroforelasticsearch.alerting.destination.client.DestinationHttpClientPool;
 import com.amazon.opendistroforelasticsearch.alerting.destination.message.CustomWebhookMessage;
+import com.amazon.opendistroforelasticsearch.alerting.destination.response.BaseResponse;
 import com.amazon.opendistroforelasticsearch.alerting.destination.response.DestinationResponse;
+import com.amazon.opendistroforelasticsearch.alerting.destination.util.Futures;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.rest.RestStatus;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 /**
  * This class handles the client responsible for submitting the messages to custom webhook destination.
  */
@@ -47,6 +52,18 @@ public class CustomWebhookDestinationFactory implements DestinationFactory<Custo
         }
     }
 
+    @Override
+    public CompletableFuture<BaseResponse> publishAsync(CustomWebhookMessage message) {
+        CompletableFuture<String> source = getClient(message).executeAsync(message);
+        return Futures.propagateCancellation(source, source.handle((response, ex) -> {
+            if (ex != null) {
+                logger.error("Exception publishing Message: " + message.toString(), ex);
+                throw new IllegalStateException(ex instanceof CompletionException ? ex.getCause() : ex);
+            }
+            return new DestinationResponse.Builder().withStatusCode(RestStatus.OK.getStatus()).withResponseContent(response).build();
+        }));
+    }
+
     @Override
     public DestinationHttpClient getClient(CustomWebhookMessage message) {
         return destinationHttpClient;
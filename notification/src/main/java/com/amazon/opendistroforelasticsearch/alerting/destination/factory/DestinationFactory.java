@@ -19,6 +19,8 @@ import com.amazon.opendistroforelasticsearch.alerting.destination.message.BaseMe
 import com.amazon.opendistroforelasticsearch.alerting.destination.message.DestinationType;
 import com.amazon.opendistroforelasticsearch.alerting.destination.response.BaseResponse;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Interface which enables to plug in multiple notification Channel Factories.
  *
@@ -28,5 +30,19 @@ import com.amazon.opendistroforelasticsearch.alerting.destination.response.BaseR
 public interface DestinationFactory<T extends BaseMessage, Y> {
     BaseResponse publish(T message);
 
+    /**
+     * Publishes the message without blocking on the delivery. Destinations without a non-blocking client publish on the
+     * calling thread and return a completed future.
+     */
+    default CompletableFuture<BaseResponse> publishAsync(T message) {
+        CompletableFuture<BaseResponse> result = new CompletableFuture<>();
+        try {
+            result.complete(publish(message));
+        } catch (Exception ex) {
+            result.completeExceptionally(ex);
+        }
+        return result;
+    }
+
     Y getClient(T message);
 }
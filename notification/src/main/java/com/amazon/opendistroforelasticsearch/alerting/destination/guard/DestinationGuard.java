@@ -0,0 +1,255 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistroforelasticsearch.alerting.destination.guard;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * This class protects destinations, and the threads delivering to them, with a token bucket rate limiter and a
+ * failure-rate circuit breaker per destination id. Deliveries that are rejected fail fast with a
+ * {@link DestinationRejectedException} instead of waiting on a destination that is down or throttling.
+ */
+public class DestinationGuard {
+
+    private static final Logger logger = LogManager.getLogger(DestinationGuard.class);
+
+    private static final DestinationGuard INSTANCE = new DestinationGuard();
+
+    /**
+     * How long the state of a destination is kept without deliveries. By then its rate limit has refilled and its
+     * failures are too old to matter, so a destination that is delivered to again starts from a fresh state.
+     */
+    private static final long IDLE_STATE_TIMEOUT_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    public enum CircuitState {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private volatile DestinationGuardConfig config = DestinationGuardConfig.DEFAULT;
+    private final Map<String, State> states = new ConcurrentHashMap<>();
+    private final LongSupplier nanoClock;
+
+    public DestinationGuard() {
+        this(System::nanoTime);
+    }
+
+    /*
+     * This constructor is useful for testing with a controlled clock
+     */
+    public DestinationGuard(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+    }
+
+    public static DestinationGuard getInstance() {
+        return INSTANCE;
+    }
+
+    public void updateConfig(DestinationGuardConfig config) {
+        this.config = config;
+        logger.debug("Updated destination guard config: " + config);
+    }
+
+    /**
+     * Takes a permit for a delivery to the destination, or throws if the delivery should not be attempted.
+     * Every permit has to be followed by {@link #onSuccess} or {@link #onFailure} once the delivery completes.
+     */
+    public void acquire(String destinationId) {
+        DestinationGuardConfig current = config;
+        long now = nanoClock.getAsLong();
+        // Acquired while mapped, so that evictIdleStates can't drop a state a delivery is starting on
+        states.compute(destinationId, (id, state) -> {
+            State acquired = state == null ? new State(current, now) : state;
+            acquired.acquire(destinationId, current, now);
+            return acquired;
+        });
+    }
+
+    public void onSuccess(String destinationId) {
+        record(destinationId, false);
+    }
+
+    public void onFailure(String destinationId) {
+        record(destinationId, true);
+    }
+
+    private void record(String destinationId, boolean failed) {
+        State state = states.get(destinationId);
+        if (state != null) {
+            state.record(destinationId, config, nanoClock.getAsLong(), failed);
+        }
+    }
+
+    /**
+     * Drops the state of destinations with a closed circuit and no deliveries in flight that haven't been delivered to
+     * for an hour, so that deleted destinations don't accumulate. Their stats are dropped along with them.
+     */
+    public void evictIdleStates() {
+        long now = nanoClock.getAsLong();
+        long idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(IDLE_STATE_TIMEOUT_MILLIS);
+        for (String destinationId : states.keySet()) {
+            states.computeIfPresent(destinationId, (id, state) -> state.isIdle(now, idleTimeoutNanos) ? null : state);
+        }
+    }
+
+    public List<DestinationGuardStats> getStats() {
+        List<DestinationGuardStats> stats = new ArrayList<>();
+        for (Map.Entry<String, State> e : states.entrySet()) {
+            stats.add(e.getValue().stats(e.getKey()));
+        }
+        return stats;
+    }
+
+    private static final class State {
+        private double tokens;
+        private long lastRefillNanos;
+
+        private CircuitState circuitState = CircuitState.CLOSED;
+        private long openedAtNanos;
+        private boolean trialInFlight;
+
+        // Outcomes of the most recent deliveries, true for failures
+        private boolean[] window;
+        private int next;
+        private int recorded;
+        private int windowFailures;
+
+        private long successes;
+        private long failures;
+        private long rejectedCircuitOpen;
+        private long rejectedRateLimited;
+
+        private int inFlight;
+        private long lastUsedNanos;
+
+        private State(DestinationGuardConfig config, long now) {
+            this.tokens = config.getBurst();
+            this.lastRefillNanos = now;
+            this.lastUsedNanos = now;
+            this.window = new boolean[config.getWindowSize()];
+        }
+
+        private synchronized void acquire(String destinationId, DestinationGuardConfig config, long now) {
+            if (circuitState == CircuitState.OPEN) {
+                if (now - openedAtNanos < TimeUnit.MILLISECONDS.toNanos(config.getOpenDurationMillis())) {
+                    rejectedCircuitOpen++;
+                    throw new DestinationRejectedException(destinationId, DestinationRejectedException.Reason.CIRCUIT_OPEN);
+                }
+                circuitState = CircuitState.HALF_OPEN;
+                trialInFlight = false;
+            }
+            // A half open breaker lets a single trial delivery through to find out whether the destination recovered
+            if (circuitState == CircuitState.HALF_OPEN && trialInFlight) {
+                rejectedCircuitOpen++;
+                throw new DestinationRejectedException(destinationId, DestinationRejectedException.Reason.CIRCUIT_OPEN);
+            }
+
+            if (config.isRateLimited()) {
+                tokens = Math.min(config.getBurst(),
+                        tokens + (now - lastRefillNanos) * config.getPermitsPerSecond() / TimeUnit.SECONDS.toNanos(1));
+                lastRefillNanos = now;
+                if (tokens < 1) {
+                    rejectedRateLimited++;
+                    throw new DestinationRejectedException(destinationId, DestinationRejectedException.Reason.RATE_LIMITED);
+                }
+                tokens -= 1;
+            }
+            if (circuitState == CircuitState.HALF_OPEN) {
+                trialInFlight = true;
+            }
+            inFlight++;
+            lastUsedNanos = now;
+        }
+
+        private synchronized void record(String destinationId, DestinationGuardConfig config, long now, boolean failed) {
+            if (inFlight > 0) {
+                inFlight--;
+            }
+            lastUsedNanos = now;
+            if (failed) {
+                failures++;
+            } else {
+                successes++;
+            }
+
+            if (circuitState == CircuitState.HALF_OPEN) {
+                if (failed) {
+                    open(destinationId, now);
+                } else {
+                    circuitState = CircuitState.CLOSED;
+                    resetWindow(config);
+                    logger.info("Circuit breaker closed for destination " + destinationId);
+                }
+                return;
+            }
+            // Deliveries that were already in flight when the breaker opened don't affect it
+            if (circuitState == CircuitState.OPEN) {
+                return;
+            }
+
+            if (window.length != config.getWindowSize()) {
+                resetWindow(config);
+            }
+            if (recorded == window.length) {
+                if (window[next]) windowFailures--;
+            } else {
+                recorded++;
+            }
+            window[next] = failed;
+            if (failed) windowFailures++;
+            next = (next + 1) % window.length;
+
+            // Minimum calls above the window size can never be recorded, so they're capped at it
+            int minimumCalls = Math.min(config.getMinimumCalls(), window.length);
+            if (recorded >= minimumCalls && windowFailures >= config.getFailureRateThreshold() * recorded) {
+                open(destinationId, now);
+            }
+        }
+
+        private void open(String destinationId, long now) {
+            circuitState = CircuitState.OPEN;
+            openedAtNanos = now;
+            trialInFlight = false;
+            logger.warn("Circuit breaker opened for destination " + destinationId);
+        }
+
+        private void resetWindow(DestinationGuardConfig config) {
+            window = new boolean[config.getWindowSize()];
+            next = 0;
+            recorded = 0;
+            windowFailures = 0;
+        }
+
+        private synchronized boolean isIdle(long now, long idleTimeoutNanos) {
+            return circuitState == CircuitState.CLOSED && inFlight == 0 && now - lastUsedNanos >= idleTimeoutNanos;
+        }
+
+        private synchronized DestinationGuardStats stats(String destinationId) {
+            return new DestinationGuardStats(destinationId, circuitState, successes, failures, rejectedCircuitOpen,
+                    rejectedRateLimited);
+        }
+    }
+}
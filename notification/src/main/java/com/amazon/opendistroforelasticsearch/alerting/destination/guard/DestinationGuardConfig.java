@@ -0,0 +1,139 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistroforelasticsearch.alerting.destination.guard;
+
+import org.elasticsearch.common.unit.TimeValue;
+
+/**
+ * This class holds the rate limit and circuit breaker settings applied to every destination by {@link DestinationGuard}.
+ */
+public final class DestinationGuardConfig {
+
+    public static final DestinationGuardConfig DEFAULT = new Builder().build();
+
+    private final double permitsPerSecond;
+    private final int burst;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationMillis;
+
+    private DestinationGuardConfig(final double permitsPerSecond,
+                                   final int burst,
+                                   final int windowSize,
+                                   final int minimumCalls,
+                                   final double failureRateThreshold,
+                                   final long openDurationMillis) {
+        if (permitsPerSecond < 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate limit must allow at least one delivery");
+        }
+        if (windowSize < 1 || minimumCalls < 1) {
+            throw new IllegalArgumentException("Window size and minimum calls must be at least 1");
+        }
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+            throw new IllegalArgumentException("Failure rate threshold must be in (0, 1]");
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationMillis = openDurationMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "PermitsPerSecond: " + permitsPerSecond + ", Burst: " + burst + ", WindowSize: " + windowSize +
+                ", MinimumCalls: " + minimumCalls + ", FailureRateThreshold: " + failureRateThreshold +
+                ", OpenDuration: " + openDurationMillis;
+    }
+
+    public static class Builder {
+        private double permitsPerSecond = 50;
+        private int burst = 100;
+        private int windowSize = 20;
+        private int minimumCalls = 10;
+        private double failureRateThreshold = 0.5;
+        private long openDurationMillis = TimeValue.timeValueSeconds(30).millis();
+
+        public DestinationGuardConfig.Builder withPermitsPerSecond(double permitsPerSecond) {
+            this.permitsPerSecond = permitsPerSecond;
+            return this;
+        }
+
+        public DestinationGuardConfig.Builder withBurst(int burst) {
+            this.burst = burst;
+            return this;
+        }
+
+        public DestinationGuardConfig.Builder withWindowSize(int windowSize) {
+            this.windowSize = windowSize;
+            return this;
+        }
+
+        public DestinationGuardConfig.Builder withMinimumCalls(int minimumCalls) {
+            this.minimumCalls = minimumCalls;
+            return this;
+        }
+
+        public DestinationGuardConfig.Builder withFailureRateThreshold(double failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        public DestinationGuardConfig.Builder withOpenDurationMillis(long openDurationMillis) {
+            this.openDurationMillis = openDurationMillis;
+            return this;
+        }
+
+        public DestinationGuardConfig build() {
+            return new DestinationGuardConfig(permitsPerSecond, burst, windowSize, minimumCalls, failureRateThreshold,
+                    openDurationMillis);
+        }
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    /**
+     * Whether deliveries are rate limited at all, a rate of 0 permits per second disables the rate limiter.
+     */
+    public boolean isRateLimited() {
+        return permitsPerSecond > 0;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public long getOpenDurationMillis() {
+        return openDurationMillis;
+    }
+}
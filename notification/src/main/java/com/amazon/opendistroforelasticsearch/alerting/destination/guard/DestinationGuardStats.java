@@ -0,0 +1,64 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistroforelasticsearch.alerting.destination.guard;
+
+/**
+ * This class holds a snapshot of the circuit breaker state and delivery counts of a destination.
+ */
+public class DestinationGuardStats {
+
+    private final String destinationId;
+    private final DestinationGuard.CircuitState circuitState;
+    private final long successes;
+    private final long failures;
+    private final long rejectedCircuitOpen;
+    private final long rejectedRateLimited;
+
+    public DestinationGuardStats(String destinationId, DestinationGuard.CircuitState circuitState, long successes,
+                                 long failures, long rejectedCircuitOpen, long rejectedRateLimited) {
+        this.destinationId = destinationId;
+        this.circuitState = circuitState;
+        this.successes = successes;
+        this.failures = failures;
+        this.rejectedCircuitOpen = rejectedCircuitOpen;
+        this.rejectedRateLimited = rejectedRateLimited;
+    }
+
+    public String getDestinationId() {
+        return destinationId;
+    }
+
+    public DestinationGuard.CircuitState getCircuitState() {
+        return circuitState;
+    }
+
+    public long getSuccesses() {
+        return successes;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public long getRejectedCircuitOpen() {
+        return rejectedCircuitOpen;
+    }
+
+    public long getRejectedRateLimited() {
+        return rejectedRateLimited;
+    }
+}
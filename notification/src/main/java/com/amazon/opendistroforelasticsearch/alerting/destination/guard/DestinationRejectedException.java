@@ -0,0 +1,48 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistroforelasticsearch.alerting.destination.guard;
+
+/**
+ * Thrown when a delivery is rejected without being attempted, because the destination's circuit breaker is open or its
+ * rate limit is exhausted.
+ */
+public class DestinationRejectedException extends IllegalStateException {
+
+    public enum Reason {
+        CIRCUIT_OPEN,
+        RATE_LIMITED
+    }
+
+    private final String destinationId;
+    private final Reason reason;
+
+    public DestinationRejectedException(String destinationId, Reason reason) {
+        super(reason == Reason.CIRCUIT_OPEN ?
+                "Destination " + destinationId + " is failing, deliveries are paused until its circuit breaker closes" :
+                "Destination " + destinationId + " exceeded its delivery rate limit");
+        this.destinationId = destinationId;
+        this.reason = reason;
+    }
+
+    public String getDestinationId() {
+        return destinationId;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -17,6 +17,8 @@ package com.amazon.opendistroforelasticsearch.alerting.destination.message;
 
 import org.apache.http.client.utils.URIBuilder;
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
 
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -32,6 +34,7 @@ public abstract class BaseMessage {
     protected String destinationName;
     protected String url;
     private String content;
+    private BytesReference contentBytes;
 
     BaseMessage(final DestinationType destinationType, final String destinationName, final String content) {
         if (destinationType == null) {
@@ -54,6 +57,16 @@ public abstract class BaseMessage {
         this.url = url;
     }
 
+    /*
+     * Payloads that were serialized straight into bytes are kept as such, so that they are sent without being decoded
+     * into a String and encoded back
+     */
+    BaseMessage(final DestinationType destinationType, final String destinationName,
+                final String content, final BytesReference contentBytes, final String url) {
+        this(destinationType, destinationName, content, url);
+        this.contentBytes = contentBytes;
+    }
+
     public void setUrl(String url) {
         this.url = url;
     }
@@ -66,9 +79,26 @@ public abstract class BaseMessage {
     }
 
     public String getMessageContent() {
+        if (content == null && contentBytes != null) {
+            content = contentBytes.utf8ToString();
+        }
         return content;
     }
 
+    /**
+     * Returns the UTF-8 encoded message content. Content built as bytes is returned as is, String content is encoded once.
+     */
+    public BytesReference getMessageContentBytes() {
+        if (contentBytes == null && content != null) {
+            contentBytes = new BytesArray(content);
+        }
+        return contentBytes;
+    }
+
+    static boolean isNullOrEmpty(final BytesReference bytes) {
+        return bytes == null || bytes.length() == 0;
+    }
+
     public String getUrl() {
         return url;
     }
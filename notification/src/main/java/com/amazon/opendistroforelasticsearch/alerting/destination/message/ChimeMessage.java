@@ -16,38 +16,38 @@
 package com.amazon.opendistroforelasticsearch.alerting.destination.message;
 
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesReference;
 
 /**
  * This class holds the contents of an Chime message
  */
 public class ChimeMessage extends BaseMessage {
-    private String message;
     private ChimeMessage(final DestinationType destinationType,
                          final String destinationName,
                          final String url,
-                         final String message) {
+                         final String message,
+                         final BytesReference messageBytes) {
 
-        super(destinationType, destinationName, message, url);
+        super(destinationType, destinationName, message, messageBytes, url);
 
         if (DestinationType.CHIME != destinationType) {
             throw new IllegalArgumentException("Channel Type does not match CHIME");
         }
 
-        if (Strings.isNullOrEmpty(message)) {
+        if (Strings.isNullOrEmpty(message) && isNullOrEmpty(messageBytes)) {
             throw new IllegalArgumentException("Message content is missing");
         }
-
-        this.message = message;
     }
 
     @Override
     public String toString() {
         return "DestinationType: " + destinationType + ", DestinationName:" +  destinationName +
-                ", Url: " + url + ", Message: " + message;
+                ", Url: " + url + ", Message: " + getMessageContent();
     }
 
     public static class Builder {
         private String message;
+        private BytesReference messageBytes;
         private DestinationType destinationType;
         private String destinationName;
         private String url;
@@ -62,6 +62,14 @@ public class ChimeMessage extends BaseMessage {
             return this;
         }
 
+        /**
+         * Sets a message that was already serialized, e.g. the JSON payload written by an XContentBuilder.
+         */
+        public ChimeMessage.Builder withMessage(BytesReference messageBytes) {
+            this.messageBytes = messageBytes;
+            return this;
+        }
+
         public ChimeMessage.Builder withUrl(String url) {
             this.url = url;
             return this;
@@ -69,7 +77,7 @@ public class ChimeMessage extends BaseMessage {
 
         public ChimeMessage build() {
             ChimeMessage chimeMessage = new ChimeMessage(this.destinationType, this.destinationName, this.url,
-                     this.message);
+                     this.message, this.messageBytes);
             return chimeMessage;
         }
     }
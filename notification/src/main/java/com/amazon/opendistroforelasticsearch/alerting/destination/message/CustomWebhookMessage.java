@@ -39,6 +39,9 @@ public class CustomWebhookMessage extends BaseMessage {
     private Map<String, String> headerParams;
     private final String userName;
     private final String password;
+    private final Integer maxConnections;
+    private final Integer connectTimeoutMillis;
+    private final Integer socketTimeoutMillis;
 
     private CustomWebhookMessage(final DestinationType destinationType,
                                  final String destinationName,
@@ -52,6 +55,9 @@ public class CustomWebhookMessage extends BaseMessage {
                                  final Map<String, String> headerParams,
                                  final String userName,
                                  final String password,
+                                 final Integer maxConnections,
+                                 final Integer connectTimeoutMillis,
+                                 final Integer socketTimeoutMillis,
                                  final String message) {
 
         super(destinationType, destinationName, message);
@@ -99,6 +105,16 @@ public class CustomWebhookMessage extends BaseMessage {
         this.headerParams = headerParams;
         this.userName = userName;
         this.password = password;
+
+        if (maxConnections != null && maxConnections < 1) {
+            throw new IllegalArgumentException("Max connections must be positive");
+        }
+        if ((connectTimeoutMillis != null && connectTimeoutMillis < 0) || (socketTimeoutMillis != null && socketTimeoutMillis < 0)) {
+            throw new IllegalArgumentException("Timeouts cannot be negative");
+        }
+        this.maxConnections = maxConnections;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.socketTimeoutMillis = socketTimeoutMillis;
     }
 
     @Override
@@ -122,6 +138,9 @@ public class CustomWebhookMessage extends BaseMessage {
         private Map<String, String> headerParams;
         private String userName;
         private String password;
+        private Integer maxConnections;
+        private Integer connectTimeoutMillis;
+        private Integer socketTimeoutMillis;
 
         public Builder(String destinationName) {
             this.destinationName = destinationName;
@@ -183,11 +202,27 @@ public class CustomWebhookMessage extends BaseMessage {
             return this;
         }
 
+        public CustomWebhookMessage.Builder withMaxConnections(Integer maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        public CustomWebhookMessage.Builder withConnectTimeoutMillis(Integer connectTimeoutMillis) {
+            this.connectTimeoutMillis = connectTimeoutMillis;
+            return this;
+        }
+
+        public CustomWebhookMessage.Builder withSocketTimeoutMillis(Integer socketTimeoutMillis) {
+            this.socketTimeoutMillis = socketTimeoutMillis;
+            return this;
+        }
+
         public CustomWebhookMessage build() {
             CustomWebhookMessage customWebhookMessage = new CustomWebhookMessage(
                     this.destinationType, this.destinationName, this.url,
                     this.scheme, this.host, this.port, this.path, this.method, this.queryParams,
-                    this.headerParams, this.userName, this.password, this.message);
+                    this.headerParams, this.userName, this.password, this.maxConnections,
+                    this.connectTimeoutMillis, this.socketTimeoutMillis, this.message);
             return customWebhookMessage;
         }
     }
@@ -218,6 +253,21 @@ public class CustomWebhookMessage extends BaseMessage {
         return headerParams;
     }
 
+    /**
+     * Overrides the per-route connection pool size for this destination, or null to use the cluster setting.
+     */
+    public Integer getMaxConnections() {
+        return maxConnections;
+    }
+
+    public Integer getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public Integer getSocketTimeoutMillis() {
+        return socketTimeoutMillis;
+    }
+
     public URI getUri() {
         return buildUri(getUrl(), getScheme(), getHost(), getPort(), getPath(), getQueryParams());
     }
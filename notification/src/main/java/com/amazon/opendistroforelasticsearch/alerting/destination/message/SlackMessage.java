@@ -16,18 +16,19 @@
 package com.amazon.opendistroforelasticsearch.alerting.destination.message;
 
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesReference;
 
 /**
  * This class holds the content of an Slack message
  */
 public class SlackMessage extends BaseMessage {
-    private String message;
     private SlackMessage(final DestinationType destinationType,
                          final String destinationName,
                          final String url,
-                         final String message) {
+                         final String message,
+                         final BytesReference messageBytes) {
 
-        super(destinationType, destinationName, message, url);
+        super(destinationType, destinationName, message, messageBytes, url);
 
         if (DestinationType.SLACK != destinationType) {
             throw new IllegalArgumentException("Channel Type does not match Slack");
@@ -37,21 +38,20 @@ public class SlackMessage extends BaseMessage {
             throw new IllegalArgumentException("Fully qualified URL is missing/invalid: " + url);
         }
 
-        if (Strings.isNullOrEmpty(message)) {
+        if (Strings.isNullOrEmpty(message) && isNullOrEmpty(messageBytes)) {
             throw new IllegalArgumentException("Message content is missing");
         }
-
-        this.message = message;
     }
 
     @Override
     public String toString() {
         return "DestinationType: " + destinationType + ", DestinationName:" +  destinationName +
-                ", Url: " + url + ", Message: " + message;
+                ", Url: " + url + ", Message: " + getMessageContent();
     }
 
     public static class Builder {
         private String message;
+        private BytesReference messageBytes;
         private DestinationType destinationType;
         private String destinationName;
         private String url;
@@ -66,6 +66,14 @@ public class SlackMessage extends BaseMessage {
             return this;
         }
 
+        /**
+         * Sets a message that was already serialized, e.g. the JSON payload written by an XContentBuilder.
+         */
+        public SlackMessage.Builder withMessage(BytesReference messageBytes) {
+            this.messageBytes = messageBytes;
+            return this;
+        }
+
         public SlackMessage.Builder withUrl(String url) {
             this.url = url;
             return this;
@@ -75,13 +83,14 @@ public class SlackMessage extends BaseMessage {
             SlackMessage slackMessage = new SlackMessage(this.destinationType,
                     this.destinationName,
                     this.url,
-                    this.message);
+                    this.message,
+                    this.messageBytes);
             return slackMessage;
         }
     }
 
     public String getMessage() {
-        return message;
+        return getMessageContent();
     }
 
     public String getUrl() {
@@ -0,0 +1,126 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistroforelasticsearch.alerting.destination.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class keeps delivery counters and a latency histogram per destination id, so that slow or failing destinations
+ * can be told apart under load. Deliveries are recorded by {@code Notification}, throttled actions by the monitor runner.
+ */
+public class DeliveryMetrics {
+
+    private static final DeliveryMetrics INSTANCE = new DeliveryMetrics();
+
+    /**
+     * Upper bounds of the latency histogram buckets in milliseconds. Latencies above the last bound fall in an extra
+     * overflow bucket.
+     */
+    public static final long[] LATENCY_BUCKET_BOUNDS_MILLIS = {10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000};
+
+    private final Map<String, Metrics> metrics = new ConcurrentHashMap<>();
+
+    public static DeliveryMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    public void recordAttempt(String destinationType, String destinationId) {
+        get(destinationType, destinationId).attempts.increment();
+    }
+
+    public void recordSuccess(String destinationType, String destinationId, long latencyMillis) {
+        Metrics m = get(destinationType, destinationId);
+        m.successes.increment();
+        m.recordLatency(latencyMillis);
+    }
+
+    public void recordFailure(String destinationType, String destinationId, long latencyMillis) {
+        Metrics m = get(destinationType, destinationId);
+        m.failures.increment();
+        m.recordLatency(latencyMillis);
+    }
+
+    /**
+     * Records a delivery that was rejected by the destination's rate limiter or circuit breaker without being attempted.
+     */
+    public void recordRejected(String destinationType, String destinationId) {
+        get(destinationType, destinationId).rejected.increment();
+    }
+
+    /**
+     * Records an action that wasn't executed because of its throttle. The destination type isn't known at that point and
+     * is null unless the destination has been delivered to before.
+     */
+    public void recordThrottled(String destinationType, String destinationId) {
+        get(destinationType, destinationId).throttled.increment();
+    }
+
+    public List<DeliveryStats> getStats() {
+        List<DeliveryStats> stats = new ArrayList<>();
+        for (Map.Entry<String, Metrics> e : metrics.entrySet()) {
+            stats.add(e.getValue().stats(e.getKey()));
+        }
+        return stats;
+    }
+
+    private Metrics get(String destinationType, String destinationId) {
+        Metrics m = metrics.computeIfAbsent(destinationId, id -> new Metrics());
+        if (destinationType != null) {
+            m.destinationType = destinationType;
+        }
+        return m;
+    }
+
+    private static final class Metrics {
+        private volatile String destinationType;
+
+        private final LongAdder attempts = new LongAdder();
+        private final LongAdder successes = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder throttled = new LongAdder();
+
+        private final AtomicLongArray latencyBuckets = new AtomicLongArray(LATENCY_BUCKET_BOUNDS_MILLIS.length + 1);
+        private final LongAdder latencySumMillis = new LongAdder();
+        private final LongAccumulator latencyMaxMillis = new LongAccumulator(Math::max, 0);
+
+        private void recordLatency(long latencyMillis) {
+            int bucket = 0;
+            while (bucket < LATENCY_BUCKET_BOUNDS_MILLIS.length && latencyMillis > LATENCY_BUCKET_BOUNDS_MILLIS[bucket]) {
+                bucket++;
+            }
+            latencyBuckets.incrementAndGet(bucket);
+            latencySumMillis.add(latencyMillis);
+            latencyMaxMillis.accumulate(latencyMillis);
+        }
+
+        private DeliveryStats stats(String destinationId) {
+            long[] buckets = new long[latencyBuckets.length()];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = latencyBuckets.get(i);
+            }
+            return new DeliveryStats(destinationId, destinationType, attempts.sum(), successes.sum(), failures.sum(),
+                    rejected.sum(), throttled.sum(), buckets, latencySumMillis.sum(), latencyMaxMillis.get());
+        }
+    }
+}
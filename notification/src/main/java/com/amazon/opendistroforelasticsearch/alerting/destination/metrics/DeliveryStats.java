@@ -0,0 +1,121 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistroforelasticsearch.alerting.destination.metrics;
+
+/**
+ * This class holds a snapshot of the delivery counters and latency histogram of a destination.
+ */
+public class DeliveryStats {
+
+    private final String destinationId;
+    private final String destinationType;
+    private final long attempts;
+    private final long successes;
+    private final long failures;
+    private final long rejected;
+    private final long throttled;
+    private final long[] latencyBuckets;
+    private final long latencySumMillis;
+    private final long latencyMaxMillis;
+
+    public DeliveryStats(String destinationId, String destinationType, long attempts, long successes, long failures,
+                         long rejected, long throttled, long[] latencyBuckets, long latencySumMillis, long latencyMaxMillis) {
+        this.destinationId = destinationId;
+        this.destinationType = destinationType;
+        this.attempts = attempts;
+        this.successes = successes;
+        this.failures = failures;
+        this.rejected = rejected;
+        this.throttled = throttled;
+        this.latencyBuckets = latencyBuckets;
+        this.latencySumMillis = latencySumMillis;
+        this.latencyMaxMillis = latencyMaxMillis;
+    }
+
+    public String getDestinationId() {
+        return destinationId;
+    }
+
+    /**
+     * The destination type, or null if the destination has only had throttled actions so far.
+     */
+    public String getDestinationType() {
+        return destinationType;
+    }
+
+    public long getAttempts() {
+        return attempts;
+    }
+
+    public long getSuccesses() {
+        return successes;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getThrottled() {
+        return throttled;
+    }
+
+    /**
+     * Counts of completed deliveries per latency bucket, see {@link DeliveryMetrics#LATENCY_BUCKET_BOUNDS_MILLIS}.
+     */
+    public long[] getLatencyBuckets() {
+        return latencyBuckets;
+    }
+
+    public long getLatencySumMillis() {
+        return latencySumMillis;
+    }
+
+    public long getLatencyMaxMillis() {
+        return latencyMaxMillis;
+    }
+
+    public long getLatencyCount() {
+        long count = 0;
+        for (long bucket : latencyBuckets) {
+            count += bucket;
+        }
+        return count;
+    }
+
+    /**
+     * Estimates the latency percentile as the upper bound of the bucket it falls in, capped by the maximum latency.
+     */
+    public long getLatencyPercentileMillis(double percentile) {
+        long count = getLatencyCount();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100 * count);
+        long seen = 0;
+        for (int i = 0; i < latencyBuckets.length; i++) {
+            seen += latencyBuckets[i];
+            if (seen >= rank && i < DeliveryMetrics.LATENCY_BUCKET_BOUNDS_MILLIS.length) {
+                return Math.min(DeliveryMetrics.LATENCY_BUCKET_BOUNDS_MILLIS[i], latencyMaxMillis);
+            }
+        }
+        return latencyMaxMillis;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+package com.amazon.opendistroforelasticsearch.alerting.destination.util;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * This class holds helpers for the futures that asynchronous deliveries return.
+ */
+public final class Futures {
+
+    private Futures() {
+    }
+
+    /**
+     * Cancels the source future when the dependent stage derived from it is cancelled. Cancelling a dependent
+     * CompletableFuture doesn't cancel the future it was derived from, so without this the delivery behind a cancelled
+     * stage keeps running.
+     *
+     * @param source the future the dependent stage was derived from
+     * @param dependent the stage returned to the caller
+     * @return the dependent stage
+     */
+    public static <T> CompletableFuture<T> propagateCancellation(CompletableFuture<?> source, CompletableFuture<T> dependent) {
+        dependent.whenComplete((response, ex) -> {
+            if (dependent.isCancelled()) {
+                source.cancel(true);
+            }
+        });
+        return dependent;
+    }
+}
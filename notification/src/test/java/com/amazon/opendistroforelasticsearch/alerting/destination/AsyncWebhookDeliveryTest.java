@@ -0,0 +1,245 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistroforelasticsearch.alerting.destination;
+
+import com.amazon.opendistroforelasticsearch.alerting.destination.client.DestinationHttpClient;
+import com.amazon.opendistroforelasticsearch.alerting.destination.client.HttpConnectionConfig;
+import com.amazon.opendistroforelasticsearch.alerting.destination.client.RouteStats;
+import com.amazon.opendistroforelasticsearch.alerting.destination.factory.CustomWebhookDestinationFactory;
+import com.amazon.opendistroforelasticsearch.alerting.destination.factory.SlackDestinationFactory;
+import com.amazon.opendistroforelasticsearch.alerting.destination.message.CustomWebhookMessage;
+import com.amazon.opendistroforelasticsearch.alerting.destination.message.SlackMessage;
+import com.amazon.opendistroforelasticsearch.alerting.destination.response.BaseResponse;
+import com.amazon.opendistroforelasticsearch.alerting.destination.response.DestinationResponse;
+import com.sun.net.httpserver.HttpServer;
+import org.elasticsearch.common.SuppressForbidden;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.Streams;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Delivers webhook messages through the non-blocking client to a local HTTP stub server.
+ */
+@SuppressForbidden(reason = "use a http server")
+public class AsyncWebhookDeliveryTest {
+
+    private static final int CONCURRENT_DELIVERIES = 1000;
+    private static final long SLOW_RESPONSE_MILLIS = 2000;
+    private static final int LARGE_PAYLOAD_CHARS = 8 * 1024 * 1024;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private final AtomicInteger receivedRequests = new AtomicInteger();
+    private volatile byte[] lastReceivedBody;
+    private volatile String lastReceivedContentType;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), CONCURRENT_DELIVERIES);
+        server.createContext("/webhook", exchange -> {
+            try (InputStream body = exchange.getRequestBody()) {
+                while (body.read() != -1) { }
+            }
+            receivedRequests.incrementAndGet();
+            byte[] response = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(RestStatus.OK.getStatus(), response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.createContext("/capture", exchange -> {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (InputStream in = exchange.getRequestBody()) {
+                Streams.copy(in, body);
+            }
+            lastReceivedBody = body.toByteArray();
+            lastReceivedContentType = exchange.getRequestHeaders().getFirst("Content-Type");
+            exchange.sendResponseHeaders(RestStatus.OK.getStatus(), -1);
+            exchange.close();
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(SLOW_RESPONSE_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(RestStatus.OK.getStatus(), -1);
+            exchange.close();
+        });
+        server.createContext("/error", exchange -> {
+            exchange.sendResponseHeaders(RestStatus.INTERNAL_SERVER_ERROR.getStatus(), -1);
+            exchange.close();
+        });
+        serverExecutor = Executors.newFixedThreadPool(16);
+        server.setExecutor(serverExecutor);
+        server.start();
+    }
+
+    @After
+    public void stopServer() throws InterruptedException {
+        server.stop(0);
+        serverExecutor.shutdown();
+        serverExecutor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testConcurrentAsyncDeliveries() throws Exception {
+        CustomWebhookDestinationFactory factory = new CustomWebhookDestinationFactory();
+        factory.setClient(new DestinationHttpClient());
+
+        List<CompletableFuture<BaseResponse>> deliveries = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_DELIVERIES; i++) {
+            deliveries.add(factory.publishAsync(message("/webhook", "{\"id\":" + i + "}")));
+        }
+        CompletableFuture.allOf(deliveries.toArray(new CompletableFuture[0])).get(60, TimeUnit.SECONDS);
+
+        for (CompletableFuture<BaseResponse> delivery : deliveries) {
+            DestinationResponse response = (DestinationResponse) delivery.get();
+            assertEquals(RestStatus.OK.getStatus(), response.getStatusCode());
+            assertEquals("ok", response.getResponseContent());
+        }
+        assertEquals(CONCURRENT_DELIVERIES, receivedRequests.get());
+    }
+
+    @Test
+    public void testAsyncDeliveryFailsOnInvalidResponseStatus() throws Exception {
+        CustomWebhookDestinationFactory factory = new CustomWebhookDestinationFactory();
+        factory.setClient(new DestinationHttpClient());
+
+        try {
+            factory.publishAsync(message("/error", "{}")).get(30, TimeUnit.SECONDS);
+            fail("Delivery to a destination that responds with an error status should fail.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertTrue(e.getCause().getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void testAsyncDeliveryHonoursDestinationSocketTimeout() throws Exception {
+        CustomWebhookDestinationFactory factory = new CustomWebhookDestinationFactory();
+        factory.setClient(new DestinationHttpClient());
+
+        CustomWebhookMessage message = builder("/slow", "{}").withSocketTimeoutMillis(200).build();
+        try {
+            factory.publishAsync(message).get(SLOW_RESPONSE_MILLIS / 2, TimeUnit.MILLISECONDS);
+            fail("Delivery to a destination slower than its socket timeout should fail.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause().getCause() instanceof SocketTimeoutException);
+        }
+    }
+
+    @Test
+    public void testRouteStatsReflectDestinationPoolOverride() throws Exception {
+        DestinationHttpClient client = new DestinationHttpClient();
+        CustomWebhookDestinationFactory factory = new CustomWebhookDestinationFactory();
+        factory.setClient(client);
+
+        factory.publishAsync(builder("/webhook", "{}").withMaxConnections(5).build()).get(30, TimeUnit.SECONDS);
+        RouteStats stats = client.getRouteStats().get(baseUrl());
+        assertNotNull(stats);
+        assertEquals(5, stats.getMax());
+        assertEquals(0, stats.getLeased());
+        assertTrue(stats.getLeases() >= 1);
+
+        factory.publishAsync(message("/webhook", "{}")).get(30, TimeUnit.SECONDS);
+        RouteStats updated = client.getRouteStats().get(baseUrl());
+        assertEquals(HttpConnectionConfig.DEFAULT.getMaxConnectionsPerRoute(), updated.getMax());
+        assertTrue(updated.getLeases() > stats.getLeases());
+        assertTrue(updated.getLeaseWaitMaxMillis() <= updated.getLeaseWaitSumMillis());
+    }
+
+    @Test
+    public void testRoutePoolSizeIsLargestOverrideOfSharedHost() throws Exception {
+        DestinationHttpClient client = new DestinationHttpClient();
+        CustomWebhookDestinationFactory factory = new CustomWebhookDestinationFactory();
+        factory.setClient(client);
+
+        factory.publishAsync(builder("/webhook", "{}").withMaxConnections(8).build()).get(30, TimeUnit.SECONDS);
+        factory.publishAsync(builder("/capture", "{}").withMaxConnections(3).build()).get(30, TimeUnit.SECONDS);
+        assertEquals(8, client.getRouteStats().get(baseUrl()).getMax());
+
+        factory.publishAsync(builder("/webhook", "{}").withMaxConnections(12).build()).get(30, TimeUnit.SECONDS);
+        factory.publishAsync(builder("/capture", "{}").withMaxConnections(3).build()).get(30, TimeUnit.SECONDS);
+        assertEquals(12, client.getRouteStats().get(baseUrl()).getMax());
+    }
+
+    @Test
+    public void testLargePayloadIsSentAsSerialized() throws Exception {
+        SlackDestinationFactory factory = new SlackDestinationFactory();
+        factory.setClient(new DestinationHttpClient());
+
+        // A templated message embedding query results, with non-ASCII content to check the encoding
+        char[] text = new char[LARGE_PAYLOAD_CHARS];
+        Arrays.fill(text, 'x');
+        text[0] = '\u00e9';
+        XContentBuilder builder = XContentFactory.jsonBuilder().startObject().field("text", new String(text)).endObject();
+        BytesReference payload = BytesReference.bytes(builder);
+
+        SlackMessage message = new SlackMessage.Builder("stub").withUrl(baseUrl() + "/capture").withMessage(payload).build();
+        long start = System.nanoTime();
+        factory.publishAsync(message).get(60, TimeUnit.SECONDS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertArrayEquals(BytesReference.toBytes(payload), lastReceivedBody);
+        assertEquals("text/plain; charset=UTF-8", lastReceivedContentType);
+        assertTrue("Delivering a " + payload.length() + " byte payload took " + elapsedMillis + "ms", elapsedMillis < 30_000);
+    }
+
+    private String baseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    private CustomWebhookMessage.Builder builder(String path, String content) {
+        return new CustomWebhookMessage.Builder("stub")
+                .withUrl(baseUrl() + path)
+                .withMessage(content);
+    }
+
+    private CustomWebhookMessage message(String path, String content) {
+        return builder(path, content).build();
+    }
+}
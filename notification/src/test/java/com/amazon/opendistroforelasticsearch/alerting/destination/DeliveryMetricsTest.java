@@ -0,0 +1,80 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistroforelasticsearch.alerting.destination;
+
+import com.amazon.opendistroforelasticsearch.alerting.destination.metrics.DeliveryMetrics;
+import com.amazon.opendistroforelasticsearch.alerting.destination.metrics.DeliveryStats;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class DeliveryMetricsTest {
+
+    @Test
+    public void testCountersAndLatencyHistogram() {
+        DeliveryMetrics metrics = new DeliveryMetrics();
+        for (int i = 0; i < 98; i++) {
+            metrics.recordAttempt("SLACK", "dest");
+            metrics.recordSuccess("SLACK", "dest", 20);
+        }
+        metrics.recordAttempt("SLACK", "dest");
+        metrics.recordFailure("SLACK", "dest", 400);
+        metrics.recordAttempt("SLACK", "dest");
+        metrics.recordFailure("SLACK", "dest", 120000);
+        metrics.recordRejected("SLACK", "dest");
+        metrics.recordThrottled(null, "dest");
+
+        DeliveryStats stats = stats(metrics, "dest");
+        assertEquals("SLACK", stats.getDestinationType());
+        assertEquals(100, stats.getAttempts());
+        assertEquals(98, stats.getSuccesses());
+        assertEquals(2, stats.getFailures());
+        assertEquals(1, stats.getRejected());
+        assertEquals(1, stats.getThrottled());
+
+        assertEquals(100, stats.getLatencyCount());
+        assertEquals(98, stats.getLatencyBuckets()[1]);
+        assertEquals(1, stats.getLatencyBuckets()[5]);
+        assertEquals(1, stats.getLatencyBuckets()[DeliveryMetrics.LATENCY_BUCKET_BOUNDS_MILLIS.length]);
+        assertEquals(120000, stats.getLatencyMaxMillis());
+        assertEquals(98 * 20 + 400 + 120000, stats.getLatencySumMillis());
+
+        assertEquals(25, stats.getLatencyPercentileMillis(50));
+        assertEquals(500, stats.getLatencyPercentileMillis(99));
+        assertEquals(120000, stats.getLatencyPercentileMillis(100));
+    }
+
+    @Test
+    public void testThrottledOnlyDestinationHasNoType() {
+        DeliveryMetrics metrics = new DeliveryMetrics();
+        metrics.recordThrottled(null, "dest");
+
+        DeliveryStats stats = stats(metrics, "dest");
+        assertNull(stats.getDestinationType());
+        assertEquals(0, stats.getLatencyPercentileMillis(50));
+    }
+
+    private DeliveryStats stats(DeliveryMetrics metrics, String destinationId) {
+        for (DeliveryStats stats : metrics.getStats()) {
+            if (stats.getDestinationId().equals(destinationId)) {
+                return stats;
+            }
+        }
+        throw new AssertionError("No stats for " + destinationId);
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistroforelasticsearch.alerting.destination;
+
+import com.amazon.opendistroforelasticsearch.alerting.destination.guard.DestinationGuard;
+import com.amazon.opendistroforelasticsearch.alerting.destination.guard.DestinationGuardConfig;
+import com.amazon.opendistroforelasticsearch.alerting.destination.guard.DestinationGuardStats;
+import com.amazon.opendistroforelasticsearch.alerting.destination.guard.DestinationRejectedException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class DestinationGuardTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private DestinationGuard guard;
+
+    @Before
+    public void setUp() {
+        guard = new DestinationGuard(clock::get);
+        guard.updateConfig(new DestinationGuardConfig.Builder()
+                .withPermitsPerSecond(1)
+                .withBurst(2)
+                .withWindowSize(4)
+                .withMinimumCalls(4)
+                .withFailureRateThreshold(0.5)
+                .withOpenDurationMillis(1000)
+                .build());
+    }
+
+    @Test
+    public void testRateLimitRejectsOnceBurstIsUsed() {
+        guard.acquire("dest");
+        guard.acquire("dest");
+        assertRejected("dest", DestinationRejectedException.Reason.RATE_LIMITED);
+
+        // Other destinations have their own bucket
+        guard.acquire("other");
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        guard.acquire("dest");
+        assertEquals(1, stats("dest").getRejectedRateLimited());
+    }
+
+    @Test
+    public void testCircuitOpensOnFailureRateAndClosesAfterTrial() {
+        for (int i = 0; i < 4; i++) {
+            clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+            guard.acquire("dest");
+            if (i % 2 == 0) {
+                guard.onFailure("dest");
+            } else {
+                guard.onSuccess("dest");
+            }
+        }
+        assertEquals(DestinationGuard.CircuitState.OPEN, stats("dest").getCircuitState());
+        assertRejected("dest", DestinationRejectedException.Reason.CIRCUIT_OPEN);
+
+        // After the open duration a single trial delivery is let through
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        guard.acquire("dest");
+        assertEquals(DestinationGuard.CircuitState.HALF_OPEN, stats("dest").getCircuitState());
+        assertRejected("dest", DestinationRejectedException.Reason.CIRCUIT_OPEN);
+
+        guard.onSuccess("dest");
+        DestinationGuardStats stats = stats("dest");
+        assertEquals(DestinationGuard.CircuitState.CLOSED, stats.getCircuitState());
+        assertEquals(3, stats.getSuccesses());
+        assertEquals(2, stats.getFailures());
+        assertEquals(2, stats.getRejectedCircuitOpen());
+    }
+
+    @Test
+    public void testFailedTrialReopensCircuit() {
+        for (int i = 0; i < 4; i++) {
+            clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+            guard.acquire("dest");
+            guard.onFailure("dest");
+        }
+        assertEquals(DestinationGuard.CircuitState.OPEN, stats("dest").getCircuitState());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        guard.acquire("dest");
+        guard.onFailure("dest");
+        assertEquals(DestinationGuard.CircuitState.OPEN, stats("dest").getCircuitState());
+        assertRejected("dest", DestinationRejectedException.Reason.CIRCUIT_OPEN);
+    }
+
+    @Test
+    public void testZeroPermitsPerSecondDisablesRateLimit() {
+        guard.updateConfig(new DestinationGuardConfig.Builder()
+                .withPermitsPerSecond(0)
+                .withBurst(1)
+                .build());
+        for (int i = 0; i < 10; i++) {
+            guard.acquire("dest");
+            guard.onSuccess("dest");
+        }
+        assertEquals(0, stats("dest").getRejectedRateLimited());
+    }
+
+    @Test
+    public void testMinimumCallsAboveWindowSizeAreCapped() {
+        guard.updateConfig(new DestinationGuardConfig.Builder()
+                .withPermitsPerSecond(0)
+                .withWindowSize(2)
+                .withMinimumCalls(10)
+                .withFailureRateThreshold(1)
+                .build());
+        guard.acquire("dest");
+        guard.onFailure("dest");
+        guard.acquire("dest");
+        guard.onFailure("dest");
+        assertEquals(DestinationGuard.CircuitState.OPEN, stats("dest").getCircuitState());
+    }
+
+    @Test
+    public void testIdleStatesAreEvicted() {
+        guard.acquire("idle");
+        guard.onSuccess("idle");
+        guard.acquire("in-flight");
+        for (int i = 0; i < 4; i++) {
+            guard.acquire("open");
+            guard.onFailure("open");
+            clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        }
+        assertEquals(DestinationGuard.CircuitState.OPEN, stats("open").getCircuitState());
+
+        guard.evictIdleStates();
+        assertEquals(3, guard.getStats().size());
+
+        clock.addAndGet(TimeUnit.HOURS.toNanos(1));
+        guard.evictIdleStates();
+        assertEquals(2, guard.getStats().size());
+        assertEquals(DestinationGuard.CircuitState.OPEN, stats("open").getCircuitState());
+
+        // Once its delivery completes, the in-flight destination is evicted when it goes idle
+        guard.onSuccess("in-flight");
+        assertEquals(1, stats("in-flight").getSuccesses());
+        clock.addAndGet(TimeUnit.HOURS.toNanos(1));
+        guard.evictIdleStates();
+        assertEquals(1, guard.getStats().size());
+        stats("open");
+    }
+
+    private void assertRejected(String destinationId, DestinationRejectedException.Reason reason) {
+        try {
+            guard.acquire(destinationId);
+            fail("Expected delivery to " + destinationId + " to be rejected");
+        } catch (DestinationRejectedException ex) {
+            assertEquals(reason, ex.getReason());
+        }
+    }
+
+    private DestinationGuardStats stats(String destinationId) {
+        for (DestinationGuardStats stats : guard.getStats()) {
+            if (stats.getDestinationId().equals(destinationId)) {
+                return stats;
+            }
+        }
+        throw new AssertionError("No stats for " + destinationId);
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ *   Copyright 2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License").
+ *   You may not use this file except in compliance with the License.
+ *   A copy of the License is located at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   or in the "license" file accompanying this file. This file is distributed
+ *   on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *   express or implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistroforelasticsearch.alerting.destination;
+
+import com.amazon.opendistroforelasticsearch.alerting.destination.client.DestinationEmailClient;
+import com.amazon.opendistroforelasticsearch.alerting.destination.client.SmtpTransportPool;
+import com.amazon.opendistroforelasticsearch.alerting.destination.message.EmailMessage;
+import org.elasticsearch.common.SuppressForbidden;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Delivers email messages through pooled SMTP transports to a local SMTP stand-in.
+ */
+@SuppressForbidden(reason = "use a local smtp server")
+public class PooledEmailDeliveryTest {
+
+    private ServerSocket serverSocket;
+    private ExecutorService serverExecutor;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger messages = new AtomicInteger();
+    private volatile boolean dropAfterMessage = false;
+
+    @Before
+    public void startServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        serverExecutor = Executors.newCachedThreadPool();
+        serverExecutor.submit(() -> {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    connections.incrementAndGet();
+                    serverExecutor.submit(() -> handle(socket));
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+    }
+
+    @After
+    public void stopServer() throws Exception {
+        serverSocket.close();
+        serverExecutor.shutdownNow();
+        serverExecutor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testTransportIsReused() throws Exception {
+        DestinationEmailClient client = client(new SmtpTransportPool());
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("Sent", client.execute(message("Test alert " + i)));
+        }
+        assertEquals(5, messages.get());
+        assertEquals(1, connections.get());
+    }
+
+    @Test
+    public void testTransportReconnectsAfterServerDropsConnection() throws Exception {
+        DestinationEmailClient client = client(new SmtpTransportPool());
+        dropAfterMessage = true;
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("Sent", client.execute(message("Test alert " + i)));
+        }
+        assertEquals(3, messages.get());
+        assertEquals(3, connections.get());
+    }
+
+    @Test
+    public void testIdleTransportIsNotReused() throws Exception {
+        DestinationEmailClient client = client(new SmtpTransportPool(SmtpTransportPool.DEFAULT_MAX_TRANSPORTS_PER_KEY, 1,
+                SmtpTransportPool.DEFAULT_LEASE_TIMEOUT_MILLIS));
+
+        assertEquals("Sent", client.execute(message("Test alert")));
+        Thread.sleep(50);
+        assertEquals("Sent", client.execute(message("Test alert")));
+        assertEquals(2, connections.get());
+    }
+
+    @Test
+    public void testConcurrentSendsAreBoundedByPoolSize() throws Exception {
+        int maxTransports = 2;
+        int concurrentSends = 20;
+        DestinationEmailClient client = client(new SmtpTransportPool(maxTransports,
+                SmtpTransportPool.DEFAULT_IDLE_TIMEOUT_MILLIS, SmtpTransportPool.DEFAULT_LEASE_TIMEOUT_MILLIS));
+
+        ExecutorService senders = Executors.newFixedThreadPool(concurrentSends);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < concurrentSends; i++) {
+                EmailMessage message = message("Test alert " + i);
+                results.add(senders.submit(() -> client.execute(message)));
+            }
+            for (Future<String> result : results) {
+                assertEquals("Sent", result.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            senders.shutdown();
+        }
+        assertEquals(concurrentSends, messages.get());
+        assertTrue(connections.get() <= maxTransports);
+    }
+
+    private DestinationEmailClient client(SmtpTransportPool pool) {
+        DestinationEmailClient client = new DestinationEmailClient();
+        client.setTransportPool(pool);
+        return client;
+    }
+
+    private EmailMessage message(String content) {
+        return new EmailMessage.Builder("stub")
+                .withHost(serverSocket.getInetAddress().getHostAddress())
+                .withPort(serverSocket.getLocalPort())
+                .withFrom("test@abc.com")
+                .withSubject("Test")
+                .withMessage(content)
+                .withRecipients(singletonList("test@abc.com")).build();
+    }
+
+    /**
+     * Speaks just enough SMTP for the client to deliver messages, accepting every command.
+     */
+    private void handle(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new OutputStreamWriter(s.getOutputStream(), StandardCharsets.US_ASCII)) {
+            reply(out, "220 stub ESMTP");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.toUpperCase(Locale.ROOT);
+                if (command.startsWith("DATA")) {
+                    reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                    while ((line = in.readLine()) != null && !line.equals(".")) { }
+                    messages.incrementAndGet();
+                    reply(out, "250 OK");
+                    if (dropAfterMessage) {
+                        return;
+                    }
+                } else if (command.startsWith("QUIT")) {
+                    reply(out, "221 Bye");
+                    return;
+                } else {
+                    reply(out, "250 OK");
+                }
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static void reply(Writer out, String response) throws IOException {
+        out.write(response + "\r\n");
+        out.flush();
+    }
+}